@@ -6,6 +6,28 @@ plugins {
 group = "com.payroc.interviews"
 version = "1.0-SNAPSHOT"
 
+java {
+    toolchain {
+        languageVersion.set(JavaLanguageVersion.of(21))
+    }
+}
+
+// Benchmarks live in their own source set so JMH never ends up on the application classpath.
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+configurations[jmh.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[jmh.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
+// End-to-end loopback load test harness (see LoadTest), also kept off the application classpath.
+val loadtest: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+configurations[loadtest.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[loadtest.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
 repositories {
     mavenCentral()
 }
@@ -14,12 +36,34 @@ dependencies {
     testImplementation(platform("org.junit:junit-bom:5.10.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
     implementation("com.fasterxml.jackson.core:jackson-databind:2.17.1")
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
 }
 
 tasks.test {
     useJUnitPlatform()
 }
 
+// ./gradlew jmh [--args="<JMH options>"], e.g. --args="SelectionStrategy -p poolSize=32 -wi 1 -i 3".
+// Results are also written to build/reports/jmh/results.json. Works with --offline once dependencies are cached.
+tasks.register<JavaExec>("jmh") {
+    group = "verification"
+    description = "Runs the JMH benchmarks."
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    val resultsFile = layout.buildDirectory.file("reports/jmh/results.json")
+    argumentProviders.add(CommandLineArgumentProvider { listOf("-rf", "json", "-rff", resultsFile.get().asFile.path) })
+    doFirst { resultsFile.get().asFile.parentFile.mkdirs() }
+}
+
+// ./gradlew loadtest --args="--connections 256 --payload 4096 --out build/reports/loadtest/run.json"
+tasks.register<JavaExec>("loadtest") {
+    group = "verification"
+    description = "Runs the end-to-end loopback load test."
+    classpath = loadtest.runtimeClasspath
+    mainClass.set("com.payroc.interviews.LoadTest")
+}
+
 application {
     mainClass.set("com.payroc.interviews.LoadBalancerApplication")
 }
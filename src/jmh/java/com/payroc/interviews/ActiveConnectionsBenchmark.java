@@ -0,0 +1,67 @@
+package com.payroc.interviews;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Server#incrementActive()} / {@link Server#decrementActive()} as a session open/close pair,
+ * on one backend shared by all threads (every session of a hot backend) and, as the uncontended
+ * baseline, on a backend per thread.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActiveConnectionsBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class SharedBackend {
+        final Server server = new Server("10.0.0.1", 8080);
+    }
+
+    @State(Scope.Thread)
+    public static class OwnBackend {
+        final Server server = new Server("10.0.0.1", 8080);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int uncontended(OwnBackend backend) {
+        return openAndClose(backend.server);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int shared4Threads(SharedBackend backend) {
+        return openAndClose(backend.server);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public int sharedAllCores(SharedBackend backend) {
+        return openAndClose(backend.server);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public int perThreadAllCores(OwnBackend backend) {
+        return openAndClose(backend.server);
+    }
+
+    private static int openAndClose(Server server) {
+        server.incrementActive();
+        server.decrementActive();
+        return server.getActiveConnections();
+    }
+}
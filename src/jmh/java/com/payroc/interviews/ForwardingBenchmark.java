@@ -0,0 +1,137 @@
+package com.payroc.interviews;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loopback forwarding throughput through a running {@link LoadBalancer} in front of an echo backend,
+ * per engine and forwarding buffer size. Each operation pushes {@link #PAYLOAD_BYTES} through the
+ * proxy and reads them back, so MB/s = ops/s x 2 x {@link #PAYLOAD_BYTES} / 2^20.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ForwardingBenchmark {
+    static final int PAYLOAD_BYTES = 32 * 1024;
+
+    @Param({"BLOCKING", "VIRTUAL", "NIO"})
+    public IoMode ioMode;
+
+    @Param({"1024", "8192", "65536"})
+    public int bufferSize;
+
+    private final byte[] payload = new byte[PAYLOAD_BYTES];
+    private final byte[] response = new byte[PAYLOAD_BYTES];
+    private ServerSocket echoListener;
+    private LoadBalancer loadBalancer;
+    private Socket client;
+    private OutputStream clientOut;
+    private InputStream clientIn;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        echoListener = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread.ofPlatform().daemon().name("bench-echo").start(this::echoLoop);
+        Path config = Files.createTempFile("lb-bench", ".json");
+        Files.writeString(config, "[{\"host\":\"127.0.0.1\",\"port\":" + echoListener.getLocalPort() + "}]");
+        config.toFile().deleteOnExit();
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        loadBalancer = new LoadBalancer(port, config.toString(), new RoundRobinSelectionStrategy());
+        loadBalancer.setIoMode(ioMode);
+        loadBalancer.setBufferSize(bufferSize);
+        loadBalancer.setHealthChecker(null);
+        Thread.ofPlatform().daemon().name("bench-lb").start(() -> {
+            try {
+                loadBalancer.start();
+            } catch (IOException startError) {
+                throw new IllegalStateException(startError);
+            }
+        });
+        client = connectWithRetry(port);
+        client.setTcpNoDelay(true);
+        clientOut = client.getOutputStream();
+        clientIn = client.getInputStream();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+        loadBalancer.stop();
+        echoListener.close();
+    }
+
+    @Benchmark
+    public int roundTrip() throws IOException {
+        clientOut.write(payload);
+        int read = 0;
+        while (read < PAYLOAD_BYTES) {
+            int n = clientIn.read(response, read, PAYLOAD_BYTES - read);
+            if (n < 0) throw new IOException("proxy closed the connection");
+            read += n;
+        }
+        return read;
+    }
+
+    private void echoLoop() {
+        try {
+            while (true) {
+                Socket accepted = echoListener.accept();
+                Thread.ofPlatform().daemon().start(() -> {
+                    byte[] buffer = new byte[64 * 1024];
+                    try (Socket socket = accepted) {
+                        InputStream in = socket.getInputStream();
+                        OutputStream out = socket.getOutputStream();
+                        int n;
+                        while ((n = in.read(buffer)) != -1) out.write(buffer, 0, n);
+                    } catch (IOException ignored) {
+                    }
+                });
+            }
+        } catch (IOException closed) {
+            // listener closed at tear-down
+        }
+    }
+
+    private static Socket connectWithRetry(int port) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            Socket socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1_000);
+                return socket;
+            } catch (IOException notListeningYet) {
+                socket.close();
+                if (System.nanoTime() > deadline) throw notListeningYet;
+                Thread.sleep(20);
+            }
+        }
+    }
+}
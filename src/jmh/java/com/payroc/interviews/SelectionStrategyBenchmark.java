@@ -0,0 +1,119 @@
+package com.payroc.interviews;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one backend pick for every strategy, at several pool sizes and thread counts.
+ * Selection goes through a prepared {@link BackendSnapshot}, exactly as the proxy engines call it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SelectionStrategyBenchmark {
+    private static final int CLIENT_ADDRESSES = 1024;
+
+    @Param({"roundrobin", "wrr", "random", "leastconn", "p2c", "ewma", "maglev"})
+    public String strategy;
+
+    @Param({"4", "32", "256", "1000"})
+    public int poolSize;
+
+    private BackendSnapshot snapshot;
+    private ServerSelectionStrategy selectionStrategy;
+
+    @Setup
+    public void setUp() {
+        selectionStrategy = newStrategy(strategy);
+        SplittableRandom random = new SplittableRandom(42);
+        List<Server> servers = new ArrayList<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            Server server = new Server("10.0." + (i / 256) + "." + (i % 256), 8080, 1 + random.nextInt(4));
+            for (int c = random.nextInt(8); c > 0; c--) server.incrementActive();
+            server.recordConnectTime(100_000 + random.nextInt(900_000));
+            servers.add(server);
+        }
+        snapshot = BackendSnapshot.of(1, servers, selectionStrategy);
+    }
+
+    /**
+     * Per-thread rotation over a fixed set of client addresses (only Maglev looks at them).
+     */
+    @State(Scope.Thread)
+    public static class Clients {
+        final InetAddress[] addresses = new InetAddress[CLIENT_ADDRESSES];
+        int next;
+
+        @Setup
+        public void setUp() throws UnknownHostException {
+            SplittableRandom random = new SplittableRandom();
+            for (int i = 0; i < addresses.length; i++) {
+                addresses[i] = InetAddress.getByAddress(new byte[]{
+                    (byte) 192, (byte) 168, (byte) random.nextInt(256), (byte) random.nextInt(256)});
+            }
+        }
+
+        InetAddress next() {
+            return addresses[next++ & (CLIENT_ADDRESSES - 1)];
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Server select1Thread(Clients clients) {
+        return selectionStrategy.select(snapshot, clients.next());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Server select4Threads(Clients clients) {
+        return selectionStrategy.select(snapshot, clients.next());
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Server selectAllCores(Clients clients) {
+        return selectionStrategy.select(snapshot, clients.next());
+    }
+
+    static ServerSelectionStrategy newStrategy(String name) {
+        switch (name) {
+            case "roundrobin":
+                return new RoundRobinSelectionStrategy();
+            case "wrr":
+                return new WeightedRoundRobinSelectionStrategy();
+            case "random":
+                return new RandomSelectionStrategy();
+            case "leastconn":
+                return new LeastConnectionsSelectionStrategy();
+            case "p2c":
+                return new PowerOfTwoChoicesSelectionStrategy();
+            case "ewma":
+                return new PeakEwmaSelectionStrategy();
+            case "maglev":
+                return new MaglevSelectionStrategy();
+            default:
+                throw new IllegalArgumentException("unknown strategy " + name);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.payroc.interviews;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Raw latency samples of one load-test worker. Each worker owns its recorder, so recording is
+ * an unsynchronised array append; recorders are merged and sorted once, after the run.
+ */
+final class LatencyRecorder {
+    private long[] samples = new long[1024];
+    private int size;
+
+    void record(long nanos) {
+        if (size == samples.length) samples = Arrays.copyOf(samples, size * 2);
+        samples[size++] = nanos;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return all samples of the given recorders, sorted ascending
+     */
+    static long[] merge(List<LatencyRecorder> recorders) {
+        int total = 0;
+        for (LatencyRecorder recorder : recorders) total += recorder.size;
+        long[] merged = new long[total];
+        int offset = 0;
+        for (LatencyRecorder recorder : recorders) {
+            System.arraycopy(recorder.samples, 0, merged, offset, recorder.size);
+            offset += recorder.size;
+        }
+        Arrays.sort(merged);
+        return merged;
+    }
+
+    /**
+     * @return the nearest-rank percentile of sorted samples, or 0 when there are none
+     */
+    static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.min(sorted.length - 1, Math.max(0, rank - 1))];
+    }
+}
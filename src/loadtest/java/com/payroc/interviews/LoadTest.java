@@ -0,0 +1,317 @@
+package com.payroc.interviews;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end load test on loopback: starts N in-process echo or sink backends and a {@link LoadBalancer}
+ * in front of them, then drives a fixed number of concurrent client connections for a fixed time.
+ * Each connection sends a payload and waits for the reply, over and over; with
+ * {@code --requests-per-connection} it reconnects after that many round trips, which sets the churn rate.
+ * Reports connections/s, throughput and p50/p99/p999 connect and round-trip latency, optionally as JSON.
+ */
+public final class LoadTest {
+    private static final int CONNECT_TIMEOUT_MS = 5_000;
+
+    private int backendCount = 4;
+    private LoadTestBackend.Mode backendMode = LoadTestBackend.Mode.ECHO;
+    private int concurrency = 64;
+    private int payloadSize = 1024;
+    private int requestsPerConnection = 0;
+    private int durationSeconds = 10;
+    private int warmupSeconds = 2;
+    private String ioModeName = "nio";
+    private String strategyName = "roundrobin";
+    private Integer bufferSize = null;
+    private Path outputFile = null;
+    private String label = null;
+
+    private static void usage() {
+        System.out.println("Usage: ./gradlew loadtest --args=\"[--backends <n>] [--backend-mode <echo|sink>] [--connections <n>]\n" +
+            "       [--payload <bytes>] [--requests-per-connection <n>] [--duration <s>] [--warmup <s>]\n" +
+            "       [--io <blocking|virtual|nio>] [--strategy <name>] [--buffer-size <bytes>] [--out <file.json>] [--label <text>]\"\n" +
+            "--requests-per-connection 0 keeps every connection open for the whole run (no churn).\n");
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTest loadTest = new LoadTest();
+        try {
+            if (!loadTest.parse(args)) {
+                usage();
+                return;
+            }
+        } catch (IllegalArgumentException badArgument) {
+            System.err.println(badArgument.getMessage());
+            usage();
+            return;
+        }
+        Map<String, Object> report = loadTest.run();
+        if (loadTest.outputFile != null) {
+            Path parent = loadTest.outputFile.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(loadTest.outputFile.toFile(), report);
+            System.out.println("Results written to " + loadTest.outputFile);
+        }
+        System.exit(0);
+    }
+
+    private boolean parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--backends" -> backendCount = positive(args, ++i);
+                case "--backend-mode" -> backendMode = LoadTestBackend.Mode.valueOf(value(args, ++i).toUpperCase(Locale.ROOT));
+                case "--connections" -> concurrency = positive(args, ++i);
+                case "--payload" -> payloadSize = positive(args, ++i);
+                case "--requests-per-connection" -> requestsPerConnection = Integer.parseInt(value(args, ++i));
+                case "--duration" -> durationSeconds = positive(args, ++i);
+                case "--warmup" -> warmupSeconds = Integer.parseInt(value(args, ++i));
+                case "--io" -> ioModeName = value(args, ++i);
+                case "--strategy" -> strategyName = value(args, ++i);
+                case "--buffer-size" -> bufferSize = positive(args, ++i);
+                case "--out" -> outputFile = Path.of(value(args, ++i));
+                case "--label" -> label = value(args, ++i);
+                default -> {
+                    if (!args[i].equals("--help") && !args[i].equals("-h")) System.out.println("Unknown argument: " + args[i]);
+                    return false;
+                }
+            }
+        }
+        if (requestsPerConnection < 0 || warmupSeconds < 0) throw new IllegalArgumentException("values must be >= 0");
+        return true;
+    }
+
+    private static String value(String[] args, int i) {
+        if (i >= args.length) throw new IllegalArgumentException("Missing value for " + args[i - 1]);
+        return args[i];
+    }
+
+    private static int positive(String[] args, int i) {
+        int parsed = Integer.parseInt(value(args, i));
+        if (parsed < 1) throw new IllegalArgumentException(args[i - 1] + " must be >= 1");
+        return parsed;
+    }
+
+    Map<String, Object> run() throws Exception {
+        List<LoadTestBackend> backends = new ArrayList<>();
+        StringBuilder config = new StringBuilder("[");
+        for (int i = 0; i < backendCount; i++) {
+            LoadTestBackend backend = new LoadTestBackend(backendMode, payloadSize);
+            backend.start();
+            backends.add(backend);
+            config.append(i == 0 ? "" : ",").append("{\"host\":\"127.0.0.1\",\"port\":").append(backend.getPort()).append('}');
+        }
+        Path configFile = Files.createTempFile("lb-loadtest", ".json");
+        Files.writeString(configFile, config.append(']').toString());
+        configFile.toFile().deleteOnExit();
+
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        LoadBalancer loadBalancer = new LoadBalancer(port, configFile.toString(), LoadBalancerApplication.strategyFor(strategyName));
+        loadBalancer.setIoMode(IoMode.valueOf(ioModeName.toUpperCase(Locale.ROOT)));
+        loadBalancer.setHealthChecker(null);
+        if (bufferSize != null) loadBalancer.setBufferSize(bufferSize);
+        Thread.ofPlatform().name("loadtest-lb").start(() -> {
+            try {
+                loadBalancer.start();
+            } catch (IOException startError) {
+                System.err.println("LoadTest: load balancer failed to start: " + startError.getMessage());
+            }
+        });
+        InetSocketAddress target = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        awaitListening(target);
+
+        System.out.printf("Load test: %d %s backend(s), %d connection(s), %d B payload, %s, %s engine, %ds (+%ds warmup)%n",
+            backendCount, backendMode.name().toLowerCase(Locale.ROOT), concurrency, payloadSize,
+            requestsPerConnection == 0 ? "persistent connections" : requestsPerConnection + " request(s)/connection",
+            ioModeName, durationSeconds, warmupSeconds);
+        long measureStart = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureStart + TimeUnit.SECONDS.toNanos(durationSeconds);
+        List<Worker> workers = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            Worker worker = new Worker(target, measureStart, end);
+            workers.add(worker);
+            threads.add(Thread.ofVirtual().name("loadtest-client-" + i).start(worker));
+        }
+        for (Thread thread : threads) thread.join();
+        loadBalancer.stop();
+        backends.forEach(LoadTestBackend::close);
+        return report(workers);
+    }
+
+    private Map<String, Object> report(List<Worker> workers) {
+        long connections = 0;
+        long roundTrips = 0;
+        long bytes = 0;
+        long errors = 0;
+        List<LatencyRecorder> connectRecorders = new ArrayList<>();
+        List<LatencyRecorder> rttRecorders = new ArrayList<>();
+        for (Worker worker : workers) {
+            connections += worker.connections;
+            roundTrips += worker.roundTrips;
+            bytes += worker.bytes;
+            errors += worker.errors;
+            connectRecorders.add(worker.connectLatency);
+            rttRecorders.add(worker.roundTripLatency);
+        }
+        long[] connectNanos = LatencyRecorder.merge(connectRecorders);
+        long[] rttNanos = LatencyRecorder.merge(rttRecorders);
+        double seconds = durationSeconds;
+
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("backends", backendCount);
+        settings.put("backendMode", backendMode.name().toLowerCase(Locale.ROOT));
+        settings.put("connections", concurrency);
+        settings.put("payloadBytes", payloadSize);
+        settings.put("requestsPerConnection", requestsPerConnection);
+        settings.put("durationSeconds", durationSeconds);
+        settings.put("warmupSeconds", warmupSeconds);
+        settings.put("io", ioModeName);
+        settings.put("strategy", strategyName);
+        settings.put("bufferSize", bufferSize);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("label", label);
+        report.put("timestamp", Instant.now().toString());
+        report.put("javaVersion", System.getProperty("java.version"));
+        report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        report.put("settings", settings);
+        report.put("connectionsOpened", connections);
+        report.put("connectionsPerSecond", connections / seconds);
+        report.put("roundTrips", roundTrips);
+        report.put("roundTripsPerSecond", roundTrips / seconds);
+        report.put("bytes", bytes);
+        report.put("throughputMiBPerSecond", bytes / seconds / (1024 * 1024));
+        report.put("errors", errors);
+        report.put("connectMicros", latencySummary(connectNanos));
+        report.put("roundTripMicros", latencySummary(rttNanos));
+
+        System.out.printf("connections: %d (%.1f/s), errors: %d%n", connections, connections / seconds, errors);
+        System.out.printf("round trips: %d (%.1f/s), throughput: %.2f MiB/s%n", roundTrips, roundTrips / seconds,
+            bytes / seconds / (1024 * 1024));
+        System.out.println("connect    " + formatSummary(connectNanos));
+        System.out.println("round trip " + formatSummary(rttNanos));
+        return report;
+    }
+
+    private static Map<String, Object> latencySummary(long[] sortedNanos) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", sortedNanos.length);
+        summary.put("p50", LatencyRecorder.percentile(sortedNanos, 50) / 1_000.0);
+        summary.put("p99", LatencyRecorder.percentile(sortedNanos, 99) / 1_000.0);
+        summary.put("p999", LatencyRecorder.percentile(sortedNanos, 99.9) / 1_000.0);
+        summary.put("max", LatencyRecorder.percentile(sortedNanos, 100) / 1_000.0);
+        return summary;
+    }
+
+    private static String formatSummary(long[] sortedNanos) {
+        return String.format(Locale.ROOT, "us: p50=%.1f p99=%.1f p999=%.1f max=%.1f (n=%d)",
+            LatencyRecorder.percentile(sortedNanos, 50) / 1_000.0, LatencyRecorder.percentile(sortedNanos, 99) / 1_000.0,
+            LatencyRecorder.percentile(sortedNanos, 99.9) / 1_000.0, LatencyRecorder.percentile(sortedNanos, 100) / 1_000.0,
+            sortedNanos.length);
+    }
+
+    private static void awaitListening(InetSocketAddress target) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            try (Socket probe = new Socket()) {
+                probe.connect(target, CONNECT_TIMEOUT_MS);
+                return;
+            } catch (IOException notYet) {
+                if (System.nanoTime() > deadline) throw notYet;
+                Thread.sleep(20);
+            }
+        }
+    }
+
+    /**
+     * One client connection slot. Only samples started after the warmup are recorded;
+     * counters are plain fields, read after the worker thread has been joined.
+     */
+    private final class Worker implements Runnable {
+        private final InetSocketAddress target;
+        private final long measureStart;
+        private final long end;
+        private final byte[] payload = new byte[payloadSize];
+        private final byte[] response = new byte[payloadSize];
+        private final int responseSize = backendMode == LoadTestBackend.Mode.ECHO ? payloadSize : 1;
+        private final LatencyRecorder connectLatency = new LatencyRecorder();
+        private final LatencyRecorder roundTripLatency = new LatencyRecorder();
+        private long connections;
+        private long roundTrips;
+        private long bytes;
+        private long errors;
+
+        Worker(InetSocketAddress target, long measureStart, long end) {
+            this.target = target;
+            this.measureStart = measureStart;
+            this.end = end;
+        }
+
+        @Override
+        public void run() {
+            while (System.nanoTime() < end) {
+                try (Socket socket = new Socket()) {
+                    long connectStart = System.nanoTime();
+                    socket.connect(target, CONNECT_TIMEOUT_MS);
+                    if (connectStart >= measureStart) {
+                        connectLatency.record(System.nanoTime() - connectStart);
+                        connections++;
+                    }
+                    socket.setTcpNoDelay(true);
+                    exchange(socket.getInputStream(), socket.getOutputStream());
+                } catch (IOException ioError) {
+                    if (System.nanoTime() < end) {
+                        errors++;
+                        pauseAfterError();
+                    }
+                }
+            }
+        }
+
+        private void exchange(InputStream in, OutputStream out) throws IOException {
+            for (int sent = 0; requestsPerConnection == 0 || sent < requestsPerConnection; sent++) {
+                long start = System.nanoTime();
+                if (start >= end) return;
+                out.write(payload);
+                int read = 0;
+                while (read < responseSize) {
+                    int n = in.read(response, read, responseSize - read);
+                    if (n < 0) throw new IOException("connection closed by proxy");
+                    read += n;
+                }
+                if (start >= measureStart) {
+                    roundTripLatency.record(System.nanoTime() - start);
+                    roundTrips++;
+                    bytes += payloadSize + responseSize;
+                }
+            }
+        }
+
+        private void pauseAfterError() {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
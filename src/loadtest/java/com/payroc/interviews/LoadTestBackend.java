@@ -0,0 +1,76 @@
+package com.payroc.interviews;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * In-process backend for the load test, one virtual thread per connection.
+ * An echo backend writes every byte back; a sink backend discards requests and answers each
+ * complete payload with a single acknowledgement byte, so upload-heavy traffic still has a round trip.
+ */
+final class LoadTestBackend {
+    enum Mode { ECHO, SINK }
+
+    private final Mode mode;
+    private final int payloadSize;
+    private final ServerSocket listener;
+    private volatile boolean closed = false;
+
+    LoadTestBackend(Mode mode, int payloadSize) throws IOException {
+        this.mode = mode;
+        this.payloadSize = payloadSize;
+        this.listener = new ServerSocket(0, 1024, InetAddress.getLoopbackAddress());
+    }
+
+    void start() {
+        Thread.ofPlatform().daemon().name("loadtest-backend-" + getPort()).start(this::acceptLoop);
+    }
+
+    int getPort() {
+        return listener.getLocalPort();
+    }
+
+    void close() {
+        closed = true;
+        try {
+            listener.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = listener.accept();
+                Thread.ofVirtual().start(() -> serve(socket));
+            } catch (IOException acceptError) {
+                if (!closed) System.err.println("LoadTestBackend: accept failed: " + acceptError.getMessage());
+            }
+        }
+    }
+
+    private void serve(Socket acceptedSocket) {
+        byte[] buffer = new byte[Math.max(8192, Math.min(payloadSize, 64 * 1024))];
+        try (Socket socket = acceptedSocket) {
+            socket.setTcpNoDelay(true);
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+            long received = 0;
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                if (mode == Mode.ECHO) {
+                    out.write(buffer, 0, n);
+                    continue;
+                }
+                received += n;
+                for (; received >= payloadSize; received -= payloadSize) out.write(1);
+            }
+        } catch (IOException ignored) {
+            // client or proxy went away
+        }
+    }
+}
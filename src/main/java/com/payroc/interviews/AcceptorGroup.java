@@ -0,0 +1,162 @@
+package com.payroc.interviews;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Listening side of the load balancer: one or more acceptor threads that drain the kernel
+ * accept queue in batches and hand each client channel to a dispatcher, which passes it on
+ * to the proxy engine's workers. Acceptors never select backends or create sessions themselves.
+ * <p>
+ * With several acceptors each binds its own SO_REUSEPORT listener where the platform supports
+ * it (Linux), so the kernel spreads new connections across them; elsewhere they share a listener.
+ * Accept errors (e.g. running out of file descriptors, which repeats on every wakeup) go to the {@link ProxyLog}.
+ */
+final class AcceptorGroup {
+    static final int DEFAULT_BACKLOG = 1024;
+    static final int DEFAULT_BATCH_SIZE = 64;
+
+    private final int port;
+    private final int acceptorCount;
+    private final int backlog;
+    private final int batchSize;
+    private final Consumer<SocketChannel> dispatcher;
+    private final ProxyLog log;
+    private final List<ServerSocketChannel> listeners = new ArrayList<>();
+    private final Selector[] selectors;
+    private final LongAdder acceptedCount = new LongAdder();
+    private final LongAdder wakeupCount = new LongAdder();
+    private boolean reusePort = false;
+    private volatile boolean closed = false;
+
+    AcceptorGroup(int port, int acceptorCount, int backlog, int batchSize, Consumer<SocketChannel> dispatcher) {
+        this(port, acceptorCount, backlog, batchSize, dispatcher, new ProxyLog());
+    }
+
+    AcceptorGroup(int port, int acceptorCount, int backlog, int batchSize, Consumer<SocketChannel> dispatcher, ProxyLog log) {
+        if (acceptorCount < 1) throw new IllegalArgumentException("acceptorCount must be >= 1");
+        if (batchSize < 1) throw new IllegalArgumentException("batchSize must be >= 1");
+        this.port = port;
+        this.acceptorCount = acceptorCount;
+        this.backlog = backlog;
+        this.batchSize = batchSize;
+        this.dispatcher = dispatcher;
+        this.log = log;
+        this.selectors = new Selector[acceptorCount];
+    }
+
+    /**
+     * Opens and binds the listener(s) and their selectors.
+     *
+     * @throws IOException if the port cannot be bound; anything already opened is closed
+     */
+    void bind() throws IOException {
+        try {
+            ServerSocketChannel first = ServerSocketChannel.open();
+            listeners.add(first);
+            reusePort = acceptorCount > 1 && first.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+            if (reusePort) first.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            first.bind(new InetSocketAddress(port), backlog);
+            int boundPort = ((InetSocketAddress) first.getLocalAddress()).getPort();
+            for (int i = 1; reusePort && i < acceptorCount; i++) {
+                ServerSocketChannel listener = ServerSocketChannel.open();
+                listeners.add(listener);
+                listener.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+                listener.bind(new InetSocketAddress(boundPort), backlog);
+            }
+            for (int i = 0; i < acceptorCount; i++) {
+                ServerSocketChannel listener = listeners.get(reusePort ? i : 0);
+                listener.configureBlocking(false);
+                selectors[i] = Selector.open();
+                listener.register(selectors[i], SelectionKey.OP_ACCEPT);
+            }
+        } catch (IOException bindError) {
+            close();
+            throw bindError;
+        }
+    }
+
+    /**
+     * Runs acceptor 0 on the calling thread and the rest on their own threads,
+     * returning once {@link #close()} is called.
+     */
+    void run() {
+        for (int i = 1; i < acceptorCount; i++) {
+            int index = i;
+            new Thread(() -> acceptLoop(index), "acceptor-" + i).start();
+        }
+        acceptLoop(0);
+    }
+
+    private void acceptLoop(int index) {
+        Selector selector = selectors[index];
+        ServerSocketChannel listener = listeners.get(reusePort ? index : 0);
+        try {
+            while (!closed) {
+                selector.select();
+                selector.selectedKeys().clear();
+                wakeupCount.increment();
+                int drained = 0;
+                while (drained < batchSize && !closed) {
+                    SocketChannel clientChannel;
+                    try {
+                        clientChannel = listener.accept();
+                    } catch (IOException acceptError) {
+                        if (!closed) log.error("AcceptorGroup", "accept loop error", null, acceptError);
+                        break;
+                    }
+                    if (clientChannel == null) break;
+                    drained++;
+                    dispatcher.accept(clientChannel);
+                }
+                acceptedCount.add(drained);
+            }
+        } catch (IOException | ClosedSelectorException selectError) {
+            if (!closed) System.err.println("Acceptor " + index + " stopped: " + selectError.getMessage());
+        } finally {
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Stops all acceptors and closes the listener(s). Safe to call more than once or before {@link #run()}.
+     */
+    void close() {
+        closed = true;
+        for (Selector selector : selectors) {
+            if (selector != null) selector.wakeup();
+        }
+        for (ServerSocketChannel listener : listeners) {
+            try {
+                listener.close();
+            } catch (IOException closeError) {
+                System.err.println("Error closing accept socket: " + closeError.getMessage());
+            }
+        }
+    }
+
+    boolean isReusePort() {
+        return reusePort;
+    }
+
+    long getAcceptedCount() {
+        return acceptedCount.sum();
+    }
+
+    long getWakeupCount() {
+        return wakeupCount.sum();
+    }
+}
@@ -0,0 +1,386 @@
+package com.payroc.interviews;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local HTTP admin listener exposing load balancer and per-backend metrics:
+ * {@code /metrics} in Prometheus text format and {@code /metrics.json} as JSON.
+ * It binds to loopback on its own port and serves requests on its own small thread pool,
+ * so scrapes never run on acceptor, event-loop or connection threads.
+ */
+final class AdminServer {
+    private static final int ADMIN_THREADS = 1;
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
+    private final LoadBalancer loadBalancer;
+    private final int port;
+    private HttpServer httpServer;
+    private ExecutorService executor;
+
+    AdminServer(LoadBalancer loadBalancer, int port) {
+        this.loadBalancer = loadBalancer;
+        this.port = port;
+    }
+
+    synchronized void start() throws IOException {
+        if (httpServer != null) return;
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> respond(exchange, "text/plain; version=0.0.4; charset=utf-8", renderPrometheus()));
+        server.createContext("/metrics.json", exchange -> respond(exchange, "application/json", renderJson()));
+        executor = Executors.newFixedThreadPool(ADMIN_THREADS, Thread.ofPlatform().daemon().name("admin-http-", 0).factory());
+        server.setExecutor(executor);
+        server.start();
+        httpServer = server;
+    }
+
+    synchronized void stop() {
+        if (httpServer == null) return;
+        httpServer.stop(0);
+        executor.shutdownNow();
+        httpServer = null;
+    }
+
+    /**
+     * @return the bound port (useful when started with port 0)
+     */
+    synchronized int getPort() {
+        return httpServer == null ? port : httpServer.getAddress().getPort();
+    }
+
+    private static void respond(HttpExchange exchange, String contentType, String body) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    String renderPrometheus() {
+        List<Server> backends = loadBalancer.getBackends();
+        StringBuilder out = new StringBuilder(1024 + backends.size() * 2048);
+        gauge(out, "lb_live_connections", "Proxied connections currently open.", loadBalancer.getLiveConnectionCount());
+        gauge(out, "lb_backend_snapshot_version", "Version of the published backend snapshot.", loadBalancer.getBackendSnapshot().getVersion());
+        counter(out, "lb_config_reloads_total", "Successful config reloads.", loadBalancer.getConfigReloadCount());
+        counter(out, "lb_config_reload_failures_total", "Failed config reloads.", loadBalancer.getConfigReloadFailureCount());
+        BufferPool bufferPool = loadBalancer.getBufferPool();
+        counter(out, "lb_buffer_pool_hits_total", "Forwarding buffers reused from the pool.", bufferPool.getHits());
+        counter(out, "lb_buffer_pool_misses_total", "Forwarding buffers newly allocated.", bufferPool.getMisses());
+        gauge(out, "lb_buffer_bytes_in_flight", "Bytes read but not yet written.", bufferPool.getBytesInFlight());
+        AdmissionController admission = loadBalancer.getAdmissionController();
+        if (admission != null) {
+            counter(out, "lb_admission_admitted_total", "Client connections admitted.", admission.getAdmittedCount());
+            header(out, "lb_admission_rejected_total", "counter", "Client connections reset at accept time, by limit.");
+            out.append("lb_admission_rejected_total{reason=\"rate\"} ").append(admission.getRateRejectedCount()).append('\n');
+            out.append("lb_admission_rejected_total{reason=\"client_limit\"} ").append(admission.getClientLimitRejectedCount()).append('\n');
+            out.append("lb_admission_rejected_total{reason=\"global_limit\"} ").append(admission.getGlobalLimitRejectedCount()).append('\n');
+        }
+
+        BackendWaitQueue waitQueue = loadBalancer.getWaitQueue();
+        if (waitQueue != null) {
+            gauge(out, "lb_wait_queue_depth", "Clients waiting for a backend slot.", waitQueue.getDepth());
+            gauge(out, "lb_wait_queue_capacity", "Maximum clients that may wait.", waitQueue.getCapacity());
+            counter(out, "lb_wait_queue_enqueued_total", "Clients that started waiting.", waitQueue.getEnqueuedCount());
+            counter(out, "lb_wait_queue_served_total", "Waiting clients that got a backend slot.", waitQueue.getServedCount());
+            counter(out, "lb_wait_queue_timeouts_total", "Waiting clients closed at the timeout.", waitQueue.getTimedOutCount());
+            counter(out, "lb_wait_queue_rejected_total", "Clients closed because the queue was full.", waitQueue.getRejectedFullCount());
+            header(out, "lb_wait_queue_wait_seconds", "histogram", "Time served clients spent waiting.");
+            histogram(out, "lb_wait_queue_wait_seconds", "", waitQueue.getWaitTime());
+        }
+        SessionTimeouts timeouts = loadBalancer.getSessionTimeouts();
+        if (timeouts != null) {
+            header(out, "lb_session_timeouts_total", "counter", "Sessions closed by a timeout, by kind.");
+            out.append("lb_session_timeouts_total{reason=\"idle\"} ").append(timeouts.getIdleTimeoutCount()).append('\n');
+            out.append("lb_session_timeouts_total{reason=\"lifetime\"} ").append(timeouts.getLifetimeTimeoutCount()).append('\n');
+            gauge(out, "lb_timer_pending_timeouts", "Connect and session timeouts scheduled on the timing wheel.",
+                timeouts.getTimer().getPendingCount());
+        }
+        DnsCache dnsCache = loadBalancer.getDnsCache();
+        if (dnsCache != null) {
+            counter(out, "lb_dns_resolutions_total", "Successful backend hostname resolutions.", dnsCache.getResolutionCount());
+            counter(out, "lb_dns_failures_total", "Failed backend hostname resolutions.", dnsCache.getFailureCount());
+            counter(out, "lb_dns_stale_served_total", "Failed refreshes that kept the previous answer.", dnsCache.getStaleServedCount());
+            gauge(out, "lb_dns_hostnames", "Backend hostnames being refreshed.", dnsCache.getHostCount());
+        }
+        ProxyLog log = loadBalancer.getProxyLog();
+        header(out, "lb_log_written_total", "counter", "Log lines written, by log.");
+        out.append("lb_log_written_total{log=\"access\"} ").append(log.getAccessWrittenCount()).append('\n');
+        out.append("lb_log_written_total{log=\"error\"} ").append(log.getErrorWrittenCount()).append('\n');
+        header(out, "lb_log_dropped_total", "counter", "Log records dropped because the ring buffer was full or the write failed.");
+        out.append("lb_log_dropped_total{log=\"access\"} ").append(log.getAccessDroppedCount()).append('\n');
+        out.append("lb_log_dropped_total{log=\"error\"} ").append(log.getErrorDroppedCount()).append('\n');
+        counter(out, "lb_log_suppressed_total", "Duplicate errors not written.", log.getSuppressedCount());
+        OutlierDetector detector = loadBalancer.getOutlierDetector();
+        if (detector != null) {
+            counter(out, "lb_outlier_ejections_total", "Backends ejected by outlier detection.", detector.getEjectionCount());
+            counter(out, "lb_outlier_ejections_skipped_total", "Ejections refused by the ejected-percentage cap.",
+                detector.getEjectionsSkippedCount());
+            counter(out, "lb_outlier_recoveries_total", "Half-open backends that passed their trial.", detector.getRecoveryCount());
+        }
+        ConnectRetryPolicy retryPolicy = loadBalancer.getConnectRetryPolicy();
+        if (retryPolicy != null) {
+            counter(out, "lb_connect_retries_total", "Failed backend connects retried against another backend.",
+                retryPolicy.getRetryCount());
+            counter(out, "lb_connect_retry_budget_exhausted_total", "Connect retries refused by the retry budget.",
+                retryPolicy.getBudgetExhaustedCount());
+        }
+        TlsTerminator tls = loadBalancer.getTlsTerminator();
+        if (tls != null) {
+            header(out, "lb_tls_handshakes_total", "counter", "Client TLS handshakes, by result.");
+            out.append("lb_tls_handshakes_total{result=\"full\"} ").append(tls.getFullHandshakeCount()).append('\n');
+            out.append("lb_tls_handshakes_total{result=\"resumed\"} ").append(tls.getResumedHandshakeCount()).append('\n');
+            out.append("lb_tls_handshakes_total{result=\"failed\"} ").append(tls.getFailedHandshakeCount()).append('\n');
+            header(out, "lb_tls_resumption_ratio", "gauge", "Share of completed TLS handshakes that resumed a session.");
+            out.append("lb_tls_resumption_ratio ").append(formatDouble(tls.getResumptionRatio())).append('\n');
+            gauge(out, "lb_tls_session_cache_capacity", "Sessions the server-side TLS session cache holds at most.",
+                tls.getSessionCacheSize());
+        }
+
+        header(out, "lb_backend_up", "gauge", "1 if the backend is healthy.");
+        for (Server s : backends) sample(out, "lb_backend_up", s, null, s.isHealthy() ? 1 : 0);
+        header(out, "lb_backend_draining", "gauge", "1 if the backend is in drain mode.");
+        for (Server s : backends) sample(out, "lb_backend_draining", s, null, s.isDraining() ? 1 : 0);
+        header(out, "lb_backend_circuit_state", "gauge", "Circuit breaker state: 0 closed, 1 open (ejected), 2 half-open.");
+        for (Server s : backends) sample(out, "lb_backend_circuit_state", s, null, s.getCircuitBreaker().getState().ordinal());
+        header(out, "lb_backend_slow_start_share", "gauge", "Share of picks the backend accepts (below 1 during slow start).");
+        for (Server s : backends) {
+            out.append("lb_backend_slow_start_share{").append(backendLabel(s)).append("} ")
+                .append(formatDouble(s.getCircuitBreaker().slowStartShare())).append('\n');
+        }
+        header(out, "lb_backend_active_connections", "gauge", "Open connections to the backend.");
+        for (Server s : backends) sample(out, "lb_backend_active_connections", s, null, s.getActiveConnections());
+        header(out, "lb_backend_reserved_slots", "gauge", "Sessions holding a slot of a capped backend.");
+        for (Server s : backends) sample(out, "lb_backend_reserved_slots", s, null, s.getReservedSlots());
+        header(out, "lb_backend_connections_total", "counter", "Client connections assigned to the backend.");
+        for (Server s : backends) sample(out, "lb_backend_connections_total", s, null, s.getMetrics().getConnections());
+        header(out, "lb_backend_connect_failures_total", "counter", "Failed connects to the backend.");
+        for (Server s : backends) sample(out, "lb_backend_connect_failures_total", s, null, s.getMetrics().getConnectFailures());
+        header(out, "lb_backend_sent_bytes_total", "counter", "Bytes forwarded from clients to the backend.");
+        for (Server s : backends) sample(out, "lb_backend_sent_bytes_total", s, null, s.getMetrics().getBytesToBackend());
+        header(out, "lb_backend_received_bytes_total", "counter", "Bytes forwarded from the backend to clients.");
+        for (Server s : backends) sample(out, "lb_backend_received_bytes_total", s, null, s.getMetrics().getBytesFromBackend());
+        if (loadBalancer.getProxyMode() == ProxyMode.HTTP) {
+            header(out, "lb_backend_http_responses_total", "counter", "HTTP responses from the backend, by status class.");
+            for (Server s : backends) {
+                for (int statusClass = 1; statusClass <= 5; statusClass++) {
+                    sample(out, "lb_backend_http_responses_total", backendLabel(s) + ",code=\"" + statusClass + "xx\"", null,
+                        s.getMetrics().getResponses(statusClass));
+                }
+            }
+            header(out, "lb_backend_reused_connections_total", "counter", "HTTP requests sent on a pooled backend connection.");
+            for (Server s : backends) sample(out, "lb_backend_reused_connections_total", s, null, s.getMetrics().getReusedConnections());
+        }
+        header(out, "lb_backend_connect_seconds", "histogram", "TCP connect time of fresh backend connections.");
+        for (Server s : backends) histogram(out, "lb_backend_connect_seconds", s, s.getMetrics().getConnectTime());
+        header(out, "lb_backend_session_seconds", "histogram", "Duration of proxied sessions.");
+        for (Server s : backends) histogram(out, "lb_backend_session_seconds", s, s.getMetrics().getSessionDuration());
+        return out.toString();
+    }
+
+    String renderJson() throws JsonProcessingException {
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("liveConnections", loadBalancer.getLiveConnectionCount());
+        root.put("snapshotVersion", loadBalancer.getBackendSnapshot().getVersion());
+        root.put("configReloads", loadBalancer.getConfigReloadCount());
+        root.put("configReloadFailures", loadBalancer.getConfigReloadFailureCount());
+        BufferPool bufferPool = loadBalancer.getBufferPool();
+        root.put("bufferPool", Map.of("hits", bufferPool.getHits(), "misses", bufferPool.getMisses(),
+            "bytesInFlight", bufferPool.getBytesInFlight()));
+        AdmissionController admission = loadBalancer.getAdmissionController();
+        if (admission != null) {
+            Map<String, Object> admissionJson = new LinkedHashMap<>();
+            admissionJson.put("active", admission.getActiveCount());
+            admissionJson.put("admitted", admission.getAdmittedCount());
+            admissionJson.put("rejectedRate", admission.getRateRejectedCount());
+            admissionJson.put("rejectedClientLimit", admission.getClientLimitRejectedCount());
+            admissionJson.put("rejectedGlobalLimit", admission.getGlobalLimitRejectedCount());
+            root.put("admission", admissionJson);
+        }
+        BackendWaitQueue waitQueue = loadBalancer.getWaitQueue();
+        if (waitQueue != null) {
+            Map<String, Object> queueJson = new LinkedHashMap<>();
+            queueJson.put("depth", waitQueue.getDepth());
+            queueJson.put("capacity", waitQueue.getCapacity());
+            queueJson.put("enqueued", waitQueue.getEnqueuedCount());
+            queueJson.put("served", waitQueue.getServedCount());
+            queueJson.put("timedOut", waitQueue.getTimedOutCount());
+            queueJson.put("rejectedFull", waitQueue.getRejectedFullCount());
+            queueJson.put("waitSeconds", histogramJson(waitQueue.getWaitTime()));
+            root.put("waitQueue", queueJson);
+        }
+        SessionTimeouts timeouts = loadBalancer.getSessionTimeouts();
+        if (timeouts != null) {
+            Map<String, Object> timeoutJson = new LinkedHashMap<>();
+            timeoutJson.put("idle", timeouts.getIdleTimeoutCount());
+            timeoutJson.put("lifetime", timeouts.getLifetimeTimeoutCount());
+            timeoutJson.put("pendingTimers", timeouts.getTimer().getPendingCount());
+            root.put("sessionTimeouts", timeoutJson);
+        }
+        DnsCache dnsCache = loadBalancer.getDnsCache();
+        if (dnsCache != null) {
+            Map<String, Object> dnsJson = new LinkedHashMap<>();
+            dnsJson.put("hostnames", dnsCache.getHostCount());
+            dnsJson.put("resolutions", dnsCache.getResolutionCount());
+            dnsJson.put("failures", dnsCache.getFailureCount());
+            dnsJson.put("staleServed", dnsCache.getStaleServedCount());
+            root.put("dns", dnsJson);
+        }
+        ProxyLog log = loadBalancer.getProxyLog();
+        Map<String, Object> logJson = new LinkedHashMap<>();
+        logJson.put("accessWritten", log.getAccessWrittenCount());
+        logJson.put("accessDropped", log.getAccessDroppedCount());
+        logJson.put("errorsWritten", log.getErrorWrittenCount());
+        logJson.put("errorsDropped", log.getErrorDroppedCount());
+        logJson.put("errorsSuppressed", log.getSuppressedCount());
+        root.put("log", logJson);
+        OutlierDetector detector = loadBalancer.getOutlierDetector();
+        if (detector != null) {
+            Map<String, Object> outlierJson = new LinkedHashMap<>();
+            outlierJson.put("ejections", detector.getEjectionCount());
+            outlierJson.put("ejectionsSkipped", detector.getEjectionsSkippedCount());
+            outlierJson.put("recoveries", detector.getRecoveryCount());
+            root.put("outlierDetection", outlierJson);
+        }
+        ConnectRetryPolicy retryPolicy = loadBalancer.getConnectRetryPolicy();
+        if (retryPolicy != null) {
+            Map<String, Object> retryJson = new LinkedHashMap<>();
+            retryJson.put("retries", retryPolicy.getRetryCount());
+            retryJson.put("budgetExhausted", retryPolicy.getBudgetExhaustedCount());
+            root.put("connectRetry", retryJson);
+        }
+        TlsTerminator tls = loadBalancer.getTlsTerminator();
+        if (tls != null) {
+            Map<String, Object> tlsJson = new LinkedHashMap<>();
+            tlsJson.put("fullHandshakes", tls.getFullHandshakeCount());
+            tlsJson.put("resumedHandshakes", tls.getResumedHandshakeCount());
+            tlsJson.put("failedHandshakes", tls.getFailedHandshakeCount());
+            tlsJson.put("resumptionRatio", tls.getResumptionRatio());
+            tlsJson.put("sessionCacheCapacity", tls.getSessionCacheSize());
+            tlsJson.put("sessionTimeoutSeconds", tls.getSessionTimeoutSeconds());
+            root.put("tls", tlsJson);
+        }
+        List<Map<String, Object>> backends = new ArrayList<>();
+        for (Server s : loadBalancer.getBackends()) {
+            BackendMetrics metrics = s.getMetrics();
+            Map<String, Object> backend = new LinkedHashMap<>();
+            backend.put("backend", s.getHost() + ":" + s.getPort());
+            backend.put("hostname", s.getHostname());
+            backend.put("weight", s.getWeight());
+            backend.put("maxConnections", s.getMaxConnections());
+            backend.put("reservedSlots", s.getReservedSlots());
+            backend.put("healthy", s.isHealthy());
+            backend.put("draining", s.isDraining());
+            backend.put("circuit", s.getCircuitBreaker().getState().name());
+            backend.put("slowStartShare", s.getCircuitBreaker().slowStartShare());
+            backend.put("activeConnections", s.getActiveConnections());
+            backend.put("connections", metrics.getConnections());
+            backend.put("connectFailures", metrics.getConnectFailures());
+            backend.put("sentBytes", metrics.getBytesToBackend());
+            backend.put("receivedBytes", metrics.getBytesFromBackend());
+            if (loadBalancer.getProxyMode() == ProxyMode.HTTP) {
+                Map<String, Long> responses = new LinkedHashMap<>();
+                for (int statusClass = 1; statusClass <= 5; statusClass++) responses.put(statusClass + "xx", metrics.getResponses(statusClass));
+                backend.put("httpResponses", responses);
+                backend.put("reusedConnections", metrics.getReusedConnections());
+            }
+            backend.put("latencyEstimateMicros", s.getLatencyEstimateMicros());
+            backend.put("connectSeconds", histogramJson(metrics.getConnectTime()));
+            backend.put("sessionSeconds", histogramJson(metrics.getSessionDuration()));
+            backends.add(backend);
+        }
+        root.put("backends", backends);
+        return JSON_MAPPER.writeValueAsString(root);
+    }
+
+    private static Map<String, Object> histogramJson(LatencyHistogram histogram) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        double[] bounds = histogram.getBoundsSeconds();
+        long[] cumulative = histogram.getCumulativeCounts();
+        Map<String, Long> buckets = new LinkedHashMap<>();
+        for (int i = 0; i < bounds.length; i++) buckets.put(formatDouble(bounds[i]), cumulative[i]);
+        buckets.put("+Inf", cumulative[bounds.length]);
+        json.put("count", cumulative[bounds.length]);
+        json.put("sum", histogram.getSumSeconds());
+        json.put("buckets", buckets);
+        return json;
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, long value) {
+        header(out, name, "gauge", help);
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        header(out, name, "counter", help);
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, Server server, String le, long value) {
+        sample(out, name, backendLabel(server), le, value);
+    }
+
+    /**
+     * @param labels label pairs without braces (may be empty)
+     */
+    private static void sample(StringBuilder out, String name, String labels, String le, long value) {
+        out.append(name);
+        if (!labels.isEmpty() || le != null) {
+            out.append('{').append(labels);
+            if (le != null) out.append(labels.isEmpty() ? "" : ",").append("le=\"").append(le).append('"');
+            out.append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static void histogram(StringBuilder out, String name, Server server, LatencyHistogram histogram) {
+        histogram(out, name, backendLabel(server), histogram);
+    }
+
+    private static void histogram(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        double[] bounds = histogram.getBoundsSeconds();
+        long[] cumulative = histogram.getCumulativeCounts();
+        for (int i = 0; i < bounds.length; i++) sample(out, name + "_bucket", labels, formatDouble(bounds[i]), cumulative[i]);
+        sample(out, name + "_bucket", labels, "+Inf", cumulative[bounds.length]);
+        out.append(name).append("_sum").append(labels.isEmpty() ? "" : "{" + labels + "}").append(' ')
+            .append(formatDouble(histogram.getSumSeconds())).append('\n');
+        sample(out, name + "_count", labels, null, cumulative[bounds.length]);
+    }
+
+    private static String backendLabel(Server server) {
+        return "backend=\"" + escape(server.getHost() + ":" + server.getPort()) + "\"";
+    }
+
+    private static String formatDouble(double value) {
+        return Double.toString(value);
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,204 @@
+package com.payroc.interviews;
+
+import java.net.InetAddress;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accept-time admission control: a token bucket per client IP limits how fast one address may open
+ * connections, and counters cap concurrent connections per IP and in total. Checked on the acceptor
+ * thread before any backend work, so a rejected client costs one lookup and a close.
+ * <p>
+ * Client state lives in a fixed number of lock-striped, access-ordered maps. An entry with no open
+ * connections whose bucket has refilled carries no information and is evicted as soon as it is the
+ * least recently seen; past the size bound, idle entries are evicted even before they refill.
+ * So memory stays flat under address churn while the hot path never scans the whole table.
+ */
+public class AdmissionController {
+    public static final int DEFAULT_MAX_TRACKED_CLIENTS = 65_536;
+    private static final int STRIPES = 64;
+    private static final int MAX_EVICTIONS_PER_CALL = 8;
+
+    private final double refillPerNano;
+    private final double burst;
+    private final int maxPerClient;
+    private final int maxTotal;
+    private final int maxEntriesPerStripe;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final AtomicInteger total = new AtomicInteger();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejectedRate = new LongAdder();
+    private final LongAdder rejectedClientLimit = new LongAdder();
+    private final LongAdder rejectedGlobalLimit = new LongAdder();
+
+    /**
+     * @param connectionsPerSecond sustained new connections per client IP (0 = no rate limit)
+     * @param burst                connections a client IP may open at once before the rate applies
+     * @param maxPerClient         concurrent connections per client IP (0 = unlimited)
+     * @param maxTotal             concurrent connections across all clients (0 = unlimited)
+     * @param maxTrackedClients    soft bound on client IPs kept in memory
+     */
+    public AdmissionController(double connectionsPerSecond, int burst, int maxPerClient, int maxTotal, int maxTrackedClients) {
+        if (connectionsPerSecond < 0 || maxPerClient < 0 || maxTotal < 0) throw new IllegalArgumentException("limits must be >= 0");
+        if (connectionsPerSecond > 0 && burst < 1) throw new IllegalArgumentException("burst must be >= 1");
+        if (maxTrackedClients < STRIPES) throw new IllegalArgumentException("maxTrackedClients must be >= " + STRIPES);
+        this.refillPerNano = connectionsPerSecond / 1e9;
+        this.burst = burst;
+        this.maxPerClient = maxPerClient;
+        this.maxTotal = maxTotal;
+        this.maxEntriesPerStripe = maxTrackedClients / STRIPES;
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe();
+    }
+
+    public AdmissionController(double connectionsPerSecond, int burst, int maxPerClient, int maxTotal) {
+        this(connectionsPerSecond, burst, maxPerClient, maxTotal, DEFAULT_MAX_TRACKED_CLIENTS);
+    }
+
+    /**
+     * Takes a token and a connection slot for the client. Every {@code true} must be paired with one
+     * {@link #release(InetAddress)} when the connection closes.
+     *
+     * @return false if the client or the whole balancer is over a limit; nothing is held in that case
+     */
+    boolean tryAcquire(InetAddress client) {
+        if (maxTotal > 0 && total.incrementAndGet() > maxTotal) {
+            total.decrementAndGet();
+            rejectedGlobalLimit.increment();
+            return false;
+        }
+        if (maxTotal == 0) total.incrementAndGet();
+        Stripe stripe = stripeFor(client);
+        long now = System.nanoTime();
+        boolean accepted;
+        synchronized (stripe) {
+            ClientState state = stripe.get(client);
+            if (state == null) {
+                stripe.evictIdle(now);
+                state = new ClientState(burst, now);
+                stripe.put(client, state);
+            }
+            accepted = state.tryAdmit(now);
+        }
+        if (!accepted) total.decrementAndGet();
+        else admitted.increment();
+        return accepted;
+    }
+
+    void release(InetAddress client) {
+        total.decrementAndGet();
+        Stripe stripe = stripeFor(client);
+        synchronized (stripe) {
+            ClientState state = stripe.get(client);
+            if (state != null && state.active > 0) state.active--;
+        }
+    }
+
+    private Stripe stripeFor(InetAddress client) {
+        int h = client.hashCode() * 0x9E3779B9;
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * @return concurrent connections currently admitted
+     */
+    public int getActiveCount() {
+        return total.get();
+    }
+
+    public long getAdmittedCount() {
+        return admitted.sum();
+    }
+
+    /**
+     * @return connections rejected because their client IP ran out of tokens
+     */
+    public long getRateRejectedCount() {
+        return rejectedRate.sum();
+    }
+
+    /**
+     * @return connections rejected because their client IP was at its concurrent limit
+     */
+    public long getClientLimitRejectedCount() {
+        return rejectedClientLimit.sum();
+    }
+
+    /**
+     * @return connections rejected because the balancer was at its total concurrent limit
+     */
+    public long getGlobalLimitRejectedCount() {
+        return rejectedGlobalLimit.sum();
+    }
+
+    /**
+     * @return client IPs currently tracked (for tests and diagnostics; locks every stripe in turn)
+     */
+    int getTrackedClientCount() {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                count += stripe.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * One lock stripe; access-ordered so its eldest entries are the least recently seen clients.
+     */
+    private final class Stripe extends LinkedHashMap<InetAddress, ClientState> {
+        private static final long serialVersionUID = 1L;
+
+        Stripe() {
+            super(16, 0.75f, true);
+        }
+
+        void evictIdle(long now) {
+            Iterator<ClientState> eldestFirst = values().iterator();
+            for (int i = 0; i < MAX_EVICTIONS_PER_CALL && eldestFirst.hasNext(); i++) {
+                ClientState state = eldestFirst.next();
+                if (state.active > 0) continue;
+                if (size() < maxEntriesPerStripe && !state.isRefilled(now)) return;
+                eldestFirst.remove();
+            }
+        }
+    }
+
+    private final class ClientState {
+        private double tokens;
+        private long refilledAtNanos;
+        private int active;
+
+        ClientState(double tokens, long now) {
+            this.tokens = tokens;
+            this.refilledAtNanos = now;
+        }
+
+        boolean tryAdmit(long now) {
+            if (maxPerClient > 0 && active >= maxPerClient) {
+                rejectedClientLimit.increment();
+                return false;
+            }
+            if (refillPerNano > 0) {
+                tokens = Math.min(burst, tokens + (now - refilledAtNanos) * refillPerNano);
+                refilledAtNanos = now;
+                if (tokens < 1) {
+                    rejectedRate.increment();
+                    return false;
+                }
+                tokens -= 1;
+            }
+            active++;
+            return true;
+        }
+
+        /**
+         * A full bucket and no open connections is the same as never having seen the client.
+         */
+        boolean isRefilled(long now) {
+            return refillPerNano == 0 || tokens + (now - refilledAtNanos) * refillPerNano >= burst;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.payroc.interviews;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Pool of pre-established idle connections to one backend, so a new client session can skip
+ * the backend TCP handshake. Idle channels older than the TTL are discarded, and every channel
+ * is checked for liveness (no EOF, no unsolicited bytes) before it is handed out.
+ * Refills run asynchronously on the shared scheduler whenever the idle count drops below the minimum.
+ * In HTTP mode, connections whose last response ended cleanly are offered back for the next request.
+ */
+class BackendConnectionPool {
+    private final Server server;
+    private final int minIdle;
+    private final int maxIdle;
+    private final long idleTtlNanos;
+    private final ScheduledExecutorService scheduler;
+    private final IntSupplier connectTimeoutMillis;
+    private final ConcurrentLinkedDeque<IdleConnection> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicBoolean refillPending = new AtomicBoolean();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private volatile boolean closed = false;
+
+    BackendConnectionPool(Server server, int minIdle, int maxIdle, long idleTtlMillis, ScheduledExecutorService scheduler) {
+        this(server, minIdle, maxIdle, idleTtlMillis, scheduler, () -> BackendConnector.DEFAULT_REFILL_CONNECT_TIMEOUT_MS);
+    }
+
+    /**
+     * @param connectTimeoutMillis timeout of each refill connect, read per connect; must be bounded, since refills
+     *                             of all pools share the scheduler's few threads
+     */
+    BackendConnectionPool(Server server, int minIdle, int maxIdle, long idleTtlMillis, ScheduledExecutorService scheduler,
+                          IntSupplier connectTimeoutMillis) {
+        if (minIdle < 0 || maxIdle < minIdle) throw new IllegalArgumentException("require 0 <= minIdle <= maxIdle");
+        if (idleTtlMillis <= 0) throw new IllegalArgumentException("idleTtlMillis must be > 0");
+        this.server = server;
+        this.minIdle = minIdle;
+        this.maxIdle = maxIdle;
+        this.idleTtlNanos = idleTtlMillis * 1_000_000L;
+        this.scheduler = scheduler;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    /**
+     * Takes a validated idle connection, in blocking mode.
+     *
+     * @return a connected channel, or null if none is available (the caller connects directly)
+     */
+    SocketChannel acquire() {
+        IdleConnection candidate;
+        while ((candidate = idle.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            if (!isExpired(candidate, System.nanoTime()) && isAlive(candidate.channel)) {
+                hits.increment();
+                scheduleRefill();
+                return candidate.channel;
+            }
+            discard(candidate.channel);
+        }
+        misses.increment();
+        scheduleRefill();
+        return null;
+    }
+
+    /**
+     * Drops expired idle connections and tops the pool back up to the minimum.
+     * Run periodically by the owner.
+     */
+    void maintain() {
+        long now = System.nanoTime();
+        for (IdleConnection connection : idle) {
+            if (isExpired(connection, now) && idle.removeFirstOccurrence(connection)) {
+                idleCount.decrementAndGet();
+                discard(connection.channel);
+            }
+        }
+        scheduleRefill();
+    }
+
+    /**
+     * Closes every idle connection and stops refilling. Connections already handed out are unaffected.
+     */
+    void close() {
+        closed = true;
+        IdleConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            closeQuietly(connection.channel);
+        }
+    }
+
+    private void scheduleRefill() {
+        if (closed || idleCount.get() >= minIdle || !refillPending.compareAndSet(false, true)) return;
+        try {
+            scheduler.execute(this::refill);
+        } catch (RuntimeException rejected) {
+            refillPending.set(false);
+        }
+    }
+
+    private void refill() {
+        try {
+            while (!closed && idleCount.get() < minIdle) {
+                SocketChannel channel;
+                try {
+                    channel = BackendConnector.open(server, connectTimeoutMillis.getAsInt());
+                } catch (IOException connectErr) {
+                    // Backend unreachable; the next acquire() or maintain() will try again.
+                    return;
+                }
+                offer(channel);
+            }
+        } finally {
+            refillPending.set(false);
+        }
+    }
+
+    /**
+     * Adds a connected channel as the most recently idle one, or closes it if the pool is full or closed.
+     */
+    void offer(SocketChannel channel) {
+        if (closed || idleCount.incrementAndGet() > maxIdle) {
+            idleCount.decrementAndGet();
+            closeQuietly(channel);
+            return;
+        }
+        idle.addFirst(new IdleConnection(channel, System.nanoTime()));
+        if (closed) close();
+    }
+
+    private boolean isExpired(IdleConnection connection, long now) {
+        return now - connection.idleSinceNanos > idleTtlNanos;
+    }
+
+    /**
+     * A healthy idle connection has nothing to read: EOF means the backend closed it,
+     * and unsolicited bytes mean it is no longer in a clean protocol state.
+     */
+    private static boolean isAlive(SocketChannel channel) {
+        if (!channel.isConnected()) return false;
+        try {
+            channel.configureBlocking(false);
+            int read = channel.read(ByteBuffer.allocate(1));
+            channel.configureBlocking(true);
+            return read == 0;
+        } catch (IOException probeError) {
+            return false;
+        }
+    }
+
+    private void discard(SocketChannel channel) {
+        discarded.increment();
+        closeQuietly(channel);
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    Server getServer() {
+        return server;
+    }
+
+    int getIdleCount() {
+        return idleCount.get();
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    long getDiscarded() {
+        return discarded.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "BackendConnectionPool(" + server.getHost() + ":" + server.getPort() + ", idle=" + getIdleCount()
+            + ", hits=" + getHits() + ", misses=" + getMisses() + ", discarded=" + getDiscarded() + ")";
+    }
+
+    private static final class IdleConnection {
+        private final SocketChannel channel;
+        private final long idleSinceNanos;
+
+        IdleConnection(SocketChannel channel, long idleSinceNanos) {
+            this.channel = channel;
+            this.idleSinceNanos = idleSinceNanos;
+        }
+    }
+}
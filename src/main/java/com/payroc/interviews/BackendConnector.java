@@ -0,0 +1,161 @@
+package com.payroc.interviews;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides connected channels to backends for both proxy engines. When pooling is enabled each
+ * backend gets a {@link BackendConnectionPool} of pre-warmed connections; otherwise, or when a
+ * pool is empty, a new connection is opened on demand.
+ */
+class BackendConnector {
+    /**
+     * Refill connect timeout without a {@link ConnectRetryPolicy} timeout to follow; like a health probe's.
+     */
+    static final int DEFAULT_REFILL_CONNECT_TIMEOUT_MS = 1000;
+    private static final int POOL_THREADS = 2;
+
+    private final Map<Server, BackendConnectionPool> pools = new ConcurrentHashMap<>();
+    private volatile ScheduledExecutorService poolScheduler;
+    private volatile int minIdle;
+    private volatile int maxIdle;
+    private volatile long idleTtlMillis;
+    private volatile int refillConnectTimeoutMillis = DEFAULT_REFILL_CONNECT_TIMEOUT_MS;
+    private boolean poolingConfigured; // guarded by this
+
+    /**
+     * Turns on pre-warmed pools for the given backends (and any added later).
+     */
+    synchronized void enablePooling(Iterable<Server> servers, int minIdle, int maxIdle, long idleTtlMillis) {
+        if (poolScheduler != null) throw new IllegalStateException("pooling already enabled");
+        this.minIdle = minIdle;
+        this.maxIdle = maxIdle;
+        this.idleTtlMillis = idleTtlMillis;
+        poolingConfigured = true;
+        startPools(servers);
+    }
+
+    /**
+     * Brings back pooling stopped by {@link #close()}, with the settings it was last enabled with, so a restarted
+     * balancer gets live pools again. No-op if pooling was never enabled or is running.
+     */
+    synchronized void restart(Iterable<Server> servers) {
+        if (poolingConfigured && poolScheduler == null) startPools(servers);
+    }
+
+    private void startPools(Iterable<Server> servers) {
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(POOL_THREADS,
+            Thread.ofPlatform().daemon().name("backend-pool-", 0).factory());
+        long maintainEveryMs = Math.max(100, idleTtlMillis / 2);
+        scheduler.scheduleWithFixedDelay(() -> pools.values().forEach(BackendConnectionPool::maintain),
+            0, maintainEveryMs, TimeUnit.MILLISECONDS);
+        poolScheduler = scheduler;
+        for (Server server : servers) onBackendAdded(server);
+    }
+
+    /**
+     * Bounds pool refill connects by the session connect timeout of {@code policy}: its per-attempt timeout, else its
+     * total budget, else {@link #DEFAULT_REFILL_CONNECT_TIMEOUT_MS}. Refills never wait for the OS connect timeout,
+     * which would let one unreachable backend hold up warm-up for every pool.
+     */
+    void setConnectRetryPolicy(ConnectRetryPolicy policy) {
+        long timeout = policy == null ? 0 : policy.getAttemptTimeoutMillis();
+        if (timeout == 0 && policy != null) timeout = policy.getTotalTimeoutMillis();
+        refillConnectTimeoutMillis = timeout == 0 ? DEFAULT_REFILL_CONNECT_TIMEOUT_MS : (int) Math.min(Integer.MAX_VALUE, timeout);
+    }
+
+    int getRefillConnectTimeoutMillis() {
+        return refillConnectTimeoutMillis;
+    }
+
+    /**
+     * Synchronized with {@link #close()}, so a backend added while pooling stops cannot leave a pool behind that
+     * refills on the stopped scheduler.
+     */
+    synchronized void onBackendAdded(Server server) {
+        ScheduledExecutorService scheduler = poolScheduler;
+        if (scheduler == null) return;
+        pools.computeIfAbsent(server, s -> new BackendConnectionPool(s, minIdle, maxIdle, idleTtlMillis, scheduler,
+            () -> refillConnectTimeoutMillis))
+            .maintain();
+    }
+
+    /**
+     * Drains the backend's idle pool. Sessions already using one of its connections are unaffected.
+     */
+    void onBackendRemoved(Server server) {
+        BackendConnectionPool pool = pools.remove(server);
+        if (pool != null) pool.close();
+    }
+
+    /**
+     * Non-blocking: returns a validated pooled connection (in blocking mode) or null.
+     */
+    SocketChannel borrowPooled(Server server) {
+        BackendConnectionPool pool = pools.get(server);
+        return pool == null ? null : pool.acquire();
+    }
+
+    /**
+     * Returns a connected blocking channel, pooled if one is available.
+     *
+     * @param timeoutMillis timeout for a new connect (0 = OS default)
+     */
+    SocketChannel connect(Server server, int timeoutMillis) throws IOException {
+        SocketChannel pooled = borrowPooled(server);
+        return pooled != null ? pooled : open(server, timeoutMillis);
+    }
+
+    /**
+     * Takes back a connection that sits idle at a message boundary (an HTTP keep-alive connection) for reuse,
+     * or closes it when the backend has no pool or its pool is full.
+     */
+    void release(Server server, SocketChannel channel) {
+        BackendConnectionPool pool = pools.get(server);
+        if (pool != null) {
+            pool.offer(channel);
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    boolean isPoolingEnabled() {
+        return poolScheduler != null;
+    }
+
+    BackendConnectionPool getPool(Server server) {
+        return pools.get(server);
+    }
+
+    /**
+     * Drains every pool and stops the refill scheduler; {@link #restart} starts them again.
+     */
+    synchronized void close() {
+        ScheduledExecutorService scheduler = poolScheduler;
+        poolScheduler = null;
+        pools.values().forEach(BackendConnectionPool::close);
+        pools.clear();
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    static SocketChannel open(Server server, int timeoutMillis) throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        try {
+            long connectStart = System.nanoTime();
+            channel.socket().connect(server.getSocketAddress(), timeoutMillis);
+            server.recordConnectTime(System.nanoTime() - connectStart);
+            return channel;
+        } catch (IOException connectErr) {
+            channel.close();
+            throw connectErr;
+        }
+    }
+}
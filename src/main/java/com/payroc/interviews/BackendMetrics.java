@@ -0,0 +1,105 @@
+package com.payroc.interviews;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-backend traffic counters and duration histograms. All updates are striped {@link LongAdder}
+ * increments, safe from any proxy thread and allocation-free.
+ */
+public final class BackendMetrics {
+    static final double[] CONNECT_BUCKETS_SECONDS = {
+        0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+    static final double[] SESSION_BUCKETS_SECONDS = {
+        0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5, 10, 30, 60, 300, 900, 3600};
+
+    private final LongAdder connections = new LongAdder();
+    private final LongAdder connectFailures = new LongAdder();
+    private final LongAdder bytesToBackend = new LongAdder();
+    private final LongAdder bytesFromBackend = new LongAdder();
+    private final LongAdder[] responses = {new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder()};
+    private final LongAdder reusedConnections = new LongAdder();
+    private final LatencyHistogram connectTime = new LatencyHistogram(CONNECT_BUCKETS_SECONDS);
+    private final LatencyHistogram sessionDuration = new LatencyHistogram(SESSION_BUCKETS_SECONDS);
+
+    /**
+     * A client connection was assigned to this backend.
+     */
+    void recordConnection() {
+        connections.increment();
+    }
+
+    void recordConnectFailure() {
+        connectFailures.increment();
+    }
+
+    void recordConnectTime(long nanos) {
+        connectTime.record(nanos);
+    }
+
+    /**
+     * A proxied session that reached this backend ended.
+     */
+    void recordSession(long durationNanos) {
+        sessionDuration.record(durationNanos);
+    }
+
+    /**
+     * The backend answered an HTTP request with this status.
+     */
+    void recordResponse(int status) {
+        if (status >= 100 && status < 600) responses[status / 100 - 1].increment();
+    }
+
+    /**
+     * An HTTP request went out on a pooled (kept-alive or pre-warmed) connection instead of a new one.
+     */
+    void recordReusedConnection() {
+        reusedConnections.increment();
+    }
+
+    void addBytesToBackend(long bytes) {
+        bytesToBackend.add(bytes);
+    }
+
+    void addBytesFromBackend(long bytes) {
+        bytesFromBackend.add(bytes);
+    }
+
+    public long getConnections() {
+        return connections.sum();
+    }
+
+    /**
+     * @param statusClass 1 to 5, for 1xx to 5xx
+     */
+    public long getResponses(int statusClass) {
+        return responses[statusClass - 1].sum();
+    }
+
+    public long getReusedConnections() {
+        return reusedConnections.sum();
+    }
+
+    public long getConnectFailures() {
+        return connectFailures.sum();
+    }
+
+    public long getBytesToBackend() {
+        return bytesToBackend.sum();
+    }
+
+    public long getBytesFromBackend() {
+        return bytesFromBackend.sum();
+    }
+
+    /**
+     * @return TCP connect times of fresh backend connections (pooled connections skip the handshake)
+     */
+    public LatencyHistogram getConnectTime() {
+        return connectTime;
+    }
+
+    public LatencyHistogram getSessionDuration() {
+        return sessionDuration;
+    }
+}
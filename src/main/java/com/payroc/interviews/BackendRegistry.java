@@ -0,0 +1,155 @@
+package com.payroc.interviews;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Owns the backend set and publishes it as immutable {@link BackendSnapshot}s. Writers (membership
+ * changes, health transitions, strategy swaps) are serialised and publish a new snapshot atomically;
+ * the accept path only does a volatile read of {@link #current()}.
+ * <p>
+ * Health, circuit and drain flips happen on event loops and connection threads, often many at once during an
+ * outage. They only mark the snapshot stale; one background publisher rebuilds it, so a burst of flips costs a
+ * single {@link ServerSelectionStrategy#prepare(BackendSnapshot)} and no proxy thread waits on this lock.
+ */
+final class BackendRegistry {
+    private static final long PUBLISHER_KEEP_ALIVE_MS = 1000;
+
+    private final Runnable healthListener = this::republishLater;
+    private final AtomicBoolean republishPending = new AtomicBoolean();
+    private final ThreadPoolExecutor publisher = new ThreadPoolExecutor(0, 1, PUBLISHER_KEEP_ALIVE_MS,
+        TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), Thread.ofPlatform().daemon().name("backend-publisher").factory());
+    private final List<Server> servers = new ArrayList<>();
+    private ServerSelectionStrategy strategy;
+    private long version;
+    private volatile BackendSnapshot current = BackendSnapshot.EMPTY;
+
+    BackendRegistry(List<Server> initialServers, ServerSelectionStrategy strategy) {
+        for (Server server : initialServers) {
+            if (!servers.contains(server)) {
+                servers.add(server);
+                server.addHealthListener(healthListener);
+            }
+        }
+        this.strategy = strategy;
+        publish();
+    }
+
+    BackendSnapshot current() {
+        return current;
+    }
+
+    /**
+     * @return false if an equal backend is already registered
+     */
+    synchronized boolean add(Server server) {
+        if (servers.contains(server)) return false;
+        servers.add(server);
+        server.addHealthListener(healthListener);
+        publish();
+        return true;
+    }
+
+    synchronized boolean remove(Server server) {
+        int index = servers.indexOf(server);
+        if (index < 0) return false;
+        servers.remove(index).removeHealthListener(healthListener);
+        publish();
+        return true;
+    }
+
+    /**
+     * Makes the registered set equal to {@code desired} in one publication. Backends present in both keep their
+     * existing {@link Server} object (and so their counters); a backend whose weight or session cap changed is swapped for the
+     * new definition in place.
+     *
+     * @return the backends that were added and removed (a weight or cap change counts as both)
+     */
+    synchronized Change replaceAll(List<Server> desired) {
+        List<Server> next = new ArrayList<>(desired.size());
+        List<Server> added = new ArrayList<>();
+        for (Server wanted : desired) {
+            if (next.contains(wanted)) continue;
+            int index = servers.indexOf(wanted);
+            Server existing = index < 0 ? null : servers.get(index);
+            if (existing != null && existing.getWeight() == wanted.getWeight()
+                && existing.getMaxConnections() == wanted.getMaxConnections()) {
+                next.add(existing);
+            } else {
+                next.add(wanted);
+                added.add(wanted);
+            }
+        }
+        List<Server> removed = new ArrayList<>();
+        for (Server server : servers) {
+            if (!containsSame(next, server)) removed.add(server);
+        }
+        if (added.isEmpty() && removed.isEmpty()) return new Change(List.of(), List.of());
+        for (Server server : removed) server.removeHealthListener(healthListener);
+        for (Server server : added) server.addHealthListener(healthListener);
+        servers.clear();
+        servers.addAll(next);
+        publish();
+        return new Change(List.copyOf(added), List.copyOf(removed));
+    }
+
+    private static boolean containsSame(List<Server> list, Server server) {
+        for (Server candidate : list) {
+            if (candidate == server) return true;
+        }
+        return false;
+    }
+
+    synchronized void setStrategy(ServerSelectionStrategy strategy) {
+        this.strategy = strategy;
+        publish();
+    }
+
+    /**
+     * Publishes a fresh snapshot of the current set, e.g. after a backend's health changed.
+     */
+    synchronized void republish() {
+        publish();
+    }
+
+    /**
+     * Hands a republish to the publisher thread unless one is already queued; the queued one will see this change.
+     */
+    private void republishLater() {
+        if (!republishPending.compareAndSet(false, true)) return;
+        publisher.execute(() -> {
+            republishPending.set(false);
+            republish();
+        });
+    }
+
+    private void publish() {
+        current = BackendSnapshot.of(++version, servers, strategy);
+    }
+
+    static final class Change {
+        private final List<Server> added;
+        private final List<Server> removed;
+
+        Change(List<Server> added, List<Server> removed) {
+            this.added = added;
+            this.removed = removed;
+        }
+
+        List<Server> getAdded() {
+            return added;
+        }
+
+        List<Server> getRemoved() {
+            return removed;
+        }
+
+        boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.payroc.interviews;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable, versioned view of the backend set, published by {@link BackendRegistry} whenever membership,
+ * health or the selection strategy changes. A selection reads one snapshot and sees a consistent backend
+ * list, in-rotation subset and the strategy state built for exactly that list.
+ * <p>
+ * Server health can still flip between publications, and session caps fill and drain per connection,
+ * so strategies keep checking {@link Server#isAvailable()}.
+ */
+public final class BackendSnapshot {
+    static final BackendSnapshot EMPTY = new BackendSnapshot(0, List.of(), null);
+
+    private final long version;
+    private final List<Server> servers;
+    private final List<Server> availableServers;
+    private final ServerSelectionStrategy strategy;
+    private final Object strategyState;
+
+    private BackendSnapshot(long version, List<Server> servers, ServerSelectionStrategy strategy) {
+        this.version = version;
+        this.servers = List.copyOf(servers);
+        List<Server> available = new ArrayList<>(this.servers.size());
+        for (Server server : this.servers) {
+            if (server.isInRotation()) available.add(server);
+        }
+        this.availableServers = List.copyOf(available);
+        this.strategy = strategy;
+        this.strategyState = strategy == null ? null : strategy.prepare(this);
+    }
+
+    /**
+     * Builds a snapshot and runs the strategy's {@link ServerSelectionStrategy#prepare(BackendSnapshot)} hook for it.
+     */
+    static BackendSnapshot of(long version, List<Server> servers, ServerSelectionStrategy strategy) {
+        return new BackendSnapshot(version, servers, strategy);
+    }
+
+    /**
+     * @return increases by at least one with every publication
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Server> getServers() {
+        return servers;
+    }
+
+    /**
+     * @return the servers that were in rotation (healthy and not draining) when this snapshot was published
+     */
+    public List<Server> getAvailableServers() {
+        return availableServers;
+    }
+
+    ServerSelectionStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * @return whatever the strategy's prepare hook built for this snapshot (null if it builds nothing)
+     */
+    public Object getStrategyState() {
+        return strategyState;
+    }
+
+    @Override
+    public String toString() {
+        return "BackendSnapshot(v" + version + ", " + availableServers.size() + "/" + servers.size() + " available)";
+    }
+}
@@ -0,0 +1,183 @@
+package com.payroc.interviews;
+
+import java.net.InetAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Bounded FIFO of clients waiting for a backend session slot while every eligible backend is at its
+ * {@code maxConnections} cap. Whenever a slot frees up, the head waiter gets it; a waiter that is not served
+ * within the timeout expires. Callbacks never block, so NIO event loops can wait here as well as threads.
+ * <p>
+ * Besides being woken by released slots, the queue retries every {@link #RETRY_MS} ms while non-empty,
+ * which covers capacity appearing any other way (a backend added, recovered or undrained).
+ */
+final class BackendWaitQueue {
+    static final long RETRY_MS = 100;
+
+    private final int capacity;
+    private final long timeoutMillis;
+    private final Function<InetAddress, Server> slotAcquirer;
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+    private final ScheduledExecutorService timer =
+        Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("wait-queue-timer").factory());
+    private volatile int depth;
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder served = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder rejectedFull = new LongAdder();
+    private final LatencyHistogram waitTime = new LatencyHistogram(BackendMetrics.CONNECT_BUCKETS_SECONDS);
+
+    /**
+     * @param slotAcquirer selects a backend for the client and reserves a slot on it, or returns null
+     */
+    BackendWaitQueue(int capacity, long timeoutMillis, Function<InetAddress, Server> slotAcquirer) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be >= 1");
+        if (timeoutMillis <= 0) throw new IllegalArgumentException("timeoutMillis must be > 0");
+        this.capacity = capacity;
+        this.timeoutMillis = timeoutMillis;
+        this.slotAcquirer = slotAcquirer;
+        timer.scheduleWithFixedDelay(this::onSlotFreed, RETRY_MS, RETRY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues the client. Exactly one of the callbacks runs later, on whichever thread freed the slot or on the
+     * timer thread, so both must only hand work off.
+     *
+     * @param onAcquired receives the backend, with a slot already reserved for the client
+     * @param onExpired  runs if no slot was found within the timeout, or the queue was closed
+     * @return false, with neither callback run, if the queue is full
+     */
+    boolean enqueue(InetAddress client, Consumer<Server> onAcquired, Runnable onExpired) {
+        Waiter waiter = new Waiter(client, onAcquired, onExpired);
+        synchronized (this) {
+            if (waiters.size() >= capacity) {
+                rejectedFull.increment();
+                return false;
+            }
+            waiters.addLast(waiter);
+            depth = waiters.size();
+        }
+        try {
+            waiter.timeout = timer.schedule(() -> expire(waiter), timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException closed) {
+            synchronized (this) {
+                if (!waiters.remove(waiter)) return true; // already served
+                depth = waiters.size();
+            }
+            return false;
+        }
+        enqueued.increment();
+        // A slot may have been freed between the caller's failed attempt and the enqueue.
+        onSlotFreed();
+        return true;
+    }
+
+    /**
+     * Hands free slots to waiters in arrival order until the head waiter cannot be placed. A waiter leaves the
+     * deque under the lock exactly once (served, expired or closed), so its callbacks cannot both run.
+     */
+    void onSlotFreed() {
+        while (depth > 0) {
+            Waiter head;
+            Server server;
+            synchronized (this) {
+                head = waiters.peekFirst();
+                if (head == null) return;
+                server = slotAcquirer.apply(head.client);
+                if (server == null) return;
+                waiters.pollFirst();
+                depth = waiters.size();
+            }
+            ScheduledFuture<?> timeout = head.timeout;
+            if (timeout != null) timeout.cancel(false);
+            waitTime.record(System.nanoTime() - head.enqueuedNanos);
+            served.increment();
+            head.onAcquired.accept(server);
+        }
+    }
+
+    /**
+     * @return true if clients are waiting, in which case newcomers should queue behind them
+     */
+    boolean hasWaiters() {
+        return depth > 0;
+    }
+
+    /**
+     * Expires every waiter and stops the timer.
+     */
+    void close() {
+        List<Waiter> remaining;
+        synchronized (this) {
+            remaining = new ArrayList<>(waiters);
+            waiters.clear();
+            depth = 0;
+        }
+        timer.shutdownNow();
+        for (Waiter waiter : remaining) waiter.onExpired.run();
+    }
+
+    private void expire(Waiter waiter) {
+        synchronized (this) {
+            if (!waiters.remove(waiter)) return;
+            depth = waiters.size();
+        }
+        timedOut.increment();
+        waiter.onExpired.run();
+    }
+
+    int getDepth() {
+        return depth;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    long getEnqueuedCount() {
+        return enqueued.sum();
+    }
+
+    long getServedCount() {
+        return served.sum();
+    }
+
+    long getTimedOutCount() {
+        return timedOut.sum();
+    }
+
+    long getRejectedFullCount() {
+        return rejectedFull.sum();
+    }
+
+    /**
+     * @return time from enqueue until a slot was handed over, for served waiters
+     */
+    LatencyHistogram getWaitTime() {
+        return waitTime;
+    }
+
+    private static final class Waiter {
+        private final InetAddress client;
+        private final Consumer<Server> onAcquired;
+        private final Runnable onExpired;
+        private final long enqueuedNanos = System.nanoTime();
+        private volatile ScheduledFuture<?> timeout;
+
+        Waiter(InetAddress client, Consumer<Server> onAcquired, Runnable onExpired) {
+            this.client = client;
+            this.onAcquired = onAcquired;
+            this.onExpired = onExpired;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.payroc.interviews;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of fixed-size direct {@link ByteBuffer}s used by the forwarding paths.
+ * Direct buffers let socket channels read and write without the JDK's hidden
+ * heap-to-native copy, and pooling them removes the per-connection allocation.
+ * <p>
+ * Long-lived threads (e.g. NIO event loops) may opt into a small uncontended
+ * per-thread cache via {@link #enableThreadCache()}; all other threads, including
+ * short-lived connection threads and virtual threads, use the shared pool only.
+ */
+public class BufferPool {
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+    public static final int DEFAULT_MAX_POOLED = 1024;
+    private static final int THREAD_CACHE_SIZE = 8;
+
+    private final int chunkSize;
+    private final int maxPooled;
+    private final ConcurrentLinkedQueue<ByteBuffer> shared = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger sharedCount = new AtomicInteger();
+    private final ThreadLocal<ArrayDeque<ByteBuffer>> threadCache = new ThreadLocal<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bytesInFlight = new LongAdder();
+
+    public BufferPool(int chunkSize, int maxPooled) {
+        if (chunkSize < 1) throw new IllegalArgumentException("chunkSize must be >= 1");
+        if (maxPooled < 0) throw new IllegalArgumentException("maxPooled must be >= 0");
+        this.chunkSize = chunkSize;
+        this.maxPooled = maxPooled;
+    }
+
+    public BufferPool(int chunkSize) {
+        this(chunkSize, DEFAULT_MAX_POOLED);
+    }
+
+    /**
+     * Gives the calling thread its own small buffer cache. Only worth it for threads that
+     * live as long as the pool; buffers cached by a thread that exits are left to the GC.
+     */
+    void enableThreadCache() {
+        if (threadCache.get() == null) threadCache.set(new ArrayDeque<>(THREAD_CACHE_SIZE));
+    }
+
+    /**
+     * @return a cleared buffer of {@link #getChunkSize()} bytes, pooled if one is available
+     */
+    ByteBuffer acquire() {
+        ArrayDeque<ByteBuffer> cache = threadCache.get();
+        ByteBuffer buffer = cache == null ? null : cache.pollFirst();
+        if (buffer == null) {
+            buffer = shared.poll();
+            if (buffer != null) sharedCount.decrementAndGet();
+        }
+        if (buffer != null) {
+            hits.increment();
+            return buffer;
+        }
+        misses.increment();
+        return ByteBuffer.allocateDirect(chunkSize);
+    }
+
+    /**
+     * Returns a buffer obtained from {@link #acquire()}; the caller must not touch it afterwards.
+     */
+    void release(ByteBuffer buffer) {
+        if (buffer == null || buffer.capacity() != chunkSize || !buffer.isDirect()) return;
+        buffer.clear();
+        ArrayDeque<ByteBuffer> cache = threadCache.get();
+        if (cache != null && cache.size() < THREAD_CACHE_SIZE) {
+            cache.addFirst(buffer);
+            return;
+        }
+        if (sharedCount.incrementAndGet() <= maxPooled) {
+            shared.offer(buffer);
+        } else {
+            sharedCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Adjusts the count of bytes read from one peer but not yet written to the other.
+     */
+    void addBytesInFlight(long delta) {
+        bytesInFlight.add(delta);
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getBytesInFlight() {
+        return bytesInFlight.sum();
+    }
+
+    /**
+     * @return buffers currently parked in the shared pool (excludes per-thread caches)
+     */
+    public int getPooledCount() {
+        return sharedCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "BufferPool(chunk=" + chunkSize + ", hits=" + getHits() + ", misses=" + getMisses()
+            + ", pooled=" + getPooledCount() + ", bytesInFlight=" + getBytesInFlight() + ")";
+    }
+}
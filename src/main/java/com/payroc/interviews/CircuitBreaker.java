@@ -0,0 +1,171 @@
+package com.payroc.interviews;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-backend circuit breaker driven by the shared {@link OutlierDetector} policy. CLOSED passes traffic and
+ * counts consecutive failures; OPEN (ejected) takes the backend out of rotation until the ejection interval is
+ * over; HALF_OPEN admits a few trial sessions, whose first response closes the circuit again.
+ * <p>
+ * Outcomes are reported by the proxy engines: a failed connect, a backend reset or a stall (idle timeout while
+ * waiting for the response) is a failure, the first response byte of a session is a success. State changes
+ * republish the backend snapshot through the server's health listeners. Without a detector every report is ignored.
+ */
+final class CircuitBreaker {
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final Server server;
+    private final AtomicInteger trialPermits = new AtomicInteger();
+    private volatile OutlierDetector detector;
+    private volatile State state = State.CLOSED;
+    private volatile long slowStartBeginNanos;
+    // Guarded by this.
+    private int consecutiveFailures;
+    private int ejections;
+    private long lastEjectionNanos;
+    private long recoveredAtNanos;
+
+    CircuitBreaker(Server server) {
+        this.server = server;
+    }
+
+    void setDetector(OutlierDetector detector) {
+        this.detector = detector;
+    }
+
+    State getState() {
+        return state;
+    }
+
+    boolean isEjected() {
+        return state == State.OPEN;
+    }
+
+    /**
+     * Reports a failed connect, reset or stall.
+     *
+     * @return false if outlier detection is off (the caller falls back to plain health marking)
+     */
+    boolean onFailure() {
+        OutlierDetector policy = detector;
+        if (policy == null) return false;
+        boolean changed;
+        synchronized (this) {
+            if (state == State.OPEN) return true;
+            if (state == State.CLOSED && ++consecutiveFailures < policy.getConsecutiveFailures()) return true;
+            changed = eject(policy);
+            if (!changed && state == State.HALF_OPEN) {
+                // Ejection refused (cap reached or detector stopped): back in rotation, not stuck without permits.
+                state = State.CLOSED;
+                changed = true;
+            }
+        }
+        if (changed) server.notifyHealthListeners();
+        return true;
+    }
+
+    /**
+     * Reports a response from the backend. Closes a half-open circuit; a backend that has stayed in rotation for
+     * as long as its last ejection lasted starts over at the base ejection interval.
+     */
+    void onSuccess() {
+        OutlierDetector policy = detector;
+        if (policy == null) return;
+        boolean recovered = false;
+        synchronized (this) {
+            consecutiveFailures = 0;
+            if (state == State.HALF_OPEN) {
+                state = State.CLOSED;
+                recovered = true;
+                recoveredAtNanos = System.nanoTime();
+                beginSlowStart();
+            } else if (ejections > 0 && state == State.CLOSED && System.nanoTime() - recoveredAtNanos >= lastEjectionNanos) {
+                ejections = 0;
+            }
+        }
+        if (recovered) {
+            policy.onRecovered(server);
+            server.notifyHealthListeners();
+        }
+    }
+
+    /**
+     * Reports a session that ended with neither a response nor a failure, returning its trial permit if it was one.
+     */
+    void onInconclusive() {
+        OutlierDetector policy = detector;
+        if (policy == null || state != State.HALF_OPEN) return;
+        trialPermits.updateAndGet(v -> Math.min(policy.getHalfOpenTrials(), v + 1));
+    }
+
+    private boolean eject(OutlierDetector policy) {
+        long interval = policy.ejectionNanos(ejections);
+        if (!policy.tryEject(server, interval, this::onEjectionOver)) return false;
+        ejections++;
+        lastEjectionNanos = interval;
+        consecutiveFailures = 0;
+        slowStartBeginNanos = 0;
+        state = State.OPEN;
+        return true;
+    }
+
+    private void onEjectionOver() {
+        OutlierDetector policy = detector;
+        synchronized (this) {
+            if (state != State.OPEN) return;
+            trialPermits.set(policy == null ? Integer.MAX_VALUE : policy.getHalfOpenTrials());
+            state = State.HALF_OPEN;
+        }
+        server.notifyHealthListeners();
+    }
+
+    /**
+     * Starts the slow-start ramp (no-op without a detector or with a zero window).
+     */
+    void beginSlowStart() {
+        OutlierDetector policy = detector;
+        if (policy == null || policy.getSlowStartNanos() == 0) return;
+        slowStartBeginNanos = Math.max(1, System.nanoTime());
+    }
+
+    /**
+     * @return fraction of picks this backend currently accepts: 1 outside slow start, otherwise ramping linearly
+     * from {@link OutlierDetector#MIN_SLOW_START_SHARE}
+     */
+    double slowStartShare() {
+        long begin = slowStartBeginNanos;
+        OutlierDetector policy = detector;
+        if (begin == 0 || policy == null) return 1;
+        long window = policy.getSlowStartNanos();
+        long elapsed = System.nanoTime() - begin;
+        if (window == 0 || elapsed >= window) {
+            slowStartBeginNanos = 0;
+            return 1;
+        }
+        return Math.max(OutlierDetector.MIN_SLOW_START_SHARE, (double) elapsed / window);
+    }
+
+    /**
+     * Gate used by {@link Server#isAvailable()}: half-open backends only while trial permits remain. Deterministic,
+     * so repeated checks within one pick agree; slow start is applied by the strategies instead.
+     */
+    boolean admitsPick() {
+        State current = state;
+        if (current == State.OPEN) return false;
+        return current != State.HALF_OPEN || trialPermits.get() > 0;
+    }
+
+    /**
+     * Takes a trial permit when half-open; called once a session slot is reserved.
+     *
+     * @return false if the backend is half-open and all trials are in flight
+     */
+    boolean tryAcquireTrial() {
+        if (state != State.HALF_OPEN) return true;
+        while (true) {
+            int permits = trialPermits.get();
+            if (permits <= 0) return false;
+            if (trialPermits.compareAndSet(permits, permits - 1)) return true;
+        }
+    }
+}
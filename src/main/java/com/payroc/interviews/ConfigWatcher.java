@@ -0,0 +1,81 @@
+package com.payroc.interviews;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches one file with a {@link WatchService} on its own daemon thread and runs a callback when it changes.
+ * Editors often write a file in several steps (truncate + write, or write temp + rename), so events are
+ * debounced: the callback runs once the file has been quiet for {@link #DEBOUNCE_MS}.
+ */
+final class ConfigWatcher {
+    static final long DEBOUNCE_MS = 200;
+
+    private final Path file;
+    private final Runnable onChange;
+    private WatchService watchService;
+    private Thread thread;
+
+    ConfigWatcher(Path file, Runnable onChange) {
+        this.file = file.toAbsolutePath();
+        this.onChange = onChange;
+    }
+
+    synchronized void start() throws IOException {
+        if (watchService != null) return;
+        Path directory = file.getParent();
+        watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        WatchService service = watchService;
+        thread = Thread.ofPlatform().daemon().name("config-watcher").start(() -> watch(service));
+    }
+
+    synchronized void close() {
+        if (watchService == null) return;
+        try {
+            watchService.close();
+        } catch (IOException ignored) {
+        }
+        watchService = null;
+        thread = null;
+    }
+
+    private void watch(WatchService service) {
+        try {
+            while (true) {
+                if (!concernsFile(service.take())) continue;
+                // Swallow the rest of this write burst before reloading.
+                WatchKey more;
+                while ((more = service.poll(DEBOUNCE_MS, TimeUnit.MILLISECONDS)) != null) concernsFile(more);
+                try {
+                    onChange.run();
+                } catch (RuntimeException callbackError) {
+                    System.err.println("ConfigWatcher: reload callback failed: " + callbackError);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException stopped) {
+            // close() was called
+        }
+    }
+
+    /**
+     * Drains and resets the key.
+     *
+     * @return true if any of its events is about the watched file (or events were lost)
+     */
+    private boolean concernsFile(WatchKey key) {
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) relevant = true;
+        }
+        key.reset();
+        return relevant;
+    }
+}
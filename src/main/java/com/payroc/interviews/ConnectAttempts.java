@@ -0,0 +1,83 @@
+package com.payroc.interviews;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The backend connects of one client session. Holds the backend currently being tried (whose session slot the
+ * session owns), the backends already tried, and the session's connect deadline. After a failed connect,
+ * {@link #failover()} moves the slot to a backend not yet tried, chosen by the current strategy, if the
+ * {@link ConnectRetryPolicy} allows another attempt. Used by one thread or event loop at a time.
+ */
+final class ConnectAttempts {
+    private final LoadBalancer loadBalancer;
+    private final ConnectRetryPolicy policy;
+    private final InetAddress clientAddress;
+    private final long deadlineNanos;
+    private final List<Server> tried = new ArrayList<>(2);
+    private volatile Server current;
+
+    /**
+     * @param policy retry policy, or null for a single attempt without a timeout
+     */
+    ConnectAttempts(LoadBalancer loadBalancer, ConnectRetryPolicy policy, InetAddress clientAddress, Server first) {
+        this.loadBalancer = loadBalancer;
+        this.policy = policy;
+        this.clientAddress = clientAddress;
+        long total = policy == null ? 0 : policy.getTotalTimeoutMillis();
+        this.deadlineNanos = total == 0 ? 0 : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(total);
+        this.current = first;
+        tried.add(first);
+        if (policy != null) policy.onSession();
+    }
+
+    static ConnectAttempts single(Server server) {
+        return new ConnectAttempts(null, null, null, server);
+    }
+
+    Server current() {
+        return current;
+    }
+
+    /**
+     * @return connect timeout for the current attempt in milliseconds (at most what is left of the total budget),
+     * or 0 for none
+     */
+    int attemptTimeoutMillis() {
+        long timeout = policy == null ? 0 : policy.getAttemptTimeoutMillis();
+        if (deadlineNanos == 0) return (int) Math.min(Integer.MAX_VALUE, timeout);
+        long remaining = Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+        return (int) Math.min(Integer.MAX_VALUE, timeout == 0 ? remaining : Math.min(timeout, remaining));
+    }
+
+    /**
+     * Called after the connect to {@link #current()} failed. Reserves a slot on a backend not tried yet and
+     * returns the failed backend's slot; when no retry is allowed or possible the failed backend stays current.
+     *
+     * @return the backend to try next, or null to give up
+     */
+    Server failover() {
+        if (policy == null || tried.size() > policy.getMaxRetries()) return null;
+        if (deadlineNanos != 0 && deadlineNanos - System.nanoTime() <= 0) return null;
+        Server next = loadBalancer.reserveBackendExcluding(clientAddress, tried);
+        if (next == null) return null;
+        if (!policy.tryRetry()) {
+            loadBalancer.releaseBackend(next);
+            return null;
+        }
+        Server failed = current;
+        tried.add(next);
+        current = next;
+        loadBalancer.releaseBackend(failed);
+        return next;
+    }
+
+    /**
+     * @return connects started so far, including the current one
+     */
+    int attemptCount() {
+        return tried.size();
+    }
+}
@@ -0,0 +1,137 @@
+package com.payroc.interviews;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * How hard a session tries to reach a backend: up to {@code maxRetries} further connects after the first fails,
+ * each to a backend not yet tried, each bounded by a per-attempt timeout and all of them by a total budget.
+ * <p>
+ * Retries are also capped globally by a retry budget, so a wide outage cannot multiply connect load: every new
+ * session earns {@code budgetRatio} of a retry, and each retry spends one. On top of that, {@code minRetriesPerSecond}
+ * retries are always allowed, so a lightly loaded balancer still fails over. Both are lock-free.
+ */
+public class ConnectRetryPolicy {
+    public static final double DEFAULT_BUDGET_RATIO = 0.2;
+    public static final int DEFAULT_MIN_RETRIES_PER_SECOND = 10;
+    private static final long MILLI_TOKENS = 1_000;
+    // Earned retries are capped at what this many sessions deposit, so a long quiet spell cannot bank a storm.
+    private static final long MAX_SAVED_SESSIONS = 1_000;
+    private static final long ORIGIN_NANOS = System.nanoTime();
+
+    private final int maxRetries;
+    private final long attemptTimeoutMillis;
+    private final long totalTimeoutMillis;
+    private final long depositMilliTokens;
+    private final long maxBalanceMilliTokens;
+    private final int minRetriesPerSecond;
+    private final AtomicLong balance = new AtomicLong();
+    // Current second in the high half, retries taken from the per-second floor in the low half.
+    private final AtomicLong floorWindow = new AtomicLong();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder budgetExhausted = new LongAdder();
+
+    /**
+     * @param maxRetries           further connects after the first one fails (0 disables failover)
+     * @param attemptTimeoutMillis timeout of each connect (0 = OS default)
+     * @param totalTimeoutMillis   budget for all connects of one session (0 = unbounded)
+     * @param budgetRatio          retries earned per new session
+     * @param minRetriesPerSecond  retries always allowed per second regardless of the ratio
+     */
+    public ConnectRetryPolicy(int maxRetries, long attemptTimeoutMillis, long totalTimeoutMillis,
+                              double budgetRatio, int minRetriesPerSecond) {
+        if (maxRetries < 0 || attemptTimeoutMillis < 0 || totalTimeoutMillis < 0) {
+            throw new IllegalArgumentException("retries and timeouts must be >= 0");
+        }
+        if (budgetRatio < 0 || minRetriesPerSecond < 0) throw new IllegalArgumentException("retry budget must be >= 0");
+        this.maxRetries = maxRetries;
+        this.attemptTimeoutMillis = attemptTimeoutMillis;
+        this.totalTimeoutMillis = totalTimeoutMillis;
+        this.depositMilliTokens = Math.round(budgetRatio * MILLI_TOKENS);
+        this.maxBalanceMilliTokens = depositMilliTokens * MAX_SAVED_SESSIONS;
+        this.minRetriesPerSecond = minRetriesPerSecond;
+    }
+
+    public ConnectRetryPolicy(int maxRetries, long attemptTimeoutMillis, long totalTimeoutMillis) {
+        this(maxRetries, attemptTimeoutMillis, totalTimeoutMillis, DEFAULT_BUDGET_RATIO, DEFAULT_MIN_RETRIES_PER_SECOND);
+    }
+
+    int getMaxRetries() {
+        return maxRetries;
+    }
+
+    long getAttemptTimeoutMillis() {
+        return attemptTimeoutMillis;
+    }
+
+    long getTotalTimeoutMillis() {
+        return totalTimeoutMillis;
+    }
+
+    /**
+     * Credits the budget for a new session.
+     */
+    void onSession() {
+        if (depositMilliTokens == 0) return;
+        long current;
+        do {
+            current = balance.get();
+            if (current >= maxBalanceMilliTokens) return;
+        } while (!balance.compareAndSet(current, Math.min(maxBalanceMilliTokens, current + depositMilliTokens)));
+    }
+
+    /**
+     * Spends one retry from the budget.
+     *
+     * @return false if the budget is exhausted; the session should give up
+     */
+    boolean tryRetry() {
+        if (withdraw() || takeFromFloor()) {
+            retries.increment();
+            return true;
+        }
+        budgetExhausted.increment();
+        return false;
+    }
+
+    private boolean withdraw() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < MILLI_TOKENS) return false;
+        } while (!balance.compareAndSet(current, current - MILLI_TOKENS));
+        return true;
+    }
+
+    private boolean takeFromFloor() {
+        if (minRetriesPerSecond == 0) return false;
+        long second = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - ORIGIN_NANOS);
+        while (true) {
+            long current = floorWindow.get();
+            long used = (current >>> 32) == second ? (int) current : 0;
+            if (used >= minRetriesPerSecond) return false;
+            if (floorWindow.compareAndSet(current, (second << 32) | (used + 1))) return true;
+        }
+    }
+
+    /**
+     * @return connect retries granted by the budget
+     */
+    long getRetryCount() {
+        return retries.sum();
+    }
+
+    /**
+     * @return retries refused because the budget was exhausted
+     */
+    long getBudgetExhaustedCount() {
+        return budgetExhausted.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectRetryPolicy(maxRetries=" + maxRetries + ", attemptTimeout=" + attemptTimeoutMillis
+            + "ms, totalTimeout=" + totalTimeoutMillis + "ms)";
+    }
+}
@@ -1,81 +1,283 @@
 package com.payroc.interviews;
 
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Proxies a single accepted client TCP connection to a selected backend server.
- * Opens a new outbound socket to the backend and copies bytes in both directions
+ * Obtains an outbound connection to the backend (pre-warmed when pooling is enabled) and copies bytes in both directions
  * until either side closes or an I/O error occurs.
+ * The client->backend pump runs on a thread from the supplied factory, so the handler
+ * can run entirely on platform or entirely on virtual threads.
+ * Bytes are moved through pooled direct buffers straight between socket channels; sockets
+ * without a channel (plain {@link java.net.ServerSocket} accepts) fall back to stream adapters.
+ * The handler is registered with a {@link ConnectionTracker} for its lifetime so it can be drained.
+ * A failed backend connect is retried against other backends as far as the session's {@link ConnectAttempts} allow,
+ * and once connected the session is closed by the shared timer if it exceeds its {@link SessionTimeouts}.
+ * Connect failures, backend resets, stalls and responses are reported to the backend's {@link CircuitBreaker}.
+ * Every session ends with one {@link ProxyLog} access record; connect errors go to its error log.
+ * With TLS termination the client side is a {@link TlsChannel} whose handshake has already completed.
  */
-class ConnectionHandler implements Runnable {
+class ConnectionHandler implements Runnable, SessionTimeouts.Watched {
+    private static final ThreadFactory DEFAULT_PUMP_THREADS = Thread.ofPlatform().name("client->backend-", 0).factory();
+    private static final BufferPool DEFAULT_BUFFER_POOL = new BufferPool(BufferPool.DEFAULT_CHUNK_SIZE);
+    private static final BackendConnector DIRECT_CONNECTOR = new BackendConnector();
+    private static final ConnectionTracker UNMANAGED = new ConnectionTracker();
+    private static final SessionTimeouts NO_TIMEOUTS = new SessionTimeouts(null, 0, 0);
+    private static final ProxyLog DIRECT_LOG = new ProxyLog();
+
     private final Socket clientSocket;
-    private final Server backendServer;
+    private final TlsChannel clientTls;
+    private final ConnectAttempts attempts;
+    private final ThreadFactory pumpThreads;
+    private final BufferPool bufferPool;
+    private final BackendConnector backendConnector;
+    private final ConnectionTracker connectionTracker;
+    private final SessionTimeouts sessionTimeouts;
+    private final ProxyLog log;
+    private volatile SocketChannel backendChannel;
+    private volatile long lastReadNanos;
+    private long backendReadyNanos;
+    private volatile long requestSentNanos;
+    private volatile boolean firstByteSeen;
+    private volatile boolean backendReset;
+    private volatile boolean forceClosed;
+    private volatile ProxyLog.CloseReason endReason;
+    // Each written by its own pump thread only.
+    private volatile long bytesToBackend;
+    private volatile long bytesFromBackend;
 
-    private static final int BUFFER_SIZE = 8192;
     private static final int JOIN_TIMEOUT_MS = 500;
 
     ConnectionHandler(Socket clientSocket, Server backendServer) {
+        this(clientSocket, null, ConnectAttempts.single(backendServer), DEFAULT_PUMP_THREADS, DEFAULT_BUFFER_POOL,
+            DIRECT_CONNECTOR, UNMANAGED, NO_TIMEOUTS, DIRECT_LOG);
+    }
+
+    /**
+     * @param clientTls TLS connection over {@code clientSocket}'s channel after its handshake, or null for plain TCP
+     * @param attempts  connect attempts starting at the selected backend; the caller releases the slot of
+     *                  {@link #backend()} (the last backend tried) once {@link #run()} returns
+     */
+    ConnectionHandler(Socket clientSocket, TlsChannel clientTls, ConnectAttempts attempts, ThreadFactory pumpThreads, BufferPool bufferPool,
+                      BackendConnector backendConnector, ConnectionTracker connectionTracker, SessionTimeouts sessionTimeouts,
+                      ProxyLog log) {
         this.clientSocket = clientSocket;
-        this.backendServer = backendServer;
+        this.clientTls = clientTls;
+        this.attempts = attempts;
+        this.pumpThreads = pumpThreads;
+        this.bufferPool = bufferPool;
+        this.backendConnector = backendConnector;
+        this.connectionTracker = connectionTracker;
+        this.sessionTimeouts = sessionTimeouts;
+        this.log = log;
     }
 
     @Override
     public void run() {
         boolean backendConnected = false;
-        Socket backendSocket = new Socket();
+        long sessionStartNanos = System.nanoTime();
+        SocketAddress clientAddress = clientSocket.getRemoteSocketAddress();
+        connectionTracker.register(this);
+        Server backendServer = null;
+        SessionTimeouts.Watch timeoutWatch = null;
         try {
-            backendSocket.connect(new InetSocketAddress(backendServer.getHost(), backendServer.getPort()));
+            backendChannel = connectBackend();
+            if (backendChannel == null || clientSocket.isClosed()) return; // finally closes the backend, if any
+            backendServer = attempts.current();
             backendConnected = true;
             backendServer.incrementActive();
+            backendReadyNanos = System.nanoTime();
+            lastReadNanos = backendReadyNanos;
+            timeoutWatch = sessionTimeouts.watch(this);
 
-            Thread clientToBackend = new Thread(() -> forward(clientSocket, backendSocket, true), "client->backend");
+            Thread clientToBackend = pumpThreads.newThread(() -> forward(true));
             clientToBackend.start();
 
-            forward(backendSocket, clientSocket, false);
+            forward(false);
             try {
                 clientToBackend.join(JOIN_TIMEOUT_MS);
             } catch (InterruptedException ie) {
                 Thread.currentThread().interrupt();
             }
-        } catch (IOException connectErr) {
-            System.err.println("ConnectionHandler: backend connect error: " + connectErr.getMessage());
-            if (!backendConnected) backendServer.markUnhealthy();
         } finally {
+            if (timeoutWatch != null) timeoutWatch.cancel();
             closeQuietly(clientSocket);
-            closeQuietly(backendSocket);
-            if (backendConnected) backendServer.decrementActive();
+            closeQuietly(backendChannel);
+            long durationNanos = System.nanoTime() - sessionStartNanos;
+            if (backendConnected) {
+                reportOutcome(backendServer.getCircuitBreaker(), timeoutWatch);
+                backendServer.decrementActive();
+                backendServer.getMetrics().recordSession(durationNanos);
+            }
+            log.access(clientAddress, attempts.current(), bytesToBackend, bytesFromBackend, durationNanos,
+                closeReason(backendConnected, timeoutWatch));
+            connectionTracker.unregister(this);
+        }
+    }
+
+    /**
+     * Connects to the current backend, failing over to the next one after each failed attempt.
+     *
+     * @return the connected channel, or null once no attempt is left (or the client was force-closed meanwhile)
+     */
+    private SocketChannel connectBackend() {
+        while (true) {
+            Server server = attempts.current();
+            server.getMetrics().recordConnection();
+            try {
+                return backendConnector.connect(server, attempts.attemptTimeoutMillis());
+            } catch (IOException connectErr) {
+                log.error("ConnectionHandler", "backend connect error", server, connectErr);
+                server.getMetrics().recordConnectFailure();
+                server.reportConnectFailure();
+            }
+            if (clientSocket.isClosed() || attempts.failover() == null) return null;
         }
     }
 
-    private void forward(Socket from, Socket to, boolean shutdownOutputAfter) {
-        byte[] buffer = new byte[BUFFER_SIZE];
+    /**
+     * A reset, or an idle timeout while the request waits for its response, is a failure. A session that ends
+     * without any response is inconclusive. The response itself was reported when its first byte arrived.
+     */
+    private void reportOutcome(CircuitBreaker breaker, SessionTimeouts.Watch timeoutWatch) {
+        boolean stalled = timeoutWatch != null && timeoutWatch.isIdleExpired() && requestSentNanos != 0 && !firstByteSeen;
+        if (backendReset || stalled) breaker.onFailure();
+        else if (!firstByteSeen) breaker.onInconclusive();
+    }
+
+    /**
+     * A timeout or a forced close explains the end best; otherwise whichever side closed or failed first.
+     */
+    private ProxyLog.CloseReason closeReason(boolean backendConnected, SessionTimeouts.Watch timeoutWatch) {
+        ProxyLog.CloseReason timedOut = timeoutWatch == null ? null : timeoutWatch.closeReason();
+        if (timedOut != null) return timedOut;
+        if (forceClosed) return ProxyLog.CloseReason.FORCE_CLOSED;
+        if (!backendConnected) return ProxyLog.CloseReason.CONNECT_FAILED;
+        if (backendReset) return ProxyLog.CloseReason.BACKEND_RESET;
+        ProxyLog.CloseReason ended = endReason;
+        return ended != null ? ended : ProxyLog.CloseReason.CLIENT_CLOSED;
+    }
+
+    /**
+     * Keeps the first reason reported by either pump; a race between them keeps one of two accurate reasons.
+     */
+    private void endedBy(ProxyLog.CloseReason reason) {
+        if (endReason == null) endReason = reason;
+    }
+
+    @Override
+    public Server backend() {
+        return attempts.current();
+    }
+
+    @Override
+    public long lastReadNanos() {
+        return lastReadNanos;
+    }
+
+    /**
+     * Closes both sockets, which ends both pump directions; run() then cleans up as usual.
+     */
+    @Override
+    public void forceClose() {
+        forceClosed = true;
+        closeQuietly(clientSocket);
+        closeQuietly(backendChannel);
+    }
+
+    /**
+     * Copies one direction until EOF, then half-closes the other side (with close_notify towards a TLS client).
+     * The client->backend direction stamps when the first request bytes reach the backend; the backend->client
+     * direction turns its first read into a time-to-first-byte sample for the backend, and flags a failed backend
+     * read as a reset.
+     */
+    private void forward(boolean towardsBackend) {
+        ByteBuffer buffer = bufferPool.acquire();
+        boolean reading = false;
         try {
-            InputStream in = from.getInputStream();
-            OutputStream out = to.getOutputStream();
+            ReadableByteChannel in = towardsBackend ? clientReadChannel() : backendChannel;
+            WritableByteChannel out = towardsBackend ? backendChannel : clientWriteChannel();
+            BackendMetrics metrics = attempts.current().getMetrics();
+            boolean firstChunk = true;
             int read;
-            while ((read = in.read(buffer)) != -1) {
-                out.write(buffer, 0, read);
-                out.flush();
-            }
-            if (shutdownOutputAfter) {
+            while (true) {
+                reading = true;
+                if ((read = in.read(buffer)) == -1) {
+                    endedBy(towardsBackend ? ProxyLog.CloseReason.CLIENT_CLOSED : ProxyLog.CloseReason.BACKEND_CLOSED);
+                    break;
+                }
+                reading = false;
+                lastReadNanos = System.nanoTime();
+                if (firstChunk && !towardsBackend) recordFirstByte();
+                if (towardsBackend) {
+                    metrics.addBytesToBackend(read);
+                    bytesToBackend += read;
+                } else {
+                    metrics.addBytesFromBackend(read);
+                    bytesFromBackend += read;
+                }
+                bufferPool.addBytesInFlight(read);
+                buffer.flip();
                 try {
-                    to.shutdownOutput();
-                } catch (IOException ignored) {
+                    while (buffer.hasRemaining()) out.write(buffer);
+                } finally {
+                    bufferPool.addBytesInFlight(-read);
                 }
+                if (firstChunk && towardsBackend) requestSentNanos = System.nanoTime();
+                firstChunk = false;
+                buffer.clear();
+            }
+            try {
+                if (towardsBackend) backendChannel.shutdownOutput();
+                else if (clientTls != null) clientTls.shutdownOutput();
+            } catch (IOException ignored) {
+            }
+        } catch (IOException ioError) {
+            // Peer reset or the sockets were closed locally; run() tears the session down.
+            if (!(ioError instanceof ClosedChannelException)) {
+                if (reading && !towardsBackend) backendReset = true;
+                else endedBy(ProxyLog.CloseReason.IO_ERROR);
             }
-        } catch (IOException io) {
-            System.err.println("ConnectionHandler forward(" + Thread.currentThread().getName() + "): " + io.getMessage());
+        } finally {
+            bufferPool.release(buffer);
         }
     }
 
-    private void closeQuietly(Socket s) {
-        if (s == null) return;
+    private ReadableByteChannel clientReadChannel() throws IOException {
+        if (clientTls != null) return clientTls;
+        return clientSocket.getChannel() != null ? clientSocket.getChannel() : Channels.newChannel(clientSocket.getInputStream());
+    }
+
+    private WritableByteChannel clientWriteChannel() throws IOException {
+        if (clientTls != null) return clientTls;
+        return clientSocket.getChannel() != null ? clientSocket.getChannel() : Channels.newChannel(clientSocket.getOutputStream());
+    }
+
+    /**
+     * Server-first protocols never send a request, so their first byte is timed from the connect instead.
+     */
+    private void recordFirstByte() {
+        firstByteSeen = true;
+        long sent = requestSentNanos;
+        Server backendServer = attempts.current();
+        backendServer.recordFirstByteTime(System.nanoTime() - (sent != 0 ? sent : backendReadyNanos));
+        backendServer.getCircuitBreaker().onSuccess();
+    }
+
+    private void closeQuietly(Closeable c) {
+        if (c == null) return;
         try {
-            s.close();
+            c.close();
         } catch (IOException ignored) {
         }
     }
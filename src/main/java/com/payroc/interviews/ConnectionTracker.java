@@ -0,0 +1,107 @@
+package com.payroc.interviews;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry of every live proxied connection, across both engines, so they can be drained:
+ * waited on until they close by themselves, then force-closed once a deadline passes.
+ * Stragglers are closed gradually over the last part of the drain window rather than all at once,
+ * so their clients do not all reconnect in the same instant.
+ */
+final class ConnectionTracker {
+    /**
+     * Fraction of the drain window, at its end, over which remaining connections are closed one by one.
+     */
+    static final double FORCE_CLOSE_SPREAD = 0.25;
+    private static final long POLL_MS = 10;
+
+    /**
+     * A proxied connection as seen by the tracker.
+     */
+    interface Tracked {
+        /**
+         * @return the backend in use, or null while the connection has none (an HTTP connection between requests)
+         */
+        Server backend();
+
+        /**
+         * Closes both sides; may complete asynchronously (e.g. on an event loop). Must be idempotent.
+         */
+        void forceClose();
+    }
+
+    private final Set<Tracked> live = ConcurrentHashMap.newKeySet();
+
+    void register(Tracked connection) {
+        live.add(connection);
+    }
+
+    void unregister(Tracked connection) {
+        live.remove(connection);
+    }
+
+    int count() {
+        return live.size();
+    }
+
+    int count(Server backend) {
+        int count = 0;
+        for (Tracked connection : live) {
+            if (backend.equals(connection.backend())) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Waits for matching connections to close on their own, force-closing stragglers before the deadline:
+     * for the first part of the window nothing is touched; during the final {@link #FORCE_CLOSE_SPREAD}
+     * the remaining connections are closed evenly spaced, and whatever is left at the deadline is closed at once.
+     *
+     * @param backend only drain connections to this backend, or null for all
+     * @return number of connections that had to be force-closed
+     */
+    int drain(Server backend, long timeoutMillis) throws InterruptedException {
+        long start = System.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMillis));
+        long spreadStart = start + (long) (timeoutNanos * (1 - FORCE_CLOSE_SPREAD));
+        long deadline = start + timeoutNanos;
+        long pollNanos = TimeUnit.MILLISECONDS.toNanos(POLL_MS);
+        // Closes can complete asynchronously, so remember what was already closed to count each once.
+        Set<Tracked> forced = Collections.newSetFromMap(new IdentityHashMap<>());
+        while (true) {
+            List<Tracked> remaining = matching(backend);
+            if (remaining.isEmpty()) return forced.size();
+            long now = System.nanoTime();
+            if (now - deadline >= 0) {
+                for (Tracked connection : remaining) {
+                    if (forced.add(connection)) connection.forceClose();
+                }
+                return forced.size();
+            }
+            if (now - spreadStart >= 0) {
+                remaining.removeAll(forced);
+                // Close enough that the rest fit evenly into the time left.
+                int quota = (int) Math.ceil(remaining.size() * Math.min(1.0, (double) pollNanos / (deadline - now)));
+                for (Tracked connection : remaining.subList(0, quota)) {
+                    forced.add(connection);
+                    connection.forceClose();
+                }
+            }
+            Thread.sleep(POLL_MS);
+        }
+    }
+
+    private List<Tracked> matching(Server backend) {
+        List<Tracked> matching = new ArrayList<>();
+        for (Tracked connection : live) {
+            if (backend == null || backend.equals(connection.backend())) matching.add(connection);
+        }
+        return matching;
+    }
+}
@@ -0,0 +1,172 @@
+package com.payroc.interviews;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resolves backend hostnames off the connection path. Each hostname's address set is resolved once when a backend
+ * using it is configured, then refreshed every {@code ttlMillis} on a background thread; connections only ever use
+ * the addresses already resolved. Every address of a multi-address name becomes its own balancing target
+ * (see {@link LoadBalancer#setDnsCache(DnsCache)}).
+ * <p>
+ * When a refresh fails the previous answer stays in use (stale but usable) for up to {@code maxStaleMillis}
+ * (0 = until the resolver answers again). A changed answer is reported to the listener given to {@link #start}.
+ */
+public class DnsCache {
+    public static final long DEFAULT_TTL_MS = 30_000;
+    public static final long DEFAULT_MAX_STALE_MS = 0;
+    private static final Comparator<InetAddress> BY_ADDRESS = Comparator.comparing(InetAddress::getHostAddress);
+
+    private final long ttlMillis;
+    private final long maxStaleNanos;
+    private final HostResolver resolver;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder resolutions = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder staleServed = new LongAdder();
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param ttlMillis      how often every hostname is re-resolved
+     * @param maxStaleMillis how long a previous answer is kept while the resolver fails (0 = indefinitely)
+     * @param resolver       name resolver, e.g. {@link HostResolver#SYSTEM}
+     */
+    public DnsCache(long ttlMillis, long maxStaleMillis, HostResolver resolver) {
+        if (ttlMillis <= 0) throw new IllegalArgumentException("ttlMillis must be > 0");
+        if (maxStaleMillis < 0) throw new IllegalArgumentException("maxStaleMillis must be >= 0");
+        if (resolver == null) throw new IllegalArgumentException("resolver is required");
+        this.ttlMillis = ttlMillis;
+        this.maxStaleNanos = TimeUnit.MILLISECONDS.toNanos(maxStaleMillis);
+        this.resolver = resolver;
+    }
+
+    public DnsCache() {
+        this(DEFAULT_TTL_MS, DEFAULT_MAX_STALE_MS, HostResolver.SYSTEM);
+    }
+
+    /**
+     * @return true for IPv4 and IPv6 literals, which never go through the resolver
+     */
+    static boolean isLiteral(String host) {
+        if (host.indexOf(':') >= 0) return true;
+        for (int i = 0; i < host.length(); i++) {
+            char c = host.charAt(i);
+            if (c != '.' && (c < '0' || c > '9')) return false;
+        }
+        return !host.isEmpty();
+    }
+
+    /**
+     * Starts refreshing every cached hostname each TTL.
+     *
+     * @param onChange run (on the refresh thread) after a round in which some hostname's address set changed
+     */
+    synchronized void start(Runnable onChange) {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("dns-refresh").factory());
+        scheduler.scheduleWithFixedDelay(() -> {
+            if (refreshAll()) onChange.run();
+        }, ttlMillis, ttlMillis, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void stop() {
+        if (scheduler != null) scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    /**
+     * Returns the cached addresses of {@code host}, resolving it on the calling thread the first time it is seen.
+     *
+     * @return addresses sorted by their textual form, empty if the name never resolved (or its answer aged out)
+     */
+    List<InetAddress> lookup(String host) {
+        Entry entry = entries.get(host);
+        if (entry != null) return entry.addresses;
+        Entry created = new Entry();
+        refresh(host, created);
+        entry = entries.putIfAbsent(host, created);
+        return (entry != null ? entry : created).addresses;
+    }
+
+    /**
+     * Stops refreshing hostnames no backend uses any more.
+     */
+    void retainHosts(Collection<String> hosts) {
+        entries.keySet().retainAll(hosts);
+    }
+
+    /**
+     * Re-resolves every cached hostname once.
+     *
+     * @return true if any address set changed
+     */
+    boolean refreshAll() {
+        boolean changed = false;
+        for (Map.Entry<String, Entry> cached : entries.entrySet()) {
+            changed |= refresh(cached.getKey(), cached.getValue());
+        }
+        return changed;
+    }
+
+    private boolean refresh(String host, Entry entry) {
+        List<InetAddress> previous = entry.addresses;
+        List<InetAddress> next;
+        try {
+            InetAddress[] answer = resolver.resolve(host);
+            if (answer == null || answer.length == 0) throw new UnknownHostException(host + ": empty answer");
+            next = Arrays.stream(answer).distinct().sorted(BY_ADDRESS).toList();
+            resolutions.increment();
+            entry.resolvedAtNanos = System.nanoTime();
+        } catch (UnknownHostException | RuntimeException resolveError) {
+            failures.increment();
+            boolean fresh = maxStaleNanos == 0 || System.nanoTime() - entry.resolvedAtNanos < maxStaleNanos;
+            if (!previous.isEmpty() && fresh) {
+                staleServed.increment();
+                return false;
+            }
+            next = List.of();
+        }
+        entry.addresses = next;
+        return !next.equals(previous);
+    }
+
+    /**
+     * @return successful resolutions, including the first one of each hostname
+     */
+    long getResolutionCount() {
+        return resolutions.sum();
+    }
+
+    /**
+     * @return failed resolutions
+     */
+    long getFailureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * @return failed refreshes that kept serving the previous answer
+     */
+    long getStaleServedCount() {
+        return staleServed.sum();
+    }
+
+    int getHostCount() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+        private volatile List<InetAddress> addresses = List.of();
+        private volatile long resolvedAtNanos;
+    }
+}
@@ -0,0 +1,220 @@
+package com.payroc.interviews;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timing wheel: one thread advances a ring of buckets every tick and runs the timeouts whose deadline has
+ * passed, so scheduling and cancelling are O(1) no matter how many timeouts are pending. Deadlines are rounded up to
+ * the tick, which is plenty for connect and idle timeouts. Timeouts beyond one revolution stay in their bucket and
+ * count down rounds.
+ * <p>
+ * Other threads never touch the buckets: new and cancelled timeouts go through lock-free queues that the worker
+ * drains each tick. Tasks run on the worker thread and must be short (close a socket, hand over to an event loop).
+ */
+final class HashedWheelTimer {
+    static final long DEFAULT_TICK_MILLIS = 10;
+    static final int DEFAULT_WHEEL_SIZE = 512;
+    // Bounds the work of one tick, so a scheduling burst cannot delay expiry for long.
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long startNanos = System.nanoTime();
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Thread worker;
+    private volatile boolean running = true;
+    private long tick;
+
+    HashedWheelTimer(String name, long tickMillis, int wheelSize) {
+        if (tickMillis < 1) throw new IllegalArgumentException("tickMillis must be >= 1");
+        if (wheelSize < 1 || Integer.bitCount(wheelSize) != 1) throw new IllegalArgumentException("wheelSize must be a power of two");
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.wheel = new Bucket[wheelSize];
+        for (int i = 0; i < wheelSize; i++) wheel[i] = new Bucket();
+        this.mask = wheelSize - 1;
+        this.worker = Thread.ofPlatform().daemon().name(name).unstarted(this::run);
+        worker.start();
+    }
+
+    HashedWheelTimer(String name) {
+        this(name, DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * Runs {@code task} on the timer thread once {@code delay} has passed, unless cancelled first.
+     *
+     * @throws RejectedExecutionException if the timer has been stopped
+     */
+    Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        if (!running) throw new RejectedExecutionException("timer stopped");
+        Timeout timeout = new Timeout(this, task, System.nanoTime() + unit.toNanos(Math.max(0, delay)) - startNanos);
+        pending.incrementAndGet();
+        added.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Stops the worker; pending timeouts never run.
+     */
+    void stop() {
+        running = false;
+        LockSupport.unpark(worker);
+        if (Thread.currentThread() == worker) return;
+        try {
+            worker.join(1_000);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return timeouts scheduled and neither run nor cancelled yet
+     */
+    int getPendingCount() {
+        return pending.get();
+    }
+
+    private void run() {
+        while (running) {
+            long tickDeadline = tickNanos * (tick + 1);
+            long sleepNanos;
+            while (running && (sleepNanos = tickDeadline - (System.nanoTime() - startNanos)) > 0) {
+                LockSupport.parkNanos(this, sleepNanos);
+            }
+            if (!running) break;
+            removeCancelled();
+            transferAdded();
+            wheel[(int) (tick & mask)].expire(tickDeadline);
+            tick++;
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) timeout.bucket.remove(timeout);
+        }
+    }
+
+    private void transferAdded() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Timeout timeout = added.poll();
+            if (timeout == null) return;
+            if (timeout.state != Timeout.PENDING) continue;
+            long dueTick = timeout.deadlineNanos / tickNanos;
+            timeout.remainingRounds = (dueTick - tick) / wheel.length;
+            // Already overdue: run it in the current tick rather than a full revolution later.
+            wheel[(int) (Math.max(dueTick, tick) & mask)].add(timeout);
+        }
+    }
+
+    /**
+     * Handle to a scheduled task.
+     */
+    static final class Timeout {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long deadlineNanos;
+        private volatile int state = PENDING;
+        // Owned by the worker thread.
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(HashedWheelTimer timer, Runnable task, long deadlineNanos) {
+            this.timer = timer;
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * @return true if the task will not run; false if it already ran or was cancelled before
+         */
+        boolean cancel() {
+            if (!STATE.compareAndSet(this, PENDING, CANCELLED)) return false;
+            timer.pending.decrementAndGet();
+            timer.cancelled.add(this);
+            return true;
+        }
+
+        boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        boolean isExpired() {
+            return state == EXPIRED;
+        }
+
+        private void expire() {
+            if (!STATE.compareAndSet(this, PENDING, EXPIRED)) return;
+            timer.pending.decrementAndGet();
+            try {
+                task.run();
+            } catch (RuntimeException taskError) {
+                System.err.println("HashedWheelTimer: task failed: " + taskError);
+            }
+        }
+    }
+
+    /**
+     * Doubly linked list of the timeouts hashed to one slot; only the worker thread uses it.
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void expire(long tickDeadlineNanos) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0 && timeout.deadlineNanos <= tickDeadlineNanos) {
+                    remove(timeout);
+                    timeout.expire();
+                } else if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.bucket != this) return;
+            if (timeout.prev != null) timeout.prev.next = timeout.next;
+            else head = timeout.next;
+            if (timeout.next != null) timeout.next.prev = timeout.prev;
+            else tail = timeout.prev;
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.payroc.interviews;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Periodically probes every backend and flips {@link Server#isHealthy()} using rise/fall thresholds:
+ * a backend goes down after {@code fall} consecutive failed probes and comes back after
+ * {@code rise} consecutive successful ones. A probe is a TCP connect, optionally followed by
+ * sending a payload and expecting the response to start with a given byte sequence.
+ * Each probe is delayed by a random jitter so checks against many backends do not fire in lockstep.
+ */
+public class HealthChecker {
+    public static final long DEFAULT_INTERVAL_MS = 5000;
+    public static final long DEFAULT_TIMEOUT_MS = 1000;
+    public static final int DEFAULT_RISE = 2;
+    public static final int DEFAULT_FALL = 3;
+    public static final long DEFAULT_JITTER_MS = 500;
+    private static final int PROBE_THREADS = 2;
+
+    private final long intervalMillis;
+    private final long timeoutMillis;
+    private final int rise;
+    private final int fall;
+    private final long jitterMillis;
+    private volatile byte[] sendPayload;
+    private volatile byte[] expectPayload;
+    private final Map<Server, ProbeState> states = new ConcurrentHashMap<>();
+    private volatile ScheduledExecutorService scheduler;
+
+    public HealthChecker(long intervalMillis, long timeoutMillis, int rise, int fall, long jitterMillis) {
+        if (intervalMillis <= 0 || timeoutMillis <= 0) throw new IllegalArgumentException("interval and timeout must be > 0");
+        if (rise < 1 || fall < 1) throw new IllegalArgumentException("rise and fall must be >= 1");
+        if (jitterMillis < 0) throw new IllegalArgumentException("jitterMillis must be >= 0");
+        this.intervalMillis = intervalMillis;
+        this.timeoutMillis = timeoutMillis;
+        this.rise = rise;
+        this.fall = fall;
+        this.jitterMillis = jitterMillis;
+    }
+
+    public HealthChecker() {
+        this(DEFAULT_INTERVAL_MS, DEFAULT_TIMEOUT_MS, DEFAULT_RISE, DEFAULT_FALL, DEFAULT_JITTER_MS);
+    }
+
+    /**
+     * Turns the TCP-connect probe into a send/expect probe.
+     *
+     * @param send   bytes written after connecting (may be null to only read)
+     * @param expect bytes the backend's response must start with (may be null to only send)
+     */
+    public void setPayloadProbe(byte[] send, byte[] expect) {
+        this.sendPayload = send == null ? null : send.clone();
+        this.expectPayload = expect == null ? null : expect.clone();
+    }
+
+    /**
+     * Starts probing; the set of backends is re-read from {@code servers} on every round. Counters start from
+     * scratch, so a restart is not held up by probes the previous run dropped while they were queued.
+     */
+    synchronized void start(Iterable<Server> servers) {
+        if (scheduler != null) return;
+        states.clear();
+        ScheduledExecutorService executor =
+            Executors.newScheduledThreadPool(PROBE_THREADS, Thread.ofPlatform().daemon().name("health-check-", 0).factory());
+        scheduler = executor;
+        executor.scheduleWithFixedDelay(() -> probeRound(executor, servers), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void stop() {
+        if (scheduler != null) scheduler.shutdownNow();
+        scheduler = null;
+        states.clear();
+    }
+
+    private void probeRound(ScheduledExecutorService executor, Iterable<Server> servers) {
+        Set<Server> current = new HashSet<>();
+        for (Server server : servers) {
+            current.add(server);
+            ProbeState state = states.computeIfAbsent(server, s -> new ProbeState(s.isHealthy()));
+            if (!state.inFlight.compareAndSet(false, true)) continue; // previous probe still running
+            long delay = jitterMillis == 0 ? 0 : ThreadLocalRandom.current().nextLong(jitterMillis + 1);
+            try {
+                executor.schedule(() -> {
+                    try {
+                        record(server, probe(server));
+                    } finally {
+                        state.inFlight.set(false);
+                    }
+                }, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException stopping) {
+                state.inFlight.set(false);
+                return;
+            }
+        }
+        states.keySet().retainAll(current);
+    }
+
+    /**
+     * Runs one probe against the backend.
+     *
+     * @return true if the connect (and optional send/expect exchange) succeeded within the timeout
+     */
+    boolean probe(Server server) {
+        byte[] send = sendPayload;
+        byte[] expect = expectPayload;
+        try (Socket socket = new Socket()) {
+            socket.connect(server.getSocketAddress(), (int) timeoutMillis);
+            if (send != null) socket.getOutputStream().write(send);
+            if (expect != null) {
+                socket.setSoTimeout((int) timeoutMillis);
+                InputStream in = socket.getInputStream();
+                return Arrays.equals(expect, in.readNBytes(expect.length));
+            }
+            return true;
+        } catch (IOException probeError) {
+            return false;
+        }
+    }
+
+    /**
+     * Applies one probe result to the backend's rise/fall counters, flipping its health when a threshold is reached.
+     */
+    void record(Server server, boolean success) {
+        ProbeState state = states.computeIfAbsent(server, s -> new ProbeState(s.isHealthy()));
+        synchronized (state) {
+            boolean healthy = server.isHealthy();
+            if (healthy != state.lastHealthy) {
+                // Changed elsewhere (e.g. a failed client connect); count from scratch.
+                state.successes = 0;
+                state.failures = 0;
+            }
+            if (success) {
+                state.failures = 0;
+                state.successes++;
+                if (!healthy && state.successes >= rise) {
+                    server.markHealthy();
+                    System.out.println("Health check: " + server.getHost() + ":" + server.getPort() + " is UP");
+                }
+            } else {
+                state.successes = 0;
+                state.failures++;
+                if (healthy && state.failures >= fall) {
+                    server.markUnhealthy();
+                    System.out.println("Health check: " + server.getHost() + ":" + server.getPort() + " is DOWN");
+                }
+            }
+            state.lastHealthy = server.isHealthy();
+        }
+    }
+
+    private static final class ProbeState {
+        private final AtomicBoolean inFlight = new AtomicBoolean();
+        private int successes;
+        private int failures;
+        private boolean lastHealthy;
+
+        ProbeState(boolean healthy) {
+            this.lastHealthy = healthy;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.payroc.interviews;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * SPI for turning a backend hostname into its addresses, used by {@link DnsCache}. Tests plug in a stand-in.
+ */
+@FunctionalInterface
+public interface HostResolver {
+    /**
+     * The JDK resolver (which still applies its own cache).
+     */
+    HostResolver SYSTEM = InetAddress::getAllByName;
+
+    /**
+     * @return every address of {@code host}; never empty
+     * @throws UnknownHostException if the name does not resolve or the resolver fails
+     */
+    InetAddress[] resolve(String host) throws UnknownHostException;
+}
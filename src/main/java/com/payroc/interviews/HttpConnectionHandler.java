@@ -0,0 +1,463 @@
+package com.payroc.interviews;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Proxies one client connection in {@link ProxyMode#HTTP}. Requests are read one at a time and each gets its own
+ * backend from the current strategy, so a kept-alive client spreads its requests over the pool instead of being
+ * pinned to the backend it first reached. Backend connections outlive requests: one whose response ended cleanly
+ * goes back to the backend's {@link BackendConnectionPool}, and a later request to that backend skips the handshake.
+ * <p>
+ * Bodies are streamed through {@link HttpStream} in both directions and never buffered whole. Pipelined requests are
+ * answered strictly in order, since the next request is only read once the previous response is complete. A 101
+ * response to an upgrade request turns the connection into a plain two-way tunnel to that backend.
+ * <p>
+ * Each request holds a backend slot, counts as an active connection, is reported to the backend's
+ * {@link CircuitBreaker} (5xx responses, resets and stalls as failures) and gets one {@link ProxyLog} access record.
+ * The client connection as a whole is tracked and watched by {@link SessionTimeouts}, so the idle timeout also
+ * closes keep-alive connections that stay quiet between requests. With TLS termination the client side is read and
+ * written through a {@link TlsChannel} whose handshake has already completed.
+ */
+class HttpConnectionHandler implements Runnable, SessionTimeouts.Watched {
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+    private static final int JOIN_TIMEOUT_MS = 500;
+
+    private final Socket clientSocket;
+    private final TlsChannel clientTls;
+    private final LoadBalancer loadBalancer;
+    private final ThreadFactory pumpThreads;
+    private final int bufferSize;
+    private final BackendConnector backendConnector;
+    private final ConnectionTracker connectionTracker;
+    private final SessionTimeouts sessionTimeouts;
+    private final ProxyLog log;
+    private volatile HttpStream client;
+    private volatile HttpStream backend; // reused for every backend connection of this client
+    private OutputStream clientOut;
+    private volatile ConnectAttempts attempts; // of the request in flight, null between requests
+    private volatile SocketChannel backendChannel;
+    private volatile boolean forceClosed;
+    private volatile long openedNanos;
+    private volatile long tunnelBytesToBackend;
+    // State of the request in flight.
+    private boolean reused;
+    private boolean clientFault;
+    private boolean interimSent;
+    private int status;
+    private long bytesToBackend;
+    private long bytesFromBackend;
+
+    /**
+     * @param clientTls TLS connection over {@code clientSocket}'s channel after its handshake, or null for plain HTTP
+     */
+    HttpConnectionHandler(Socket clientSocket, TlsChannel clientTls, LoadBalancer loadBalancer, ThreadFactory pumpThreads, int bufferSize,
+                          BackendConnector backendConnector, ConnectionTracker connectionTracker,
+                          SessionTimeouts sessionTimeouts, ProxyLog log) {
+        this.clientSocket = clientSocket;
+        this.clientTls = clientTls;
+        this.loadBalancer = loadBalancer;
+        this.pumpThreads = pumpThreads;
+        this.bufferSize = bufferSize;
+        this.backendConnector = backendConnector;
+        this.connectionTracker = connectionTracker;
+        this.sessionTimeouts = sessionTimeouts;
+        this.log = log;
+    }
+
+    @Override
+    public void run() {
+        SocketAddress clientAddress = clientSocket.getRemoteSocketAddress();
+        openedNanos = System.nanoTime();
+        connectionTracker.register(this);
+        SessionTimeouts.Watch timeoutWatch = sessionTimeouts.watch(this);
+        try {
+            // A response head and its body are separate writes; Nagle would hold the body back for the client's
+            // delayed ACK of the head.
+            clientSocket.setTcpNoDelay(true);
+            if (clientTls != null) {
+                clientOut = Channels.newOutputStream(clientTls);
+                client = new HttpStream(Channels.newInputStream(clientTls), bufferSize);
+            } else {
+                clientOut = clientSocket.getOutputStream();
+                client = new HttpStream(clientSocket.getInputStream(), bufferSize);
+            }
+            boolean open = true;
+            while (open && !forceClosed) {
+                long readStart = System.nanoTime();
+                HttpHead request;
+                try {
+                    request = client.readHead(true);
+                } catch (HttpHead.ProtocolException malformed) {
+                    reject(clientAddress, "-", "-", malformed.status(), readStart, ProxyLog.CloseReason.BAD_REQUEST);
+                    break;
+                }
+                if (request == null) break; // client closed between requests
+                open = exchange(request, clientAddress, timeoutWatch);
+            }
+        } catch (IOException clientError) {
+            // Reset or closed locally (timeout, drain) while waiting for the next request.
+        } finally {
+            if (timeoutWatch != null) timeoutWatch.cancel();
+            if (clientTls != null && !forceClosed) sendCloseNotify();
+            closeQuietly(clientSocket);
+            closeQuietly(backendChannel);
+            connectionTracker.unregister(this);
+        }
+    }
+
+    /**
+     * Proxies one request and its response.
+     *
+     * @return true if the client connection stays open for another request
+     */
+    private boolean exchange(HttpHead request, SocketAddress clientAddress, SessionTimeouts.Watch timeoutWatch) {
+        long requestStart = System.nanoTime();
+        String method = request.method();
+        HttpHead.Framing requestFraming;
+        try {
+            if (method.equals("CONNECT")) throw new HttpHead.ProtocolException(405, "CONNECT is not supported");
+            requestFraming = request.requestFraming();
+        } catch (HttpHead.ProtocolException rejected) {
+            return reject(clientAddress, method, request.target(), rejected.status(), requestStart,
+                ProxyLog.CloseReason.BAD_REQUEST);
+        }
+        boolean clientKeepAlive = request.isKeepAlive();
+        boolean upgrade = request.isUpgrade();
+        boolean expectContinue = request.hasToken("Expect", "100-continue") && requestFraming != HttpHead.Framing.NONE
+            && !request.version().equals("HTTP/1.0");
+        request.removeHopByHop(upgrade);
+        // Answered here: the body is only sent once a backend is connected, so the client may as well start now.
+        if (expectContinue) request.remove("Expect");
+
+        InetAddress clientInet = clientSocket.getInetAddress();
+        Server selected = loadBalancer.awaitBackend(clientInet);
+        if (selected == null) return reject(clientAddress, method, request.target(), 503, requestStart, ProxyLog.CloseReason.NO_BACKEND);
+        ConnectAttempts requestAttempts = loadBalancer.beginConnect(clientInet, selected);
+        attempts = requestAttempts;
+        status = 0;
+        bytesToBackend = 0;
+        bytesFromBackend = 0;
+        clientFault = false;
+        interimSent = false;
+        ProxyLog.CloseReason outcome;
+        try {
+            outcome = proxy(request, requestFraming, clientKeepAlive, expectContinue, requestAttempts, timeoutWatch);
+        } finally {
+            attempts = null;
+            loadBalancer.releaseBackend(requestAttempts.current());
+        }
+        log.request(clientAddress, requestAttempts.current(), method, request.target(), status, bytesToBackend,
+            bytesFromBackend, System.nanoTime() - requestStart, outcome);
+        return outcome == ProxyLog.CloseReason.KEEP_ALIVE;
+    }
+
+    private ProxyLog.CloseReason proxy(HttpHead request, HttpHead.Framing requestFraming, boolean clientKeepAlive,
+                                       boolean expectContinue, ConnectAttempts requestAttempts,
+                                       SessionTimeouts.Watch timeoutWatch) {
+        SocketChannel channel = connectBackend(requestAttempts);
+        if (channel == null) {
+            sendError(502);
+            return ended(timeoutWatch, ProxyLog.CloseReason.CONNECT_FAILED);
+        }
+        Server server = requestAttempts.current();
+        BackendMetrics metrics = server.getMetrics();
+        CircuitBreaker breaker = server.getCircuitBreaker();
+        server.incrementActive();
+        long exchangeStart = System.nanoTime();
+        boolean reusable = false;
+        HttpHead response = null;
+        try {
+            if (expectContinue) writeClient(CONTINUE);
+            byte[] head = request.toBytes();
+            while (response == null) {
+                try {
+                    sendRequest(head, requestFraming, request.contentLength(), channel);
+                    response = readFinalHead(request.method(), exchangeStart, server);
+                } catch (IOException sendOrReceive) {
+                    if (sendOrReceive instanceof HttpHead.ProtocolException || !canReplay(request.method(), requestFraming)) throw sendOrReceive;
+                    // The backend closed the pooled connection while it sat idle; nothing was processed, so resend.
+                    closeQuietly(channel);
+                    reused = false;
+                    channel = BackendConnector.open(server, requestAttempts.attemptTimeoutMillis());
+                    channel.socket().setTcpNoDelay(true);
+                    backendChannel = channel;
+                    backend.reset(channel.socket().getInputStream());
+                }
+            }
+            int code = response.status();
+            if (code == 101) {
+                if (!request.isUpgrade()) throw new HttpHead.ProtocolException(502, "unsolicited 101 response");
+                writeResponseHead(response);
+                tunnel(channel);
+                return ended(timeoutWatch, ProxyLog.CloseReason.CLIENT_CLOSED);
+            }
+            HttpHead.Framing responseFraming = response.responseFraming(request.method());
+            boolean delimited = responseFraming != HttpHead.Framing.UNTIL_CLOSE;
+            boolean keepClient = clientKeepAlive && delimited && loadBalancer.isRunning();
+            reusable = delimited && response.isKeepAlive();
+            response.removeHopByHop(false);
+            if (!keepClient) response.add("Connection", "close");
+            else if (request.version().equals("HTTP/1.0")) response.add("Connection", "keep-alive");
+            writeResponseHead(response);
+            try {
+                bytesFromBackend += backend.transfer(responseFraming, response.contentLength(), clientOut);
+            } catch (IOException responseBody) {
+                clientFault = !backend.inputEnded();
+                throw responseBody;
+            }
+            reusable &= backend.buffered() == 0;
+            if (keepClient) return ProxyLog.CloseReason.KEEP_ALIVE;
+            return delimited ? ProxyLog.CloseReason.CLIENT_CLOSED : ProxyLog.CloseReason.BACKEND_CLOSED;
+        } catch (IOException failure) {
+            reusable = false;
+            boolean stalled = response == null && !clientFault && timeoutWatch != null && timeoutWatch.isIdleExpired();
+            if (!stalled && (clientFault || forceClosed)) {
+                if (response == null) breaker.onInconclusive();
+                return ended(timeoutWatch, ProxyLog.CloseReason.CLIENT_CLOSED);
+            }
+            // Reset, truncated or malformed response, or a stall ended by the idle timeout.
+            log.error("HttpConnectionHandler", "backend request error", server, failure);
+            if (response == null || status < 500) breaker.onFailure();
+            if (status == 0 && !interimSent) sendError(502);
+            return ended(timeoutWatch, ProxyLog.CloseReason.BACKEND_RESET);
+        } finally {
+            server.decrementActive();
+            metrics.recordSession(System.nanoTime() - exchangeStart);
+            metrics.addBytesToBackend(bytesToBackend);
+            metrics.addBytesFromBackend(bytesFromBackend);
+            backendChannel = null;
+            if (reusable && !forceClosed) backendConnector.release(server, channel);
+            else closeQuietly(channel);
+        }
+    }
+
+    /**
+     * Takes a pooled connection to the current backend if there is one, else connects, failing over to the next
+     * backend after each failed attempt.
+     *
+     * @return the connected channel, or null once no attempt is left (or the client was force-closed meanwhile)
+     */
+    private SocketChannel connectBackend(ConnectAttempts requestAttempts) {
+        while (true) {
+            Server server = requestAttempts.current();
+            server.getMetrics().recordConnection();
+            SocketChannel pooled = backendConnector.borrowPooled(server);
+            try {
+                SocketChannel channel = pooled != null ? pooled : BackendConnector.open(server, requestAttempts.attemptTimeoutMillis());
+                channel.socket().setTcpNoDelay(true);
+                if (backend == null) backend = new HttpStream(channel.socket().getInputStream(), bufferSize);
+                else backend.reset(channel.socket().getInputStream());
+                reused = pooled != null;
+                if (reused) server.getMetrics().recordReusedConnection();
+                backendChannel = channel;
+                return channel;
+            } catch (IOException connectErr) {
+                closeQuietly(pooled);
+                log.error("HttpConnectionHandler", "backend connect error", server, connectErr);
+                server.getMetrics().recordConnectFailure();
+                server.reportConnectFailure();
+            }
+            if (clientSocket.isClosed() || requestAttempts.failover() == null) return null;
+        }
+    }
+
+    /**
+     * Writes the request head, then streams the request body from the client.
+     */
+    private void sendRequest(byte[] head, HttpHead.Framing framing, long length, SocketChannel channel) throws IOException {
+        OutputStream backendOut = channel.socket().getOutputStream();
+        backendOut.write(head);
+        bytesToBackend += head.length;
+        try {
+            bytesToBackend += client.transfer(framing, length, backendOut);
+        } catch (IOException requestBody) {
+            clientFault = client.inputEnded();
+            throw requestBody;
+        }
+    }
+
+    /**
+     * Reads response heads until a final one (or a 101), relaying interim responses such as 103 Early Hints.
+     * The first head is the backend's time to first byte; the final one settles its circuit breaker.
+     */
+    private HttpHead readFinalHead(String method, long exchangeStart, Server server) throws IOException {
+        while (true) {
+            HttpHead response = backend.readHead(false);
+            if (response == null) throw new EOFException("backend closed the connection before responding");
+            int code = response.status();
+            if (!interimSent) server.recordFirstByteTime(System.nanoTime() - exchangeStart);
+            if (code >= 200 || code == 101) {
+                server.getMetrics().recordResponse(code);
+                if (code >= 500) server.getCircuitBreaker().onFailure();
+                else server.getCircuitBreaker().onSuccess();
+                return response;
+            }
+            byte[] interim = response.toBytes();
+            writeClient(interim);
+            bytesFromBackend += interim.length;
+            interimSent = true;
+        }
+    }
+
+    /**
+     * A failed request can be resent only if it went out on a pooled connection, had no body and got not a single
+     * byte back: the classic race of a backend closing an idle keep-alive connection just as it is reused. The
+     * method must also be safe, since the backend may still have acted on a request it never answered.
+     */
+    private boolean canReplay(String method, HttpHead.Framing requestFraming) {
+        return reused && isSafe(method) && requestFraming == HttpHead.Framing.NONE && backend.bytesRead() == 0 && !clientFault
+            && !forceClosed;
+    }
+
+    private static boolean isSafe(String method) {
+        return switch (method) {
+            case "GET", "HEAD", "OPTIONS", "TRACE" -> true;
+            default -> false;
+        };
+    }
+
+    private void writeResponseHead(HttpHead response) throws IOException {
+        byte[] head = response.toBytes();
+        status = response.status();
+        writeClient(head);
+        bytesFromBackend += head.length;
+    }
+
+    private void writeClient(byte[] bytes) throws IOException {
+        try {
+            clientOut.write(bytes);
+        } catch (IOException writeError) {
+            clientFault = true;
+            throw writeError;
+        }
+    }
+
+    /**
+     * Pumps raw bytes both ways after a protocol switch, starting with anything already buffered on either side,
+     * until one side closes.
+     */
+    private void tunnel(SocketChannel channel) throws IOException {
+        OutputStream backendOut = channel.socket().getOutputStream();
+        HttpStream fromClient = client;
+        Thread clientToBackend = pumpThreads.newThread(() -> {
+            try {
+                tunnelBytesToBackend = fromClient.transfer(HttpHead.Framing.UNTIL_CLOSE, 0, backendOut);
+                channel.shutdownOutput();
+            } catch (IOException ignored) {
+                // The other direction ended first and closed the sockets.
+            }
+        });
+        clientToBackend.start();
+        try {
+            bytesFromBackend += backend.transfer(HttpHead.Framing.UNTIL_CLOSE, 0, clientOut);
+        } catch (IOException ignored) {
+            // Either side reset; the tunnel is over either way.
+        } finally {
+            closeQuietly(clientSocket);
+            closeQuietly(channel);
+        }
+        try {
+            clientToBackend.join(JOIN_TIMEOUT_MS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        bytesToBackend += tunnelBytesToBackend;
+    }
+
+    /**
+     * Answers with an error and closes, for a request that cannot be proxied.
+     *
+     * @return false: the client connection is closed
+     */
+    private boolean reject(SocketAddress clientAddress, String method, String target, int code, long startNanos,
+                           ProxyLog.CloseReason reason) {
+        sendError(code);
+        log.request(clientAddress, null, method, target, code, 0, 0, System.nanoTime() - startNanos, reason);
+        return false;
+    }
+
+    private void sendError(int code) {
+        status = code;
+        String reason = switch (code) {
+            case 400 -> "Bad Request";
+            case 405 -> "Method Not Allowed";
+            case 431 -> "Request Header Fields Too Large";
+            case 502 -> "Bad Gateway";
+            case 503 -> "Service Unavailable";
+            case 505 -> "HTTP Version Not Supported";
+            default -> "Error";
+        };
+        String body = code + " " + reason + "\n";
+        String response = "HTTP/1.1 " + code + " " + reason + "\r\nContent-Type: text/plain\r\nContent-Length: "
+            + body.length() + "\r\nConnection: close\r\n\r\n" + body;
+        try {
+            clientOut.write(response.getBytes(StandardCharsets.ISO_8859_1));
+        } catch (IOException ignored) {
+            // Client already gone.
+        }
+    }
+
+    /**
+     * A timeout or a forced close explains the end best; otherwise {@code reason}.
+     */
+    private ProxyLog.CloseReason ended(SessionTimeouts.Watch timeoutWatch, ProxyLog.CloseReason reason) {
+        ProxyLog.CloseReason timedOut = timeoutWatch == null ? null : timeoutWatch.closeReason();
+        if (timedOut != null) return timedOut;
+        return forceClosed ? ProxyLog.CloseReason.FORCE_CLOSED : reason;
+    }
+
+    /**
+     * Lets a TLS client tell a complete last response from a truncated one.
+     */
+    private void sendCloseNotify() {
+        try {
+            clientTls.shutdownOutput();
+        } catch (IOException ignored) {
+            // Client already gone.
+        }
+    }
+
+    @Override
+    public Server backend() {
+        ConnectAttempts current = attempts;
+        return current == null ? null : current.current();
+    }
+
+    @Override
+    public long lastReadNanos() {
+        long latest = openedNanos;
+        HttpStream fromClient = client;
+        HttpStream fromBackend = backend;
+        if (fromClient != null) latest = Math.max(latest, fromClient.lastReadNanos());
+        if (fromBackend != null) latest = Math.max(latest, fromBackend.lastReadNanos());
+        return latest;
+    }
+
+    /**
+     * Closes the client socket and any backend connection in use; the request in flight fails and run() cleans up.
+     */
+    @Override
+    public void forceClose() {
+        forceClosed = true;
+        closeQuietly(clientSocket);
+        closeQuietly(backendChannel);
+    }
+
+    private void closeQuietly(Closeable c) {
+        if (c == null) return;
+        try {
+            c.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
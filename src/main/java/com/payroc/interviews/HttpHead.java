@@ -0,0 +1,337 @@
+package com.payroc.interviews;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The start line and header fields of one HTTP/1.x request or response, parsed strictly enough that the proxy and
+ * the backend can never disagree on where a message ends: obsolete line folding, whitespace before a colon,
+ * conflicting {@code Content-Length} values and requests carrying both {@code Transfer-Encoding} and
+ * {@code Content-Length} are rejected instead of guessed at. Field names keep their case and order, so a head is
+ * forwarded as received apart from the hop-by-hop fields the proxy owns.
+ */
+final class HttpHead {
+    private static final String[] HOP_BY_HOP = {"Connection", "Keep-Alive", "Proxy-Connection", "TE", "Trailer", "Upgrade"};
+    /** Fields the proxy frames and routes by; a {@code Connection} option naming one is ignored. */
+    private static final String[] END_TO_END = {"Content-Length", "Transfer-Encoding", "Host"};
+    private static final long MAX_CONTENT_LENGTH = 999_999_999_999_999_999L;
+
+    /**
+     * How the body following a head is delimited.
+     */
+    enum Framing {
+        /** No body. */
+        NONE,
+        /** Exactly {@link #contentLength()} bytes. */
+        LENGTH,
+        /** Chunked transfer coding, up to and including the trailer section. */
+        CHUNKED,
+        /** Everything until the sender closes the connection (responses only). */
+        UNTIL_CLOSE
+    }
+
+    /**
+     * A message the proxy will not forward; {@code status} is the response a client should get for it.
+     */
+    static final class ProtocolException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        ProtocolException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        int status() {
+            return status;
+        }
+    }
+
+    private final boolean request;
+    // Request: method, target, version. Response: version, status code, reason phrase.
+    private final String first;
+    private final String second;
+    private final String third;
+    private final List<String> names = new ArrayList<>();
+    private final List<String> values = new ArrayList<>();
+    private long contentLength = -1;
+
+    private HttpHead(boolean request, String first, String second, String third) {
+        this.request = request;
+        this.first = first;
+        this.second = second;
+        this.third = third;
+    }
+
+    /**
+     * @param buf  bytes of the head, ending with the empty line
+     * @param from offset of the start line
+     * @param to   offset just past the final CRLF
+     */
+    static HttpHead parse(byte[] buf, int from, int to, boolean request) throws ProtocolException {
+        String text = new String(buf, from, to - from, StandardCharsets.ISO_8859_1);
+        int lineEnd = text.indexOf("\r\n");
+        HttpHead head = request ? parseRequestLine(text.substring(0, lineEnd)) : parseStatusLine(text.substring(0, lineEnd));
+        int lineStart = lineEnd + 2;
+        while (lineStart < text.length() - 2) {
+            lineEnd = text.indexOf("\r\n", lineStart);
+            String line = text.substring(lineStart, lineEnd);
+            if (line.indexOf('\n') >= 0 || line.indexOf('\r') >= 0) throw new ProtocolException(400, "bare CR or LF in header");
+            char lead = line.charAt(0);
+            if (lead == ' ' || lead == '\t') throw new ProtocolException(400, "obsolete header line folding");
+            int colon = line.indexOf(':');
+            if (colon <= 0 || !isToken(line, 0, colon)) throw new ProtocolException(400, "malformed header field");
+            head.names.add(line.substring(0, colon));
+            head.values.add(line.substring(colon + 1).strip());
+            lineStart = lineEnd + 2;
+        }
+        return head;
+    }
+
+    private static HttpHead parseRequestLine(String line) throws ProtocolException {
+        int firstSpace = line.indexOf(' ');
+        int lastSpace = line.lastIndexOf(' ');
+        if (firstSpace <= 0 || lastSpace == firstSpace || !isToken(line, 0, firstSpace)) {
+            throw new ProtocolException(400, "malformed request line");
+        }
+        String target = line.substring(firstSpace + 1, lastSpace);
+        if (target.isEmpty() || target.indexOf(' ') >= 0) throw new ProtocolException(400, "malformed request target");
+        return new HttpHead(true, line.substring(0, firstSpace), target, checkVersion(line.substring(lastSpace + 1)));
+    }
+
+    private static HttpHead parseStatusLine(String line) throws ProtocolException {
+        int space = line.indexOf(' ');
+        if (space < 0 || line.length() < space + 4) throw new ProtocolException(502, "malformed status line");
+        String code = line.substring(space + 1, space + 4);
+        if (!isDigits(code) || (line.length() > space + 4 && line.charAt(space + 4) != ' ')) {
+            throw new ProtocolException(502, "malformed status code");
+        }
+        String reason = line.length() > space + 5 ? line.substring(space + 5) : "";
+        return new HttpHead(false, checkVersion(line.substring(0, space)), code, reason);
+    }
+
+    private static String checkVersion(String version) throws ProtocolException {
+        if (version.length() != 8 || !version.startsWith("HTTP/") || version.charAt(6) != '.'
+            || !Character.isDigit(version.charAt(5)) || !Character.isDigit(version.charAt(7))) {
+            throw new ProtocolException(400, "malformed HTTP version");
+        }
+        if (version.charAt(5) != '1') throw new ProtocolException(505, "unsupported HTTP version " + version);
+        return version;
+    }
+
+    boolean isRequest() {
+        return request;
+    }
+
+    String method() {
+        return request ? first : null;
+    }
+
+    String target() {
+        return request ? second : null;
+    }
+
+    String version() {
+        return request ? third : first;
+    }
+
+    /**
+     * @return the response status code, or 0 for a request
+     */
+    int status() {
+        return request ? 0 : Integer.parseInt(second);
+    }
+
+    /**
+     * @return the first value of the named field, or null
+     */
+    String header(String name) {
+        for (int i = 0; i < names.size(); i++) {
+            if (names.get(i).equalsIgnoreCase(name)) return values.get(i);
+        }
+        return null;
+    }
+
+    /**
+     * @return true if any value of the named comma-separated field contains the token (case-insensitive)
+     */
+    boolean hasToken(String name, String token) {
+        for (int i = 0; i < names.size(); i++) {
+            if (!names.get(i).equalsIgnoreCase(name)) continue;
+            for (String element : values.get(i).split(",")) {
+                if (element.strip().equalsIgnoreCase(token)) return true;
+            }
+        }
+        return false;
+    }
+
+    void remove(String name) {
+        for (int i = names.size() - 1; i >= 0; i--) {
+            if (names.get(i).equalsIgnoreCase(name)) {
+                names.remove(i);
+                values.remove(i);
+            }
+        }
+    }
+
+    void add(String name, String value) {
+        names.add(name);
+        values.add(value);
+    }
+
+    /**
+     * HTTP/1.1 connections persist unless either side says {@code close}; HTTP/1.0 ones only with {@code keep-alive}.
+     */
+    boolean isKeepAlive() {
+        if (hasToken("Connection", "close")) return false;
+        return !version().equals("HTTP/1.0") || hasToken("Connection", "keep-alive");
+    }
+
+    /**
+     * @return true for a request asking to switch protocols (e.g. WebSocket)
+     */
+    boolean isUpgrade() {
+        return request && header("Upgrade") != null && hasToken("Connection", "upgrade");
+    }
+
+    /**
+     * Removes the fields that describe this connection rather than the message, including any the
+     * {@code Connection} field names, so the proxy can manage each side's persistence itself. The framing fields and
+     * {@code Host} are kept even if named there: the body length was already taken from them, and a backend reading
+     * the body without them would take it for the next request on a shared connection.
+     *
+     * @param keepUpgrade leave {@code Connection} and {@code Upgrade} in place for a protocol switch
+     */
+    void removeHopByHop(boolean keepUpgrade) {
+        List<String> named = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            if (!names.get(i).equalsIgnoreCase("Connection")) continue;
+            for (String element : values.get(i).split(",")) {
+                String option = element.strip();
+                if (!option.isEmpty() && !(keepUpgrade && option.equalsIgnoreCase("upgrade")) && !isEndToEnd(option)) {
+                    named.add(option);
+                }
+            }
+        }
+        for (String name : named) remove(name);
+        for (String name : HOP_BY_HOP) {
+            if (!(keepUpgrade && (name.equals("Connection") || name.equals("Upgrade")))) remove(name);
+        }
+    }
+
+    private static boolean isEndToEnd(String name) {
+        for (String field : END_TO_END) {
+            if (field.equalsIgnoreCase(name)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * A request body is chunked or has a length; a request with both is rejected, since a proxy and a backend
+     * picking different ones is how requests get smuggled.
+     */
+    Framing requestFraming() throws ProtocolException {
+        boolean chunked = isChunked(400);
+        contentLength = parseContentLength(400);
+        if (chunked && contentLength >= 0) throw new ProtocolException(400, "both Transfer-Encoding and Content-Length");
+        if (chunked) return Framing.CHUNKED;
+        return contentLength > 0 ? Framing.LENGTH : Framing.NONE;
+    }
+
+    /**
+     * Responses to HEAD, 1xx, 204 and 304 never have a body; otherwise chunked wins over a length (which is then
+     * removed), and a response with neither, or with a transfer coding other than chunked, runs until close.
+     */
+    Framing responseFraming(String requestMethod) throws ProtocolException {
+        int status = status();
+        if ("HEAD".equals(requestMethod) || status < 200 || status == 204 || status == 304) return Framing.NONE;
+        String transferEncoding = header("Transfer-Encoding");
+        if (transferEncoding != null) {
+            remove("Content-Length");
+            return isChunked(502) ? Framing.CHUNKED : Framing.UNTIL_CLOSE;
+        }
+        contentLength = parseContentLength(502);
+        if (contentLength < 0) return Framing.UNTIL_CLOSE;
+        return contentLength > 0 ? Framing.LENGTH : Framing.NONE;
+    }
+
+    /**
+     * @return the body length found by the last framing call, or -1 if the message has none
+     */
+    long contentLength() {
+        return contentLength;
+    }
+
+    /**
+     * @return true if a {@code Transfer-Encoding} is present and ends in chunked (anything else is an error for a request)
+     */
+    private boolean isChunked(int errorStatus) throws ProtocolException {
+        String last = null;
+        for (int i = 0; i < names.size(); i++) {
+            if (!names.get(i).equalsIgnoreCase("Transfer-Encoding")) continue;
+            for (String coding : values.get(i).split(",")) {
+                if (!coding.isBlank()) last = coding.strip();
+            }
+        }
+        if (last == null) return false;
+        if (last.equalsIgnoreCase("chunked")) return true;
+        if (request) throw new ProtocolException(errorStatus, "request transfer coding does not end in chunked");
+        return false;
+    }
+
+    private long parseContentLength(int errorStatus) throws ProtocolException {
+        long length = -1;
+        for (int i = 0; i < names.size(); i++) {
+            if (!names.get(i).equalsIgnoreCase("Content-Length")) continue;
+            for (String element : values.get(i).split(",", -1)) {
+                String digits = element.strip();
+                if (digits.isEmpty() || digits.length() > 18 || !isDigits(digits)) {
+                    throw new ProtocolException(errorStatus, "invalid Content-Length");
+                }
+                long value = Long.parseLong(digits);
+                if (value > MAX_CONTENT_LENGTH || (length >= 0 && value != length)) {
+                    throw new ProtocolException(errorStatus, "conflicting Content-Length values");
+                }
+                length = value;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * @return the head as sent on the wire, ending with the empty line
+     */
+    byte[] toBytes() {
+        StringBuilder out = new StringBuilder(64 + names.size() * 48);
+        out.append(first).append(' ').append(second);
+        if (request || !third.isEmpty()) out.append(' ').append(third);
+        out.append("\r\n");
+        for (int i = 0; i < names.size(); i++) out.append(names.get(i)).append(": ").append(values.get(i)).append("\r\n");
+        return out.append("\r\n").toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public String toString() {
+        return first + " " + second + " " + third;
+    }
+
+    private static boolean isToken(String s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            boolean tchar = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || "!#$%&'*+-.^_`|~".indexOf(c) >= 0;
+            if (!tchar) return false;
+        }
+        return true;
+    }
+
+    private static boolean isDigits(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) < '0' || s.charAt(i) > '9') return false;
+        }
+        return true;
+    }
+}
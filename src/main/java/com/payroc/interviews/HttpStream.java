@@ -0,0 +1,239 @@
+package com.payroc.interviews;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Incremental reader of HTTP/1.x messages from one connection. Heads are parsed from a fixed buffer; bodies are never
+ * collected: {@link #transfer} walks the body's framing (a length, chunk-size lines, the trailer section) in place
+ * and passes the bytes it has stepped over to the other side, so only one buffer of a body is ever held, however
+ * large it is. Consumed bytes are written lazily, just before the buffer has to be refilled and at the end of the
+ * message, so a chunked body costs one write per read rather than one per chunk line.
+ * <p>
+ * Bytes read past the end of a message stay buffered for the next {@link #readHead}, which is what makes pipelined
+ * requests work. Used by one thread at a time.
+ */
+final class HttpStream {
+    static final int MAX_HEAD_BYTES = 16 * 1024;
+    static final int MAX_LINE_BYTES = 4096;
+
+    private InputStream in;
+    private final byte[] buf;
+    private int start;
+    private int end;
+    private OutputStream sink;
+    private int pending; // buf[pending, start) has been consumed but not yet written to the sink
+    private long written;
+    private long bytesRead;
+    private boolean inputEnded;
+    private volatile long lastReadNanos;
+
+    /**
+     * @param bufferSize read buffer size; at least {@link #MAX_HEAD_BYTES} is used
+     */
+    HttpStream(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buf = new byte[Math.max(bufferSize, MAX_HEAD_BYTES)];
+    }
+
+    /**
+     * Moves the stream to a new connection, discarding anything buffered from the previous one.
+     */
+    void reset(InputStream in) {
+        this.in = in;
+        start = end = pending = 0;
+        bytesRead = 0;
+        inputEnded = false;
+    }
+
+    /**
+     * @return bytes read from the current input since construction or {@link #reset}
+     */
+    long bytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return bytes read but not yet consumed
+     */
+    int buffered() {
+        return end - start;
+    }
+
+    /**
+     * @return true once the input reached EOF or failed; a failed transfer with this false failed on the write side
+     */
+    boolean inputEnded() {
+        return inputEnded;
+    }
+
+    /**
+     * @return {@link System#nanoTime()} of the latest read that returned data, or 0
+     */
+    long lastReadNanos() {
+        return lastReadNanos;
+    }
+
+    /**
+     * Reads the next head. Empty lines before a request are skipped.
+     *
+     * @return the head, or null if the input ended cleanly before its first byte
+     * @throws HttpHead.ProtocolException if the head is malformed or larger than {@link #MAX_HEAD_BYTES}
+     */
+    HttpHead readHead(boolean request) throws IOException {
+        int scanned = 0;
+        while (true) {
+            if (request && scanned == 0) {
+                while (start < end && (buf[start] == '\r' || buf[start] == '\n')) start++;
+                pending = start;
+            }
+            for (int i = Math.max(start + 3, start + scanned); i < end; i++) {
+                if (buf[i] == '\n' && buf[i - 1] == '\r' && buf[i - 2] == '\n' && buf[i - 3] == '\r') {
+                    HttpHead head = HttpHead.parse(buf, start, i + 1, request);
+                    start = pending = i + 1;
+                    return head;
+                }
+            }
+            scanned = end - start;
+            if (scanned >= MAX_HEAD_BYTES) {
+                throw new HttpHead.ProtocolException(request ? 431 : 502, "head larger than " + MAX_HEAD_BYTES + " bytes");
+            }
+            if (!fill()) {
+                if (scanned == 0) return null;
+                throw new EOFException("connection closed inside a message head");
+            }
+        }
+    }
+
+    /**
+     * Passes one message body to {@code out} as it arrives, byte for byte.
+     *
+     * @param length body length for {@link HttpHead.Framing#LENGTH}
+     * @return bytes written to {@code out}
+     */
+    long transfer(HttpHead.Framing framing, long length, OutputStream out) throws IOException {
+        sink = out;
+        pending = start;
+        written = 0;
+        try {
+            switch (framing) {
+                case LENGTH -> skip(length);
+                case CHUNKED -> skipChunked();
+                case UNTIL_CLOSE -> {
+                    do {
+                        start = end;
+                    } while (fill());
+                }
+                case NONE -> {
+                }
+            }
+            flushPending();
+            return written;
+        } finally {
+            sink = null;
+        }
+    }
+
+    private void skip(long length) throws IOException {
+        long remaining = length;
+        while (remaining > 0) {
+            if (start == end && !fill()) throw new EOFException("connection closed inside a message body");
+            int step = (int) Math.min(remaining, end - start);
+            start += step;
+            remaining -= step;
+        }
+    }
+
+    private void skipChunked() throws IOException {
+        while (true) {
+            int lineEnd = lineEnd();
+            long size = chunkSize(start, lineEnd - 2);
+            start = lineEnd;
+            if (size == 0) break;
+            skip(size);
+            lineEnd = lineEnd();
+            if (lineEnd - start != 2) throw new HttpHead.ProtocolException(400, "chunk data not followed by CRLF");
+            start = lineEnd;
+        }
+        // Trailer section: field lines up to an empty line.
+        while (true) {
+            int lineEnd = lineEnd();
+            boolean last = lineEnd - start == 2;
+            start = lineEnd;
+            if (last) return;
+        }
+    }
+
+    /**
+     * @return offset just past the CRLF ending the line at {@code start}, reading more input as needed
+     */
+    private int lineEnd() throws IOException {
+        int scanned = 0;
+        while (true) {
+            for (int i = start + scanned; i < end; i++) {
+                if (buf[i] != '\n') continue;
+                if (i == start || buf[i - 1] != '\r') throw new HttpHead.ProtocolException(400, "bare LF in chunked body");
+                return i + 1;
+            }
+            scanned = end - start;
+            if (scanned >= MAX_LINE_BYTES) throw new HttpHead.ProtocolException(400, "chunk line too long");
+            if (!fill()) throw new EOFException("connection closed inside a chunked body");
+        }
+    }
+
+    private long chunkSize(int from, int to) throws HttpHead.ProtocolException {
+        long size = 0;
+        int i = from;
+        for (; i < to; i++) {
+            int digit = Character.digit(buf[i], 16);
+            if (digit < 0) break;
+            if (i - from == 15) throw new HttpHead.ProtocolException(400, "chunk size too large");
+            size = size << 4 | digit;
+        }
+        // Chunk extensions (after ';', possibly preceded by whitespace) are passed through unread.
+        while (i < to && (buf[i] == ' ' || buf[i] == '\t')) i++;
+        if (i == from || (i < to && buf[i] != ';')) throw new HttpHead.ProtocolException(400, "malformed chunk size");
+        return size;
+    }
+
+    /**
+     * Writes what was consumed since the last write, then reads more, compacting the buffer when it is full.
+     *
+     * @return false at EOF
+     */
+    private boolean fill() throws IOException {
+        flushPending();
+        if (start == end) {
+            start = end = pending = 0;
+        } else if (end == buf.length) {
+            System.arraycopy(buf, start, buf, 0, end - start);
+            end -= start;
+            start = pending = 0;
+        }
+        int read;
+        try {
+            read = in.read(buf, end, buf.length - end);
+        } catch (IOException readError) {
+            inputEnded = true;
+            throw readError;
+        }
+        if (read == -1) {
+            inputEnded = true;
+            return false;
+        }
+        end += read;
+        bytesRead += read;
+        lastReadNanos = System.nanoTime();
+        return true;
+    }
+
+    private void flushPending() throws IOException {
+        if (sink != null && start > pending) {
+            sink.write(buf, pending, start - pending);
+            written += start - pending;
+        }
+        pending = start;
+    }
+}
@@ -0,0 +1,13 @@
+package com.payroc.interviews;
+
+/**
+ * Proxy engine used to move bytes between clients and backends.
+ */
+public enum IoMode {
+    /** One thread per connection plus one per client->backend pump ({@link ConnectionHandler}). */
+    BLOCKING,
+    /** Same byte pump as {@link #BLOCKING}, but both per-connection threads are virtual threads. */
+    VIRTUAL,
+    /** Selector-based event loops multiplexing many connections per thread ({@link NioProxyEngine}). */
+    NIO
+}
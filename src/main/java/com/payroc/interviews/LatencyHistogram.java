@@ -0,0 +1,70 @@
+package com.payroc.interviews;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-bucket histogram of durations, recorded with striped {@link LongAdder}s so concurrent
+ * forwarding threads never contend on one counter and recording never allocates.
+ * Bucket bounds are upper limits in seconds (Prometheus {@code le}); values above the last bound
+ * fall into the implicit +Inf bucket.
+ */
+public final class LatencyHistogram {
+    private final double[] boundsSeconds;
+    private final long[] boundsNanos;
+    private final LongAdder[] buckets;
+    private final LongAdder sumNanos = new LongAdder();
+
+    LatencyHistogram(double... boundsSeconds) {
+        this.boundsSeconds = boundsSeconds.clone();
+        this.boundsNanos = new long[boundsSeconds.length];
+        for (int i = 0; i < boundsSeconds.length; i++) {
+            if (i > 0 && boundsSeconds[i] <= boundsSeconds[i - 1]) throw new IllegalArgumentException("bounds must increase");
+            boundsNanos[i] = (long) (boundsSeconds[i] * 1_000_000_000L);
+        }
+        this.buckets = new LongAdder[boundsSeconds.length + 1];
+        for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        int low = 0;
+        int high = boundsNanos.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (value <= boundsNanos[mid]) high = mid;
+            else low = mid + 1;
+        }
+        buckets[low].increment();
+        sumNanos.add(value);
+    }
+
+    /**
+     * @return upper bounds in seconds, excluding +Inf
+     */
+    public double[] getBoundsSeconds() {
+        return boundsSeconds.clone();
+    }
+
+    /**
+     * @return cumulative counts per bound, with the +Inf bucket (the total count) last
+     */
+    public long[] getCumulativeCounts() {
+        long[] counts = new long[buckets.length];
+        long running = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            running += buckets[i].sum();
+            counts[i] = running;
+        }
+        return counts;
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) count += bucket.sum();
+        return count;
+    }
+
+    public double getSumSeconds() {
+        return sumNanos.sum() / 1e9;
+    }
+}
@@ -3,7 +3,7 @@ package com.payroc.interviews;
 import java.util.List;
 
 /**
- * Selects the server with the fewest active connections.
+ * Selects the healthy server with the fewest active connections, scaled by {@link Server#getLoadScore() slow start}.
  */
 public class LeastConnectionsSelectionStrategy implements ServerSelectionStrategy {
 
@@ -11,9 +11,13 @@ public class LeastConnectionsSelectionStrategy implements ServerSelectionStrateg
     public Server select(List<Server> servers) {
         if (servers == null || servers.isEmpty()) return null;
         Server best = null;
+        double bestLoad = Double.MAX_VALUE;
         for (Server server : servers) {
-            if (best == null || server.getActiveConnections() < best.getActiveConnections()) {
+            if (!server.isAvailable()) continue;
+            double load = server.getLoadScore();
+            if (best == null || load < bestLoad) {
                 best = server;
+                bestLoad = load;
             }
         }
         return best;
@@ -6,11 +6,21 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.File;
 import java.io.IOException;
-import java.net.ServerSocket;
+import java.net.InetAddress;
 import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 /**
  * Simplified Layer-4 TCP load balancer.
@@ -18,28 +28,72 @@ import java.util.concurrent.CopyOnWriteArrayList;
  * - Load backend servers from JSON configuration
  * - Accept incoming TCP client connections
  * - Select a backend using a pluggable strategy
- * - Proxy raw bidirectional byte streams
+ * - Proxy raw bidirectional byte streams, or HTTP/1.1 requests one by one in {@link ProxyMode#HTTP}
+ * - Optionally terminate TLS on the listener ({@link TlsTerminator})
  */
 public class LoadBalancer {
+    private static final int MAX_RESERVE_ATTEMPTS = 3;
+    private static final int HTTP_KEEP_ALIVE_MAX_IDLE = 64;
+    // Below the 5s idle timeout common HTTP servers apply to kept-alive connections, so the pool rarely hands out
+    // a connection the backend is just closing.
+    private static final long HTTP_KEEP_ALIVE_TTL_MS = 4_000;
     private static final ObjectMapper JSON_MAPPER = new ObjectMapper()
         .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
 
     private final int listenPort;
-    private final CopyOnWriteArrayList<Server> backendServers;
+    private final String configFilePath;
+    private final BackendRegistry backendRegistry;
+    private final Iterable<Server> liveBackends;
     private volatile boolean running = false;
-    private ServerSelectionStrategy selectionStrategy;
-    private ServerSocket serverSocket;
+    private volatile AcceptorGroup acceptors;
+    private IoMode ioMode = IoMode.BLOCKING;
+    private ProxyMode proxyMode = ProxyMode.TCP;
+    private int eventLoopCount = Runtime.getRuntime().availableProcessors();
+    private int acceptorCount = 1;
+    private int acceptBacklog = AcceptorGroup.DEFAULT_BACKLOG;
+    private volatile NioProxyEngine nioEngine;
+    private volatile BufferPool bufferPool = new BufferPool(BufferPool.DEFAULT_CHUNK_SIZE);
+    private final BackendConnector backendConnector = new BackendConnector();
+    private final ConnectionTracker connectionTracker = new ConnectionTracker();
+    private volatile long drainTimeoutMillis = 0;
+    private volatile HealthChecker healthChecker = new HealthChecker();
+    private volatile long latencyDecayWindowMillis = PeakEwma.DEFAULT_DECAY_WINDOW_MS;
+    private boolean watchConfig = false;
+    private volatile ConfigWatcher configWatcher;
+    private final Object backendsLock = new Object();
+    // Guarded by backendsLock: backends as configured, before DnsCache expansion.
+    private final List<Server> configuredBackends;
+    private final LongAdder configReloads = new LongAdder();
+    private final LongAdder configReloadFailures = new LongAdder();
+    private volatile long lastConfigReloadMicros = -1;
+    private int adminPort = -1;
+    private volatile AdminServer adminServer;
+    private volatile AdmissionController admissionController;
+    private int waitQueueCapacity = 0;
+    private long waitQueueTimeoutMillis = 0;
+    private volatile BackendWaitQueue waitQueue;
+    private volatile ConnectRetryPolicy connectRetryPolicy;
+    private long idleTimeoutMillis = 0;
+    private long maxSessionLifetimeMillis = 0;
+    private volatile SessionTimeouts sessionTimeouts;
+    private volatile OutlierDetector outlierDetector;
+    private volatile ProxyLog proxyLog = new ProxyLog();
+    private volatile DnsCache dnsCache;
+    private volatile TlsTerminator tlsTerminator;
 
     public LoadBalancer(int port, String configFilePath, ServerSelectionStrategy selectionStrategy) throws IOException {
         this.listenPort = port;
-        this.selectionStrategy = selectionStrategy;
-        this.backendServers = new CopyOnWriteArrayList<>(readServers(configFilePath));
+        this.configFilePath = configFilePath;
+        List<Server> servers = readServers(configFilePath);
+        this.configuredBackends = new ArrayList<>(servers);
+        this.backendRegistry = new BackendRegistry(servers, selectionStrategy);
+        this.liveBackends = () -> backendRegistry.current().getServers().iterator();
     }
 
     /**
      * Parses backend server definitions from a JSON file.
      *
-     * @param path path to JSON file containing an array of {"host":"..","port":number}
+     * @param path path to JSON file containing an array of {"host":"..","port":number[,"weight":number]}
      * @return immutable list of parsed servers (empty if file missing or empty)
      * @throws IOException if the file exists but cannot be parsed
      */
@@ -53,55 +107,723 @@ public class LoadBalancer {
     }
 
     public List<Server> getBackends() {
-        return List.copyOf(backendServers);
+        return backendRegistry.current().getServers();
     }
 
+    /**
+     * @return the currently published backend snapshot
+     */
+    public BackendSnapshot getBackendSnapshot() {
+        return backendRegistry.current();
+    }
+
+    /**
+     * Adds a backend; with outlier detection on it slow-starts instead of taking a full share at once.
+     * With a {@link DnsCache} a hostname is added as one backend per resolved address.
+     */
     public void addBackend(Server backendServer) {
-        backendServers.addIfAbsent(backendServer);
+        synchronized (backendsLock) {
+            if (!configuredBackends.contains(backendServer)) configuredBackends.add(backendServer);
+            if (dnsCache != null) {
+                applyBackends(configuredBackends);
+                return;
+            }
+            backendServer.setLatencyDecayWindow(latencyDecayWindowMillis);
+            backendServer.getCircuitBreaker().setDetector(outlierDetector);
+            if (backendRegistry.add(backendServer)) {
+                backendServer.getCircuitBreaker().beginSlowStart();
+                backendConnector.onBackendAdded(backendServer);
+            }
+        }
     }
 
+    /**
+     * Removes the backend from rotation and closes its idle pooled connections;
+     * sessions already proxying to it run to completion. Removing a configured hostname removes all its addresses;
+     * removing a single resolved address lasts until the hostname's answer changes.
+     */
     public void removeBackend(Server backendServer) {
-        backendServers.remove(backendServer);
+        synchronized (backendsLock) {
+            if (configuredBackends.remove(backendServer) && dnsCache != null) {
+                applyBackends(configuredBackends);
+                return;
+            }
+            if (backendRegistry.remove(backendServer)) backendConnector.onBackendRemoved(backendServer);
+        }
+    }
+
+    /**
+     * Re-reads the config file and applies the difference to the live backend set in one snapshot publication.
+     * Removed backends leave rotation immediately but their in-flight sessions run until they close;
+     * added backends get pools, the latency decay window and slow start like {@link #addBackend(Server)}.
+     * A missing or unparsable file leaves the current set untouched.
+     *
+     * @return true if the file was read and applied (even if nothing changed)
+     */
+    public boolean reloadConfig() {
+        synchronized (backendsLock) {
+            return applyConfig();
+        }
+    }
+
+    private boolean applyConfig() {
+        long startNanos = System.nanoTime();
+        List<Server> desired;
+        try {
+            if (configFilePath == null || !Files.isRegularFile(Path.of(configFilePath))) {
+                throw new IOException("config file not found: " + configFilePath);
+            }
+            desired = readServers(configFilePath);
+        } catch (IOException | RuntimeException readError) {
+            configReloadFailures.increment();
+            System.err.println("Config reload failed, keeping " + getBackends().size() + " backend(s): " + readError.getMessage());
+            return false;
+        }
+        configuredBackends.clear();
+        configuredBackends.addAll(desired);
+        BackendRegistry.Change change = applyBackends(desired);
+        lastConfigReloadMicros = (System.nanoTime() - startNanos) / 1_000;
+        configReloads.increment();
+        if (!change.isEmpty()) {
+            System.out.println("Config reloaded in " + lastConfigReloadMicros + "us: +" + change.getAdded() + " -" + change.getRemoved());
+        }
+        return true;
+    }
+
+    /**
+     * Makes the live set match {@code desired}, expanded through the DNS cache when one is set.
+     * Added backends get the latency decay window, the outlier detector, slow start and a pool. Caller holds backendsLock.
+     */
+    private BackendRegistry.Change applyBackends(List<Server> desired) {
+        List<Server> targets = expand(desired);
+        for (Server server : targets) {
+            server.setLatencyDecayWindow(latencyDecayWindowMillis);
+            server.getCircuitBreaker().setDetector(outlierDetector);
+        }
+        BackendRegistry.Change change = backendRegistry.replaceAll(targets);
+        for (Server removed : change.getRemoved()) backendConnector.onBackendRemoved(removed);
+        for (Server added : change.getAdded()) {
+            added.getCircuitBreaker().beginSlowStart();
+            backendConnector.onBackendAdded(added);
+        }
+        return change;
+    }
+
+    /**
+     * Replaces each hostname backend by one backend per cached address. IP literals, and hostnames that have
+     * not resolved yet, are kept as configured (the latter are then resolved by the JDK on connect).
+     */
+    private List<Server> expand(List<Server> configured) {
+        DnsCache cache = dnsCache;
+        if (cache == null) return configured;
+        List<Server> targets = new ArrayList<>(configured.size());
+        Set<String> hostnames = new HashSet<>();
+        for (Server server : configured) {
+            if (DnsCache.isLiteral(server.getHost())) {
+                targets.add(server);
+                continue;
+            }
+            hostnames.add(server.getHost());
+            List<InetAddress> addresses = cache.lookup(server.getHost());
+            if (addresses.isEmpty()) targets.add(server);
+            for (InetAddress address : addresses) targets.add(server.withAddress(address));
+        }
+        cache.retainHosts(hostnames);
+        return targets;
+    }
+
+    /**
+     * Re-expands the configured backends after the DNS cache saw a changed answer.
+     */
+    private void onDnsChange() {
+        synchronized (backendsLock) {
+            BackendRegistry.Change change = applyBackends(configuredBackends);
+            if (!change.isEmpty()) System.out.println("DNS change: +" + change.getAdded() + " -" + change.getRemoved());
+        }
+    }
+
+    /**
+     * Resolves backend hostnames ahead of time and re-resolves them in the background every TTL, so connects never
+     * wait for DNS. A hostname with several addresses becomes one backend per address (each with the configured
+     * weight and session cap); when the answer changes, vanished addresses leave rotation like removed backends.
+     * Null (the default) connects by name. Resolves the current backends at once; refreshing starts with {@link #start()}.
+     */
+    public void setDnsCache(DnsCache dnsCache) {
+        synchronized (backendsLock) {
+            this.dnsCache = dnsCache;
+            applyBackends(configuredBackends);
+        }
+    }
+
+    public DnsCache getDnsCache() {
+        return dnsCache;
+    }
+
+    /**
+     * Watches the config file and calls {@link #reloadConfig()} whenever it changes.
+     * Takes effect on the next {@link #start()}.
+     */
+    public void setWatchConfig(boolean watchConfig) {
+        this.watchConfig = watchConfig;
+    }
+
+    /**
+     * @return number of successful config reloads
+     */
+    public long getConfigReloadCount() {
+        return configReloads.sum();
+    }
+
+    public long getConfigReloadFailureCount() {
+        return configReloadFailures.sum();
+    }
+
+    /**
+     * @return how long the last successful reload took to parse and publish, in microseconds (-1 before the first)
+     */
+    public long getLastConfigReloadMicros() {
+        return lastConfigReloadMicros;
+    }
+
+    /**
+     * How long {@link #stop()} waits for live connections to finish before force-closing them (0 closes them at once).
+     */
+    public void setDrainTimeout(long drainTimeoutMillis) {
+        if (drainTimeoutMillis < 0) throw new IllegalArgumentException("drainTimeoutMillis must be >= 0");
+        this.drainTimeoutMillis = drainTimeoutMillis;
+    }
+
+    /**
+     * @return proxied connections currently open, across all backends
+     */
+    public int getLiveConnectionCount() {
+        return connectionTracker.count();
+    }
+
+    /**
+     * Puts the backend in drain mode (no new connections, existing ones continue) and waits for its
+     * connections to finish, force-closing any still open after {@code timeoutMillis}. The backend stays
+     * registered and draining; follow with {@link #removeBackend(Server)} or {@code setDraining(false)}.
+     *
+     * @return number of connections that had to be force-closed
+     */
+    public int drainBackend(Server backendServer, long timeoutMillis) throws InterruptedException {
+        backendServer.setDraining(true);
+        return connectionTracker.drain(backendServer, timeoutMillis);
     }
 
+    /**
+     * Serves {@code /metrics} (Prometheus text) and {@code /metrics.json} on this loopback port
+     * (0 picks a free port, -1 disables it). Takes effect on the next {@link #start()}.
+     */
+    public void setAdminPort(int adminPort) {
+        if (adminPort < -1 || adminPort > 65535) throw new IllegalArgumentException("adminPort must be -1..65535");
+        this.adminPort = adminPort;
+    }
+
+    /**
+     * @return the port the admin endpoint is bound to, or -1 when it is not running
+     */
+    public int getAdminPort() {
+        AdminServer admin = adminServer;
+        return admin == null ? -1 : admin.getPort();
+    }
+
+    /**
+     * Enforces per-client-IP connection rate and concurrency limits, and a total limit, at accept time.
+     * Rejected clients are reset (RST) before any backend work. Null (the default) admits everyone.
+     * Takes effect on the next {@link #start()}.
+     */
+    public void setAdmissionController(AdmissionController admissionController) {
+        this.admissionController = admissionController;
+    }
+
+    public AdmissionController getAdmissionController() {
+        return admissionController;
+    }
+
+    /**
+     * Lets clients wait, in arrival order, when every backend in rotation is at its {@code maxConnections} cap,
+     * instead of being closed at once. At most {@code capacity} clients wait, each for up to {@code timeoutMillis};
+     * clients beyond that are closed. 0 (the default) disables waiting. Takes effect on the next {@link #start()}.
+     */
+    public void setWaitQueue(int capacity, long timeoutMillis) {
+        if (capacity < 0) throw new IllegalArgumentException("capacity must be >= 0");
+        if (capacity > 0 && timeoutMillis <= 0) throw new IllegalArgumentException("timeoutMillis must be > 0");
+        this.waitQueueCapacity = capacity;
+        this.waitQueueTimeoutMillis = timeoutMillis;
+    }
+
+    BackendWaitQueue getWaitQueue() {
+        return waitQueue;
+    }
+
+    /**
+     * Retries a failed backend connect against other backends, with per-attempt and total connect timeouts and a
+     * global retry budget. Null (the default) makes one attempt with the OS connect timeout. Applies to new sessions.
+     */
+    public void setConnectRetryPolicy(ConnectRetryPolicy connectRetryPolicy) {
+        this.connectRetryPolicy = connectRetryPolicy;
+        backendConnector.setConnectRetryPolicy(connectRetryPolicy);
+    }
+
+    public ConnectRetryPolicy getConnectRetryPolicy() {
+        return connectRetryPolicy;
+    }
+
+    /**
+     * Closes sessions that read nothing from either side for {@code idleTimeoutMillis}, and sessions open longer than
+     * {@code maxLifetimeMillis} (0 disables either). Takes effect on the next {@link #start()}.
+     */
+    public void setSessionTimeouts(long idleTimeoutMillis, long maxLifetimeMillis) {
+        if (idleTimeoutMillis < 0 || maxLifetimeMillis < 0) throw new IllegalArgumentException("timeouts must be >= 0");
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxSessionLifetimeMillis = maxLifetimeMillis;
+    }
+
+    SessionTimeouts getSessionTimeouts() {
+        return sessionTimeouts;
+    }
+
+    /**
+     * Ejects backends that keep failing connects, resetting sessions or stalling, and slow-starts them on recovery.
+     * Null (the default) keeps the plain behaviour: a failed connect marks the backend unhealthy until a health
+     * check brings it back. Applies to every backend, including ones added later; ejection starts with {@link #start()}.
+     */
+    public void setOutlierDetector(OutlierDetector outlierDetector) {
+        this.outlierDetector = outlierDetector;
+        for (Server server : backendRegistry.current().getServers()) server.getCircuitBreaker().setDetector(outlierDetector);
+    }
+
+    public OutlierDetector getOutlierDetector() {
+        return outlierDetector;
+    }
+
+    /**
+     * Replaces the access and error log of the proxy engines (by default errors only, to standard error).
+     * Must not be null. Takes effect on the next {@link #start()}.
+     */
+    public void setProxyLog(ProxyLog proxyLog) {
+        if (proxyLog == null) throw new IllegalArgumentException("proxyLog must not be null");
+        this.proxyLog = proxyLog;
+    }
+
+    public ProxyLog getProxyLog() {
+        return proxyLog;
+    }
+
+    /**
+     * Terminates TLS on the listener: clients must complete a TLS handshake before a backend is chosen, and backends
+     * receive the decrypted bytes. Works with every I/O engine and proxy mode. Null (the default) proxies plain TCP.
+     * Takes effect on the next {@link #start()}.
+     */
+    public void setTlsTerminator(TlsTerminator tlsTerminator) {
+        this.tlsTerminator = tlsTerminator;
+    }
+
+    public TlsTerminator getTlsTerminator() {
+        return tlsTerminator;
+    }
+
+    /**
+     * Replaces the active health checker (a default one runs unless this is set to null).
+     * Without health checking a backend marked unhealthy by a failed connect stays out of rotation.
+     * Takes effect on the next {@link #start()}.
+     */
+    public void setHealthChecker(HealthChecker healthChecker) {
+        this.healthChecker = healthChecker;
+    }
+
+    /**
+     * Keeps a pool of pre-established idle connections to every backend so sessions skip the
+     * backend handshake. Idle connections older than {@code idleTtlMillis} are replaced.
+     */
+    public void enableBackendPooling(int minIdle, int maxIdle, long idleTtlMillis) {
+        backendConnector.enablePooling(liveBackends, minIdle, maxIdle, idleTtlMillis);
+    }
+
+    BackendConnectionPool getBackendPool(Server backendServer) {
+        return backendConnector.getPool(backendServer);
+    }
+
+    /**
+     * Sets the decay window of every backend's latency estimate (used by {@link PeakEwmaSelectionStrategy}),
+     * including backends added later.
+     */
+    public void setLatencyDecayWindow(long decayWindowMillis) {
+        if (decayWindowMillis <= 0) throw new IllegalArgumentException("decayWindowMillis must be > 0");
+        this.latencyDecayWindowMillis = decayWindowMillis;
+        for (Server server : backendRegistry.current().getServers()) server.setLatencyDecayWindow(decayWindowMillis);
+    }
+
+    /**
+     * Installs a new strategy; it is published together with a snapshot prepared for it, so no selection
+     * ever sees the new strategy with state built by the old one.
+     */
     public void setStrategy(ServerSelectionStrategy newStrategy) {
-        this.selectionStrategy = newStrategy;
+        backendRegistry.setStrategy(newStrategy);
+    }
+
+    /**
+     * Chooses the proxy engine; takes effect on the next {@link #start()}.
+     */
+    public void setIoMode(IoMode ioMode) {
+        this.ioMode = ioMode;
     }
 
     /**
-     * Starts the blocking accept loop; spawns a thread per client for proxying.
+     * Chooses between proxying raw TCP connections and balancing HTTP/1.1 requests; takes effect on the next
+     * {@link #start()}. {@link ProxyMode#HTTP} runs on the thread-per-connection engines only and, unless backend
+     * pooling was enabled, turns on a pool without pre-warming to hold kept-alive backend connections.
+     */
+    public void setProxyMode(ProxyMode proxyMode) {
+        if (proxyMode == null) throw new IllegalArgumentException("proxyMode must not be null");
+        this.proxyMode = proxyMode;
+    }
+
+    public ProxyMode getProxyMode() {
+        return proxyMode;
+    }
+
+    /**
+     * Number of selector threads used in {@link IoMode#NIO} mode (defaults to one per core).
+     */
+    public void setEventLoopCount(int eventLoopCount) {
+        if (eventLoopCount < 1) throw new IllegalArgumentException("eventLoopCount must be >= 1");
+        this.eventLoopCount = eventLoopCount;
+    }
+
+    /**
+     * Number of acceptor threads; with more than one, each gets its own SO_REUSEPORT listener
+     * where supported. Takes effect on the next {@link #start()}.
+     */
+    public void setAcceptorCount(int acceptorCount) {
+        if (acceptorCount < 1) throw new IllegalArgumentException("acceptorCount must be >= 1");
+        this.acceptorCount = acceptorCount;
+    }
+
+    /**
+     * Kernel accept-queue length requested for each listener (capped by the OS, e.g. somaxconn).
+     */
+    public void setAcceptBacklog(int acceptBacklog) {
+        if (acceptBacklog < 1) throw new IllegalArgumentException("acceptBacklog must be >= 1");
+        this.acceptBacklog = acceptBacklog;
+    }
+
+    /**
+     * Size in bytes of the pooled direct buffers used to forward each direction of a connection;
+     * takes effect on the next {@link #start()}.
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferPool = new BufferPool(bufferSize);
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return forwarding buffer pool, exposing hit/miss and bytes-in-flight counters
+     */
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    Server selectBackend() {
+        return selectBackend(null);
+    }
+
+    /**
+     * Picks the backend for a newly accepted client using the current strategy.
+     *
+     * @param clientAddress the client's address for affinity strategies (may be null)
+     * @return selected backend, or null when none is available
+     */
+    Server selectBackend(InetAddress clientAddress) {
+        BackendSnapshot snapshot = backendRegistry.current();
+        ServerSelectionStrategy strategy = snapshot.getStrategy();
+        return strategy == null ? null : strategy.select(snapshot, clientAddress);
+    }
+
+    /**
+     * Selects a backend and reserves one of its session slots; every non-null result must be returned through
+     * {@link #releaseBackend(Server)} when the session ends. Defers to clients already waiting for a slot.
+     *
+     * @return the backend, or null if none is available or clients are queued ahead
+     */
+    Server acquireBackend(InetAddress clientAddress) {
+        BackendWaitQueue queue = waitQueue;
+        if (queue != null && queue.hasWaiters()) return null;
+        return reserveBackend(clientAddress);
+    }
+
+    private Server reserveBackend(InetAddress clientAddress) {
+        // A strategy only sees servers below their cap, but two pickers can race for the last slot.
+        for (int attempt = 0; attempt < MAX_RESERVE_ATTEMPTS; attempt++) {
+            Server server = selectBackend(clientAddress);
+            if (server == null) return null;
+            if (server.tryReserveSlot()) return server;
+        }
+        return null;
+    }
+
+    /**
+     * Like {@link #acquireBackend(InetAddress)} for a failover attempt: never returns one of {@code excluded}
+     * and does not defer to waiting clients, since the session already held a slot.
+     *
+     * @return a backend with a reserved slot, or null if every available one was excluded or full
+     */
+    Server reserveBackendExcluding(InetAddress clientAddress, List<Server> excluded) {
+        for (int attempt = 0; attempt < MAX_RESERVE_ATTEMPTS; attempt++) {
+            Server server = selectBackend(clientAddress);
+            if (server == null) return null;
+            if (excluded.contains(server)) continue;
+            if (server.tryReserveSlot()) return server;
+        }
+        // Affinity strategies keep returning the same backend for a client; fall back to any other one in rotation.
+        for (Server server : backendRegistry.current().getAvailableServers()) {
+            if (!excluded.contains(server) && server.isAvailable() && server.tryReserveSlot()) return server;
+        }
+        return null;
+    }
+
+    /**
+     * Starts the connect attempts of a session that holds a slot on {@code server}, under the current retry policy.
+     */
+    ConnectAttempts beginConnect(InetAddress clientAddress, Server server) {
+        return new ConnectAttempts(this, connectRetryPolicy, clientAddress, server);
+    }
+
+    /**
+     * Queues the client for a backend slot after {@link #acquireBackend(InetAddress)} failed, if waiting is enabled
+     * and some backend is in rotation (only full). Callbacks must hand off to the client's own thread or loop.
+     *
+     * @return false if the client cannot wait and should be closed
+     */
+    boolean queueForBackend(InetAddress clientAddress, Consumer<Server> onAcquired, Runnable onExpired) {
+        BackendWaitQueue queue = waitQueue;
+        if (queue == null || backendRegistry.current().getAvailableServers().isEmpty()) return false;
+        return queue.enqueue(clientAddress, onAcquired, onExpired);
+    }
+
+    /**
+     * Ends a session started with {@link #acquireBackend(InetAddress)} or a queued slot, passing the slot to the next waiter.
+     */
+    void releaseBackend(Server server) {
+        if (!server.releaseSlot()) return;
+        BackendWaitQueue queue = waitQueue;
+        if (queue != null) queue.onSlotFreed();
+    }
+
+    /**
+     * Blocking form of acquire-or-wait for the thread-per-connection engines.
+     */
+    Server awaitBackend(InetAddress clientAddress) {
+        Server server = acquireBackend(clientAddress);
+        if (server != null) return server;
+        CompletableFuture<Server> slot = new CompletableFuture<>();
+        if (!queueForBackend(clientAddress, slot::complete, () -> slot.complete(null))) return null;
+        return slot.join();
+    }
+
+    /**
+     * Starts the acceptors and blocks until {@link #stop()}. Acceptors only accept; each client is
+     * handed off to a worker that selects the backend and proxies. In {@link IoMode#BLOCKING} and
+     * {@link IoMode#VIRTUAL} modes the worker is a platform or virtual thread per client; in
+     * {@link IoMode#NIO} mode it is one of the event loops. In {@link ProxyMode#HTTP} the worker picks a backend
+     * per request rather than per connection. With a {@link TlsTerminator} the worker first completes the client's
+     * TLS handshake.
      */
     public void start() throws IOException {
         if (running) return;
+        if (proxyMode == ProxyMode.HTTP && ioMode == IoMode.NIO) {
+            throw new IllegalStateException("HTTP mode needs the blocking or virtual I/O engine");
+        }
         running = true;
-        serverSocket = new ServerSocket(listenPort);
-        System.out.println("LB listening on " + listenPort + " with " + backendServers.size() + " backend(s)");
-        while (running) {
-            try {
-                Socket clientSocket = serverSocket.accept();
-                Server selectedServer = selectionStrategy.select(backendServers);
-                if (selectedServer == null) {
-                    clientSocket.close();
-                    continue;
+        Consumer<SocketChannel> dispatcher;
+        String engineDescription;
+        AdmissionController admission = admissionController;
+        ProxyLog log = proxyLog;
+        TlsTerminator tls = tlsTerminator;
+        log.start();
+        if (waitQueueCapacity > 0) waitQueue = new BackendWaitQueue(waitQueueCapacity, waitQueueTimeoutMillis, this::reserveBackend);
+        SessionTimeouts timeouts = new SessionTimeouts(new HashedWheelTimer("session-timer"), idleTimeoutMillis, maxSessionLifetimeMillis);
+        sessionTimeouts = timeouts;
+        backendConnector.restart(liveBackends);
+        if (proxyMode == ProxyMode.HTTP && !backendConnector.isPoolingEnabled()) {
+            backendConnector.enablePooling(liveBackends, 0, HTTP_KEEP_ALIVE_MAX_IDLE, HTTP_KEEP_ALIVE_TTL_MS);
+        }
+        if (ioMode == IoMode.NIO) {
+            nioEngine = new NioProxyEngine(this, eventLoopCount, bufferPool, backendConnector, connectionTracker, admission, timeouts,
+                log, tls);
+            nioEngine.start();
+            dispatcher = nioEngine::dispatch;
+            engineDescription = eventLoopCount + " NIO event loop(s)" + (tls != null ? ", TLS" : "");
+        } else {
+            ThreadFactory connectionThreads = ioMode == IoMode.VIRTUAL
+                ? Thread.ofVirtual().name("conn-", 0).factory()
+                : Thread.ofPlatform().name("conn-", 0).factory();
+            BufferPool handlerBuffers = bufferPool;
+            boolean http = proxyMode == ProxyMode.HTTP;
+            dispatcher = clientChannel -> connectionThreads.newThread(() -> {
+                Socket clientSocket = clientChannel.socket();
+                InetAddress clientAddress = clientSocket.getInetAddress();
+                try {
+                    TlsChannel clientTls = null;
+                    if (tls != null) {
+                        clientTls = tls.accept(clientChannel, timeouts.getTimer());
+                        if (clientTls == null) {
+                            log.access(clientSocket.getRemoteSocketAddress(), null, 0, 0, 0, ProxyLog.CloseReason.TLS_FAILED);
+                            return;
+                        }
+                    }
+                    if (http) {
+                        new HttpConnectionHandler(clientSocket, clientTls, this, connectionThreads, handlerBuffers.getChunkSize(),
+                            backendConnector, connectionTracker, timeouts, log).run();
+                        return;
+                    }
+                    Server selectedServer = awaitBackend(clientAddress);
+                    if (selectedServer == null) {
+                        log.access(clientSocket.getRemoteSocketAddress(), null, 0, 0, 0, ProxyLog.CloseReason.NO_BACKEND);
+                        closeQuietly(clientSocket);
+                        return;
+                    }
+                    ConnectionHandler handler = new ConnectionHandler(clientSocket, clientTls, beginConnect(clientAddress, selectedServer),
+                        connectionThreads, handlerBuffers, backendConnector, connectionTracker, timeouts, log);
+                    try {
+                        handler.run();
+                    } finally {
+                        releaseBackend(handler.backend());
+                    }
+                } finally {
+                    if (admission != null) admission.release(clientAddress);
                 }
-                Thread handlerThread = new Thread(new ConnectionHandler(clientSocket, selectedServer),
-                    "conn-" + clientSocket.getPort());
-                handlerThread.start();
-            } catch (IOException acceptError) {
-                if (running) System.err.println("Accept loop error: " + acceptError.getMessage());
+            }).start();
+            engineDescription = (ioMode == IoMode.VIRTUAL ? "virtual" : "platform") + " thread per connection"
+                + (http ? ", HTTP/1.1 per-request balancing" : "") + (tls != null ? ", TLS" : "");
+        }
+        if (admission != null) dispatcher = admitting(admission, dispatcher);
+        AcceptorGroup acceptorGroup = new AcceptorGroup(listenPort, acceptorCount, acceptBacklog,
+            AcceptorGroup.DEFAULT_BATCH_SIZE, dispatcher, log);
+        try {
+            acceptorGroup.bind();
+        } catch (IOException bindError) {
+            if (nioEngine != null) nioEngine.stop();
+            if (waitQueue != null) waitQueue.close();
+            timeouts.getTimer().stop();
+            log.stop();
+            running = false;
+            throw bindError;
+        }
+        acceptors = acceptorGroup;
+        OutlierDetector detector = outlierDetector;
+        if (detector != null) detector.start(timeouts.getTimer(), liveBackends, log);
+        HealthChecker checker = healthChecker;
+        if (checker != null) checker.start(liveBackends);
+        DnsCache cache = dnsCache;
+        if (cache != null) cache.start(this::onDnsChange);
+        if (watchConfig && configFilePath != null) {
+            ConfigWatcher watcher = new ConfigWatcher(Path.of(configFilePath), this::reloadConfig);
+            try {
+                watcher.start();
+                configWatcher = watcher;
+            } catch (IOException watchError) {
+                System.err.println("Config watch disabled: " + watchError.getMessage());
             }
         }
+        if (adminPort >= 0) {
+            AdminServer admin = new AdminServer(this, adminPort);
+            try {
+                admin.start();
+                adminServer = admin;
+                System.out.println("Admin endpoint on 127.0.0.1:" + admin.getPort() + " (/metrics, /metrics.json)");
+            } catch (IOException adminError) {
+                System.err.println("Admin endpoint disabled: " + adminError.getMessage());
+            }
+        }
+        if (!running) stop();
+        System.out.println("LB listening on " + listenPort + " with " + getBackends().size() + " backend(s), "
+            + acceptorCount + " acceptor(s)" + (acceptorGroup.isReusePort() ? " (SO_REUSEPORT)" : "")
+            + ", " + engineDescription);
+        acceptorGroup.run();
     }
 
     /**
-     * Stops accepting new connections and closes the server socket.
+     * Stops accepting new connections and closes the listening socket(s), then gives live connections up to
+     * the drain timeout to finish before force-closing the rest (spread over the end of the window), and
+     * finally shuts down the NIO event loops and the session timer, drains backend pools, stops the admin endpoint
+     * and flushes the proxy log.
+     * Blocks until done.
      */
     public void stop() {
         running = false;
+        if (acceptors != null) acceptors.close();
+        BackendWaitQueue queue = waitQueue;
+        if (queue != null) queue.close();
+        HealthChecker checker = healthChecker;
+        if (checker != null) checker.stop();
+        OutlierDetector detector = outlierDetector;
+        if (detector != null) detector.stop();
+        DnsCache cache = dnsCache;
+        if (cache != null) cache.stop();
+        ConfigWatcher watcher = configWatcher;
+        if (watcher != null) watcher.close();
+        drainConnections();
+        if (nioEngine != null) nioEngine.stop();
+        SessionTimeouts timeouts = sessionTimeouts;
+        if (timeouts != null) timeouts.getTimer().stop();
+        backendConnector.close();
+        AdminServer admin = adminServer;
+        if (admin != null) admin.stop();
+        adminServer = null;
+        proxyLog.stop();
+    }
+
+    private void drainConnections() {
+        int live = connectionTracker.count();
+        if (live == 0) return;
+        long timeout = drainTimeoutMillis;
+        if (timeout > 0) System.out.println("Draining " + live + " connection(s) for up to " + timeout + "ms");
+        try {
+            int forced = connectionTracker.drain(null, timeout);
+            if (forced > 0 && timeout > 0) System.out.println("Drain deadline reached: force-closed " + forced + " connection(s)");
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            try {
+                connectionTracker.drain(null, 0);
+            } catch (InterruptedException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Runs admission on the acceptor thread; rejected clients are reset and never reach a worker.
+     */
+    private static Consumer<SocketChannel> admitting(AdmissionController admission, Consumer<SocketChannel> next) {
+        return clientChannel -> {
+            if (admission.tryAcquire(clientChannel.socket().getInetAddress())) next.accept(clientChannel);
+            else resetQuietly(clientChannel);
+        };
+    }
+
+    /**
+     * Closes with SO_LINGER 0, so the kernel sends RST and keeps no TIME_WAIT state for the rejected client.
+     */
+    private static void resetQuietly(SocketChannel channel) {
+        try {
+            channel.setOption(StandardSocketOptions.SO_LINGER, 0);
+        } catch (IOException ignored) {
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
         try {
-            if (serverSocket != null) serverSocket.close();
-        } catch (IOException closeError) {
-            System.err.println("Error closing accept socket: " + closeError.getMessage());
+            socket.close();
+        } catch (IOException ignored) {
         }
     }
 }
@@ -1,22 +1,125 @@
 package com.payroc.interviews;
 
+import javax.net.ssl.SSLContext;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
 import java.util.Locale;
 
 public class LoadBalancerApplication {
     private static final int DEFAULT_LB_PORT = 8080;
+    private static final int DEFAULT_POOL_MIN_IDLE = 2;
+    private static final int DEFAULT_POOL_MAX_IDLE = 8;
+    private static final long DEFAULT_POOL_IDLE_TTL_MS = 30_000;
+    private static final long DEFAULT_DRAIN_TIMEOUT_MS = 10_000;
+    private static final long DEFAULT_QUEUE_TIMEOUT_MS = 5_000;
 
     private static void usage() {
-        System.out.println("Usage: java -jar LoadBalancerApplication-1.0-SNAPSHOT.jar --config <path> [--port <port>] [--strategy <roundrobin|random|leastconn>]\n" +
-            "Environment: LB_PORT may override default port if --port not supplied.\n" +
+        System.out.println("Usage: java -jar LoadBalancerApplication-1.0-SNAPSHOT.jar --config <path> [--port <port>] [--strategy <roundrobin|wrr|random|leastconn|p2c|ewma|maglev>] [--io <blocking|virtual|nio>] [--mode <tcp|http>] [--event-loops <n>] [--buffer-size <bytes>] [--acceptors <n>] [--backlog <n>]\n" +
+            "       [--pool-min-idle <n>] [--pool-max-idle <n>] [--pool-idle-ttl <ms>] [--ewma-decay <ms>]\n" +
+            "       [--health-interval <ms>] [--health-timeout <ms>] [--health-rise <n>] [--health-fall <n>]\n" +
+            "       [--health-jitter <ms>] [--health-send <text>] [--health-expect <text>] [--watch-config]\n" +
+            "       [--drain-timeout <ms>] [--admin-port <port>] [--ip-rate <conn/s>] [--ip-burst <n>] [--ip-max-conns <n>] [--max-conns <n>]\n" +
+            "       [--queue-size <n>] [--queue-timeout <ms>] [--connect-retries <n>] [--connect-timeout <ms>]\n" +
+            "       [--connect-budget <ms>] [--retry-ratio <r>] [--retry-min <n/s>] [--idle-timeout <ms>] [--max-session <ms>]\n" +
+            "       [--outlier-failures <n>] [--ejection-time <ms>] [--ejection-max <ms>] [--slow-start <ms>] [--max-ejected-percent <n>]\n" +
+            "       [--access-log <path|->] [--error-log <path>] [--log-buffer <n>] [--dns-ttl <ms>] [--dns-max-stale <ms>]\n" +
+            "       [--tls-keystore <path>] [--tls-session-cache <n>] [--tls-session-timeout <s>] [--tls-handshake-timeout <ms>]\n" +
+            "Environment: LB_PORT may override default port if --port not supplied. LB_TLS_KEYSTORE_PASSWORD unlocks --tls-keystore.\n" +
             "Example: ./gradlew run --args=\"--config backends.json --port 9000 --strategy leastconn\"\n" +
-            "Config file: JSON array of {\"host\":\"..\", \"port\":<int>} entries.\n");
+            "Config file: JSON array of {\"host\":\"..\", \"port\":<int>[, \"weight\":<int>][, \"maxConnections\":<int>]} entries.\n");
+    }
+
+    private static Writer openLogFile(String path) throws IOException {
+        return Files.newBufferedWriter(Path.of(path), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Allows CR/LF in probe payloads given on the command line, e.g. "PING\r\n".
+     */
+    private static String unescape(String value) {
+        return value.replace("\\r", "\r").replace("\\n", "\n");
+    }
+
+    /**
+     * Maps a {@code --strategy} name to a new strategy instance; unknown names fall back to round-robin.
+     */
+    static ServerSelectionStrategy strategyFor(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "wrr":
+                return new WeightedRoundRobinSelectionStrategy();
+            case "random":
+                return new RandomSelectionStrategy();
+            case "leastconn":
+                return new LeastConnectionsSelectionStrategy();
+            case "p2c":
+                return new PowerOfTwoChoicesSelectionStrategy();
+            case "ewma":
+                return new PeakEwmaSelectionStrategy();
+            case "maglev":
+                return new MaglevSelectionStrategy();
+            case "roundrobin":
+            default:
+                return new RoundRobinSelectionStrategy();
+        }
     }
 
     public static void main(String[] args) {
         Integer port = null;
         String configPath = null;
         String strategyName = "roundrobin"; // default
+        String ioModeName = "blocking"; // default
+        String proxyModeName = "tcp"; // default
+        Integer eventLoops = null;
+        Integer bufferSize = null;
+        Integer acceptors = null;
+        Integer backlog = null;
+        Integer poolMinIdle = null;
+        Integer poolMaxIdle = null;
+        Long poolIdleTtlMs = null;
+        Long ewmaDecayMs = null;
+        long healthIntervalMs = HealthChecker.DEFAULT_INTERVAL_MS;
+        long healthTimeoutMs = HealthChecker.DEFAULT_TIMEOUT_MS;
+        int healthRise = HealthChecker.DEFAULT_RISE;
+        int healthFall = HealthChecker.DEFAULT_FALL;
+        long healthJitterMs = HealthChecker.DEFAULT_JITTER_MS;
+        String healthSend = null;
+        String healthExpect = null;
+        boolean watchConfig = false;
+        long drainTimeoutMs = DEFAULT_DRAIN_TIMEOUT_MS;
+        Integer adminPort = null;
+        double ipRate = 0;
+        Integer ipBurst = null;
+        int ipMaxConns = 0;
+        int maxConns = 0;
+        int queueSize = 0;
+        long queueTimeoutMs = DEFAULT_QUEUE_TIMEOUT_MS;
+        int connectRetries = 0;
+        long connectTimeoutMs = 0;
+        long connectBudgetMs = 0;
+        double retryRatio = ConnectRetryPolicy.DEFAULT_BUDGET_RATIO;
+        int retryMinPerSecond = ConnectRetryPolicy.DEFAULT_MIN_RETRIES_PER_SECOND;
+        long idleTimeoutMs = 0;
+        long maxSessionMs = 0;
+        int outlierFailures = 0;
+        long ejectionTimeMs = OutlierDetector.DEFAULT_BASE_EJECTION_MS;
+        long ejectionMaxMs = OutlierDetector.DEFAULT_MAX_EJECTION_MS;
+        long slowStartMs = OutlierDetector.DEFAULT_SLOW_START_MS;
+        int maxEjectedPercent = OutlierDetector.DEFAULT_MAX_EJECTED_PERCENT;
+        String accessLogPath = null;
+        String errorLogPath = null;
+        int logBuffer = ProxyLog.DEFAULT_CAPACITY;
+        long dnsTtlMs = 0;
+        long dnsMaxStaleMs = DnsCache.DEFAULT_MAX_STALE_MS;
+        String tlsKeyStorePath = null;
+        int tlsSessionCache = TlsTerminator.DEFAULT_SESSION_CACHE_SIZE;
+        int tlsSessionTimeoutS = TlsTerminator.DEFAULT_SESSION_TIMEOUT_SECONDS;
+        long tlsHandshakeTimeoutMs = TlsTerminator.DEFAULT_HANDSHAKE_TIMEOUT_MS;
 
         for (int i = 0; i < args.length; i++) {
             switch (args[i]) {
@@ -41,6 +144,331 @@ public class LoadBalancerApplication {
                     }
                     strategyName = args[++i];
                     break;
+                case "--io":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    ioModeName = args[++i];
+                    break;
+                case "--mode":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    proxyModeName = args[++i];
+                    break;
+                case "--event-loops":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    eventLoops = Integer.parseInt(args[++i]);
+                    break;
+                case "--buffer-size":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    bufferSize = Integer.parseInt(args[++i]);
+                    break;
+                case "--acceptors":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    acceptors = Integer.parseInt(args[++i]);
+                    break;
+                case "--backlog":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    backlog = Integer.parseInt(args[++i]);
+                    break;
+                case "--pool-min-idle":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    poolMinIdle = Integer.parseInt(args[++i]);
+                    break;
+                case "--pool-max-idle":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    poolMaxIdle = Integer.parseInt(args[++i]);
+                    break;
+                case "--pool-idle-ttl":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    poolIdleTtlMs = Long.parseLong(args[++i]);
+                    break;
+                case "--ewma-decay":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    ewmaDecayMs = Long.parseLong(args[++i]);
+                    break;
+                case "--health-interval":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    healthIntervalMs = Long.parseLong(args[++i]);
+                    break;
+                case "--health-timeout":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    healthTimeoutMs = Long.parseLong(args[++i]);
+                    break;
+                case "--health-rise":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    healthRise = Integer.parseInt(args[++i]);
+                    break;
+                case "--health-fall":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    healthFall = Integer.parseInt(args[++i]);
+                    break;
+                case "--health-jitter":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    healthJitterMs = Long.parseLong(args[++i]);
+                    break;
+                case "--health-send":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    healthSend = unescape(args[++i]);
+                    break;
+                case "--health-expect":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    healthExpect = unescape(args[++i]);
+                    break;
+                case "--drain-timeout":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    drainTimeoutMs = Long.parseLong(args[++i]);
+                    break;
+                case "--admin-port":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    adminPort = Integer.parseInt(args[++i]);
+                    break;
+                case "--ip-rate":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    ipRate = Double.parseDouble(args[++i]);
+                    break;
+                case "--ip-burst":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    ipBurst = Integer.parseInt(args[++i]);
+                    break;
+                case "--ip-max-conns":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    ipMaxConns = Integer.parseInt(args[++i]);
+                    break;
+                case "--max-conns":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    maxConns = Integer.parseInt(args[++i]);
+                    break;
+                case "--queue-size":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    queueSize = Integer.parseInt(args[++i]);
+                    break;
+                case "--queue-timeout":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    queueTimeoutMs = Long.parseLong(args[++i]);
+                    break;
+                case "--connect-retries":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    connectRetries = Integer.parseInt(args[++i]);
+                    break;
+                case "--connect-timeout":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    connectTimeoutMs = Long.parseLong(args[++i]);
+                    break;
+                case "--connect-budget":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    connectBudgetMs = Long.parseLong(args[++i]);
+                    break;
+                case "--retry-ratio":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    retryRatio = Double.parseDouble(args[++i]);
+                    break;
+                case "--retry-min":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    retryMinPerSecond = Integer.parseInt(args[++i]);
+                    break;
+                case "--idle-timeout":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    idleTimeoutMs = Long.parseLong(args[++i]);
+                    break;
+                case "--max-session":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    maxSessionMs = Long.parseLong(args[++i]);
+                    break;
+                case "--outlier-failures":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    outlierFailures = Integer.parseInt(args[++i]);
+                    break;
+                case "--ejection-time":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    ejectionTimeMs = Long.parseLong(args[++i]);
+                    break;
+                case "--ejection-max":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    ejectionMaxMs = Long.parseLong(args[++i]);
+                    break;
+                case "--slow-start":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    slowStartMs = Long.parseLong(args[++i]);
+                    break;
+                case "--max-ejected-percent":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    maxEjectedPercent = Integer.parseInt(args[++i]);
+                    break;
+                case "--access-log":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    accessLogPath = args[++i];
+                    break;
+                case "--error-log":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    errorLogPath = args[++i];
+                    break;
+                case "--log-buffer":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    logBuffer = Integer.parseInt(args[++i]);
+                    break;
+                case "--dns-ttl":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    dnsTtlMs = Long.parseLong(args[++i]);
+                    break;
+                case "--dns-max-stale":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    dnsMaxStaleMs = Long.parseLong(args[++i]);
+                    break;
+                case "--tls-keystore":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    tlsKeyStorePath = args[++i];
+                    break;
+                case "--tls-session-cache":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    tlsSessionCache = Integer.parseInt(args[++i]);
+                    break;
+                case "--tls-session-timeout":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    tlsSessionTimeoutS = Integer.parseInt(args[++i]);
+                    break;
+                case "--tls-handshake-timeout":
+                    if (i + 1 >= args.length) {
+                        usage();
+                        return;
+                    }
+                    tlsHandshakeTimeoutMs = Long.parseLong(args[++i]);
+                    break;
+                case "--watch-config":
+                    watchConfig = true;
+                    break;
                 case "--help":
                 case "-h":
                     usage();
@@ -70,23 +498,88 @@ public class LoadBalancerApplication {
         }
         if (port == null) port = DEFAULT_LB_PORT;
 
-        ServerSelectionStrategy strategy;
-        switch (strategyName.toLowerCase(Locale.ROOT)) {
-            case "random":
-                strategy = new RandomSelectionStrategy();
+        ServerSelectionStrategy strategy = strategyFor(strategyName);
+
+        IoMode ioMode;
+        switch (ioModeName.toLowerCase(Locale.ROOT)) {
+            case "virtual":
+                ioMode = IoMode.VIRTUAL;
                 break;
-            case "leastconn":
-                strategy = new LeastConnectionsSelectionStrategy();
+            case "nio":
+                ioMode = IoMode.NIO;
                 break;
-            case "roundrobin":
+            case "blocking":
             default:
-                strategy = new RoundRobinSelectionStrategy();
+                ioMode = IoMode.BLOCKING;
+        }
+        ProxyMode proxyMode = proxyModeName.equalsIgnoreCase("http") ? ProxyMode.HTTP : ProxyMode.TCP;
+        if (proxyMode == ProxyMode.HTTP && ioMode == IoMode.NIO) {
+            System.err.println("--mode http needs --io blocking or --io virtual");
+            return;
         }
 
-        System.out.printf("Starting Load Balancer on port %d using strategy '%s' with config '%s'%n", port, strategyName, configPath);
+        System.out.printf("Starting Load Balancer on port %d using strategy '%s' (%s I/O) with config '%s'%n", port, strategyName, ioModeName, configPath);
 
         try {
             LoadBalancer lb = new LoadBalancer(port, configPath, strategy);
+            lb.setIoMode(ioMode);
+            lb.setProxyMode(proxyMode);
+            if (eventLoops != null) lb.setEventLoopCount(eventLoops);
+            if (bufferSize != null) lb.setBufferSize(bufferSize);
+            if (acceptors != null) lb.setAcceptorCount(acceptors);
+            if (backlog != null) lb.setAcceptBacklog(backlog);
+            if (ewmaDecayMs != null) lb.setLatencyDecayWindow(ewmaDecayMs);
+            lb.setWatchConfig(watchConfig);
+            lb.setDrainTimeout(drainTimeoutMs);
+            if (adminPort != null) lb.setAdminPort(adminPort);
+            lb.setWaitQueue(queueSize, queueTimeoutMs);
+            lb.setSessionTimeouts(idleTimeoutMs, maxSessionMs);
+            if (outlierFailures > 0) {
+                lb.setOutlierDetector(new OutlierDetector(outlierFailures, ejectionTimeMs, Math.max(ejectionTimeMs, ejectionMaxMs),
+                    OutlierDetector.DEFAULT_HALF_OPEN_TRIALS, slowStartMs, maxEjectedPercent));
+            }
+            if (accessLogPath != null || errorLogPath != null || logBuffer != ProxyLog.DEFAULT_CAPACITY) {
+                Writer accessSink = accessLogPath == null ? null
+                    : accessLogPath.equals("-") ? new OutputStreamWriter(System.out) : openLogFile(accessLogPath);
+                Writer errorSink = errorLogPath == null ? new OutputStreamWriter(System.err) : openLogFile(errorLogPath);
+                lb.setProxyLog(new ProxyLog(accessSink, errorSink, logBuffer, ProxyLog.DEFAULT_SUPPRESS_WINDOW_MS));
+            }
+            if (tlsKeyStorePath != null) {
+                String password = System.getenv("LB_TLS_KEYSTORE_PASSWORD");
+                try {
+                    SSLContext tlsContext = TlsTerminator.loadContext(Path.of(tlsKeyStorePath),
+                        password == null ? new char[0] : password.toCharArray());
+                    lb.setTlsTerminator(new TlsTerminator(tlsContext, tlsSessionCache, tlsSessionTimeoutS, tlsHandshakeTimeoutMs));
+                } catch (IOException | GeneralSecurityException tlsError) {
+                    System.err.println("Cannot load TLS key store '" + tlsKeyStorePath + "': " + tlsError.getMessage());
+                    return;
+                }
+            }
+            if (dnsTtlMs > 0) lb.setDnsCache(new DnsCache(dnsTtlMs, dnsMaxStaleMs, HostResolver.SYSTEM));
+            if (connectRetries > 0 || connectTimeoutMs > 0 || connectBudgetMs > 0) {
+                lb.setConnectRetryPolicy(new ConnectRetryPolicy(connectRetries, connectTimeoutMs, connectBudgetMs,
+                    retryRatio, retryMinPerSecond));
+            }
+            if (ipRate > 0 || ipMaxConns > 0 || maxConns > 0) {
+                int burst = ipBurst != null ? ipBurst : (int) Math.max(1, Math.ceil(ipRate));
+                lb.setAdmissionController(new AdmissionController(ipRate, burst, ipMaxConns, maxConns));
+            }
+            if (healthIntervalMs > 0) {
+                HealthChecker healthChecker = new HealthChecker(healthIntervalMs, healthTimeoutMs, healthRise, healthFall, healthJitterMs);
+                if (healthSend != null || healthExpect != null) {
+                    healthChecker.setPayloadProbe(
+                        healthSend == null ? null : healthSend.getBytes(StandardCharsets.UTF_8),
+                        healthExpect == null ? null : healthExpect.getBytes(StandardCharsets.UTF_8));
+                }
+                lb.setHealthChecker(healthChecker);
+            } else {
+                lb.setHealthChecker(null);
+            }
+            if (poolMinIdle != null || poolMaxIdle != null || poolIdleTtlMs != null) {
+                int minIdle = poolMinIdle != null ? poolMinIdle : DEFAULT_POOL_MIN_IDLE;
+                int maxIdle = poolMaxIdle != null ? poolMaxIdle : Math.max(minIdle, DEFAULT_POOL_MAX_IDLE);
+                lb.enableBackendPooling(minIdle, maxIdle, poolIdleTtlMs != null ? poolIdleTtlMs : DEFAULT_POOL_IDLE_TTL_MS);
+            }
             if (lb.getBackends().isEmpty()) {
                 System.out.println("WARNING: No backend servers loaded (empty or invalid config). Incoming connections will be closed.");
             } else {
@@ -95,6 +588,7 @@ public class LoadBalancerApplication {
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
                 System.out.println("Shutdown requested. Stopping load balancer...");
                 lb.stop();
+                System.out.println("Forwarding buffers: " + lb.getBufferPool());
             }));
             lb.start();
         } catch (IOException e) {
@@ -0,0 +1,132 @@
+package com.payroc.interviews;
+
+import java.net.SocketAddress;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded lock-free ring of reusable log records: many producers, one consumer. A producer claims a slot with
+ * one CAS, fills it in place and publishes it; a full ring drops the record and counts it instead of blocking.
+ * Slots are allocated once, so logging allocates nothing on the producer side.
+ * <p>
+ * Each slot carries a sequence number: {@code position} when free for that lap, {@code position + 1} once
+ * published (the classic bounded-queue scheme), so producers never wait on the consumer or on each other.
+ */
+final class LogRing {
+    /**
+     * One log record. Access records use client/backend/bytes/duration/reason (plus method/target/status for an HTTP
+     * request), error records source/message/backend/cause.
+     */
+    static final class Entry {
+        private volatile long sequence;
+        private long position;
+        long timestampMillis;
+        SocketAddress client;
+        Server backend;
+        long bytesToBackend;
+        long bytesFromBackend;
+        long durationNanos;
+        ProxyLog.CloseReason reason;
+        String method;
+        String target;
+        int status;
+        String source;
+        String message;
+        Throwable cause;
+
+        private Entry(long sequence) {
+            this.sequence = sequence;
+        }
+
+        private void clear() {
+            client = null;
+            backend = null;
+            reason = null;
+            method = null;
+            target = null;
+            source = null;
+            message = null;
+            cause = null;
+        }
+    }
+
+    private final Entry[] entries;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private long head; // consumer only
+
+    /**
+     * @param capacity slots, rounded up to a power of two
+     */
+    LogRing(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be >= 1");
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        entries = new Entry[size];
+        for (int i = 0; i < size; i++) entries[i] = new Entry(i);
+        mask = size - 1;
+    }
+
+    int capacity() {
+        return entries.length;
+    }
+
+    /**
+     * Claims the next free slot; fill it and hand it to {@link #publish(Entry)}.
+     *
+     * @return the slot, or null if the ring is full (the record is counted as dropped)
+     */
+    Entry claim() {
+        long position = tail.get();
+        while (true) {
+            Entry entry = entries[(int) position & mask];
+            long lag = entry.sequence - position;
+            if (lag == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    entry.position = position;
+                    return entry;
+                }
+                position = tail.get();
+            } else if (lag < 0) {
+                dropped.increment();
+                return null;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    void publish(Entry entry) {
+        entry.sequence = entry.position + 1;
+    }
+
+    /**
+     * Consumer side: the oldest published record, left in place until {@link #release(Entry)}.
+     *
+     * @return the record, or null if none is published yet
+     */
+    Entry peek() {
+        Entry entry = entries[(int) head & mask];
+        return entry.sequence == head + 1 ? entry : null;
+    }
+
+    /**
+     * Consumer side: frees the record returned by {@link #peek()} for reuse.
+     */
+    void release(Entry entry) {
+        entry.clear();
+        entry.sequence = head + entries.length;
+        head++;
+    }
+
+    void addDropped(long count) {
+        dropped.add(count);
+    }
+
+    /**
+     * @return records dropped because the ring was full or their write failed
+     */
+    long getDroppedCount() {
+        return dropped.sum();
+    }
+}
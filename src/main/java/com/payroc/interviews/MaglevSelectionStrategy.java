@@ -0,0 +1,171 @@
+package com.payroc.interviews;
+
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Client-affinity selection with Maglev consistent hashing: the same client IP keeps going to the same
+ * backend, and a membership change moves only about the share of clients that must move.
+ * <p>
+ * Each backend derives a permutation of a prime-sized lookup table from its host:port, and backends
+ * take turns (one turn per unit of {@link Server#getWeight() weight}) claiming their next preferred free
+ * slot until the table is full. Selection hashes the client address to a slot, so it is O(1) and
+ * lock-free; the table is built once per {@link BackendSnapshot} in {@link #prepare(BackendSnapshot)}, off the accept path.
+ * If the owning backend is unhealthy the following slots are tried, so only that backend's clients move; a
+ * slow-starting owner keeps its share of its clients and passes the rest on the same way.
+ * Without a client address a random slot is used.
+ */
+public class MaglevSelectionStrategy implements ServerSelectionStrategy {
+    public static final int DEFAULT_TABLE_SIZE = 65_537;
+
+    private final int tableSize;
+    private volatile Table standalone = new Table(List.of(), new Server[0]);
+    private volatile Table prepared = new Table(List.of(), new Server[0]);
+
+    public MaglevSelectionStrategy() {
+        this(DEFAULT_TABLE_SIZE);
+    }
+
+    /**
+     * @param tableSize lookup table size; should be a prime well above the backend count (about 100x) for even spread
+     */
+    public MaglevSelectionStrategy(int tableSize) {
+        if (!isPrime(tableSize)) throw new IllegalArgumentException("tableSize must be prime");
+        this.tableSize = tableSize;
+    }
+
+    @Override
+    public Server select(List<Server> servers) {
+        return select(servers, null);
+    }
+
+    @Override
+    public Server select(List<Server> servers, InetAddress clientAddress) {
+        if (servers == null || servers.isEmpty()) return null;
+        Table current = standalone;
+        if (current.source != servers) {
+            // Called without a snapshot: build once per distinct list.
+            current = new Table(servers, buildTable(List.copyOf(servers), tableSize));
+            standalone = current;
+        }
+        return pick(current.slots, clientAddress);
+    }
+
+    @Override
+    public Server select(BackendSnapshot snapshot, InetAddress clientAddress) {
+        return pick((Server[]) snapshot.getStrategyState(), clientAddress);
+    }
+
+    /**
+     * Built over all backends, not just healthy ones: a health flip then moves only the clients of that backend,
+     * and snapshots published for health changes reuse the previous table.
+     */
+    @Override
+    public Object prepare(BackendSnapshot snapshot) {
+        Table previous = prepared;
+        if (sameServers(previous.source, snapshot.getServers())) return previous.slots;
+        Table built = new Table(snapshot.getServers(), buildTable(snapshot.getServers(), tableSize));
+        prepared = built;
+        return built.slots;
+    }
+
+    /**
+     * Server equality is host and port only, so a reload that changes a backend's weight or cap swaps in a new
+     * object that still compares equal; the table must then point at the new one.
+     */
+    private static boolean sameServers(List<Server> previous, List<Server> current) {
+        if (previous.size() != current.size()) return false;
+        for (int i = 0; i < previous.size(); i++) {
+            Server was = previous.get(i);
+            Server now = current.get(i);
+            if (was != now || was.getWeight() != now.getWeight()) return false;
+        }
+        return true;
+    }
+
+    private static Server pick(Server[] slots, InetAddress clientAddress) {
+        if (slots.length == 0) return null;
+        int start = clientAddress == null
+            ? ThreadLocalRandom.current().nextInt(slots.length)
+            : (int) Long.remainderUnsigned(mix(clientAddress.hashCode()), slots.length);
+        Server skipped = null;
+        for (int offset = 0; offset < slots.length; offset++) {
+            Server candidate = slots[(start + offset) % slots.length];
+            if (!candidate.isAvailable()) continue;
+            if (candidate.passesSlowStart()) return candidate;
+            if (skipped == null) skipped = candidate;
+        }
+        return skipped;
+    }
+
+    /**
+     * Builds the Maglev lookup table: backend i fills slots in the order
+     * {@code (offset_i + j * skip_i) mod size}, skipping slots that are already taken.
+     */
+    static Server[] buildTable(List<Server> servers, int size) {
+        int n = servers.size();
+        Server[] slots = new Server[size];
+        if (n == 0) return new Server[0];
+        long[] offsets = new long[n];
+        long[] skips = new long[n];
+        long[] next = new long[n];
+        for (int i = 0; i < n; i++) {
+            Server server = servers.get(i);
+            byte[] key = (server.getHost() + ":" + server.getPort()).getBytes(StandardCharsets.UTF_8);
+            offsets[i] = Long.remainderUnsigned(hash(key, 0x9E3779B97F4A7C15L), size);
+            skips[i] = Long.remainderUnsigned(hash(key, 0xC2B2AE3D27D4EB4FL), size - 1) + 1;
+        }
+        int filled = 0;
+        while (true) {
+            for (int i = 0; i < n; i++) {
+                for (int turn = 0; turn < servers.get(i).getWeight(); turn++) {
+                    int slot;
+                    do {
+                        slot = (int) ((offsets[i] + next[i] * skips[i]) % size);
+                        next[i]++;
+                    } while (slots[slot] != null);
+                    slots[slot] = servers.get(i);
+                    if (++filled == size) return slots;
+                }
+            }
+        }
+    }
+
+    private static long hash(byte[] key, long seed) {
+        long h = seed;
+        for (byte b : key) h = (h ^ (b & 0xff)) * 0x100000001B3L;
+        return mix(h);
+    }
+
+    /**
+     * 64-bit finaliser from MurmurHash3, so neighbouring client addresses land far apart in the table.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static boolean isPrime(int n) {
+        if (n < 2) return false;
+        for (int d = 2; (long) d * d <= n; d++) {
+            if (n % d == 0) return false;
+        }
+        return true;
+    }
+
+    private static final class Table {
+        private final List<Server> source;
+        private final Server[] slots;
+
+        Table(List<Server> source, Server[] slots) {
+            this.source = source;
+            this.slots = slots;
+        }
+    }
+}
@@ -0,0 +1,705 @@
+package com.payroc.interviews;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking proxy engine. Accepted client channels are spread over a fixed set of
+ * selector-driven event loops; each loop selects the backend and then owns the connection
+ * for its whole lifetime, so a proxied session costs two channels and two buffers instead
+ * of two threads. Backend selection, connect failover, session timeouts, circuit-breaker reporting and
+ * active-connection accounting match {@link ConnectionHandler}. Connect timeouts run on the shared {@link HashedWheelTimer} of the {@link SessionTimeouts}.
+ * Sessions and rejected clients are recorded in the {@link ProxyLog}, and errors go to its error log rather than straight
+ * to the console, so event loops never block on log output.
+ * With a {@link TlsTerminator} each client first completes its TLS handshake on its loop, driven by readiness like
+ * the proxying itself, and the session then reads and writes the client through a non-blocking {@link TlsChannel}.
+ */
+final class NioProxyEngine {
+    private final LoadBalancer loadBalancer;
+    private final BackendConnector backendConnector;
+    private final ConnectionTracker connectionTracker;
+    private final AdmissionController admissionController;
+    private final SessionTimeouts sessionTimeouts;
+    private final ProxyLog log;
+    private final TlsTerminator tls;
+    private final EventLoop[] eventLoops;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+
+    NioProxyEngine(LoadBalancer loadBalancer, int eventLoopCount, BufferPool bufferPool,
+                   BackendConnector backendConnector, ConnectionTracker connectionTracker,
+                   AdmissionController admissionController, SessionTimeouts sessionTimeouts, ProxyLog log,
+                   TlsTerminator tls) throws IOException {
+        if (eventLoopCount < 1) throw new IllegalArgumentException("eventLoopCount must be >= 1");
+        this.loadBalancer = loadBalancer;
+        this.backendConnector = backendConnector;
+        this.connectionTracker = connectionTracker;
+        this.admissionController = admissionController;
+        this.sessionTimeouts = sessionTimeouts;
+        this.log = log;
+        this.tls = tls;
+        this.eventLoops = new EventLoop[eventLoopCount];
+        for (int i = 0; i < eventLoopCount; i++) {
+            eventLoops[i] = new EventLoop(i, bufferPool, log);
+        }
+    }
+
+    void start() {
+        for (EventLoop loop : eventLoops) loop.start();
+    }
+
+    /**
+     * Hands an accepted client to the next event loop, which runs the TLS handshake if any, selects a backend and
+     * opens the session. Called from acceptor threads. If the client was admitted by an {@link AdmissionController},
+     * its slot is released once the client channel is closed.
+     */
+    void dispatch(SocketChannel clientChannel) {
+        EventLoop loop = eventLoops[Math.floorMod(nextLoop.getAndIncrement(), eventLoops.length)];
+        if (tls != null) loop.execute(() -> new Handshake(this, loop, clientChannel).start());
+        else loop.execute(() -> assign(loop, clientChannel, null));
+    }
+
+    /**
+     * Selects the backend of a client ready to proxy, waiting in the queue or rejecting the client if there is none.
+     */
+    private void assign(EventLoop loop, SocketChannel clientChannel, TlsChannel clientTls) {
+        InetAddress clientAddress = clientChannel.socket().getInetAddress();
+        Server selectedServer = loadBalancer.acquireBackend(clientAddress);
+        if (selectedServer != null) {
+            openSession(loop, clientChannel, clientTls, clientAddress, selectedServer);
+        } else if (!loadBalancer.queueForBackend(clientAddress,
+                server -> loop.execute(() -> openSession(loop, clientChannel, clientTls, clientAddress, server)),
+                () -> loop.execute(() -> rejectNoBackend(clientChannel, clientAddress)))) {
+            rejectNoBackend(clientChannel, clientAddress);
+        }
+    }
+
+    private void openSession(EventLoop loop, SocketChannel clientChannel, TlsChannel clientTls, InetAddress clientAddress,
+                             Server backendServer) {
+        SocketChannel pooledChannel = backendConnector.borrowPooled(backendServer);
+        try {
+            new Session(this, loop, clientChannel, clientTls, clientAddress,
+                loadBalancer.beginConnect(clientAddress, backendServer), pooledChannel).open();
+        } catch (IOException openError) {
+            log.error("NioProxyEngine", "cannot open backend channel", backendServer, openError);
+        }
+    }
+
+    private void rejectNoBackend(SocketChannel clientChannel, InetAddress clientAddress) {
+        log.access(clientChannel.socket().getRemoteSocketAddress(), null, 0, 0, 0, ProxyLog.CloseReason.NO_BACKEND);
+        reject(clientChannel, clientAddress);
+    }
+
+    /**
+     * Closes a client that got no backend.
+     */
+    private void reject(SocketChannel clientChannel, InetAddress clientAddress) {
+        Session.closeQuietly(clientChannel);
+        if (admissionController != null) admissionController.release(clientAddress);
+    }
+
+    /**
+     * Returns everything a session held outside its channels: tracker entry, backend slot and admission slot.
+     */
+    private void sessionClosed(Session session) {
+        connectionTracker.unregister(session);
+        loadBalancer.releaseBackend(session.backend());
+        if (admissionController != null) admissionController.release(session.clientAddress);
+    }
+
+    /**
+     * Shuts down every event loop, closing the connections they own.
+     */
+    void stop() {
+        for (EventLoop loop : eventLoops) loop.shutdown();
+    }
+
+    /**
+     * What a selection key is attached to: a session, or a client still in its TLS handshake.
+     */
+    private interface KeyHandler {
+        void onReady(SelectionKey key);
+
+        void close();
+    }
+
+    /**
+     * Single-threaded selector loop. Sessions are only ever touched from this thread;
+     * other threads hand work over through {@link #execute(Runnable)}. Forwarding buffers are
+     * acquired and released on this thread, so they cycle through its private pool cache.
+     */
+    private static final class EventLoop implements Runnable {
+        private final Selector selector;
+        private final BufferPool bufferPool;
+        private final ProxyLog log;
+        private final Thread thread;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean wakeupPending = new AtomicBoolean();
+        private volatile boolean open = true;
+
+        EventLoop(int index, BufferPool bufferPool, ProxyLog log) throws IOException {
+            this.selector = Selector.open();
+            this.bufferPool = bufferPool;
+            this.log = log;
+            this.thread = new Thread(this, "nio-loop-" + index);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        /**
+         * Queues a task for the loop thread. A burst of hand-offs (e.g. one accept batch)
+         * costs a single selector wakeup.
+         */
+        void execute(Runnable task) {
+            tasks.add(task);
+            if (wakeupPending.compareAndSet(false, true)) selector.wakeup();
+        }
+
+        void shutdown() {
+            open = false;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            bufferPool.enableThreadCache();
+            try {
+                while (open) {
+                    selector.select();
+                    wakeupPending.set(false);
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) task.run();
+                    Iterator<SelectionKey> readyKeys = selector.selectedKeys().iterator();
+                    while (readyKeys.hasNext()) {
+                        SelectionKey key = readyKeys.next();
+                        readyKeys.remove();
+                        if (key.isValid()) ((KeyHandler) key.attachment()).onReady(key);
+                    }
+                }
+            } catch (IOException | ClosedSelectorException loopError) {
+                log.error("NioProxyEngine", "event loop stopped", null, loopError);
+            } finally {
+                Runnable task;
+                while ((task = tasks.poll()) != null) task.run();
+                for (SelectionKey key : selector.keys()) ((KeyHandler) key.attachment()).close();
+                try {
+                    selector.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * One direction of a proxied connection. The buffer stays in write mode between
+     * events, so its position is the number of bytes read but not yet written to the sink.
+     * The buffer is borrowed from the pool once the session is registered and returned on close.
+     * Either end may be a {@link TlsChannel}, whose own ciphertext buffers count as pending data.
+     */
+    private static final class Pipe {
+        private final ByteChannel source;
+        private final ByteChannel sink;
+        private final TlsChannel sourceTls;
+        private final TlsChannel sinkTls;
+        private final BufferPool bufferPool;
+        private ByteBuffer buffer;
+        private boolean sourceEof = false;
+        private boolean sinkShutdown = false;
+
+        Pipe(ByteChannel source, ByteChannel sink, BufferPool bufferPool) {
+            this.source = source;
+            this.sink = sink;
+            this.sourceTls = source instanceof TlsChannel tls ? tls : null;
+            this.sinkTls = sink instanceof TlsChannel tls ? tls : null;
+            this.bufferPool = bufferPool;
+        }
+
+        void open() {
+            buffer = bufferPool.acquire();
+        }
+
+        /**
+         * @return bytes read, or -1 at EOF
+         */
+        int read() throws IOException {
+            int read = source.read(buffer);
+            if (read < 0) sourceEof = true;
+            else bufferPool.addBytesInFlight(read);
+            return read;
+        }
+
+        /**
+         * @return bytes written to the sink
+         */
+        int flush() throws IOException {
+            int written = 0;
+            if (sinkTls != null && !sinkTls.flush()) return 0;
+            if (buffer.position() > 0) {
+                buffer.flip();
+                written = sink.write(buffer);
+                bufferPool.addBytesInFlight(-written);
+                buffer.compact();
+            }
+            if (sourceEof && !hasPending() && !sinkShutdown) {
+                if (sinkTls != null) {
+                    sinkShutdown = sinkTls.shutdownOutput();
+                } else {
+                    ((SocketChannel) sink).shutdownOutput();
+                    sinkShutdown = true;
+                }
+            }
+            return written;
+        }
+
+        boolean wantsRead() {
+            return !sourceEof && buffer.hasRemaining();
+        }
+
+        boolean hasPending() {
+            return buffer.position() > 0 || (sinkTls != null && sinkTls.hasPendingOutput());
+        }
+
+        /**
+         * @return true if the source holds bytes already read from its socket, which the selector will not report
+         */
+        boolean hasBufferedInput() {
+            return sourceTls != null && sourceTls.hasBufferedInput();
+        }
+
+        boolean isDone() {
+            return sinkShutdown;
+        }
+
+        void close() {
+            if (buffer == null) return;
+            bufferPool.addBytesInFlight(-buffer.position());
+            bufferPool.release(buffer);
+            buffer = null;
+        }
+    }
+
+    /**
+     * A client connection and its backend connection, owned by one event loop.
+     * Also samples the backend's connect time (new connections only) and time-to-first-byte.
+     * Registered with the {@link ConnectionTracker} from construction until close. A failed or timed-out
+     * backend connect swaps in a fresh backend channel for the next backend its {@link ConnectAttempts} allow;
+     * no client bytes are read before the backend is connected, so nothing has to be replayed.
+     */
+    private static final class Session implements SessionTimeouts.Watched, KeyHandler {
+        private final EventLoop loop;
+        private final NioProxyEngine engine;
+        private final SocketChannel clientChannel;
+        private final ByteChannel clientIo;
+        private final InetAddress clientAddress;
+        private final SocketAddress clientSocketAddress;
+        private final ConnectAttempts attempts;
+        private final long sessionStartNanos = System.nanoTime();
+        private SocketChannel backendChannel;
+        private Pipe clientToBackend;
+        private Pipe backendToClient;
+        private HashedWheelTimer.Timeout connectTimeout;
+        private SessionTimeouts.Watch timeoutWatch;
+        private volatile long lastReadNanos;
+        private SelectionKey clientKey;
+        private SelectionKey backendKey;
+        private boolean backendConnected = false;
+        private boolean closed = false;
+        private long connectStartNanos;
+        private long backendReadyNanos;
+        private long requestSentNanos;
+        private boolean firstByteSeen = false;
+        private boolean backendReset = false;
+        private boolean forceClosed = false;
+        private ProxyLog.CloseReason endReason;
+        private long bytesToBackend;
+        private long bytesFromBackend;
+
+        /**
+         * @param clientTls     TLS connection over {@code clientChannel} after its handshake, or null for plain TCP
+         * @param attempts      connect attempts starting at a backend with a slot already reserved for this session
+         * @param pooledChannel already-connected backend channel from the pool, or null to connect a new one
+         */
+        Session(NioProxyEngine engine, EventLoop loop, SocketChannel clientChannel, TlsChannel clientTls,
+                InetAddress clientAddress, ConnectAttempts attempts, SocketChannel pooledChannel) throws IOException {
+            this.engine = engine;
+            this.loop = loop;
+            this.clientChannel = clientChannel;
+            this.clientIo = clientTls != null ? clientTls : clientChannel;
+            this.clientAddress = clientAddress;
+            this.clientSocketAddress = clientChannel.socket().getRemoteSocketAddress();
+            this.attempts = attempts;
+            attempts.current().getMetrics().recordConnection();
+            try {
+                useBackendChannel(pooledChannel != null ? pooledChannel : SocketChannel.open());
+            } catch (IOException openError) {
+                engine.loadBalancer.releaseBackend(attempts.current());
+                engine.reject(clientChannel, clientAddress);
+                throw openError;
+            }
+            engine.connectionTracker.register(this);
+        }
+
+        private void useBackendChannel(SocketChannel channel) {
+            this.backendChannel = channel;
+            this.clientToBackend = new Pipe(clientIo, channel, loop.bufferPool);
+            this.backendToClient = new Pipe(channel, clientIo, loop.bufferPool);
+        }
+
+        void open() {
+            try {
+                clientChannel.configureBlocking(false);
+                clientKey = clientChannel.register(loop.selector, 0, this);
+            } catch (IOException registerErr) {
+                close();
+                return;
+            }
+            connectBackend();
+        }
+
+        private void connectBackend() {
+            clientToBackend.open();
+            backendToClient.open();
+            Server backendServer = attempts.current();
+            try {
+                backendChannel.configureBlocking(false);
+                if (!backendChannel.isConnected()) connectStartNanos = System.nanoTime();
+                boolean connected = backendChannel.isConnected() || backendChannel.connect(backendServer.getSocketAddress());
+                backendKey = backendChannel.register(loop.selector, connected ? 0 : SelectionKey.OP_CONNECT, this);
+                if (connected) onBackendConnected();
+                else armConnectTimeout();
+            } catch (IOException connectErr) {
+                onIoError(connectErr);
+            }
+        }
+
+        private void armConnectTimeout() {
+            int timeoutMillis = attempts.attemptTimeoutMillis();
+            HashedWheelTimer timer = engine.sessionTimeouts.getTimer();
+            if (timeoutMillis == 0 || timer == null) return;
+            int attempt = attempts.attemptCount();
+            try {
+                connectTimeout = timer.newTimeout(() -> loop.execute(() -> onConnectTimeout(attempt)),
+                    timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException stopping) {
+                // Engine is stopping; the loop closes the session.
+            }
+        }
+
+        /**
+         * Ignores timers of earlier attempts that fired just before being cancelled.
+         */
+        private void onConnectTimeout(int attempt) {
+            if (closed || backendConnected || attempt != attempts.attemptCount()) return;
+            onConnectFailed(new SocketTimeoutException("connect timed out"));
+        }
+
+        private void cancelConnectTimeout() {
+            if (connectTimeout != null) connectTimeout.cancel();
+            connectTimeout = null;
+        }
+
+        @Override
+        public void onReady(SelectionKey key) {
+            try {
+                if (key.isConnectable()) {
+                    backendChannel.finishConnect();
+                    onBackendConnected();
+                    return;
+                }
+                if (key.isReadable()) {
+                    lastReadNanos = System.nanoTime();
+                    if (key == clientKey) {
+                        readClient();
+                    } else {
+                        Server backendServer = attempts.current();
+                        int read;
+                        try {
+                            read = backendToClient.read();
+                        } catch (IOException resetErr) {
+                            backendReset = true;
+                            throw resetErr;
+                        }
+                        if (read > 0) {
+                            backendServer.getMetrics().addBytesFromBackend(read);
+                            bytesFromBackend += read;
+                            if (!firstByteSeen) onFirstByte();
+                        } else if (read < 0 && endReason == null) {
+                            endReason = ProxyLog.CloseReason.BACKEND_CLOSED;
+                        }
+                    }
+                }
+                pump();
+            } catch (IOException ioError) {
+                onIoError(ioError);
+            }
+        }
+
+        /**
+         * Only errors before the backend is connected are connect failures; after that, including while a pooled
+         * connection pumps its first bytes, the backend holds this session's slot and the session just ends.
+         */
+        private void onIoError(IOException ioError) {
+            if (!backendConnected) {
+                onConnectFailed(ioError);
+            } else {
+                if (endReason == null) endReason = ProxyLog.CloseReason.IO_ERROR;
+                close();
+            }
+        }
+
+        private int readClient() throws IOException {
+            int read = clientToBackend.read();
+            if (read > 0) {
+                attempts.current().getMetrics().addBytesToBackend(read);
+                bytesToBackend += read;
+            } else if (read < 0 && endReason == null) {
+                endReason = ProxyLog.CloseReason.CLIENT_CLOSED;
+            }
+            return read;
+        }
+
+        private void onBackendConnected() throws IOException {
+            cancelConnectTimeout();
+            Server backendServer = attempts.current();
+            backendConnected = true;
+            backendReadyNanos = System.nanoTime();
+            if (connectStartNanos != 0) backendServer.recordConnectTime(backendReadyNanos - connectStartNanos);
+            backendServer.incrementActive();
+            lastReadNanos = backendReadyNanos;
+            timeoutWatch = engine.sessionTimeouts.watch(this);
+            pump();
+        }
+
+        /**
+         * Times from the first request bytes written to the backend, or from the connect for server-first protocols.
+         */
+        private void onFirstByte() {
+            firstByteSeen = true;
+            long from = requestSentNanos != 0 ? requestSentNanos : backendReadyNanos;
+            Server backendServer = attempts.current();
+            backendServer.recordFirstByteTime(System.nanoTime() - from);
+            backendServer.getCircuitBreaker().onSuccess();
+        }
+
+        private void onConnectFailed(IOException connectErr) {
+            cancelConnectTimeout();
+            Server failed = attempts.current();
+            engine.log.error("NioProxyEngine", "backend connect error", failed, connectErr);
+            failed.getMetrics().recordConnectFailure();
+            failed.reportConnectFailure();
+            Server next = closed ? null : attempts.failover();
+            if (next == null) {
+                close();
+                return;
+            }
+            closeQuietly(backendChannel);
+            clientToBackend.close();
+            backendToClient.close();
+            next.getMetrics().recordConnection();
+            SocketChannel pooledChannel = engine.backendConnector.borrowPooled(next);
+            try {
+                useBackendChannel(pooledChannel != null ? pooledChannel : SocketChannel.open());
+            } catch (IOException openError) {
+                close();
+                return;
+            }
+            connectStartNanos = 0;
+            connectBackend();
+        }
+
+        private void pump() throws IOException {
+            if (clientToBackend.flush() > 0 && requestSentNanos == 0) requestSentNanos = System.nanoTime();
+            // TLS records that arrived with earlier ones (or with the handshake) are already off the socket.
+            while (clientToBackend.wantsRead() && clientToBackend.hasBufferedInput() && readClient() > 0) {
+                if (clientToBackend.flush() > 0 && requestSentNanos == 0) requestSentNanos = System.nanoTime();
+            }
+            backendToClient.flush();
+            if (clientToBackend.isDone() && backendToClient.isDone()) {
+                close();
+                return;
+            }
+            int clientOps = (clientToBackend.wantsRead() ? SelectionKey.OP_READ : 0)
+                | (backendToClient.hasPending() ? SelectionKey.OP_WRITE : 0);
+            int backendOps = (backendToClient.wantsRead() ? SelectionKey.OP_READ : 0)
+                | (clientToBackend.hasPending() ? SelectionKey.OP_WRITE : 0);
+            if (clientKey.interestOps() != clientOps) clientKey.interestOps(clientOps);
+            if (backendKey.interestOps() != backendOps) backendKey.interestOps(backendOps);
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            cancelConnectTimeout();
+            if (timeoutWatch != null) timeoutWatch.cancel();
+            closeQuietly(clientChannel);
+            closeQuietly(backendChannel);
+            clientToBackend.close();
+            backendToClient.close();
+            long durationNanos = System.nanoTime() - sessionStartNanos;
+            if (backendConnected) {
+                Server backendServer = attempts.current();
+                reportOutcome(backendServer.getCircuitBreaker());
+                backendServer.decrementActive();
+                backendServer.getMetrics().recordSession(durationNanos);
+            }
+            engine.log.access(clientSocketAddress, attempts.current(), bytesToBackend, bytesFromBackend, durationNanos, closeReason());
+            engine.sessionClosed(this);
+        }
+
+        /**
+         * Same rules as {@link ConnectionHandler}: a reset or a stalled request is a failure, no response is inconclusive.
+         */
+        private void reportOutcome(CircuitBreaker breaker) {
+            boolean stalled = timeoutWatch != null && timeoutWatch.isIdleExpired() && requestSentNanos != 0 && !firstByteSeen;
+            if (backendReset || stalled) breaker.onFailure();
+            else if (!firstByteSeen) breaker.onInconclusive();
+        }
+
+        /**
+         * Same precedence as {@link ConnectionHandler}: timeouts and forced closes first, then the side that ended first.
+         */
+        private ProxyLog.CloseReason closeReason() {
+            ProxyLog.CloseReason timedOut = timeoutWatch == null ? null : timeoutWatch.closeReason();
+            if (timedOut != null) return timedOut;
+            if (forceClosed) return ProxyLog.CloseReason.FORCE_CLOSED;
+            if (!backendConnected) return ProxyLog.CloseReason.CONNECT_FAILED;
+            if (backendReset) return ProxyLog.CloseReason.BACKEND_RESET;
+            return endReason != null ? endReason : ProxyLog.CloseReason.CLIENT_CLOSED;
+        }
+
+        @Override
+        public Server backend() {
+            return attempts.current();
+        }
+
+        @Override
+        public long lastReadNanos() {
+            return lastReadNanos;
+        }
+
+        /**
+         * Sessions are confined to their loop, so the close is handed over to it.
+         */
+        @Override
+        public void forceClose() {
+            loop.execute(() -> {
+                if (!closed) forceClosed = true;
+                close();
+            });
+        }
+
+        static void closeQuietly(SocketChannel channel) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * The TLS handshake of an accepted client, driven on its event loop before any backend work. Once complete, the
+     * client goes on to backend selection like a plain one; a client that fails the handshake, or has not finished it
+     * within the terminator's handshake timeout, is closed.
+     */
+    private static final class Handshake implements KeyHandler {
+        private final NioProxyEngine engine;
+        private final EventLoop loop;
+        private final SocketChannel clientChannel;
+        private TlsChannel tls;
+        private SelectionKey key;
+        private HashedWheelTimer.Timeout timeout;
+        private boolean done = false;
+
+        Handshake(NioProxyEngine engine, EventLoop loop, SocketChannel clientChannel) {
+            this.engine = engine;
+            this.loop = loop;
+            this.clientChannel = clientChannel;
+        }
+
+        void start() {
+            try {
+                tls = engine.tls.newChannel(clientChannel);
+                clientChannel.configureBlocking(false);
+                key = clientChannel.register(loop.selector, SelectionKey.OP_READ, this);
+            } catch (IOException registerErr) {
+                fail();
+                return;
+            }
+            armTimeout();
+            advance();
+        }
+
+        private void armTimeout() {
+            long timeoutMillis = engine.tls.getHandshakeTimeoutMillis();
+            HashedWheelTimer timer = engine.sessionTimeouts.getTimer();
+            if (timeoutMillis == 0 || timer == null) return;
+            try {
+                timeout = timer.newTimeout(() -> loop.execute(this::fail), timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException stopping) {
+                // Engine is stopping; the loop closes the client.
+            }
+        }
+
+        @Override
+        public void onReady(SelectionKey key) {
+            advance();
+        }
+
+        private void advance() {
+            boolean complete;
+            try {
+                complete = tls.handshake();
+            } catch (IOException handshakeErr) {
+                fail();
+                return;
+            }
+            if (!complete) {
+                key.interestOps(tls.hasPendingOutput() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+                return;
+            }
+            done = true;
+            if (timeout != null) timeout.cancel();
+            key.interestOps(0);
+            engine.tls.handshakeCompleted(tls);
+            engine.assign(loop, clientChannel, tls);
+        }
+
+        /**
+         * Ignores a timeout that fires after the handshake completed.
+         */
+        private void fail() {
+            if (done) return;
+            done = true;
+            if (timeout != null) timeout.cancel();
+            engine.tls.handshakeFailed();
+            engine.log.access(clientChannel.socket().getRemoteSocketAddress(), null, 0, 0, 0, ProxyLog.CloseReason.TLS_FAILED);
+            engine.reject(clientChannel, clientChannel.socket().getInetAddress());
+        }
+
+        /**
+         * Loop shutdown: fails a handshake in progress, or closes a client still waiting for a backend slot.
+         */
+        @Override
+        public void close() {
+            if (!done) fail();
+            else Session.closeQuietly(clientChannel);
+        }
+    }
+}
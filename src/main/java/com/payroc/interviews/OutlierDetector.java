@@ -0,0 +1,165 @@
+package com.payroc.interviews;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Passive outlier detection: the proxy engines report every backend's connect failures, session resets and stalls
+ * to its {@link CircuitBreaker}, and this class holds the shared policy those breakers apply. After
+ * {@code consecutiveFailures} failures in a row a backend is ejected for {@code baseEjectionMillis}, doubling with
+ * every further ejection up to {@code maxEjectionMillis}. It then admits {@code halfOpenTrials} trial sessions: a
+ * response closes the circuit, a failure ejects it again. A recovered (or newly healthy, or newly added) backend's
+ * share of picks ramps up linearly over {@code slowStartMillis}, so least-connections does not flood it just
+ * because it has no connections yet.
+ * <p>
+ * Never ejects more than {@code maxEjectedPercent} of the backends, so a wide failure degrades to normal
+ * failure handling instead of emptying the rotation. Ejection intervals run on the balancer's shared
+ * {@link HashedWheelTimer}; until {@link #start} nothing is ejected.
+ */
+public class OutlierDetector {
+    public static final int DEFAULT_CONSECUTIVE_FAILURES = 5;
+    public static final long DEFAULT_BASE_EJECTION_MS = 10_000;
+    public static final long DEFAULT_MAX_EJECTION_MS = 300_000;
+    public static final int DEFAULT_HALF_OPEN_TRIALS = 1;
+    public static final long DEFAULT_SLOW_START_MS = 30_000;
+    public static final int DEFAULT_MAX_EJECTED_PERCENT = 50;
+    /**
+     * Share of picks a backend gets at the very start of its slow-start window.
+     */
+    static final double MIN_SLOW_START_SHARE = 0.1;
+
+    private final int consecutiveFailures;
+    private final long baseEjectionNanos;
+    private final long maxEjectionNanos;
+    private final int halfOpenTrials;
+    private final long slowStartNanos;
+    private final int maxEjectedPercent;
+    private final LongAdder ejections = new LongAdder();
+    private final LongAdder ejectionsSkipped = new LongAdder();
+    private final LongAdder recoveries = new LongAdder();
+    private volatile HashedWheelTimer timer;
+    private volatile Iterable<Server> servers;
+    private volatile ProxyLog log;
+
+    /**
+     * @param consecutiveFailures failures in a row that eject a backend
+     * @param baseEjectionMillis  first ejection interval, doubled for every further ejection
+     * @param maxEjectionMillis   upper bound of the ejection interval
+     * @param halfOpenTrials      sessions admitted to test an ejected backend once its interval is over
+     * @param slowStartMillis     ramp-up window after recovery (0 = full share at once)
+     * @param maxEjectedPercent   most backends that may be ejected at the same time, in percent
+     */
+    public OutlierDetector(int consecutiveFailures, long baseEjectionMillis, long maxEjectionMillis, int halfOpenTrials,
+                           long slowStartMillis, int maxEjectedPercent) {
+        if (consecutiveFailures < 1 || halfOpenTrials < 1) throw new IllegalArgumentException("failures and trials must be >= 1");
+        if (baseEjectionMillis < 1 || maxEjectionMillis < baseEjectionMillis) {
+            throw new IllegalArgumentException("require 1 <= baseEjectionMillis <= maxEjectionMillis");
+        }
+        if (slowStartMillis < 0) throw new IllegalArgumentException("slowStartMillis must be >= 0");
+        if (maxEjectedPercent < 0 || maxEjectedPercent > 100) throw new IllegalArgumentException("maxEjectedPercent must be 0..100");
+        this.consecutiveFailures = consecutiveFailures;
+        this.baseEjectionNanos = TimeUnit.MILLISECONDS.toNanos(baseEjectionMillis);
+        this.maxEjectionNanos = TimeUnit.MILLISECONDS.toNanos(maxEjectionMillis);
+        this.halfOpenTrials = halfOpenTrials;
+        this.slowStartNanos = TimeUnit.MILLISECONDS.toNanos(slowStartMillis);
+        this.maxEjectedPercent = maxEjectedPercent;
+    }
+
+    public OutlierDetector() {
+        this(DEFAULT_CONSECUTIVE_FAILURES, DEFAULT_BASE_EJECTION_MS, DEFAULT_MAX_EJECTION_MS, DEFAULT_HALF_OPEN_TRIALS,
+            DEFAULT_SLOW_START_MS, DEFAULT_MAX_EJECTED_PERCENT);
+    }
+
+    /**
+     * Enables ejection; {@code servers} is re-read on every ejection to apply the ejected-percentage cap.
+     *
+     * @param log error log that ejections and recoveries are reported to, or null
+     */
+    synchronized void start(HashedWheelTimer timer, Iterable<Server> servers, ProxyLog log) {
+        this.servers = servers;
+        this.log = log;
+        this.timer = timer;
+    }
+
+    synchronized void stop() {
+        timer = null;
+    }
+
+    int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    int getHalfOpenTrials() {
+        return halfOpenTrials;
+    }
+
+    long getSlowStartNanos() {
+        return slowStartNanos;
+    }
+
+    /**
+     * @param previousEjections times the backend was ejected before without fully recovering since
+     */
+    long ejectionNanos(int previousEjections) {
+        long interval = baseEjectionNanos << Math.min(previousEjections, 30);
+        return interval <= 0 || interval > maxEjectionNanos ? maxEjectionNanos : interval;
+    }
+
+    /**
+     * Decides whether {@code server} may be ejected now and, if so, schedules {@code onIntervalOver} after the interval.
+     *
+     * @return false if ejection is disabled or would exceed the ejected-percentage cap
+     */
+    boolean tryEject(Server server, long intervalNanos, Runnable onIntervalOver) {
+        HashedWheelTimer wheel = timer;
+        if (wheel == null) return false;
+        int total = 0;
+        int ejected = 0;
+        for (Server candidate : servers) {
+            total++;
+            if (candidate != server && candidate.getCircuitBreaker().isEjected()) ejected++;
+        }
+        if ((ejected + 1) * 100 > total * maxEjectedPercent) {
+            ejectionsSkipped.increment();
+            return false;
+        }
+        try {
+            wheel.newTimeout(onIntervalOver, intervalNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException stopping) {
+            return false;
+        }
+        ejections.increment();
+        // Called under the breaker's lock: the log only takes a ring slot, formatting and I/O happen on its writer.
+        ProxyLog errors = log;
+        if (errors != null) errors.error("OutlierDetector", "backend ejected", server, null);
+        return true;
+    }
+
+    void onRecovered(Server server) {
+        recoveries.increment();
+        ProxyLog errors = log;
+        if (errors != null) errors.error("OutlierDetector", "backend recovered", server, null);
+    }
+
+    /**
+     * @return backends ejected so far
+     */
+    long getEjectionCount() {
+        return ejections.sum();
+    }
+
+    /**
+     * @return ejections refused by the ejected-percentage cap
+     */
+    long getEjectionsSkippedCount() {
+        return ejectionsSkipped.sum();
+    }
+
+    /**
+     * @return half-open backends that passed their trial
+     */
+    long getRecoveryCount() {
+        return recoveries.sum();
+    }
+}
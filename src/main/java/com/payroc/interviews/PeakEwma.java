@@ -0,0 +1,69 @@
+package com.payroc.interviews;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free peak-sensitive exponentially weighted moving average of a latency.
+ * A sample above the current average replaces it immediately (so a backend that turns slow is
+ * penalised at once); lower samples are blended in with a weight that depends on the time
+ * since the previous sample and the decay window. Reads decay the average towards zero, so a
+ * backend that has not been used for a while is retried instead of being shunned forever.
+ * <p>
+ * The value (microseconds, as a float) and the timestamp of the last update (milliseconds) share a
+ * single {@code long}, so a record is one CAS and never blocks or allocates.
+ */
+final class PeakEwma {
+    static final long DEFAULT_DECAY_WINDOW_MS = 10_000;
+    private static final long ORIGIN_NANOS = System.nanoTime();
+
+    private final AtomicLong state = new AtomicLong(pack(0f, nowMillis()));
+    private volatile double decayWindowMillis = DEFAULT_DECAY_WINDOW_MS;
+
+    void setDecayWindow(long decayWindowMillis) {
+        if (decayWindowMillis <= 0) throw new IllegalArgumentException("decayWindowMillis must be > 0");
+        this.decayWindowMillis = decayWindowMillis;
+    }
+
+    void record(long sampleNanos) {
+        double sampleMicros = Math.max(0, sampleNanos) / 1_000.0;
+        int now = nowMillis();
+        double window = decayWindowMillis;
+        while (true) {
+            long current = state.get();
+            double average = valueOf(current);
+            double next;
+            if (sampleMicros > average) {
+                next = sampleMicros;
+            } else {
+                double weight = Math.exp(-elapsedMillis(current, now) / window);
+                next = average * weight + sampleMicros * (1 - weight);
+            }
+            if (state.compareAndSet(current, pack((float) next, now))) return;
+        }
+    }
+
+    /**
+     * @return current average in microseconds, decayed for the time since the last sample (0 when never sampled)
+     */
+    double getMicros() {
+        long current = state.get();
+        return valueOf(current) * Math.exp(-elapsedMillis(current, nowMillis()) / decayWindowMillis);
+    }
+
+    private static int nowMillis() {
+        return (int) TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - ORIGIN_NANOS);
+    }
+
+    private static double elapsedMillis(long packed, int now) {
+        return Integer.toUnsignedLong(now - (int) packed);
+    }
+
+    private static double valueOf(long packed) {
+        return Float.intBitsToFloat((int) (packed >>> 32));
+    }
+
+    private static long pack(float value, int stampMillis) {
+        return ((long) Float.floatToRawIntBits(value) << 32) | Integer.toUnsignedLong(stampMillis);
+    }
+}
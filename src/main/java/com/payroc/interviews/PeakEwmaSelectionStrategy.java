@@ -0,0 +1,57 @@
+package com.payroc.interviews;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Latency-aware selection: samples two distinct random healthy servers and picks the one with the lower
+ * cost, where cost is the backend's peak-EWMA latency (connect time plus time-to-first-byte, see
+ * {@link Server#getLatencyEstimateMicros()}) scaled by its outstanding connections. A backend that turns
+ * slow is avoided immediately, and once idle its estimate decays so it gets probed again.
+ */
+public class PeakEwmaSelectionStrategy implements ServerSelectionStrategy {
+    private static final int SAMPLE_ATTEMPTS = 3;
+
+    @Override
+    public Server select(List<Server> servers) {
+        if (servers == null || servers.isEmpty()) return null;
+        int size = servers.size();
+        if (size == 1) {
+            Server only = servers.get(0);
+            return only.isAvailable() ? only : null;
+        }
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        for (int attempt = 0; attempt < SAMPLE_ATTEMPTS; attempt++) {
+            int first = rnd.nextInt(size);
+            int second = rnd.nextInt(size - 1);
+            if (second >= first) second++;
+            Server a = servers.get(first);
+            Server b = servers.get(second);
+            boolean aAvailable = a.isAvailable();
+            boolean bAvailable = b.isAvailable();
+            if (aAvailable && bAvailable) return cost(b) < cost(a) ? b : a;
+            if (aAvailable) return a;
+            if (bAvailable) return b;
+        }
+        // Mostly unhealthy pool: scan for the cheapest healthy server instead.
+        Server best = null;
+        double bestCost = Double.MAX_VALUE;
+        for (Server server : servers) {
+            if (!server.isAvailable()) continue;
+            double cost = cost(server);
+            if (cost < bestCost) {
+                best = server;
+                bestCost = cost;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The +1 terms keep an unsampled or idle backend comparable instead of collapsing to zero; a slow-starting
+     * backend looks proportionally more expensive.
+     */
+    static double cost(Server server) {
+        return (server.getLatencyEstimateMicros() + 1) * (server.getActiveConnections() + 1) / server.getSlowStartShare();
+    }
+}
@@ -0,0 +1,40 @@
+package com.payroc.interviews;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Power-of-two-choices: samples two distinct random healthy servers and picks the one with
+ * fewer active connections (scaled for slow start, see {@link Server#getLoadScore()}). O(1) per selection, and
+ * concurrent accepts spread over many lightly loaded servers instead of herding onto the single global minimum.
+ */
+public class PowerOfTwoChoicesSelectionStrategy implements ServerSelectionStrategy {
+    private static final int SAMPLE_ATTEMPTS = 3;
+
+    private final LeastConnectionsSelectionStrategy fallback = new LeastConnectionsSelectionStrategy();
+
+    @Override
+    public Server select(List<Server> servers) {
+        if (servers == null || servers.isEmpty()) return null;
+        int size = servers.size();
+        if (size == 1) {
+            Server only = servers.get(0);
+            return only.isAvailable() ? only : null;
+        }
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        for (int attempt = 0; attempt < SAMPLE_ATTEMPTS; attempt++) {
+            int first = rnd.nextInt(size);
+            int second = rnd.nextInt(size - 1);
+            if (second >= first) second++;
+            Server a = servers.get(first);
+            Server b = servers.get(second);
+            boolean aAvailable = a.isAvailable();
+            boolean bAvailable = b.isAvailable();
+            if (aAvailable && bAvailable) return b.getLoadScore() < a.getLoadScore() ? b : a;
+            if (aAvailable) return a;
+            if (bAvailable) return b;
+        }
+        // Mostly unhealthy pool: a full scan is cheaper than sampling blindly.
+        return fallback.select(servers);
+    }
+}
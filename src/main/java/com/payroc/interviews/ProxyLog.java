@@ -0,0 +1,369 @@
+package com.payroc.interviews;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous access and error log. Connection threads and event loops never format or write: a record is a few
+ * field stores into a preallocated {@link LogRing} slot, and a single background writer formats records in batches
+ * and writes each batch with one write and flush. When a ring is full the record is dropped and counted, so a log
+ * storm (say, every connect failing during a backend outage) can never slow down healthy sessions.
+ * <p>
+ * The access log has one logfmt line per proxied connection: client, backend, bytes each way, duration and close
+ * reason. In HTTP mode it has one line per request instead, which adds the method, target and response status. Error lines keep the {@code Source: message} form; identical errors (same source, message, backend and
+ * cause) are written once per suppression window, followed by a count of the duplicates that were skipped.
+ * <p>
+ * Before {@link #start()} and after {@link #stop()} records are written directly on the calling thread.
+ * Sinks are flushed, never closed.
+ */
+public class ProxyLog {
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final long DEFAULT_SUPPRESS_WINDOW_MS = 1000;
+    private static final int BATCH_SIZE = 256;
+    private static final int MAX_TRACKED_ERRORS = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    /**
+     * Why a proxied connection ended, as written to the access log. {@code KEEP_ALIVE} marks an HTTP request after
+     * which the client connection stayed open; {@code TLS_FAILED} a client whose TLS handshake failed or timed out.
+     */
+    enum CloseReason {
+        CLIENT_CLOSED, BACKEND_CLOSED, BACKEND_RESET, IO_ERROR, IDLE_TIMEOUT, LIFETIME_TIMEOUT, FORCE_CLOSED,
+        CONNECT_FAILED, NO_BACKEND, BAD_REQUEST, KEEP_ALIVE, TLS_FAILED;
+
+        private final String label = name().toLowerCase(Locale.ROOT);
+    }
+
+    private final Writer accessSink;
+    private final Writer errorSink;
+    private final LogRing accessRing;
+    private final LogRing errorRing;
+    private final long suppressWindowNanos;
+    private final LongAdder accessWritten = new LongAdder();
+    private final LongAdder errorsWritten = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+    // Writer thread only (or a direct write holding this lock while no writer runs).
+    private final Map<String, Duplicates> recentErrors = new HashMap<>();
+    private final StringBuilder batch = new StringBuilder(BATCH_SIZE * 128);
+    private int batchLines;
+    private long nextSweepNanos;
+    private volatile Thread writer;
+    private volatile boolean running = false;
+
+    /**
+     * @param accessSink           destination of the access log, or null to log errors only
+     * @param errorSink            destination of the error log
+     * @param capacity             records each ring buffers before dropping
+     * @param suppressWindowMillis window in which identical errors are written once (0 writes every one)
+     */
+    public ProxyLog(Writer accessSink, Writer errorSink, int capacity, long suppressWindowMillis) {
+        if (errorSink == null) throw new IllegalArgumentException("errorSink is required");
+        if (suppressWindowMillis < 0) throw new IllegalArgumentException("suppressWindowMillis must be >= 0");
+        this.accessSink = accessSink;
+        this.errorSink = errorSink;
+        this.accessRing = new LogRing(accessSink == null ? 1 : capacity);
+        this.errorRing = new LogRing(capacity);
+        this.suppressWindowNanos = TimeUnit.MILLISECONDS.toNanos(suppressWindowMillis);
+    }
+
+    /**
+     * Errors only, to standard error.
+     */
+    public ProxyLog() {
+        this(null, new OutputStreamWriter(System.err), DEFAULT_CAPACITY, DEFAULT_SUPPRESS_WINDOW_MS);
+    }
+
+    synchronized void start() {
+        if (running) return;
+        running = true;
+        Thread thread = Thread.ofPlatform().daemon().name("log-writer").unstarted(this::runWriter);
+        writer = thread;
+        thread.start();
+    }
+
+    /**
+     * Writes everything still buffered, including pending duplicate counts, and returns to direct writes.
+     */
+    synchronized void stop() {
+        Thread current = writer;
+        if (current == null) return;
+        running = false;
+        LockSupport.unpark(current);
+        try {
+            current.join();
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+        // Records published while the writer was finishing.
+        drainAll();
+    }
+
+    boolean isAccessEnabled() {
+        return accessSink != null;
+    }
+
+    /**
+     * Records one proxied connection. {@code backend} is null for clients that never got one.
+     */
+    void access(SocketAddress client, Server backend, long bytesToBackend, long bytesFromBackend, long durationNanos,
+                CloseReason reason) {
+        if (accessSink == null) return;
+        LogRing.Entry entry = accessRing.claim();
+        if (entry == null) return;
+        entry.timestampMillis = System.currentTimeMillis();
+        entry.client = client;
+        entry.backend = backend;
+        entry.bytesToBackend = bytesToBackend;
+        entry.bytesFromBackend = bytesFromBackend;
+        entry.durationNanos = durationNanos;
+        entry.reason = reason;
+        accessRing.publish(entry);
+        if (writer == null) drainAll();
+    }
+
+    /**
+     * Records one HTTP request. {@code status} is the status sent to the client, or 0 if no response was sent.
+     */
+    void request(SocketAddress client, Server backend, String method, String target, int status, long bytesToBackend,
+                 long bytesFromBackend, long durationNanos, CloseReason reason) {
+        if (accessSink == null) return;
+        LogRing.Entry entry = accessRing.claim();
+        if (entry == null) return;
+        entry.timestampMillis = System.currentTimeMillis();
+        entry.client = client;
+        entry.backend = backend;
+        entry.method = method;
+        entry.target = target;
+        entry.status = status;
+        entry.bytesToBackend = bytesToBackend;
+        entry.bytesFromBackend = bytesFromBackend;
+        entry.durationNanos = durationNanos;
+        entry.reason = reason;
+        accessRing.publish(entry);
+        if (writer == null) drainAll();
+    }
+
+    /**
+     * Records an error without formatting it on the calling thread.
+     *
+     * @param source  class or component name, written before the colon
+     * @param message constant description of what failed
+     * @param backend backend involved, or null
+     * @param cause   exception whose message is appended, or null
+     */
+    void error(String source, String message, Server backend, Throwable cause) {
+        LogRing.Entry entry = errorRing.claim();
+        if (entry == null) return;
+        entry.timestampMillis = System.currentTimeMillis();
+        entry.source = source;
+        entry.message = message;
+        entry.backend = backend;
+        entry.cause = cause;
+        errorRing.publish(entry);
+        if (writer == null) drainAll();
+    }
+
+    private void runWriter() {
+        while (true) {
+            boolean stopping = !running;
+            int written = drain(accessRing, accessSink) + drain(errorRing, errorSink);
+            long now = System.nanoTime();
+            if (now - nextSweepNanos >= 0) {
+                sweepDuplicates(now, false);
+                nextSweepNanos = now + Math.max(suppressWindowNanos, IDLE_PARK_NANOS);
+            }
+            if (written == 0) {
+                if (stopping) break;
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        sweepDuplicates(System.nanoTime(), true);
+    }
+
+    /**
+     * Used while no writer thread runs: callers serialize on this log.
+     */
+    private synchronized void drainAll() {
+        if (writer != null) return; // started meanwhile; the writer thread owns the rings now
+        while (drain(accessRing, accessSink) + drain(errorRing, errorSink) > 0) {
+            // Keep going until both rings are empty.
+        }
+        sweepDuplicates(System.nanoTime(), true);
+    }
+
+    /**
+     * Formats up to one batch of records and writes them with a single write and flush.
+     *
+     * @return records taken from the ring
+     */
+    private int drain(LogRing ring, Writer sink) {
+        if (sink == null) return 0;
+        int taken = 0;
+        LogRing.Entry entry;
+        while (taken < BATCH_SIZE && (entry = ring.peek()) != null) {
+            if (ring == accessRing) {
+                appendAccess(entry);
+            } else if (!isDuplicate(entry)) {
+                appendError(entry, batch);
+                batchLines++;
+            }
+            ring.release(entry);
+            taken++;
+        }
+        if (batchLines > 0) write(sink, ring);
+        return taken;
+    }
+
+    private void write(Writer sink, LogRing ring) {
+        try {
+            sink.append(batch);
+            sink.flush();
+            (ring == accessRing ? accessWritten : errorsWritten).add(batchLines);
+        } catch (IOException writeError) {
+            ring.addDropped(batchLines);
+        } finally {
+            batch.setLength(0);
+            batchLines = 0;
+        }
+    }
+
+    private void appendAccess(LogRing.Entry entry) {
+        batch.append(Instant.ofEpochMilli(entry.timestampMillis)).append(" client=");
+        appendAddress(entry.client);
+        batch.append(" backend=");
+        if (entry.backend == null) batch.append('-');
+        else batch.append(entry.backend.getHost()).append(':').append(entry.backend.getPort());
+        if (entry.method != null) {
+            batch.append(" method=").append(entry.method).append(" target=").append(entry.target).append(" status=");
+            if (entry.status == 0) batch.append('-');
+            else batch.append(entry.status);
+        }
+        batch.append(" to_backend=").append(entry.bytesToBackend)
+            .append(" from_backend=").append(entry.bytesFromBackend)
+            .append(" duration_us=").append(TimeUnit.NANOSECONDS.toMicros(entry.durationNanos))
+            .append(" reason=").append(entry.reason.label).append('\n');
+        batchLines++;
+    }
+
+    private void appendAddress(SocketAddress address) {
+        if (address instanceof InetSocketAddress inet && inet.getAddress() != null) {
+            batch.append(inet.getAddress().getHostAddress()).append(':').append(inet.getPort());
+        } else {
+            batch.append(address == null ? "-" : address.toString());
+        }
+    }
+
+    private static void appendError(LogRing.Entry entry, StringBuilder out) {
+        out.append(Instant.ofEpochMilli(entry.timestampMillis)).append(' ').append(entry.source).append(": ").append(entry.message);
+        if (entry.backend != null) out.append(" (").append(entry.backend.getHost()).append(':').append(entry.backend.getPort()).append(')');
+        if (entry.cause != null) out.append(": ").append(entry.cause.getMessage() != null ? entry.cause.getMessage() : entry.cause.toString());
+        out.append('\n');
+    }
+
+    /**
+     * Lets the first of a run of identical errors through per window and counts the rest.
+     */
+    private boolean isDuplicate(LogRing.Entry entry) {
+        if (suppressWindowNanos == 0) return false;
+        String key = entry.source + '\0' + entry.message + '\0'
+            + (entry.backend == null ? "" : entry.backend.getHost() + ':' + entry.backend.getPort()) + '\0'
+            + (entry.cause == null ? "" : entry.cause.getClass().getName() + entry.cause.getMessage());
+        long now = System.nanoTime();
+        Duplicates duplicates = recentErrors.get(key);
+        if (duplicates != null && now - duplicates.windowStartNanos < suppressWindowNanos) {
+            duplicates.count++;
+            suppressed.increment();
+            return true;
+        }
+        if (duplicates != null) {
+            appendSuppressed(duplicates);
+            duplicates.windowStartNanos = now;
+            duplicates.count = 0;
+        } else if (recentErrors.size() < MAX_TRACKED_ERRORS) {
+            StringBuilder line = new StringBuilder();
+            appendError(entry, line);
+            line.setLength(line.length() - 1);
+            recentErrors.put(key, new Duplicates(line.substring(line.indexOf(" ") + 1), now));
+        }
+        return false;
+    }
+
+    /**
+     * Writes the duplicate counts of windows that are over and forgets errors that did not repeat.
+     */
+    private void sweepDuplicates(long now, boolean all) {
+        if (recentErrors.isEmpty()) return;
+        for (Iterator<Duplicates> it = recentErrors.values().iterator(); it.hasNext(); ) {
+            Duplicates duplicates = it.next();
+            if (!all && now - duplicates.windowStartNanos < suppressWindowNanos) continue;
+            appendSuppressed(duplicates);
+            it.remove();
+        }
+        if (batchLines > 0) write(errorSink, errorRing);
+    }
+
+    private void appendSuppressed(Duplicates duplicates) {
+        if (duplicates.count == 0) return;
+        batch.append(Instant.now()).append(' ').append(duplicates.line).append(" [").append(duplicates.count)
+            .append(" duplicate(s) suppressed]\n");
+        batchLines++;
+    }
+
+    /**
+     * @return access lines written
+     */
+    long getAccessWrittenCount() {
+        return accessWritten.sum();
+    }
+
+    /**
+     * @return error lines written, including duplicate summaries
+     */
+    long getErrorWrittenCount() {
+        return errorsWritten.sum();
+    }
+
+    /**
+     * @return access records dropped because the ring was full or the write failed
+     */
+    long getAccessDroppedCount() {
+        return accessRing.getDroppedCount();
+    }
+
+    /**
+     * @return error records dropped because the ring was full or the write failed
+     */
+    long getErrorDroppedCount() {
+        return errorRing.getDroppedCount();
+    }
+
+    /**
+     * @return identical errors not written because of the suppression window
+     */
+    long getSuppressedCount() {
+        return suppressed.sum();
+    }
+
+    private static final class Duplicates {
+        private final String line;
+        private long windowStartNanos;
+        private long count;
+
+        Duplicates(String line, long windowStartNanos) {
+            this.line = line;
+            this.windowStartNanos = windowStartNanos;
+        }
+    }
+}
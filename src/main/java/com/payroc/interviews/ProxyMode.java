@@ -0,0 +1,11 @@
+package com.payroc.interviews;
+
+/**
+ * What the proxy engines understand of the traffic they carry.
+ */
+public enum ProxyMode {
+    /** Layer 4: one backend per client connection, bytes copied unchanged ({@link ConnectionHandler}). */
+    TCP,
+    /** Layer 7: HTTP/1.1 requests balanced one by one over kept-alive backend connections ({@link HttpConnectionHandler}). */
+    HTTP
+}
@@ -1,17 +1,35 @@
 package com.payroc.interviews;
 
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
- * Random server selection
+ * Uniform random selection among healthy servers
  */
 public class RandomSelectionStrategy implements ServerSelectionStrategy {
-    private final Random rnd = new Random();
 
     @Override
     public Server select(List<Server> servers) {
         if (servers == null || servers.isEmpty()) return null;
-        return servers.get(rnd.nextInt(servers.size()));
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        Server candidate = servers.get(rnd.nextInt(servers.size()));
+        if (candidate.isAvailable() && candidate.passesSlowStart()) return candidate;
+        // Slow path: pick among the healthy ones in proportion to their slow-start share, without building a
+        // filtered list.
+        double total = 0;
+        for (Server server : servers) {
+            if (server.isAvailable()) total += server.getSlowStartShare();
+        }
+        if (total == 0) return null;
+        double target = rnd.nextDouble(total);
+        Server last = null;
+        for (Server server : servers) {
+            if (!server.isAvailable()) continue;
+            last = server;
+            target -= server.getSlowStartShare();
+            if (target < 0) return server;
+        }
+        // Availability or shares moved between the two passes.
+        return last;
     }
 }
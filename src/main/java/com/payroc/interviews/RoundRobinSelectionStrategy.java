@@ -4,7 +4,7 @@ import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Thread-safe round-robin server selection
+ * Thread-safe round-robin server selection over healthy servers
  */
 public class RoundRobinSelectionStrategy implements ServerSelectionStrategy {
     private final AtomicInteger cursor = new AtomicInteger();
@@ -15,7 +15,14 @@ public class RoundRobinSelectionStrategy implements ServerSelectionStrategy {
             return null;
         }
         int size = servers.size();
-        int idx = Math.abs(cursor.getAndIncrement());
-        return servers.get(idx % size);
+        int start = Math.floorMod(cursor.getAndIncrement(), size);
+        Server skipped = null;
+        for (int offset = 0; offset < size; offset++) {
+            Server candidate = servers.get((start + offset) % size);
+            if (!candidate.isAvailable()) continue;
+            if (candidate.passesSlowStart()) return candidate;
+            if (skipped == null) skipped = candidate;
+        }
+        return skipped;
     }
 }
@@ -4,26 +4,97 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Represents a backend target (host + port).
+ * Represents a backend target (host + port), with an optional relative weight (default 1)
+ * and an optional cap on concurrent sessions (default 0, unlimited).
+ * A backend expanded from a hostname by {@link DnsCache} has one resolved address as its host and remembers the name.
  */
 public class Server {
+    public static final int DEFAULT_WEIGHT = 1;
+    /**
+     * Upper bound of a weight (as in HAProxy). Weighted strategies build per-snapshot tables whose size grows with
+     * the weights, so the bound keeps a config typo from costing seconds and gigabytes on every health flip.
+     */
+    public static final int MAX_WEIGHT = 256;
+
     private final String host;
     private final int port;
+    private final int weight;
+    private final int maxConnections;
+    @JsonIgnore
+    private final String hostname;
+    @JsonIgnore
+    private volatile InetSocketAddress socketAddress;
     @JsonIgnore
     private final AtomicBoolean healthy = new AtomicBoolean(true);
     @JsonIgnore
     private final AtomicInteger active = new AtomicInteger(0);
+    @JsonIgnore
+    private final AtomicInteger reservedSlots = new AtomicInteger(0);
+    @JsonIgnore
+    private volatile boolean draining = false;
+    @JsonIgnore
+    private final PeakEwma connectTime = new PeakEwma();
+    @JsonIgnore
+    private final PeakEwma firstByteTime = new PeakEwma();
+    @JsonIgnore
+    private final BackendMetrics metrics = new BackendMetrics();
+    @JsonIgnore
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker(this);
+    @JsonIgnore
+    private final CopyOnWriteArrayList<Runnable> healthListeners = new CopyOnWriteArrayList<>();
 
-    @JsonCreator
-    public Server(@JsonProperty("host") String host,
-                  @JsonProperty("port") int port) {
+    public Server(String host, int port) {
+        this(host, port, DEFAULT_WEIGHT);
+    }
+
+    /**
+     * @param weight relative share of traffic for weighted strategies; 1 to {@link #MAX_WEIGHT}
+     */
+    public Server(String host, int port, int weight) {
+        this(host, port, weight, 0);
+    }
+
+    /**
+     * @param maxConnections concurrent sessions this backend accepts; 0 for no limit
+     */
+    public Server(String host, int port, int weight, int maxConnections) {
+        this(host, port, weight, maxConnections, host);
+    }
+
+    private Server(String host, int port, int weight, int maxConnections, String hostname) {
+        if (weight < 1 || weight > MAX_WEIGHT) throw new IllegalArgumentException("weight must be between 1 and " + MAX_WEIGHT);
+        if (maxConnections < 0) throw new IllegalArgumentException("maxConnections must be >= 0");
         this.host = host;
         this.port = port;
+        this.weight = weight;
+        this.maxConnections = maxConnections;
+        this.hostname = hostname;
+    }
+
+    /**
+     * @return a backend for one resolved address of this (hostname) backend, with the same weight and session cap
+     */
+    Server withAddress(InetAddress address) {
+        Server target = new Server(address.getHostAddress(), port, weight, maxConnections, host);
+        target.socketAddress = new InetSocketAddress(address, port);
+        return target;
+    }
+
+    @JsonCreator
+    static Server fromJson(@JsonProperty("host") String host,
+                           @JsonProperty("port") int port,
+                           @JsonProperty("weight") Integer weight,
+                           @JsonProperty("maxConnections") Integer maxConnections) {
+        return new Server(host, port, weight == null ? DEFAULT_WEIGHT : weight, maxConnections == null ? 0 : maxConnections);
     }
 
     public String getHost() {
@@ -34,22 +105,194 @@ public class Server {
         return port;
     }
 
+    /**
+     * @return the configured hostname this backend was resolved from, or its host when it was not expanded
+     */
+    @JsonIgnore
+    public String getHostname() {
+        return hostname;
+    }
+
+    /**
+     * @return the address to connect to; resolved ahead of time for expanded backends and IP literals, otherwise
+     * resolved by the JDK on each call
+     */
+    @JsonIgnore
+    InetSocketAddress getSocketAddress() {
+        InetSocketAddress cached = socketAddress;
+        if (cached != null) return cached;
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        if (DnsCache.isLiteral(host)) socketAddress = address;
+        return address;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return cap on concurrent sessions, 0 when unlimited
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * @return sessions holding one of this backend's slots, including ones still connecting (0 when uncapped)
+     */
+    @JsonIgnore
+    public int getReservedSlots() {
+        return reservedSlots.get();
+    }
+
+    /**
+     * @return true if the backend is below its session cap (always true when uncapped)
+     */
+    @JsonIgnore
+    public boolean hasCapacity() {
+        return maxConnections == 0 || reservedSlots.get() < maxConnections;
+    }
+
+    /**
+     * Claims a session slot (a no-op when the backend is uncapped) and, while the circuit breaker is half-open,
+     * one of its trial permits.
+     *
+     * @return false if the backend is at its cap or out of trial permits
+     */
+    boolean tryReserveSlot() {
+        if (maxConnections == 0) return circuitBreaker.tryAcquireTrial();
+        while (true) {
+            int current = reservedSlots.get();
+            if (current >= maxConnections) return false;
+            if (reservedSlots.compareAndSet(current, current + 1)) break;
+        }
+        if (circuitBreaker.tryAcquireTrial()) return true;
+        releaseSlot();
+        return false;
+    }
+
+    /**
+     * Returns a slot claimed by {@link #tryReserveSlot()}.
+     *
+     * @return true if a capped slot was actually freed (so a waiting client may now fit)
+     */
+    boolean releaseSlot() {
+        if (maxConnections == 0) return false;
+        reservedSlots.updateAndGet(v -> v > 0 ? v - 1 : 0);
+        return true;
+    }
+
     public boolean isHealthy() {
         return healthy.get();
     }
 
+    /**
+     * Marks the server healthy; coming back from unhealthy starts its slow start when outlier detection is on.
+     */
     public void markHealthy() {
-        healthy.set(true);
+        if (healthy.compareAndSet(false, true)) {
+            circuitBreaker.beginSlowStart();
+            notifyHealthListeners();
+        }
     }
 
     public void markUnhealthy() {
-        healthy.set(false);
+        if (healthy.compareAndSet(true, false)) notifyHealthListeners();
+    }
+
+    /**
+     * Called by the proxy engines when a connect to this server fails: counts towards ejection when outlier
+     * detection is on, otherwise takes the server out of rotation until a health check brings it back.
+     */
+    void reportConnectFailure() {
+        if (!circuitBreaker.onFailure()) markUnhealthy();
+    }
+
+    /**
+     * @return true if strategies may pick this server for new connections: in rotation, below its session cap and
+     * admitted by its circuit breaker (half-open trials left). Slow start is not part of it; see
+     * {@link #getSlowStartShare()}.
+     */
+    @JsonIgnore
+    public boolean isAvailable() {
+        return isInRotation() && hasCapacity() && circuitBreaker.admitsPick();
+    }
+
+    /**
+     * @return true if healthy, not draining and not ejected by outlier detection; unlike {@link #isAvailable()} this
+     * ignores the momentary session count, trial permits and slow start
+     */
+    @JsonIgnore
+    public boolean isInRotation() {
+        return !draining && healthy.get() && !circuitBreaker.isEjected();
+    }
+
+    CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    @JsonIgnore
+    public boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * A draining server gets no new connections but keeps its existing ones; independent of health.
+     */
+    public synchronized void setDraining(boolean draining) {
+        if (this.draining == draining) return;
+        this.draining = draining;
+        notifyHealthListeners();
+    }
+
+    /**
+     * Registers a callback run (on the thread that flipped it) whenever this server's health, drain or circuit state
+     * actually changes.
+     */
+    void addHealthListener(Runnable listener) {
+        healthListeners.add(listener);
+    }
+
+    void removeHealthListener(Runnable listener) {
+        healthListeners.remove(listener);
+    }
+
+    void notifyHealthListeners() {
+        for (Runnable listener : healthListeners) listener.run();
     }
 
     public int getActiveConnections() {
         return active.get();
     }
 
+    /**
+     * @return share of its normal traffic this server should get: 1, or less while it ramps up after recovering
+     * or joining (see {@link OutlierDetector})
+     */
+    @JsonIgnore
+    public double getSlowStartShare() {
+        return circuitBreaker.slowStartShare();
+    }
+
+    /**
+     * Active connections divided by the slow-start share, for strategies that compare load: a server at a tenth of
+     * its share looks ten times as loaded, so it ends up with about a tenth of the connections of its peers.
+     */
+    @JsonIgnore
+    public double getLoadScore() {
+        return active.get() / circuitBreaker.slowStartShare();
+    }
+
+    /**
+     * One slow-start draw for a server a strategy is about to return, for strategies that do not compare load:
+     * always true outside slow start, otherwise true with probability {@link #getSlowStartShare()}. Called once
+     * per candidate and pick, never as part of an availability check.
+     */
+    public boolean passesSlowStart() {
+        double share = circuitBreaker.slowStartShare();
+        return share >= 1 || ThreadLocalRandom.current().nextDouble() < share;
+    }
+
     public void incrementActive() {
         active.incrementAndGet();
     }
@@ -58,6 +301,42 @@ public class Server {
         active.updateAndGet(v -> v > 0 ? v - 1 : 0);
     }
 
+    /**
+     * Records how long a TCP connect to this backend took. Lock-free; safe from any forwarding thread.
+     */
+    public void recordConnectTime(long nanos) {
+        connectTime.record(nanos);
+        metrics.recordConnectTime(nanos);
+    }
+
+    @JsonIgnore
+    public BackendMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Records the time from the first request byte reaching this backend to its first response byte.
+     */
+    public void recordFirstByteTime(long nanos) {
+        firstByteTime.record(nanos);
+    }
+
+    /**
+     * @return peak-EWMA connect time plus time-to-first-byte, in microseconds (0 until sampled)
+     */
+    @JsonIgnore
+    public double getLatencyEstimateMicros() {
+        return connectTime.getMicros() + firstByteTime.getMicros();
+    }
+
+    /**
+     * Sets how quickly old latency samples lose weight (roughly the averaging horizon).
+     */
+    public void setLatencyDecayWindow(long decayWindowMillis) {
+        connectTime.setDecayWindow(decayWindowMillis);
+        firstByteTime.setDecayWindow(decayWindowMillis);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -73,6 +352,8 @@ public class Server {
 
     @Override
     public String toString() {
-        return host + ":" + port + "(active=" + active.get() + ", healthy=" + healthy.get() + ")";
+        return (Objects.equals(hostname, host) ? "" : hostname + "/") + host + ":" + port + "(active=" + active.get() + ", healthy=" + healthy.get() + (draining ? ", draining" : "")
+            + (circuitBreaker.getState() != CircuitBreaker.State.CLOSED ? ", circuit=" + circuitBreaker.getState() : "")
+            + (maxConnections > 0 ? ", slots=" + reservedSlots.get() + "/" + maxConnections : "") + ")";
     }
 }
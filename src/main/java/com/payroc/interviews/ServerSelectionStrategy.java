@@ -1,10 +1,49 @@
 package com.payroc.interviews;
 
+import java.net.InetAddress;
 import java.util.List;
 
 /**
  * Strategy for choosing a backend server from a list.
+ * Implementations only return servers that are {@link Server#isAvailable() available} (healthy, not draining, below their session cap), return null when
+ * there is none, and must not allocate per call (select runs once per accepted connection).
+ * Slow-starting servers get a reduced share: strategies that compare load use {@link Server#getLoadScore()},
+ * the others make one {@link Server#passesSlowStart()} draw per candidate they would return.
+ * <p>
+ * The load balancer selects through {@link #select(BackendSnapshot, InetAddress)}. Strategies that need
+ * derived indexes (weight schedules, hash tables) build them once per snapshot in
+ * {@link #prepare(BackendSnapshot)} and read them back from {@link BackendSnapshot#getStrategyState()}.
  */
 public interface ServerSelectionStrategy {
     Server select(List<Server> servers);
+
+    /**
+     * Selects with knowledge of the client, for strategies that keep client affinity.
+     * Others ignore the address.
+     *
+     * @param clientAddress the accepted client's address, or null if unknown
+     */
+    default Server select(List<Server> servers, InetAddress clientAddress) {
+        return select(servers);
+    }
+
+    /**
+     * Selects from a published snapshot; this is what the proxy engines call.
+     *
+     * @param clientAddress the accepted client's address, or null if unknown
+     */
+    default Server select(BackendSnapshot snapshot, InetAddress clientAddress) {
+        return select(snapshot.getServers(), clientAddress);
+    }
+
+    /**
+     * Called once per snapshot, before it is published and off the accept path, whenever backends are added
+     * or removed, a backend's health or drain state changes, or the strategy is installed. Must not call back into the snapshot's
+     * strategy state.
+     *
+     * @return derived state to attach to the snapshot, or null
+     */
+    default Object prepare(BackendSnapshot snapshot) {
+        return null;
+    }
 }
@@ -0,0 +1,147 @@
+package com.payroc.interviews;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Idle and lifetime limits for proxied sessions in every engine, all driven by one shared {@link HashedWheelTimer}
+ * (which also runs the NIO connect timeouts). A session is closed once nothing has been read from either side for
+ * the idle timeout, or once it has been open for the maximum lifetime.
+ * <p>
+ * Reads only stamp a timestamp; the idle timeout is not moved on every read. When it fires early it re-arms for the
+ * time still left, so a busy session costs about one timer event per idle period.
+ */
+final class SessionTimeouts {
+    private final HashedWheelTimer timer;
+    private final long idleTimeoutNanos;
+    private final long maxLifetimeNanos;
+    private final LongAdder idleTimeouts = new LongAdder();
+    private final LongAdder lifetimeTimeouts = new LongAdder();
+
+    /**
+     * A session whose limits are being enforced.
+     */
+    interface Watched extends ConnectionTracker.Tracked {
+        /**
+         * @return {@link System#nanoTime()} of the latest read from the client or the backend
+         */
+        long lastReadNanos();
+    }
+
+    /**
+     * @param idleTimeoutMillis close sessions idle for this long (0 = never)
+     * @param maxLifetimeMillis close sessions open for this long (0 = never)
+     */
+    SessionTimeouts(HashedWheelTimer timer, long idleTimeoutMillis, long maxLifetimeMillis) {
+        if (idleTimeoutMillis < 0 || maxLifetimeMillis < 0) throw new IllegalArgumentException("timeouts must be >= 0");
+        this.timer = timer;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.maxLifetimeNanos = TimeUnit.MILLISECONDS.toNanos(maxLifetimeMillis);
+    }
+
+    /**
+     * @return the shared timer, or null when timeouts are disabled
+     */
+    HashedWheelTimer getTimer() {
+        return timer;
+    }
+
+    /**
+     * Starts enforcing the limits on a session that has just connected to its backend.
+     *
+     * @return handle to cancel when the session closes, or null if no limit applies
+     */
+    Watch watch(Watched session) {
+        if (timer == null || (idleTimeoutNanos == 0 && maxLifetimeNanos == 0)) return null;
+        Watch watch = new Watch(session);
+        try {
+            if (idleTimeoutNanos > 0) watch.armIdle(idleTimeoutNanos);
+            if (maxLifetimeNanos > 0) watch.lifetime = timer.newTimeout(watch::onLifetimeExpired, maxLifetimeNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException stopping) {
+            // Timer already stopped: the balancer is shutting down and drains the session itself.
+        }
+        return watch;
+    }
+
+    /**
+     * @return sessions closed by the idle timeout
+     */
+    long getIdleTimeoutCount() {
+        return idleTimeouts.sum();
+    }
+
+    /**
+     * @return sessions closed at their maximum lifetime
+     */
+    long getLifetimeTimeoutCount() {
+        return lifetimeTimeouts.sum();
+    }
+
+    final class Watch {
+        private final Watched session;
+        private volatile HashedWheelTimer.Timeout idle;
+        private volatile HashedWheelTimer.Timeout lifetime;
+        private volatile boolean cancelled;
+        private volatile boolean idleExpired;
+        private volatile boolean lifetimeExpired;
+
+        private Watch(Watched session) {
+            this.session = session;
+        }
+
+        private void armIdle(long delayNanos) {
+            idle = timer.newTimeout(this::onIdleCheck, delayNanos, TimeUnit.NANOSECONDS);
+            if (cancelled) idle.cancel();
+        }
+
+        private void onIdleCheck() {
+            if (cancelled) return;
+            long idleFor = System.nanoTime() - session.lastReadNanos();
+            if (idleFor >= idleTimeoutNanos) {
+                idleExpired = true;
+                idleTimeouts.increment();
+                session.forceClose();
+                return;
+            }
+            try {
+                armIdle(idleTimeoutNanos - idleFor);
+            } catch (RejectedExecutionException stopping) {
+                // Timer stopped while re-arming; shutdown takes over.
+            }
+        }
+
+        private void onLifetimeExpired() {
+            if (cancelled) return;
+            lifetimeExpired = true;
+            lifetimeTimeouts.increment();
+            session.forceClose();
+        }
+
+        /**
+         * @return true if the session was closed for being idle
+         */
+        boolean isIdleExpired() {
+            return idleExpired;
+        }
+
+        /**
+         * @return the timeout that closed the session, or null if none did
+         */
+        ProxyLog.CloseReason closeReason() {
+            if (idleExpired) return ProxyLog.CloseReason.IDLE_TIMEOUT;
+            return lifetimeExpired ? ProxyLog.CloseReason.LIFETIME_TIMEOUT : null;
+        }
+
+        /**
+         * Stops enforcing the limits; called when the session closes.
+         */
+        void cancel() {
+            cancelled = true;
+            HashedWheelTimer.Timeout idleTimeout = idle;
+            if (idleTimeout != null) idleTimeout.cancel();
+            HashedWheelTimer.Timeout lifetimeTimeout = lifetime;
+            if (lifetimeTimeout != null) lifetimeTimeout.cancel();
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.payroc.interviews;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLSession;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The server side of a TLS connection on a socket channel, driven through an {@link SSLEngine}. The same code serves
+ * the thread-per-connection handlers (blocking channel) and the NIO event loops (non-blocking channel). In
+ * non-blocking mode nothing waits: {@link #read} returns 0 when no whole record has arrived, {@link #write} keeps
+ * ciphertext the socket could not take (see {@link #hasPendingOutput()}), and {@link #handshake()} returns false
+ * until the channel is ready again.
+ * <p>
+ * One thread may read while another writes, as the blocking handlers pump each direction on its own thread. Inbound
+ * buffers belong to the reader. Wraps and socket writes, including handshake messages the reader has to answer, run
+ * under a lock. Client-initiated renegotiation is refused.
+ */
+final class TlsChannel implements ByteChannel {
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final SocketChannel channel;
+    private final SSLEngine engine;
+    private final long startMillis = System.currentTimeMillis();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private ByteBuffer netIn; // ciphertext read but not yet unwrapped, in write mode
+    private ByteBuffer appIn; // plaintext unwrapped but not yet returned, in read mode
+    private ByteBuffer netOut; // ciphertext wrapped but not yet written, in read mode; guarded by writeLock
+    private boolean handshakeDone;
+    private boolean inboundDone;
+    private boolean outputShutdown; // guarded by writeLock
+
+    /**
+     * @param engine a server-mode engine whose handshake has not started
+     */
+    TlsChannel(SocketChannel channel, SSLEngine engine) throws SSLException {
+        this.channel = channel;
+        this.engine = engine;
+        SSLSession session = engine.getSession();
+        this.netIn = ByteBuffer.allocate(session.getPacketBufferSize());
+        this.appIn = ByteBuffer.allocate(session.getApplicationBufferSize()).flip();
+        this.netOut = ByteBuffer.allocate(session.getPacketBufferSize()).flip();
+        engine.beginHandshake();
+    }
+
+    SocketChannel socketChannel() {
+        return channel;
+    }
+
+    /**
+     * Advances the handshake as far as the channel allows. Delegated tasks (certificate and key work) run inline.
+     *
+     * @return true once the handshake is complete and its last flight is written; false if a non-blocking channel
+     * must become readable, or writable if {@link #hasPendingOutput()}, before it can go on
+     */
+    boolean handshake() throws IOException {
+        writeLock.lock();
+        try {
+            while (true) {
+                if (!flush()) return false;
+                switch (engine.getHandshakeStatus()) {
+                    case NOT_HANDSHAKING, FINISHED -> {
+                        handshakeDone = true;
+                        return true;
+                    }
+                    case NEED_TASK -> runTasks();
+                    case NEED_WRAP -> wrap(EMPTY);
+                    default -> {
+                        if (!unwrap()) return false;
+                        if (inboundDone) throw new SSLHandshakeException("client closed the connection during the handshake");
+                    }
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @return true if the completed handshake resumed an earlier session, from the session cache or a ticket
+     */
+    boolean isResumed() {
+        // A resumed session keeps the creation time of the full handshake that established it.
+        return engine.getSession().getCreationTime() < startMillis;
+    }
+
+    String protocol() {
+        return engine.getSession().getProtocol();
+    }
+
+    /**
+     * @return plaintext bytes copied into {@code dst}, 0 if a non-blocking channel has no whole record yet, or -1
+     * once the client sent close_notify or closed the connection
+     */
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (!dst.hasRemaining()) return 0;
+        while (!appIn.hasRemaining()) {
+            if (inboundDone) return -1;
+            if (!unwrap()) return 0;
+            if (engine.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING) answerHandshake();
+        }
+        int count = Math.min(appIn.remaining(), dst.remaining());
+        dst.put(appIn.slice(appIn.position(), count));
+        appIn.position(appIn.position() + count);
+        return count;
+    }
+
+    /**
+     * Encrypts as much of {@code src} as the socket takes, one record at a time.
+     *
+     * @return plaintext bytes consumed; in non-blocking mode the last record may still be pending
+     */
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        writeLock.lock();
+        try {
+            if (outputShutdown) throw new ClosedChannelException();
+            int consumed = 0;
+            while (flush() && src.hasRemaining()) consumed += wrap(src).bytesConsumed();
+            return consumed;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Writes ciphertext left over from earlier calls.
+     *
+     * @return true if nothing is left (always, for a blocking channel)
+     */
+    boolean flush() throws IOException {
+        writeLock.lock();
+        try {
+            while (netOut.hasRemaining()) {
+                if (channel.write(netOut) == 0) return false;
+            }
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Only meaningful on a non-blocking channel, from the thread that owns it.
+     */
+    boolean hasPendingOutput() {
+        return netOut.hasRemaining();
+    }
+
+    /**
+     * @return true if bytes already read from the socket may yield plaintext without the socket becoming readable,
+     * which a selector would never report
+     */
+    boolean hasBufferedInput() {
+        return appIn.hasRemaining() || netIn.position() > 0;
+    }
+
+    /**
+     * Sends close_notify, then shuts down the socket's output; the inbound side stays open. Safe to repeat.
+     *
+     * @return true once done; false if a non-blocking channel could not take all of it yet
+     */
+    boolean shutdownOutput() throws IOException {
+        writeLock.lock();
+        try {
+            if (!outputShutdown) {
+                outputShutdown = true;
+                engine.closeOutbound();
+                if (!engine.isOutboundDone()) wrap(EMPTY);
+            }
+            if (!flush()) return false;
+            channel.shutdownOutput();
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    /**
+     * Closes the socket without close_notify; a clean end goes through {@link #shutdownOutput()} first.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Unwraps one record into {@link #appIn}, reading from the socket until a whole record is buffered.
+     *
+     * @return false if a non-blocking channel has nothing more to read
+     */
+    private boolean unwrap() throws IOException {
+        while (true) {
+            netIn.flip();
+            appIn.compact();
+            SSLEngineResult result;
+            try {
+                result = engine.unwrap(netIn, appIn);
+            } finally {
+                netIn.compact();
+                appIn.flip();
+            }
+            switch (result.getStatus()) {
+                case OK -> {
+                    return true;
+                }
+                case CLOSED -> {
+                    inboundDone = true;
+                    return true;
+                }
+                case BUFFER_OVERFLOW -> {
+                    ByteBuffer larger = ByteBuffer.allocate(appIn.remaining() + engine.getSession().getApplicationBufferSize());
+                    appIn = larger.put(appIn).flip();
+                }
+                case BUFFER_UNDERFLOW -> {
+                    if (!netIn.hasRemaining()) {
+                        ByteBuffer larger = ByteBuffer.allocate(Math.max(netIn.capacity() * 2, engine.getSession().getPacketBufferSize()));
+                        netIn = larger.put(netIn.flip());
+                    }
+                    int read = channel.read(netIn);
+                    if (read == 0) return false;
+                    if (read < 0) {
+                        inboundDone = true;
+                        closeInbound();
+                        return true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A client that closes without close_notify is treated like one that sent it; the proxied protocol decides
+     * whether the data it got was complete.
+     */
+    private void closeInbound() {
+        try {
+            engine.closeInbound();
+        } catch (SSLException truncated) {
+            // No close_notify.
+        }
+    }
+
+    /**
+     * Answers handshake messages that arrive after the handshake, such as a TLS 1.3 key update, from the reading thread.
+     */
+    private void answerHandshake() throws IOException {
+        writeLock.lock();
+        try {
+            while (true) {
+                switch (engine.getHandshakeStatus()) {
+                    case NEED_TASK -> runTasks();
+                    case NEED_WRAP -> wrap(EMPTY);
+                    case NEED_UNWRAP, NEED_UNWRAP_AGAIN -> {
+                        if (handshakeDone) throw new SSLHandshakeException("client-initiated renegotiation is not supported");
+                        return;
+                    }
+                    default -> {
+                        flush(); // a non-blocking channel sends the rest with the next write or flush
+                        return;
+                    }
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Wraps one record from {@code src} (or one handshake or alert message) onto {@link #netOut}. Caller holds writeLock.
+     */
+    private SSLEngineResult wrap(ByteBuffer src) throws IOException {
+        while (true) {
+            netOut.compact();
+            SSLEngineResult result;
+            try {
+                result = engine.wrap(src, netOut);
+            } finally {
+                netOut.flip();
+            }
+            if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                ByteBuffer larger = ByteBuffer.allocate(netOut.remaining() + engine.getSession().getPacketBufferSize());
+                netOut = larger.put(netOut).flip();
+                continue;
+            }
+            if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK) runTasks();
+            if (result.bytesConsumed() == 0 && result.bytesProduced() == 0 && src.hasRemaining()
+                && result.getStatus() == SSLEngineResult.Status.OK
+                && result.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.NEED_WRAP) {
+                throw new SSLException("TLS engine cannot send data in handshake state " + result.getHandshakeStatus());
+            }
+            if (result.getStatus() == SSLEngineResult.Status.CLOSED && src.hasRemaining()) throw new ClosedChannelException();
+            return result;
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = engine.getDelegatedTask()) != null) task.run();
+    }
+}
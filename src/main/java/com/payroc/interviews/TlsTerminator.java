@@ -0,0 +1,181 @@
+package com.payroc.interviews;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLSessionContext;
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Terminates TLS on the listener, so clients speak TLS to the balancer and backends get plain bytes. Connections are
+ * driven through {@link TlsChannel}, which works on the blocking and on the NIO engines. The handshake runs before a
+ * backend is chosen, so a client that never finishes it costs no backend slot or connect. A client that has not
+ * finished it within the handshake timeout is closed.
+ * <p>
+ * Reconnecting clients skip the full handshake (and its public-key operations) in two ways:
+ * <ul>
+ *   <li>A bounded server-side session cache, for TLS 1.2 clients that resume by session ID.</li>
+ *   <li>Session tickets, the JDK default, used by TLS 1.3 and by TLS 1.2 clients that offer them. A ticket holds
+ *       the session state sealed with a server key, so it takes no cache space. The JDK replaces the sealing key
+ *       every hour ({@code jdk.tls.server.statelessKeyTimeout}) and keeps retired keys until tickets sealed with
+ *       them expire.</li>
+ * </ul>
+ * Both expire after the session timeout. Completed handshakes are counted as full or resumed, failed ones
+ * separately; {@link #getResumptionRatio()} shows how well resumption works for the current clients.
+ */
+public class TlsTerminator {
+    public static final int DEFAULT_SESSION_CACHE_SIZE = 10_000;
+    public static final int DEFAULT_SESSION_TIMEOUT_SECONDS = 3600;
+    public static final long DEFAULT_HANDSHAKE_TIMEOUT_MS = 10_000;
+
+    private final SSLContext sslContext;
+    private final long handshakeTimeoutMillis;
+    private final LongAdder fullHandshakes = new LongAdder();
+    private final LongAdder resumedHandshakes = new LongAdder();
+    private final LongAdder failedHandshakes = new LongAdder();
+
+    /**
+     * @param sslContext             initialised context holding the server's key and certificate chain; its server
+     *                               session cache is resized by this constructor
+     * @param sessionCacheSize       sessions kept for resumption by ID (must be > 0; the least recently used go first)
+     * @param sessionTimeoutSeconds  how long a session can be resumed, by ID or by ticket
+     * @param handshakeTimeoutMillis close clients that have not completed the handshake by then (0 = never)
+     */
+    public TlsTerminator(SSLContext sslContext, int sessionCacheSize, int sessionTimeoutSeconds, long handshakeTimeoutMillis) {
+        if (sslContext == null) throw new IllegalArgumentException("sslContext is required");
+        // The JDK reads a cache size of 0 as unbounded.
+        if (sessionCacheSize < 1) throw new IllegalArgumentException("sessionCacheSize must be >= 1");
+        if (sessionTimeoutSeconds < 1) throw new IllegalArgumentException("sessionTimeoutSeconds must be >= 1");
+        if (handshakeTimeoutMillis < 0) throw new IllegalArgumentException("handshakeTimeoutMillis must be >= 0");
+        this.sslContext = sslContext;
+        this.handshakeTimeoutMillis = handshakeTimeoutMillis;
+        SSLSessionContext sessions = sslContext.getServerSessionContext();
+        sessions.setSessionCacheSize(sessionCacheSize);
+        sessions.setSessionTimeout(sessionTimeoutSeconds);
+    }
+
+    public TlsTerminator(SSLContext sslContext) {
+        this(sslContext, DEFAULT_SESSION_CACHE_SIZE, DEFAULT_SESSION_TIMEOUT_SECONDS, DEFAULT_HANDSHAKE_TIMEOUT_MS);
+    }
+
+    /**
+     * Builds a server context from a key store (PKCS12 or JKS, detected from the file) holding the private key
+     * and certificate chain.
+     *
+     * @param password password of the store and of the key entry
+     */
+    public static SSLContext loadContext(Path keyStore, char[] password) throws IOException, GeneralSecurityException {
+        KeyStore store = KeyStore.getInstance(keyStore.toFile(), password);
+        KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(store, password);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(keyManagers.getKeyManagers(), null, null);
+        return context;
+    }
+
+    /**
+     * @return a connection whose handshake starts on its first {@link TlsChannel#handshake()} call
+     */
+    TlsChannel newChannel(SocketChannel clientChannel) throws SSLException {
+        SSLEngine engine = sslContext.createSSLEngine();
+        engine.setUseClientMode(false);
+        return new TlsChannel(clientChannel, engine);
+    }
+
+    /**
+     * Runs the handshake of a blocking client channel on the calling thread. If it takes longer than the handshake
+     * timeout, the shared timer closes the channel.
+     *
+     * @return the established connection, or null if the handshake failed (the channel is then closed)
+     */
+    TlsChannel accept(SocketChannel clientChannel, HashedWheelTimer timer) {
+        HashedWheelTimer.Timeout timeout = null;
+        try {
+            TlsChannel tls = newChannel(clientChannel);
+            if (handshakeTimeoutMillis > 0 && timer != null) {
+                try {
+                    timeout = timer.newTimeout(() -> closeQuietly(clientChannel), handshakeTimeoutMillis, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException stopping) {
+                    // Balancer is stopping; the drain closes the connection.
+                }
+            }
+            tls.handshake();
+            if (timeout != null) timeout.cancel();
+            if (!clientChannel.isOpen()) throw new SSLHandshakeException("handshake timed out");
+            handshakeCompleted(tls);
+            return tls;
+        } catch (IOException handshakeError) {
+            if (timeout != null) timeout.cancel();
+            handshakeFailed();
+            closeQuietly(clientChannel);
+            return null;
+        }
+    }
+
+    void handshakeCompleted(TlsChannel tls) {
+        if (tls.isResumed()) resumedHandshakes.increment();
+        else fullHandshakes.increment();
+    }
+
+    void handshakeFailed() {
+        failedHandshakes.increment();
+    }
+
+    long getHandshakeTimeoutMillis() {
+        return handshakeTimeoutMillis;
+    }
+
+    public int getSessionCacheSize() {
+        return sslContext.getServerSessionContext().getSessionCacheSize();
+    }
+
+    public int getSessionTimeoutSeconds() {
+        return sslContext.getServerSessionContext().getSessionTimeout();
+    }
+
+    /**
+     * @return completed handshakes that established a new session
+     */
+    public long getFullHandshakeCount() {
+        return fullHandshakes.sum();
+    }
+
+    /**
+     * @return completed handshakes that resumed a cached or ticketed session
+     */
+    public long getResumedHandshakeCount() {
+        return resumedHandshakes.sum();
+    }
+
+    /**
+     * @return handshakes that failed, timed out or were abandoned by the client
+     */
+    public long getFailedHandshakeCount() {
+        return failedHandshakes.sum();
+    }
+
+    /**
+     * @return share of completed handshakes that were resumptions (0 before the first)
+     */
+    public double getResumptionRatio() {
+        long resumed = resumedHandshakes.sum();
+        long total = resumed + fullHandshakes.sum();
+        return total == 0 ? 0 : (double) resumed / total;
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.payroc.interviews;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Smooth weighted round-robin (the nginx algorithm): a backend with weight 3 next to one with
+ * weight 1 is picked a, a, b, a rather than a, a, a, b, so heavier backends get proportionally more
+ * connections without bursts. The interleaved order over the available backends is precomputed into an
+ * immutable schedule once per {@link BackendSnapshot}; selection is then one atomic increment and an
+ * array read, walking forward past backends that became unavailable since, like {@link RoundRobinSelectionStrategy}.
+ */
+public class WeightedRoundRobinSelectionStrategy implements ServerSelectionStrategy {
+    private final AtomicInteger cursor = new AtomicInteger();
+    private volatile Schedule standalone = new Schedule(List.of(), new Server[0]);
+
+    @Override
+    public Server select(List<Server> servers) {
+        if (servers == null || servers.isEmpty()) return null;
+        Schedule current = standalone;
+        if (current.source != servers) {
+            // Called without a snapshot: build once per distinct list.
+            current = new Schedule(servers, buildSchedule(List.copyOf(servers)));
+            standalone = current;
+        }
+        return pick(current.order);
+    }
+
+    @Override
+    public Server select(BackendSnapshot snapshot, InetAddress clientAddress) {
+        return pick((Server[]) snapshot.getStrategyState());
+    }
+
+    @Override
+    public Object prepare(BackendSnapshot snapshot) {
+        return buildSchedule(snapshot.getAvailableServers());
+    }
+
+    private Server pick(Server[] order) {
+        int length = order.length;
+        if (length == 0) return null;
+        int start = Math.floorMod(cursor.getAndIncrement(), length);
+        Server skipped = null;
+        for (int offset = 0; offset < length; offset++) {
+            Server candidate = order[(start + offset) % length];
+            if (!candidate.isAvailable()) continue;
+            if (candidate.passesSlowStart()) return candidate;
+            if (skipped == null) skipped = candidate;
+        }
+        return skipped;
+    }
+
+    /**
+     * Runs smooth weighted round-robin for one full cycle: every step adds each backend's weight to its
+     * running score, picks the highest score and subtracts the total weight from it. Weights are first
+     * divided by their GCD so the cycle is as short as possible. {@link Server#MAX_WEIGHT} bounds the cycle at
+     * 256 entries per backend.
+     */
+    static Server[] buildSchedule(List<Server> servers) {
+        int n = servers.size();
+        if (n == 0) return new Server[0];
+        int divisor = 0;
+        for (Server server : servers) divisor = gcd(divisor, server.getWeight());
+        int[] weights = new int[n];
+        long total = 0;
+        for (int i = 0; i < n; i++) {
+            weights[i] = servers.get(i).getWeight() / divisor;
+            total += weights[i];
+        }
+        if (total > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("total backend weight too large: " + total);
+        long[] scores = new long[n];
+        List<Server> order = new ArrayList<>((int) total);
+        for (long step = 0; step < total; step++) {
+            int best = 0;
+            for (int i = 0; i < n; i++) {
+                scores[i] += weights[i];
+                if (scores[i] > scores[best]) best = i;
+            }
+            scores[best] -= total;
+            order.add(servers.get(best));
+        }
+        return order.toArray(new Server[0]);
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    private static final class Schedule {
+        private final List<Server> source;
+        private final Server[] order;
+
+        Schedule(List<Server> source, Server[] order) {
+            this.source = source;
+            this.order = order;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.payroc.interviews;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AcceptorGroupTest {
+    private AcceptorGroup acceptorGroup;
+    private Thread runThread;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (acceptorGroup != null) acceptorGroup.close();
+        if (runThread != null) runThread.join(1000);
+    }
+
+    @Test
+    void shouldHandOffEveryConnectionAcrossMultipleAcceptors() throws Exception {
+        int connectionCount = 50;
+        CountDownLatch dispatched = new CountDownLatch(connectionCount);
+        List<SocketChannel> accepted = new ArrayList<>();
+        int port = findFreePort();
+        acceptorGroup = new AcceptorGroup(port, 3, 256, 16, clientChannel -> {
+            synchronized (accepted) { accepted.add(clientChannel); }
+            dispatched.countDown();
+        });
+        acceptorGroup.bind();
+        runThread = new Thread(acceptorGroup::run, "acceptor-0");
+        runThread.start();
+
+        List<Socket> clients = new ArrayList<>();
+        try {
+            for (int i = 0; i < connectionCount; i++) clients.add(new Socket("127.0.0.1", port));
+            assertTrue(dispatched.await(5, TimeUnit.SECONDS));
+            assertEquals(connectionCount, acceptorGroup.getAcceptedCount());
+            assertTrue(acceptorGroup.getWakeupCount() >= 1);
+        } finally {
+            for (Socket client : clients) client.close();
+            synchronized (accepted) { for (SocketChannel channel : accepted) channel.close(); }
+        }
+    }
+
+    @Test
+    void shouldDrainAQueuedBurstWithFewWakeups() throws Exception {
+        int connectionCount = 40;
+        CountDownLatch dispatched = new CountDownLatch(connectionCount);
+        int port = findFreePort();
+        acceptorGroup = new AcceptorGroup(port, 1, 256, 64, clientChannel -> {
+            dispatched.countDown();
+            try { clientChannel.close(); } catch (IOException ignored) {}
+        });
+        acceptorGroup.bind();
+        List<Socket> clients = new ArrayList<>();
+        try {
+            // Queue the whole burst in the kernel backlog before the acceptor starts.
+            for (int i = 0; i < connectionCount; i++) clients.add(new Socket("127.0.0.1", port));
+            runThread = new Thread(acceptorGroup::run, "acceptor-0");
+            runThread.start();
+            assertTrue(dispatched.await(5, TimeUnit.SECONDS));
+            assertTrue(acceptorGroup.getWakeupCount() < connectionCount,
+                "expected batched accepts, got " + acceptorGroup.getWakeupCount() + " wakeups");
+        } finally {
+            for (Socket client : clients) client.close();
+        }
+    }
+
+    @Test
+    void shouldReleasePortOnClose() throws Exception {
+        int port = findFreePort();
+        acceptorGroup = new AcceptorGroup(port, 2, 16, 8, clientChannel -> {});
+        acceptorGroup.bind();
+        runThread = new Thread(acceptorGroup::run, "acceptor-0");
+        runThread.start();
+        acceptorGroup.close();
+        runThread.join(1000);
+        assertFalse(runThread.isAlive());
+        Thread.sleep(50);
+        try (ServerSocket rebound = new ServerSocket(port)) {
+            assertEquals(port, rebound.getLocalPort());
+        }
+    }
+
+    private int findFreePort() throws IOException { try (ServerSocket probeSocket = new ServerSocket(0)) { return probeSocket.getLocalPort(); } }
+}
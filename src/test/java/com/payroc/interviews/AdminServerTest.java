@@ -0,0 +1,122 @@
+package com.payroc.interviews;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdminServerTest {
+    private LoadBalancer loadBalancer;
+    private LoadBalancerTest.EchoServer echoServer;
+
+    @AfterEach
+    void tearDown() {
+        if (loadBalancer != null) loadBalancer.stop();
+        if (echoServer != null) echoServer.stop();
+    }
+
+    @Test
+    void shouldBucketDurationsCumulatively() {
+        LatencyHistogram histogram = new LatencyHistogram(0.001, 0.01, 0.1);
+        histogram.record(500_000);      // 0.5 ms
+        histogram.record(1_000_000);    // exactly on the 1 ms bound
+        histogram.record(50_000_000);   // 50 ms
+        histogram.record(2_000_000_000L); // beyond the last bound
+        assertArrayEquals(new long[]{2, 2, 3, 4}, histogram.getCumulativeCounts());
+        assertEquals(4, histogram.getCount());
+        assertEquals(2.0515, histogram.getSumSeconds(), 1e-9);
+    }
+
+    @Test
+    void shouldRenderPrometheusTextForEachBackend() throws Exception {
+        File configFile = createTempConfigFile("[ {\"host\":\"127.0.0.1\",\"port\": 9201}, {\"host\":\"127.0.0.1\",\"port\": 9202} ]");
+        loadBalancer = new LoadBalancer(findFreePort(), configFile.getAbsolutePath(), new RoundRobinSelectionStrategy());
+        Server first = loadBalancer.getBackends().get(0);
+        first.getMetrics().recordConnection();
+        first.getMetrics().addBytesToBackend(42);
+        first.recordConnectTime(3_000_000);
+
+        String text = new AdminServer(loadBalancer, 0).renderPrometheus();
+        assertTrue(text.contains("# TYPE lb_backend_connect_seconds histogram\n"));
+        assertTrue(text.contains("lb_backend_connections_total{backend=\"127.0.0.1:9201\"} 1\n"));
+        assertTrue(text.contains("lb_backend_connections_total{backend=\"127.0.0.1:9202\"} 0\n"));
+        assertTrue(text.contains("lb_backend_sent_bytes_total{backend=\"127.0.0.1:9201\"} 42\n"));
+        assertTrue(text.contains("lb_backend_connect_seconds_bucket{backend=\"127.0.0.1:9201\",le=\"0.0025\"} 0\n"));
+        assertTrue(text.contains("lb_backend_connect_seconds_bucket{backend=\"127.0.0.1:9201\",le=\"0.005\"} 1\n"));
+        assertTrue(text.contains("lb_backend_connect_seconds_bucket{backend=\"127.0.0.1:9201\",le=\"+Inf\"} 1\n"));
+        assertTrue(text.contains("lb_backend_connect_seconds_count{backend=\"127.0.0.1:9201\"} 1\n"));
+        assertTrue(text.contains("lb_backend_up{backend=\"127.0.0.1:9202\"} 1\n"));
+    }
+
+    @Test
+    void shouldServeMetricsForProxiedTrafficOnTheAdminPort() throws Exception {
+        echoServer = new LoadBalancerTest.EchoServer(findFreePort());
+        echoServer.start();
+        File configFile = createTempConfigFile("[ {\"host\":\"127.0.0.1\",\"port\": " + echoServer.getPort() + "} ]");
+        int loadBalancerPort = findFreePort();
+        loadBalancer = new LoadBalancer(loadBalancerPort, configFile.getAbsolutePath(), new RoundRobinSelectionStrategy());
+        loadBalancer.setAdminPort(0);
+        Thread loadBalancerThread = new Thread(() -> { try { loadBalancer.start(); } catch (IOException ignored) {} });
+        loadBalancerThread.start();
+        Thread.sleep(150);
+
+        for (int attempt = 0; attempt < 3; attempt++) {
+            try (Socket clientSocket = new Socket("127.0.0.1", loadBalancerPort)) {
+                clientSocket.getOutputStream().write("ping".getBytes());
+                clientSocket.shutdownOutput();
+                assertEquals("ping", new String(clientSocket.getInputStream().readAllBytes()));
+            }
+        }
+        Server backend = loadBalancer.getBackends().get(0);
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (backend.getMetrics().getSessionDuration().getCount() < 3 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+
+        String label = "{backend=\"127.0.0.1:" + echoServer.getPort() + "\"}";
+        String text = get("/metrics");
+        assertTrue(text.contains("lb_backend_connections_total" + label + " 3\n"), text);
+        assertTrue(text.contains("lb_backend_sent_bytes_total" + label + " 12\n"), text);
+        assertTrue(text.contains("lb_backend_received_bytes_total" + label + " 12\n"), text);
+        assertTrue(text.contains("lb_backend_session_seconds_count" + label + " 3\n"), text);
+        assertTrue(text.contains("lb_backend_active_connections" + label + " 0\n"), text);
+
+        JsonNode json = new ObjectMapper().readTree(get("/metrics.json"));
+        JsonNode backendJson = json.get("backends").get(0);
+        assertEquals(3, backendJson.get("connections").asLong());
+        assertEquals(3, backendJson.get("sessionSeconds").get("count").asLong());
+        assertEquals(3, backendJson.get("sessionSeconds").get("buckets").get("+Inf").asLong());
+
+        loadBalancer.stop();
+        loadBalancerThread.join(500);
+        assertEquals(-1, loadBalancer.getAdminPort());
+    }
+
+    private String get(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) URI.create("http://127.0.0.1:" + loadBalancer.getAdminPort() + path)
+            .toURL().openConnection();
+        try (InputStream in = connection.getInputStream()) {
+            assertEquals(200, connection.getResponseCode());
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private int findFreePort() throws IOException { try (ServerSocket probeSocket = new ServerSocket(0)) { return probeSocket.getLocalPort(); } }
+
+    private File createTempConfigFile(String jsonContent) throws IOException {
+        File tempFile = Files.createTempFile("lb-config", ".json").toFile();
+        try (FileWriter writer = new FileWriter(tempFile)) { writer.write(jsonContent); }
+        tempFile.deleteOnExit();
+        return tempFile;
+    }
+}
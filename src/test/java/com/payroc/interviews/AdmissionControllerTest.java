@@ -0,0 +1,144 @@
+package com.payroc.interviews;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControllerTest {
+    private LoadBalancer loadBalancer;
+    private LoadBalancerTest.EchoServer echoServer;
+
+    @AfterEach
+    void tearDown() {
+        if (loadBalancer != null) loadBalancer.stop();
+        if (echoServer != null) echoServer.stop();
+    }
+
+    @Test
+    void shouldRateLimitEachClientIndependently() throws Exception {
+        AdmissionController admission = new AdmissionController(0.001, 3, 0, 0);
+        InetAddress first = InetAddress.getByName("10.0.0.1");
+        InetAddress second = InetAddress.getByName("10.0.0.2");
+        for (int i = 0; i < 3; i++) assertTrue(admission.tryAcquire(first), "burst of 3 is admitted");
+        assertFalse(admission.tryAcquire(first));
+        assertTrue(admission.tryAcquire(second), "other clients have their own bucket");
+        assertEquals(1, admission.getRateRejectedCount());
+        assertEquals(4, admission.getAdmittedCount());
+    }
+
+    @Test
+    void shouldRefillTokensOverTime() throws Exception {
+        AdmissionController admission = new AdmissionController(100, 1, 0, 0);
+        InetAddress client = InetAddress.getByName("10.0.0.1");
+        assertTrue(admission.tryAcquire(client));
+        assertFalse(admission.tryAcquire(client));
+        Thread.sleep(30);
+        assertTrue(admission.tryAcquire(client), "a token is back after 1/rate seconds");
+    }
+
+    @Test
+    void shouldCapConcurrentConnectionsPerClientAndInTotal() throws Exception {
+        AdmissionController admission = new AdmissionController(0, 0, 2, 3);
+        InetAddress first = InetAddress.getByName("10.0.0.1");
+        InetAddress second = InetAddress.getByName("10.0.0.2");
+        assertTrue(admission.tryAcquire(first));
+        assertTrue(admission.tryAcquire(first));
+        assertFalse(admission.tryAcquire(first), "per-client cap");
+        assertTrue(admission.tryAcquire(second));
+        assertFalse(admission.tryAcquire(second), "global cap");
+        assertEquals(1, admission.getClientLimitRejectedCount());
+        assertEquals(1, admission.getGlobalLimitRejectedCount());
+        admission.release(first);
+        assertEquals(2, admission.getActiveCount());
+        assertTrue(admission.tryAcquire(second), "released slots are reusable");
+    }
+
+    @Test
+    void shouldKeepMemoryBoundedUnderAddressChurn() throws Exception {
+        AdmissionController admission = new AdmissionController(0, 0, 1, 0, 1024);
+        for (int i = 0; i < 50_000; i++) {
+            InetAddress client = InetAddress.getByAddress(new byte[]{10, (byte) (i >>> 16), (byte) (i >>> 8), (byte) i});
+            assertTrue(admission.tryAcquire(client));
+            admission.release(client);
+        }
+        assertTrue(admission.getTrackedClientCount() <= 1024 + 64, "tracked " + admission.getTrackedClientCount());
+        assertEquals(0, admission.getActiveCount());
+    }
+
+    @Test
+    void shouldNeverEvictClientsWithOpenConnections() throws Exception {
+        AdmissionController admission = new AdmissionController(0, 0, 1, 0, 64);
+        InetAddress busy = InetAddress.getByName("10.255.0.1");
+        assertTrue(admission.tryAcquire(busy));
+        for (int i = 0; i < 10_000; i++) {
+            InetAddress client = InetAddress.getByAddress(new byte[]{10, 1, (byte) (i >>> 8), (byte) i});
+            admission.tryAcquire(client);
+            admission.release(client);
+        }
+        assertFalse(admission.tryAcquire(busy), "the busy client's count survived the churn");
+    }
+
+    @Test
+    void shouldResetRejectedClientsBeforeReachingABackendInBlockingMode() throws Exception {
+        assertRejectedClientIsReset(IoMode.BLOCKING);
+    }
+
+    @Test
+    void shouldResetRejectedClientsBeforeReachingABackendInNioMode() throws Exception {
+        assertRejectedClientIsReset(IoMode.NIO);
+    }
+
+    private void assertRejectedClientIsReset(IoMode ioMode) throws Exception {
+        echoServer = new LoadBalancerTest.EchoServer(findFreePort());
+        echoServer.start();
+        File configFile = createTempConfigFile("[ {\"host\":\"127.0.0.1\",\"port\": " + echoServer.getPort() + "} ]");
+        int loadBalancerPort = findFreePort();
+        loadBalancer = new LoadBalancer(loadBalancerPort, configFile.getAbsolutePath(), new RoundRobinSelectionStrategy());
+        loadBalancer.setIoMode(ioMode);
+        loadBalancer.setAdmissionController(new AdmissionController(0, 0, 1, 0));
+        Thread loadBalancerThread = new Thread(() -> { try { loadBalancer.start(); } catch (IOException ignored) {} });
+        loadBalancerThread.start();
+        Thread.sleep(150);
+
+        try (Socket admitted = new Socket("127.0.0.1", loadBalancerPort)) {
+            admitted.getOutputStream().write('a');
+            assertEquals('a', admitted.getInputStream().read());
+            try (Socket rejected = new Socket("127.0.0.1", loadBalancerPort)) {
+                rejected.setSoTimeout(2_000);
+                assertThrows(SocketException.class, () -> {
+                    rejected.getOutputStream().write('b');
+                    rejected.getInputStream().read();
+                }, "second connection from the same IP is reset");
+            }
+            assertEquals(1, loadBalancer.getBackends().get(0).getMetrics().getConnections(), "rejected client never reached a backend");
+        }
+        AdmissionController admission = loadBalancer.getAdmissionController();
+        assertEquals(1, admission.getClientLimitRejectedCount());
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (admission.getActiveCount() > 0 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertEquals(0, admission.getActiveCount(), "slot released when the session closed");
+        try (Socket again = new Socket("127.0.0.1", loadBalancerPort)) {
+            again.getOutputStream().write('c');
+            assertEquals('c', again.getInputStream().read());
+        }
+        loadBalancer.stop();
+        loadBalancerThread.join(500);
+    }
+
+    private int findFreePort() throws IOException { try (ServerSocket probeSocket = new ServerSocket(0)) { return probeSocket.getLocalPort(); } }
+
+    private File createTempConfigFile(String jsonContent) throws IOException {
+        File tempFile = Files.createTempFile("lb-config", ".json").toFile();
+        try (FileWriter writer = new FileWriter(tempFile)) { writer.write(jsonContent); }
+        tempFile.deleteOnExit();
+        return tempFile;
+    }
+}
@@ -0,0 +1,159 @@
+package com.payroc.interviews;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackendConnectionPoolTest {
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final List<Socket> backendSideSockets = new CopyOnWriteArrayList<>();
+    private ServerSocket backendListener;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        scheduler.shutdownNow();
+        for (Socket socket : backendSideSockets) socket.close();
+        if (backendListener != null) backendListener.close();
+    }
+
+    @Test
+    void shouldPrewarmToMinIdleAndHandOutConnectedChannels() throws Exception {
+        Server backend = startBackend();
+        BackendConnectionPool pool = new BackendConnectionPool(backend, 3, 5, 60_000, scheduler);
+        pool.maintain();
+        awaitCondition(() -> pool.getIdleCount() == 3);
+
+        SocketChannel channel = pool.acquire();
+        assertNotNull(channel);
+        assertTrue(channel.isConnected());
+        assertTrue(channel.isBlocking());
+        assertEquals(1, pool.getHits());
+        awaitCondition(() -> pool.getIdleCount() == 3);
+        channel.close();
+        pool.close();
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    void shouldDiscardConnectionsClosedByTheBackend() throws Exception {
+        Server backend = startBackend();
+        BackendConnectionPool pool = new BackendConnectionPool(backend, 2, 2, 60_000, scheduler);
+        pool.maintain();
+        awaitCondition(() -> pool.getIdleCount() == 2 && backendSideSockets.size() == 2);
+        backendListener.close();
+        for (Socket socket : backendSideSockets) socket.close();
+        Thread.sleep(50);
+
+        assertNull(pool.acquire(), "half-closed idle connections must fail validation");
+        assertEquals(2, pool.getDiscarded());
+        assertEquals(1, pool.getMisses());
+        pool.close();
+    }
+
+    @Test
+    void shouldExpireIdleConnectionsAfterTtl() throws Exception {
+        Server backend = startBackend();
+        BackendConnectionPool pool = new BackendConnectionPool(backend, 1, 1, 50, scheduler);
+        pool.maintain();
+        awaitCondition(() -> pool.getIdleCount() == 1);
+        Thread.sleep(120);
+        pool.maintain();
+        assertTrue(pool.getDiscarded() >= 1);
+        awaitCondition(() -> pool.getIdleCount() == 1 && backendSideSockets.size() == 2);
+        assertEquals(2, backendSideSockets.size(), "expired connection is replaced with a fresh one");
+        pool.close();
+    }
+
+    @Test
+    void shouldDrainPoolWhenBackendIsRemoved() throws Exception {
+        Server backend = startBackend();
+        LoadBalancer loadBalancer = new LoadBalancer(0, null, new RoundRobinSelectionStrategy());
+        try {
+            loadBalancer.addBackend(backend);
+            loadBalancer.enableBackendPooling(2, 4, 60_000);
+            BackendConnectionPool pool = loadBalancer.getBackendPool(backend);
+            assertNotNull(pool);
+            awaitCondition(() -> pool.getIdleCount() == 2);
+
+            loadBalancer.removeBackend(backend);
+            assertEquals(0, pool.getIdleCount());
+            assertNull(loadBalancer.getBackendPool(backend));
+            awaitCondition(() -> backendSideSockets.stream().allMatch(this::isClosedByPeer));
+        } finally {
+            loadBalancer.stop();
+        }
+    }
+
+    private Server startBackend() throws IOException {
+        backendListener = new ServerSocket(0);
+        Thread acceptThread = new Thread(() -> {
+            while (!backendListener.isClosed()) {
+                try {
+                    backendSideSockets.add(backendListener.accept());
+                } catch (IOException closed) {
+                    return;
+                }
+            }
+        });
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+        return new Server("127.0.0.1", backendListener.getLocalPort());
+    }
+
+    private boolean isClosedByPeer(Socket backendSide) {
+        try {
+            backendSide.setSoTimeout(50);
+            return backendSide.getInputStream().read() == -1;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Test
+    void shouldBoundRefillConnectsByTheSessionConnectTimeout() {
+        BackendConnector connector = new BackendConnector();
+        assertEquals(BackendConnector.DEFAULT_REFILL_CONNECT_TIMEOUT_MS, connector.getRefillConnectTimeoutMillis());
+        connector.setConnectRetryPolicy(new ConnectRetryPolicy(1, 250, 2_000));
+        assertEquals(250, connector.getRefillConnectTimeoutMillis());
+        connector.setConnectRetryPolicy(new ConnectRetryPolicy(1, 0, 700));
+        assertEquals(700, connector.getRefillConnectTimeoutMillis());
+        connector.setConnectRetryPolicy(new ConnectRetryPolicy(1, 0, 0));
+        assertEquals(BackendConnector.DEFAULT_REFILL_CONNECT_TIMEOUT_MS, connector.getRefillConnectTimeoutMillis());
+        connector.setConnectRetryPolicy(null);
+        assertEquals(BackendConnector.DEFAULT_REFILL_CONNECT_TIMEOUT_MS, connector.getRefillConnectTimeoutMillis());
+    }
+
+    @Test
+    void shouldRestartPoolingAfterClose() throws Exception {
+        Server backend = startBackend();
+        BackendConnector connector = new BackendConnector();
+        connector.enablePooling(List.of(backend), 1, 1, 60_000);
+        awaitCondition(() -> connector.getPool(backend).getIdleCount() == 1);
+
+        connector.close();
+        assertFalse(connector.isPoolingEnabled());
+        assertNull(connector.getPool(backend));
+
+        connector.restart(List.of(backend));
+        assertTrue(connector.isPoolingEnabled());
+        awaitCondition(() -> connector.getPool(backend).getIdleCount() == 1);
+        connector.close();
+    }
+
+    private void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertTrue(condition.getAsBoolean(), "condition not met within 2s");
+    }
+}
@@ -0,0 +1,144 @@
+package com.payroc.interviews;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackendRegistryTest {
+
+    @Test
+    void shouldPublishANewVersionOnEveryMembershipChange() {
+        Server a = new Server("10.0.0.1", 80);
+        Server b = new Server("10.0.0.2", 80);
+        BackendRegistry registry = new BackendRegistry(List.of(a), new RoundRobinSelectionStrategy());
+        BackendSnapshot first = registry.current();
+        assertEquals(List.of(a), first.getServers());
+
+        assertTrue(registry.add(b));
+        assertFalse(registry.add(new Server("10.0.0.2", 80)), "duplicates are ignored");
+        BackendSnapshot second = registry.current();
+        assertTrue(second.getVersion() > first.getVersion());
+        assertEquals(List.of(a, b), second.getServers());
+        assertEquals(List.of(a), first.getServers(), "published snapshots never change");
+
+        assertTrue(registry.remove(a));
+        assertFalse(registry.remove(a));
+        assertEquals(List.of(b), registry.current().getServers());
+        assertThrows(UnsupportedOperationException.class, () -> registry.current().getServers().add(a));
+    }
+
+    @Test
+    void shouldRepublishWhenHealthChanges() throws Exception {
+        Server a = new Server("10.0.0.1", 80);
+        Server b = new Server("10.0.0.2", 80);
+        BackendRegistry registry = new BackendRegistry(List.of(a, b), new RoundRobinSelectionStrategy());
+        long version = registry.current().getVersion();
+
+        b.markUnhealthy();
+        awaitVersion(registry, version + 1);
+        assertEquals(List.of(a), registry.current().getAvailableServers());
+
+        b.markUnhealthy(); // no transition, no publication
+        Thread.sleep(50);
+        assertEquals(version + 1, registry.current().getVersion());
+
+        b.markHealthy();
+        awaitVersion(registry, version + 2);
+        assertEquals(List.of(a, b), registry.current().getAvailableServers());
+
+        registry.remove(b);
+        long afterRemoval = registry.current().getVersion();
+        b.markUnhealthy();
+        Thread.sleep(50);
+        assertEquals(afterRemoval, registry.current().getVersion(), "removed backends no longer trigger publications");
+    }
+
+    @Test
+    void shouldCoalesceHealthFlipsOntoThePublisherThread() throws Exception {
+        CountingStrategy strategy = new CountingStrategy();
+        Server a = new Server("10.0.0.1", 80);
+        BackendRegistry registry = new BackendRegistry(List.of(a), strategy);
+        for (int i = 0; i < 1000; i++) {
+            a.markUnhealthy();
+            a.markHealthy();
+        }
+        long deadline = System.currentTimeMillis() + 2000;
+        while ((registry.current().getAvailableServers().isEmpty() || strategy.lastThread == Thread.currentThread())
+            && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(List.of(a), registry.current().getAvailableServers());
+        assertNotSame(Thread.currentThread(), strategy.lastThread, "prepare runs on the publisher, not the flipping thread");
+        assertTrue(strategy.prepared.get() < 1000, "2000 flips coalesced into " + strategy.prepared.get() + " prepares");
+    }
+
+    private static void awaitVersion(BackendRegistry registry, long version) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (registry.current().getVersion() < version && System.currentTimeMillis() < deadline) Thread.sleep(5);
+        assertEquals(version, registry.current().getVersion());
+    }
+
+    @Test
+    void shouldPrepareStrategyStateOncePerSnapshot() throws Exception {
+        CountingStrategy strategy = new CountingStrategy();
+        Server a = new Server("10.0.0.1", 80);
+        BackendRegistry registry = new BackendRegistry(List.of(a), strategy);
+        assertEquals(1, strategy.prepared.get());
+        for (int i = 0; i < 1000; i++) {
+            BackendSnapshot snapshot = registry.current();
+            assertSame(a, snapshot.getStrategy().select(snapshot, InetAddress.getLoopbackAddress()));
+        }
+        assertEquals(1, strategy.prepared.get(), "selections must not rebuild state");
+        registry.add(new Server("10.0.0.2", 80));
+        assertEquals(2, strategy.prepared.get());
+        assertEquals(2, registry.current().getStrategyState());
+    }
+
+    @Test
+    void shouldPublishStrategySwapsWithTheirOwnState() {
+        Server a = new Server("10.0.0.1", 80);
+        BackendRegistry registry = new BackendRegistry(List.of(a), new RoundRobinSelectionStrategy());
+        assertNull(registry.current().getStrategyState());
+        CountingStrategy counting = new CountingStrategy();
+        registry.setStrategy(counting);
+        assertSame(counting, registry.current().getStrategy());
+        assertEquals(1, registry.current().getStrategyState());
+    }
+
+    @Test
+    void shouldHandOutTheSnapshotThroughTheLoadBalancer() throws Exception {
+        LoadBalancer loadBalancer = new LoadBalancer(0, null, new RoundRobinSelectionStrategy());
+        Server a = new Server("10.0.0.1", 80);
+        loadBalancer.addBackend(a);
+        BackendSnapshot snapshot = loadBalancer.getBackendSnapshot();
+        assertEquals(List.of(a), snapshot.getServers());
+        assertSame(a, loadBalancer.selectBackend());
+        loadBalancer.removeBackend(a);
+        assertNull(loadBalancer.selectBackend());
+        assertEquals(List.of(a), snapshot.getServers());
+    }
+
+    /**
+     * Records prepare calls; its state is the backend count it was prepared for.
+     */
+    private static final class CountingStrategy implements ServerSelectionStrategy {
+        private final AtomicInteger prepared = new AtomicInteger();
+        private volatile Thread lastThread;
+
+        @Override
+        public Server select(List<Server> servers) {
+            return servers.isEmpty() ? null : servers.get(0);
+        }
+
+        @Override
+        public Object prepare(BackendSnapshot snapshot) {
+            prepared.incrementAndGet();
+            lastThread = Thread.currentThread();
+            return snapshot.getServers().size();
+        }
+    }
+}
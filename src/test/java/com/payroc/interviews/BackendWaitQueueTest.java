@@ -0,0 +1,167 @@
+package com.payroc.interviews;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackendWaitQueueTest {
+    private final List<BackendWaitQueue> queues = new ArrayList<>();
+    private LoadBalancer loadBalancer;
+    private LoadBalancerTest.EchoServer echoServer;
+
+    @AfterEach
+    void tearDown() {
+        queues.forEach(BackendWaitQueue::close);
+        if (loadBalancer != null) loadBalancer.stop();
+        if (echoServer != null) echoServer.stop();
+    }
+
+    @Test
+    void shouldServeWaitersInArrivalOrderAsSlotsFree() throws Exception {
+        Server backend = new Server("10.0.0.1", 80, 1, 1);
+        assertTrue(backend.tryReserveSlot());
+        BackendWaitQueue queue = newQueue(4, 5_000, client -> backend.tryReserveSlot() ? backend : null);
+        List<String> served = new ArrayList<>();
+        assertTrue(queue.enqueue(InetAddress.getByName("10.1.0.1"), s -> served.add("first"), () -> fail("expired")));
+        assertTrue(queue.enqueue(InetAddress.getByName("10.1.0.2"), s -> served.add("second"), () -> fail("expired")));
+        assertEquals(2, queue.getDepth());
+        assertTrue(served.isEmpty(), "nobody is served while the backend is full");
+
+        backend.releaseSlot();
+        queue.onSlotFreed();
+        assertEquals(List.of("first"), served);
+        backend.releaseSlot();
+        queue.onSlotFreed();
+        assertEquals(List.of("first", "second"), served);
+        assertEquals(0, queue.getDepth());
+        assertEquals(2, queue.getServedCount());
+        assertEquals(2, queue.getWaitTime().getCount());
+    }
+
+    @Test
+    void shouldRejectWhenFullAndExpireAfterTheTimeout() throws Exception {
+        BackendWaitQueue queue = newQueue(1, 100, client -> null);
+        CountDownLatch expired = new CountDownLatch(1);
+        assertTrue(queue.enqueue(InetAddress.getByName("10.1.0.1"), s -> fail("served"), expired::countDown));
+        assertFalse(queue.enqueue(InetAddress.getByName("10.1.0.2"), s -> fail("served"), () -> fail("expired")));
+        assertEquals(1, queue.getRejectedFullCount());
+        assertTrue(expired.await(2, TimeUnit.SECONDS));
+        assertEquals(1, queue.getTimedOutCount());
+        assertEquals(0, queue.getDepth());
+    }
+
+    @Test
+    void shouldRetryPeriodicallyWhenCapacityAppearsWithoutARelease() throws Exception {
+        Server backend = new Server("10.0.0.1", 80, 1, 1);
+        backend.markUnhealthy();
+        BackendWaitQueue queue = newQueue(1, 5_000, client -> backend.isAvailable() && backend.tryReserveSlot() ? backend : null);
+        AtomicReference<Server> served = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        assertTrue(queue.enqueue(InetAddress.getByName("10.1.0.1"), s -> { served.set(s); done.countDown(); }, () -> fail("expired")));
+        backend.markHealthy();
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertSame(backend, served.get());
+    }
+
+    @Test
+    void shouldQueueClientsBeyondTheBackendCapAndServeThemInOrder() throws Exception {
+        echoServer = new LoadBalancerTest.EchoServer(findFreePort());
+        echoServer.start();
+        File configFile = createTempConfigFile("[ {\"host\":\"127.0.0.1\",\"port\": " + echoServer.getPort() + ", \"maxConnections\": 1} ]");
+        int loadBalancerPort = findFreePort();
+        loadBalancer = new LoadBalancer(loadBalancerPort, configFile.getAbsolutePath(), new RoundRobinSelectionStrategy());
+        loadBalancer.setIoMode(IoMode.NIO);
+        loadBalancer.setWaitQueue(1, 5_000);
+        Thread loadBalancerThread = new Thread(() -> { try { loadBalancer.start(); } catch (IOException ignored) {} });
+        loadBalancerThread.start();
+        Thread.sleep(150);
+        Server backend = loadBalancer.getBackends().get(0);
+        assertEquals(1, backend.getMaxConnections());
+
+        Socket first = new Socket("127.0.0.1", loadBalancerPort);
+        first.getOutputStream().write('1');
+        assertEquals('1', first.getInputStream().read());
+        Socket waiting = new Socket("127.0.0.1", loadBalancerPort);
+        waiting.getOutputStream().write('2');
+        awaitDepth(1);
+        try (Socket overflow = new Socket("127.0.0.1", loadBalancerPort)) {
+            overflow.setSoTimeout(2_000);
+            assertEquals(-1, overflow.getInputStream().read(), "queue full: closed without reaching the backend");
+        }
+        assertEquals(1, loadBalancer.getWaitQueue().getRejectedFullCount());
+        assertEquals(1, backend.getReservedSlots());
+
+        first.close();
+        waiting.setSoTimeout(2_000);
+        assertEquals('2', waiting.getInputStream().read(), "waiting client gets the freed slot, with its early bytes intact");
+        assertEquals(1, loadBalancer.getWaitQueue().getServedCount());
+        waiting.close();
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (backend.getReservedSlots() > 0 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertEquals(0, backend.getReservedSlots());
+        loadBalancer.stop();
+        loadBalancerThread.join(500);
+    }
+
+    @Test
+    void shouldCloseWaitingClientsAtTheTimeoutInBlockingMode() throws Exception {
+        echoServer = new LoadBalancerTest.EchoServer(findFreePort());
+        echoServer.start();
+        File configFile = createTempConfigFile("[ {\"host\":\"127.0.0.1\",\"port\": " + echoServer.getPort() + ", \"maxConnections\": 1} ]");
+        int loadBalancerPort = findFreePort();
+        loadBalancer = new LoadBalancer(loadBalancerPort, configFile.getAbsolutePath(), new RoundRobinSelectionStrategy());
+        loadBalancer.setIoMode(IoMode.VIRTUAL);
+        loadBalancer.setWaitQueue(4, 200);
+        Thread loadBalancerThread = new Thread(() -> { try { loadBalancer.start(); } catch (IOException ignored) {} });
+        loadBalancerThread.start();
+        Thread.sleep(150);
+
+        try (Socket first = new Socket("127.0.0.1", loadBalancerPort);
+             Socket waiting = new Socket("127.0.0.1", loadBalancerPort)) {
+            first.getOutputStream().write('1');
+            assertEquals('1', first.getInputStream().read());
+            waiting.setSoTimeout(3_000);
+            long start = System.nanoTime();
+            assertEquals(-1, waiting.getInputStream().read());
+            assertTrue(System.nanoTime() - start >= 150_000_000L, "closed only at the queue timeout");
+            assertEquals(1, loadBalancer.getWaitQueue().getTimedOutCount());
+            first.getOutputStream().write('x');
+            assertEquals('x', first.getInputStream().read(), "the session holding the slot is unaffected");
+        }
+        loadBalancer.stop();
+        loadBalancerThread.join(500);
+    }
+
+    private BackendWaitQueue newQueue(int capacity, long timeoutMillis, java.util.function.Function<InetAddress, Server> acquirer) {
+        BackendWaitQueue queue = new BackendWaitQueue(capacity, timeoutMillis, acquirer);
+        queues.add(queue);
+        return queue;
+    }
+
+    private void awaitDepth(int depth) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (loadBalancer.getWaitQueue().getDepth() != depth && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertEquals(depth, loadBalancer.getWaitQueue().getDepth());
+    }
+
+    private int findFreePort() throws IOException { try (ServerSocket probeSocket = new ServerSocket(0)) { return probeSocket.getLocalPort(); } }
+
+    private File createTempConfigFile(String jsonContent) throws IOException {
+        File tempFile = Files.createTempFile("lb-config", ".json").toFile();
+        try (FileWriter writer = new FileWriter(tempFile)) { writer.write(jsonContent); }
+        tempFile.deleteOnExit();
+        return tempFile;
+    }
+}
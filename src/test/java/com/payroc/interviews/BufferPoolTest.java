@@ -0,0 +1,69 @@
+package com.payroc.interviews;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferPoolTest {
+
+    @Test
+    void shouldReuseReleasedBuffersFromSharedPool() {
+        BufferPool bufferPool = new BufferPool(1024, 4);
+        ByteBuffer first = bufferPool.acquire();
+        assertTrue(first.isDirect());
+        assertEquals(1024, first.capacity());
+        first.put((byte) 7);
+        bufferPool.release(first);
+
+        ByteBuffer second = bufferPool.acquire();
+        assertSame(first, second);
+        assertEquals(0, second.position(), "released buffers come back cleared");
+        assertEquals(1, bufferPool.getHits());
+        assertEquals(1, bufferPool.getMisses());
+    }
+
+    @Test
+    void shouldCapSharedPoolAndIgnoreForeignBuffers() {
+        BufferPool bufferPool = new BufferPool(512, 2);
+        ByteBuffer a = bufferPool.acquire();
+        ByteBuffer b = bufferPool.acquire();
+        ByteBuffer c = bufferPool.acquire();
+        bufferPool.release(a);
+        bufferPool.release(b);
+        bufferPool.release(c);
+        bufferPool.release(ByteBuffer.allocateDirect(64));
+        bufferPool.release(ByteBuffer.allocate(512));
+        assertEquals(2, bufferPool.getPooledCount());
+    }
+
+    @Test
+    void shouldServeFromThreadCacheOnlyForOptedInThreads() throws Exception {
+        BufferPool bufferPool = new BufferPool(256, 8);
+        ByteBuffer[] fromOtherThread = new ByteBuffer[1];
+        Thread cachingThread = new Thread(() -> {
+            bufferPool.enableThreadCache();
+            bufferPool.release(bufferPool.acquire());
+            fromOtherThread[0] = bufferPool.acquire();
+            bufferPool.release(fromOtherThread[0]);
+        });
+        cachingThread.start();
+        cachingThread.join();
+        assertEquals(1, bufferPool.getHits());
+        assertEquals(0, bufferPool.getPooledCount(), "thread-cached buffers never reach the shared pool");
+
+        ByteBuffer onThisThread = bufferPool.acquire();
+        assertNotSame(fromOtherThread[0], onThisThread);
+    }
+
+    @Test
+    void shouldTrackBytesInFlight() {
+        BufferPool bufferPool = new BufferPool(BufferPool.DEFAULT_CHUNK_SIZE);
+        bufferPool.addBytesInFlight(100);
+        bufferPool.addBytesInFlight(50);
+        assertEquals(150, bufferPool.getBytesInFlight());
+        bufferPool.addBytesInFlight(-150);
+        assertEquals(0, bufferPool.getBytesInFlight());
+    }
+}
@@ -0,0 +1,78 @@
+package com.payroc.interviews;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConfigWatcherTest {
+    private ConfigWatcher watcher;
+    private Path directory;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (watcher != null) watcher.close();
+        if (directory != null) {
+            try (var files = Files.list(directory)) {
+                for (Path file : files.toList()) Files.delete(file);
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    void shouldCoalesceABurstOfWritesIntoOneCallback() throws Exception {
+        directory = Files.createTempDirectory("config-watch");
+        Path config = Files.writeString(directory.resolve("backends.json"), "[]");
+        AtomicInteger changes = new AtomicInteger();
+        watcher = new ConfigWatcher(config, changes::incrementAndGet);
+        watcher.start();
+
+        for (int i = 0; i < 5; i++) {
+            Files.writeString(config, "[ {\"host\":\"10.0.0." + i + "\",\"port\": 80} ]");
+            Thread.sleep(20);
+        }
+        awaitAtLeast(changes, 1);
+        Thread.sleep(ConfigWatcher.DEBOUNCE_MS * 2);
+        assertEquals(1, changes.get(), "writes closer together than the debounce interval are one change");
+    }
+
+    @Test
+    void shouldIgnoreOtherFilesInTheDirectory() throws Exception {
+        directory = Files.createTempDirectory("config-watch");
+        Path config = Files.writeString(directory.resolve("backends.json"), "[]");
+        AtomicInteger changes = new AtomicInteger();
+        watcher = new ConfigWatcher(config, changes::incrementAndGet);
+        watcher.start();
+
+        Files.writeString(directory.resolve("unrelated.txt"), "noise");
+        Thread.sleep(ConfigWatcher.DEBOUNCE_MS * 3);
+        assertEquals(0, changes.get());
+
+        Files.writeString(config, "[ ]");
+        awaitAtLeast(changes, 1);
+    }
+
+    @Test
+    void shouldStopCallingBackAfterClose() throws Exception {
+        directory = Files.createTempDirectory("config-watch");
+        Path config = Files.writeString(directory.resolve("backends.json"), "[]");
+        AtomicInteger changes = new AtomicInteger();
+        watcher = new ConfigWatcher(config, changes::incrementAndGet);
+        watcher.start();
+        watcher.close();
+        Files.writeString(config, "[ ]");
+        Thread.sleep(ConfigWatcher.DEBOUNCE_MS * 3);
+        assertEquals(0, changes.get());
+    }
+
+    private static void awaitAtLeast(AtomicInteger counter, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (counter.get() < expected && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertTrue(counter.get() >= expected, "expected at least " + expected + " callbacks, got " + counter.get());
+    }
+}
@@ -0,0 +1,124 @@
+package com.payroc.interviews;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectRetryPolicyTest {
+    private LoadBalancer loadBalancer;
+    private LoadBalancerTest.EchoServer echoServer;
+
+    @AfterEach
+    void tearDown() {
+        if (loadBalancer != null) loadBalancer.stop();
+        if (echoServer != null) echoServer.stop();
+    }
+
+    @Test
+    void shouldLimitRetriesToTheBudgetRatio() {
+        ConnectRetryPolicy policy = new ConnectRetryPolicy(1, 0, 0, 0.5, 0);
+        for (int i = 0; i < 4; i++) policy.onSession();
+        assertTrue(policy.tryRetry());
+        assertTrue(policy.tryRetry());
+        assertFalse(policy.tryRetry(), "4 sessions at ratio 0.5 earn 2 retries");
+        assertEquals(2, policy.getRetryCount());
+        assertEquals(1, policy.getBudgetExhaustedCount());
+    }
+
+    @Test
+    void shouldAlwaysAllowTheMinimumRetriesPerSecond() {
+        ConnectRetryPolicy policy = new ConnectRetryPolicy(1, 0, 0, 0, 2);
+        assertTrue(policy.tryRetry());
+        assertTrue(policy.tryRetry());
+        assertFalse(policy.tryRetry());
+    }
+
+    @Test
+    void shouldBoundEachAttemptByTheRemainingTotalBudget() {
+        Server server = new Server("127.0.0.1", 1);
+        ConnectAttempts perAttempt = new ConnectAttempts(null, new ConnectRetryPolicy(1, 200, 0), null, server);
+        assertEquals(200, perAttempt.attemptTimeoutMillis());
+        ConnectAttempts total = new ConnectAttempts(null, new ConnectRetryPolicy(1, 200, 50), null, server);
+        int timeout = total.attemptTimeoutMillis();
+        assertTrue(timeout > 0 && timeout <= 50, "timeout " + timeout);
+        assertEquals(0, ConnectAttempts.single(server).attemptTimeoutMillis(), "no policy, OS default");
+    }
+
+    @Test
+    void shouldFailOverToAnotherBackendInBlockingMode() throws Exception {
+        assertFailsOver(IoMode.BLOCKING);
+    }
+
+    @Test
+    void shouldFailOverToAnotherBackendInNioMode() throws Exception {
+        assertFailsOver(IoMode.NIO);
+    }
+
+    @Test
+    void shouldCloseTheClientWhenNoUntriedBackendIsLeft() throws Exception {
+        File configFile = createTempConfigFile("[ {\"host\":\"127.0.0.1\",\"port\": " + findFreePort() + "} ]");
+        int loadBalancerPort = startLoadBalancer(configFile, IoMode.NIO);
+
+        try (Socket client = new Socket("127.0.0.1", loadBalancerPort)) {
+            client.setSoTimeout(2_000);
+            assertEquals(-1, client.getInputStream().read());
+        }
+        assertEquals(0, loadBalancer.getConnectRetryPolicy().getRetryCount(), "the failed backend is never retried");
+        assertEquals(1, loadBalancer.getBackends().get(0).getMetrics().getConnectFailures());
+    }
+
+    /**
+     * Round-robin hands the dead backend to one of the first two clients; that client must still be served.
+     */
+    private void assertFailsOver(IoMode ioMode) throws Exception {
+        echoServer = new LoadBalancerTest.EchoServer(findFreePort());
+        echoServer.start();
+        File configFile = createTempConfigFile("[ {\"host\":\"127.0.0.1\",\"port\": " + findFreePort() + ",\"maxConnections\":10},"
+            + " {\"host\":\"127.0.0.1\",\"port\": " + echoServer.getPort() + ",\"maxConnections\":10} ]");
+        int loadBalancerPort = startLoadBalancer(configFile, ioMode);
+
+        for (int i = 0; i < 2; i++) {
+            try (Socket client = new Socket("127.0.0.1", loadBalancerPort)) {
+                client.setSoTimeout(2_000);
+                client.getOutputStream().write('a' + i);
+                assertEquals('a' + i, client.getInputStream().read(), "client " + i + " reached the live backend");
+            }
+        }
+        Server dead = loadBalancer.getBackends().get(0);
+        Server live = loadBalancer.getBackends().get(1);
+        assertEquals(1, dead.getMetrics().getConnectFailures());
+        assertFalse(dead.isHealthy());
+        assertEquals(1, loadBalancer.getConnectRetryPolicy().getRetryCount());
+        assertEquals(2, live.getMetrics().getConnections());
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (loadBalancer.getLiveConnectionCount() > 0 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertEquals(0, dead.getReservedSlots() + live.getReservedSlots(), "every slot was returned");
+    }
+
+    private int startLoadBalancer(File configFile, IoMode ioMode) throws Exception {
+        int loadBalancerPort = findFreePort();
+        loadBalancer = new LoadBalancer(loadBalancerPort, configFile.getAbsolutePath(), new RoundRobinSelectionStrategy());
+        loadBalancer.setIoMode(ioMode);
+        loadBalancer.setHealthChecker(null);
+        loadBalancer.setConnectRetryPolicy(new ConnectRetryPolicy(2, 500, 2_000));
+        Thread loadBalancerThread = new Thread(() -> { try { loadBalancer.start(); } catch (IOException ignored) {} });
+        loadBalancerThread.start();
+        Thread.sleep(150);
+        return loadBalancerPort;
+    }
+
+    private int findFreePort() throws IOException { try (ServerSocket probeSocket = new ServerSocket(0)) { return probeSocket.getLocalPort(); } }
+
+    private File createTempConfigFile(String jsonContent) throws IOException {
+        File tempFile = Files.createTempFile("lb-config", ".json").toFile();
+        try (FileWriter writer = new FileWriter(tempFile)) { writer.write(jsonContent); }
+        tempFile.deleteOnExit();
+        return tempFile;
+    }
+}
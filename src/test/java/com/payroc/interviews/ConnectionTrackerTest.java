@@ -0,0 +1,114 @@
+package com.payroc.interviews;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionTrackerTest {
+
+    @Test
+    void shouldReturnOnceConnectionsCloseByThemselves() throws Exception {
+        ConnectionTracker tracker = new ConnectionTracker();
+        Server backend = new Server("10.0.0.1", 80);
+        FakeConnection connection = new FakeConnection(backend, tracker);
+        tracker.register(connection);
+        Thread.ofPlatform().start(() -> {
+            sleep(50);
+            tracker.unregister(connection);
+        });
+        long start = System.nanoTime();
+        assertEquals(0, tracker.drain(null, 5_000));
+        assertTrue(System.nanoTime() - start < 2_000_000_000L, "drain should end when the last connection closes");
+        assertEquals(0, connection.forceCloses.get());
+    }
+
+    @Test
+    void shouldSpreadForceClosesOverTheEndOfTheWindow() throws Exception {
+        ConnectionTracker tracker = new ConnectionTracker();
+        Server backend = new Server("10.0.0.1", 80);
+        List<FakeConnection> connections = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            FakeConnection connection = new FakeConnection(backend, tracker);
+            connections.add(connection);
+            tracker.register(connection);
+        }
+        long start = System.nanoTime();
+        assertEquals(40, tracker.drain(null, 400));
+        long firstClose = connections.stream().mapToLong(c -> c.closedAtNanos).min().orElseThrow() - start;
+        long lastClose = connections.stream().mapToLong(c -> c.closedAtNanos).max().orElseThrow() - start;
+        assertTrue(firstClose >= 250_000_000L, "nothing is closed before the last quarter, first at " + firstClose / 1_000_000 + "ms");
+        assertTrue(lastClose - firstClose >= 50_000_000L, "closes should be spread out, not a single burst");
+        for (FakeConnection connection : connections) assertEquals(1, connection.forceCloses.get());
+        assertEquals(0, tracker.count());
+    }
+
+    @Test
+    void shouldOnlyDrainTheGivenBackend() throws Exception {
+        ConnectionTracker tracker = new ConnectionTracker();
+        Server draining = new Server("10.0.0.1", 80);
+        Server other = new Server("10.0.0.2", 80);
+        FakeConnection toDrain = new FakeConnection(draining, tracker);
+        FakeConnection toKeep = new FakeConnection(other, tracker);
+        tracker.register(toDrain);
+        tracker.register(toKeep);
+        assertEquals(1, tracker.count(draining));
+        assertEquals(1, tracker.drain(draining, 0));
+        assertEquals(0, toKeep.forceCloses.get());
+        assertEquals(1, tracker.count());
+    }
+
+    @Test
+    void shouldCountAsynchronousClosesOnce() throws Exception {
+        ConnectionTracker tracker = new ConnectionTracker();
+        Server backend = new Server("10.0.0.1", 80);
+        FakeConnection slowToClose = new FakeConnection(backend, tracker);
+        slowToClose.asyncCloseDelayMs = 200;
+        tracker.register(slowToClose);
+        assertEquals(1, tracker.drain(null, 100));
+        assertEquals(1, slowToClose.forceCloses.get());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class FakeConnection implements ConnectionTracker.Tracked {
+        private final Server backend;
+        private final ConnectionTracker tracker;
+        private final AtomicInteger forceCloses = new AtomicInteger();
+        private volatile long closedAtNanos;
+        private volatile long asyncCloseDelayMs;
+
+        FakeConnection(Server backend, ConnectionTracker tracker) {
+            this.backend = backend;
+            this.tracker = tracker;
+        }
+
+        @Override
+        public Server backend() {
+            return backend;
+        }
+
+        @Override
+        public void forceClose() {
+            forceCloses.incrementAndGet();
+            closedAtNanos = System.nanoTime();
+            if (asyncCloseDelayMs == 0) {
+                tracker.unregister(this);
+            } else {
+                Thread.ofPlatform().start(() -> {
+                    sleep(asyncCloseDelayMs);
+                    tracker.unregister(this);
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.payroc.interviews;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DnsCacheTest {
+    private final StubResolver resolver = new StubResolver();
+    private DnsCache dnsCache;
+    private LoadBalancer loadBalancer;
+    private LoadBalancerTest.EchoServer echoServer;
+
+    @AfterEach
+    void tearDown() {
+        if (loadBalancer != null) loadBalancer.stop();
+        if (dnsCache != null) dnsCache.stop();
+        if (echoServer != null) echoServer.stop();
+    }
+
+    @Test
+    void shouldExpandEveryAddressIntoItsOwnBackend() throws Exception {
+        resolver.answer("api.test", "10.0.0.2", "10.0.0.1");
+        loadBalancer = new LoadBalancer(0, createTempConfigFile(
+            "[ {\"host\":\"api.test\",\"port\":80,\"weight\":3}, {\"host\":\"10.0.0.9\",\"port\":80} ]").getAbsolutePath(),
+            new RoundRobinSelectionStrategy());
+        loadBalancer.setDnsCache(new DnsCache(60_000, 0, resolver));
+
+        List<Server> backends = loadBalancer.getBackends();
+        assertEquals(3, backends.size(), backends.toString());
+        assertEquals("10.0.0.1", backends.get(0).getHost());
+        assertEquals("10.0.0.2", backends.get(1).getHost());
+        assertEquals("api.test", backends.get(0).getHostname());
+        assertEquals(3, backends.get(1).getWeight());
+        assertEquals("10.0.0.9", backends.get(2).getHost());
+        assertEquals(1, resolver.calls("api.test"));
+        assertEquals(0, resolver.calls("10.0.0.9"), "literals never reach the resolver");
+    }
+
+    @Test
+    void shouldRefreshInTheBackgroundAndReportChanges() throws Exception {
+        resolver.answer("api.test", "10.0.0.1");
+        dnsCache = new DnsCache(30, 0, resolver);
+        assertEquals(List.of(InetAddress.getByName("10.0.0.1")), dnsCache.lookup("api.test"));
+        CountDownLatch changed = new CountDownLatch(1);
+        dnsCache.start(changed::countDown);
+
+        resolver.answer("api.test", "10.0.0.1", "10.0.0.3");
+        assertTrue(changed.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of(InetAddress.getByName("10.0.0.1"), InetAddress.getByName("10.0.0.3")), dnsCache.lookup("api.test"));
+    }
+
+    @Test
+    void shouldNotReportAReorderedAnswerAsAChange() throws Exception {
+        resolver.answer("api.test", "10.0.0.1", "10.0.0.2");
+        dnsCache = new DnsCache(60_000, 0, resolver);
+        dnsCache.lookup("api.test");
+        resolver.answer("api.test", "10.0.0.2", "10.0.0.1");
+        assertFalse(dnsCache.refreshAll());
+    }
+
+    @Test
+    void shouldServeTheStaleAnswerWhileTheResolverFails() throws Exception {
+        resolver.answer("api.test", "10.0.0.1");
+        dnsCache = new DnsCache(60_000, 200, resolver);
+        dnsCache.lookup("api.test");
+        resolver.fail("api.test");
+
+        assertFalse(dnsCache.refreshAll());
+        assertEquals(List.of(InetAddress.getByName("10.0.0.1")), dnsCache.lookup("api.test"));
+        assertEquals(1, dnsCache.getStaleServedCount());
+
+        Thread.sleep(250);
+        assertTrue(dnsCache.refreshAll(), "answer older than the stale limit is dropped");
+        assertTrue(dnsCache.lookup("api.test").isEmpty());
+        assertEquals(2, dnsCache.getFailureCount());
+    }
+
+    @Test
+    void shouldKeepAnUnresolvedHostnameAsConfigured() throws Exception {
+        resolver.fail("api.test");
+        loadBalancer = new LoadBalancer(0, createTempConfigFile("[ {\"host\":\"api.test\",\"port\":80} ]").getAbsolutePath(),
+            new RoundRobinSelectionStrategy());
+        loadBalancer.setDnsCache(new DnsCache(60_000, 0, resolver));
+        assertEquals("api.test", loadBalancer.getBackends().get(0).getHost());
+
+        resolver.answer("api.test", "10.0.0.1");
+        assertTrue(loadBalancer.getDnsCache().refreshAll());
+        loadBalancer.addBackend(new Server("10.0.0.5", 80));
+        assertEquals(List.of("10.0.0.1", "10.0.0.5"), loadBalancer.getBackends().stream().map(Server::getHost).toList());
+    }
+
+    @Test
+    void shouldProxyWithoutResolvingPerConnection() throws Exception {
+        echoServer = new LoadBalancerTest.EchoServer(findFreePort());
+        echoServer.start();
+        resolver.answer("echo.test", "127.0.0.1");
+        int loadBalancerPort = findFreePort();
+        loadBalancer = new LoadBalancer(loadBalancerPort, createTempConfigFile(
+            "[ {\"host\":\"echo.test\",\"port\": " + echoServer.getPort() + "} ]").getAbsolutePath(), new RoundRobinSelectionStrategy());
+        loadBalancer.setIoMode(IoMode.NIO);
+        loadBalancer.setHealthChecker(null);
+        loadBalancer.setDnsCache(new DnsCache(60_000, 0, resolver));
+        Thread loadBalancerThread = new Thread(() -> { try { loadBalancer.start(); } catch (IOException ignored) {} });
+        loadBalancerThread.start();
+        Thread.sleep(150);
+
+        for (int i = 0; i < 5; i++) {
+            try (Socket client = new Socket("127.0.0.1", loadBalancerPort)) {
+                client.setSoTimeout(2_000);
+                client.getOutputStream().write('a' + i);
+                assertEquals('a' + i, client.getInputStream().read());
+            }
+        }
+        assertEquals(1, resolver.calls("echo.test"));
+    }
+
+    private int findFreePort() throws IOException { try (ServerSocket probeSocket = new ServerSocket(0)) { return probeSocket.getLocalPort(); } }
+
+    private File createTempConfigFile(String jsonContent) throws IOException {
+        File tempFile = Files.createTempFile("lb-config", ".json").toFile();
+        try (FileWriter writer = new FileWriter(tempFile)) { writer.write(jsonContent); }
+        tempFile.deleteOnExit();
+        return tempFile;
+    }
+
+    /**
+     * Answers from a map instead of DNS and counts lookups per name.
+     */
+    private static final class StubResolver implements HostResolver {
+        private final Map<String, InetAddress[]> answers = new ConcurrentHashMap<>();
+        private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+
+        void answer(String host, String... addresses) throws UnknownHostException {
+            InetAddress[] answer = new InetAddress[addresses.length];
+            for (int i = 0; i < addresses.length; i++) answer[i] = InetAddress.getByName(addresses[i]);
+            answers.put(host, answer);
+        }
+
+        void fail(String host) {
+            answers.remove(host);
+        }
+
+        int calls(String host) {
+            AtomicInteger count = calls.get(host);
+            return count == null ? 0 : count.get();
+        }
+
+        @Override
+        public InetAddress[] resolve(String host) throws UnknownHostException {
+            calls.computeIfAbsent(host, h -> new AtomicInteger()).incrementAndGet();
+            InetAddress[] answer = answers.get(host);
+            if (answer == null) throw new UnknownHostException(host);
+            return answer.clone();
+        }
+    }
+}
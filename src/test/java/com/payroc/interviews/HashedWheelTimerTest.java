@@ -0,0 +1,84 @@
+package com.payroc.interviews;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedWheelTimerTest {
+    private HashedWheelTimer timer;
+
+    @AfterEach
+    void tearDown() {
+        if (timer != null) timer.stop();
+    }
+
+    @Test
+    void shouldRunTaskNoEarlierThanItsDelay() throws Exception {
+        timer = new HashedWheelTimer("test-timer");
+        CountDownLatch fired = new CountDownLatch(1);
+        AtomicLong firedAt = new AtomicLong();
+        long start = System.nanoTime();
+        HashedWheelTimer.Timeout timeout = timer.newTimeout(() -> {
+            firedAt.set(System.nanoTime());
+            fired.countDown();
+        }, 50, TimeUnit.MILLISECONDS);
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        assertTrue(firedAt.get() - start >= TimeUnit.MILLISECONDS.toNanos(50), "fired after " + (firedAt.get() - start) + "ns");
+        assertTrue(timeout.isExpired());
+        assertEquals(0, timer.getPendingCount());
+    }
+
+    @Test
+    void shouldNotRunCancelledTasks() throws Exception {
+        timer = new HashedWheelTimer("test-timer");
+        AtomicBoolean ran = new AtomicBoolean();
+        HashedWheelTimer.Timeout timeout = timer.newTimeout(() -> ran.set(true), 30, TimeUnit.MILLISECONDS);
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel(), "second cancel is a no-op");
+        Thread.sleep(100);
+        assertFalse(ran.get());
+        assertTrue(timeout.isCancelled());
+        assertEquals(0, timer.getPendingCount());
+    }
+
+    @Test
+    void shouldWaitOutTimeoutsLongerThanOneRevolution() throws Exception {
+        timer = new HashedWheelTimer("test-timer", 1, 4);
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        timer.newTimeout(fired::countDown, 40, TimeUnit.MILLISECONDS);
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40), "a 4-slot wheel of 1ms ticks went round 10 times");
+    }
+
+    @Test
+    void shouldFireManyTimeoutsScheduledFromSeveralThreads() throws Exception {
+        timer = new HashedWheelTimer("test-timer");
+        int perThread = 5_000;
+        CountDownLatch fired = new CountDownLatch(4 * perThread);
+        Thread[] schedulers = new Thread[4];
+        for (int t = 0; t < schedulers.length; t++) {
+            schedulers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) timer.newTimeout(fired::countDown, i % 100, TimeUnit.MILLISECONDS);
+            });
+            schedulers[t].start();
+        }
+        for (Thread scheduler : schedulers) scheduler.join();
+        assertTrue(fired.await(5, TimeUnit.SECONDS), "remaining " + fired.getCount());
+        assertEquals(0, timer.getPendingCount());
+    }
+
+    @Test
+    void shouldRejectTimeoutsAfterStop() {
+        timer = new HashedWheelTimer("test-timer");
+        timer.stop();
+        assertThrows(RejectedExecutionException.class, () -> timer.newTimeout(() -> { }, 1, TimeUnit.MILLISECONDS));
+    }
+}
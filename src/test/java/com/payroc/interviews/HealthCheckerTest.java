@@ -0,0 +1,125 @@
+package com.payroc.interviews;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HealthCheckerTest {
+    private ServerSocket backendListener;
+    private HealthChecker healthChecker;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (healthChecker != null) healthChecker.stop();
+        if (backendListener != null) backendListener.close();
+    }
+
+    @Test
+    void shouldApplyFallAndRiseThresholds() {
+        Server backend = new Server("127.0.0.1", 9301);
+        healthChecker = new HealthChecker(1000, 100, 2, 3, 0);
+
+        healthChecker.record(backend, false);
+        healthChecker.record(backend, false);
+        assertTrue(backend.isHealthy(), "two failures are below fall=3");
+        healthChecker.record(backend, false);
+        assertFalse(backend.isHealthy());
+
+        healthChecker.record(backend, true);
+        assertFalse(backend.isHealthy(), "one success is below rise=2");
+        healthChecker.record(backend, false);
+        healthChecker.record(backend, true);
+        assertFalse(backend.isHealthy(), "a failure resets the rise counter");
+        healthChecker.record(backend, true);
+        assertTrue(backend.isHealthy());
+    }
+
+    @Test
+    void shouldRequireFullRiseAfterPassiveMarkDown() {
+        Server backend = new Server("127.0.0.1", 9302);
+        healthChecker = new HealthChecker(1000, 100, 2, 1, 0);
+        healthChecker.record(backend, true);
+        healthChecker.record(backend, true);
+        backend.markUnhealthy(); // e.g. a client connect failed
+        healthChecker.record(backend, true);
+        assertFalse(backend.isHealthy());
+        healthChecker.record(backend, true);
+        assertTrue(backend.isHealthy());
+    }
+
+    @Test
+    void shouldProbeWithTcpConnect() throws Exception {
+        backendListener = new ServerSocket(0);
+        healthChecker = new HealthChecker(1000, 200, 1, 1, 0);
+        assertTrue(healthChecker.probe(new Server("127.0.0.1", backendListener.getLocalPort())));
+        int closedPort = backendListener.getLocalPort();
+        backendListener.close();
+        assertFalse(healthChecker.probe(new Server("127.0.0.1", closedPort)));
+    }
+
+    @Test
+    void shouldMatchExpectedResponseForPayloadProbe() throws Exception {
+        backendListener = new ServerSocket(0);
+        Thread responder = new Thread(() -> {
+            for (String reply : List.of("PONG\n", "NOPE\n")) {
+                try (Socket socket = backendListener.accept()) {
+                    InputStream in = socket.getInputStream();
+                    OutputStream out = socket.getOutputStream();
+                    in.readNBytes(5);
+                    out.write(reply.getBytes(StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        responder.start();
+        healthChecker = new HealthChecker(1000, 500, 1, 1, 0);
+        healthChecker.setPayloadProbe("PING\n".getBytes(StandardCharsets.UTF_8), "PONG".getBytes(StandardCharsets.UTF_8));
+        Server backend = new Server("127.0.0.1", backendListener.getLocalPort());
+        assertTrue(healthChecker.probe(backend));
+        assertFalse(healthChecker.probe(backend));
+        responder.join(1000);
+    }
+
+    @Test
+    void shouldBringBackendBackOnceItRecovers() throws Exception {
+        backendListener = new ServerSocket(0);
+        Server backend = new Server("127.0.0.1", backendListener.getLocalPort());
+        backend.markUnhealthy();
+        healthChecker = new HealthChecker(30, 200, 2, 2, 10);
+        healthChecker.start(List.of(backend));
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!backend.isHealthy() && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertTrue(backend.isHealthy());
+
+        backendListener.close();
+        deadline = System.currentTimeMillis() + 2000;
+        while (backend.isHealthy() && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertFalse(backend.isHealthy());
+    }
+
+    @Test
+    void shouldProbeAgainAfterARestartDroppedQueuedProbes() throws Exception {
+        backendListener = new ServerSocket(0);
+        Server backend = new Server("127.0.0.1", backendListener.getLocalPort());
+        backend.markUnhealthy();
+        healthChecker = new HealthChecker(30, 200, 1, 1, 1000);
+        healthChecker.start(List.of(backend));
+        Thread.sleep(60); // the first probe is most likely still waiting out its jitter
+        healthChecker.stop();
+
+        healthChecker.start(List.of(backend));
+        long deadline = System.currentTimeMillis() + 3000;
+        while (!backend.isHealthy() && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertTrue(backend.isHealthy());
+    }
+}
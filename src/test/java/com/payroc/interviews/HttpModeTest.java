@@ -0,0 +1,284 @@
+package com.payroc.interviews;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpModeTest {
+    private final List<HttpServer> backends = new ArrayList<>();
+    private LoadBalancer loadBalancer;
+
+    @AfterEach
+    void tearDown() {
+        if (loadBalancer != null) loadBalancer.stop();
+        for (HttpServer backend : backends) backend.stop(0);
+    }
+
+    @Test
+    void shouldPassChunkedBodyThroughUnchangedAndKeepPipelinedBytes() throws Exception {
+        String body = "5;ext=1\r\nhello\r\n6\r\n world\r\n0\r\nX-Trailer: yes\r\n\r\n";
+        String wire = "POST /upload HTTP/1.1\r\nHost: lb\r\nTransfer-Encoding: chunked\r\n\r\n" + body
+            + "\r\nGET /next HTTP/1.1\r\nHost: lb\r\n\r\n";
+        HttpStream stream = new HttpStream(new ByteArrayInputStream(wire.getBytes(StandardCharsets.ISO_8859_1)), 16);
+
+        HttpHead post = stream.readHead(true);
+        assertEquals("POST", post.method());
+        assertEquals(HttpHead.Framing.CHUNKED, post.requestFraming());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(body.length(), stream.transfer(HttpHead.Framing.CHUNKED, 0, out));
+        assertEquals(body, out.toString(StandardCharsets.ISO_8859_1));
+
+        HttpHead next = stream.readHead(true);
+        assertEquals("/next", next.target(), "pipelined request after an empty line");
+        assertEquals(HttpHead.Framing.NONE, next.requestFraming());
+        assertNull(stream.readHead(true), "clean EOF between requests");
+    }
+
+    @Test
+    void shouldRemoveHopByHopFieldsAndRejectAmbiguousHeads() throws Exception {
+        HttpHead request = parse("GET / HTTP/1.1\r\nHost: a\r\nConnection: keep-alive, X-Private\r\nX-Private: 1\r\n"
+            + "Keep-Alive: timeout=5\r\nAccept: */*\r\n\r\n");
+        assertTrue(request.isKeepAlive());
+        request.removeHopByHop(false);
+        assertEquals("GET / HTTP/1.1\r\nHost: a\r\nAccept: */*\r\n\r\n",
+            new String(request.toBytes(), StandardCharsets.ISO_8859_1));
+
+        assertFalse(parse("GET / HTTP/1.0\r\n\r\n").isKeepAlive());
+        assertEquals(400, status(() -> parse("GET / HTTP/1.1\r\nHost: a\r\n folded\r\n\r\n")));
+        assertEquals(400, status(() -> parse("GET / HTTP/1.1\r\nHost : a\r\n\r\n")));
+        assertEquals(505, status(() -> parse("GET / HTTP/2.0\r\n\r\n")));
+        assertEquals(400, status(() -> parse("POST / HTTP/1.1\r\nContent-Length: 5\r\nContent-Length: 6\r\n\r\n").requestFraming()));
+        assertEquals(400, status(() -> parse("POST / HTTP/1.1\r\nContent-Length: 5\r\nTransfer-Encoding: chunked\r\n\r\n").requestFraming()));
+
+        HttpHead response = parseResponse("HTTP/1.1 200 OK\r\nContent-Length: 3\r\nTransfer-Encoding: chunked\r\n\r\n");
+        assertEquals(HttpHead.Framing.CHUNKED, response.responseFraming("GET"));
+        assertNull(response.header("Content-Length"), "length dropped in favour of chunked");
+        HttpHead noLength = parseResponse("HTTP/1.0 200 OK\r\n\r\n");
+        assertEquals(HttpHead.Framing.UNTIL_CLOSE, noLength.responseFraming("GET"));
+        assertEquals(HttpHead.Framing.NONE, noLength.responseFraming("HEAD"));
+    }
+
+    @Test
+    void shouldKeepFramingFieldsNamedByConnection() throws Exception {
+        HttpHead request = parse("POST / HTTP/1.1\r\nHost: a\r\nConnection: Content-Length, Transfer-Encoding, host\r\n"
+            + "Content-Length: 5\r\n\r\n");
+        request.removeHopByHop(false);
+        assertEquals("POST / HTTP/1.1\r\nHost: a\r\nContent-Length: 5\r\n\r\n",
+            new String(request.toBytes(), StandardCharsets.ISO_8859_1));
+
+        int lbPort = startLoadBalancer(startBackend("a"));
+        try (Socket client = connect(lbPort)) {
+            client.getOutputStream().write(bytes("POST /first HTTP/1.1\r\nHost: lb\r\nConnection: Content-Length\r\n"
+                + "Content-Length: 32\r\n\r\nGET /smuggled HTTP/1.1\r\nX: y\r\n\r\n"
+                + "GET /second HTTP/1.1\r\nHost: lb\r\n\r\n"));
+            HttpStream in = new HttpStream(client.getInputStream(), 1024);
+            assertEquals("a POST /first body=GET /smuggled HTTP/1.1\r\nX: y\r\n\r\n", readResponse(in, "POST")[1]);
+            assertEquals("a GET /second", readResponse(in, "GET")[1]);
+        }
+        assertEquals(2, loadBalancer.getBackends().get(0).getMetrics().getResponses(2));
+    }
+
+    @Test
+    void shouldBalanceEachRequestOfAKeptAliveConnection() throws Exception {
+        int lbPort = startLoadBalancer(startBackend("a"), startBackend("b"));
+        List<String> servedBy = new ArrayList<>();
+        try (Socket client = connect(lbPort)) {
+            HttpStream in = new HttpStream(client.getInputStream(), 1024);
+            for (int i = 0; i < 4; i++) {
+                client.getOutputStream().write(bytes("GET /r" + i + " HTTP/1.1\r\nHost: lb\r\n\r\n"));
+                String[] response = readResponse(in, "GET");
+                assertEquals("200", response[0]);
+                servedBy.add(response[1].substring(0, 1));
+            }
+        }
+        assertEquals(2, servedBy.stream().filter("a"::equals).count(), servedBy.toString());
+        assertEquals(2, servedBy.stream().filter("b"::equals).count(), servedBy.toString());
+    }
+
+    @Test
+    void shouldAnswerPipelinedRequestsInOrder() throws Exception {
+        int lbPort = startLoadBalancer(startBackend("a"), startBackend("b"));
+        try (Socket client = connect(lbPort)) {
+            client.getOutputStream().write(bytes("GET /1 HTTP/1.1\r\nHost: lb\r\n\r\nGET /2 HTTP/1.1\r\nHost: lb\r\n\r\n"
+                + "HEAD /3 HTTP/1.1\r\nHost: lb\r\n\r\nGET /4 HTTP/1.1\r\nHost: lb\r\nConnection: close\r\n\r\n"));
+            HttpStream in = new HttpStream(client.getInputStream(), 1024);
+            assertTrue(readResponse(in, "GET")[1].endsWith(" GET /1"));
+            assertTrue(readResponse(in, "GET")[1].endsWith(" GET /2"));
+            assertEquals("", readResponse(in, "HEAD")[1]);
+            String[] last = readResponse(in, "GET");
+            assertTrue(last[1].endsWith(" GET /4"));
+            assertEquals("close", last[2]);
+            assertEquals(-1, client.getInputStream().read(), "closed after the response to Connection: close");
+        }
+    }
+
+    @Test
+    void shouldStreamChunkedBodiesBothWays() throws Exception {
+        int lbPort = startLoadBalancer(startBackend("a"));
+        try (Socket client = connect(lbPort)) {
+            client.getOutputStream().write(bytes("POST /chunked HTTP/1.1\r\nHost: lb\r\nTransfer-Encoding: chunked\r\n"
+                + "Expect: 100-continue\r\n\r\n"));
+            HttpStream in = new HttpStream(client.getInputStream(), 1024);
+            assertEquals(100, in.readHead(false).status(), "100 Continue sent by the balancer");
+            client.getOutputStream().write(bytes("5\r\nhello\r\n6\r\n world\r\n0\r\n\r\n"));
+            HttpHead response = in.readHead(false);
+            assertEquals(200, response.status());
+            assertEquals(HttpHead.Framing.CHUNKED, response.responseFraming("POST"));
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            in.transfer(HttpHead.Framing.CHUNKED, 0, body);
+            assertTrue(body.toString(StandardCharsets.ISO_8859_1).contains("a POST /chunked body=hello world"), body.toString());
+        }
+    }
+
+    @Test
+    void shouldReuseKeptAliveBackendConnections() throws Exception {
+        int lbPort = startLoadBalancer(startBackend("a"));
+        for (int connection = 0; connection < 2; connection++) {
+            try (Socket client = connect(lbPort)) {
+                HttpStream in = new HttpStream(client.getInputStream(), 1024);
+                for (int i = 0; i < 3; i++) {
+                    client.getOutputStream().write(bytes("GET / HTTP/1.1\r\nHost: lb\r\n\r\n"));
+                    assertEquals("200", readResponse(in, "GET")[0]);
+                }
+            }
+        }
+        Server backend = loadBalancer.getBackends().get(0);
+        assertEquals(6, backend.getMetrics().getResponses(2));
+        assertTrue(backend.getMetrics().getReusedConnections() >= 4, "only the first request needed a new connection: "
+            + backend.getMetrics().getReusedConnections());
+        long[] connects = backend.getMetrics().getConnectTime().getCumulativeCounts();
+        assertTrue(connects[connects.length - 1] <= 2, "new backend connections: " + connects[connects.length - 1]);
+    }
+
+    @Test
+    void shouldRejectAmbiguousRequestsAndAnswer503WithoutBackends() throws Exception {
+        int lbPort = startLoadBalancer(startBackend("a"));
+        try (Socket client = connect(lbPort)) {
+            client.getOutputStream().write(bytes("POST / HTTP/1.1\r\nHost: lb\r\nContent-Length: 4\r\n"
+                + "Transfer-Encoding: chunked\r\n\r\n0\r\n\r\n"));
+            HttpStream in = new HttpStream(client.getInputStream(), 1024);
+            assertEquals("400", readResponse(in, "POST")[0]);
+            assertEquals(-1, client.getInputStream().read());
+        }
+        loadBalancer.getBackends().get(0).setDraining(true);
+        try (Socket client = connect(lbPort)) {
+            client.getOutputStream().write(bytes("GET / HTTP/1.1\r\nHost: lb\r\n\r\n"));
+            assertEquals("503", readResponse(new HttpStream(client.getInputStream(), 1024), "GET")[0]);
+        }
+    }
+
+    @Test
+    void shouldRefuseHttpModeOnTheNioEngine() throws Exception {
+        loadBalancer = new LoadBalancer(findFreePort(), createTempConfigFile("[]").getAbsolutePath(), new RoundRobinSelectionStrategy());
+        loadBalancer.setIoMode(IoMode.NIO);
+        loadBalancer.setProxyMode(ProxyMode.HTTP);
+        assertThrows(IllegalStateException.class, loadBalancer::start);
+    }
+
+    /**
+     * @return status, body and Connection header of the next response
+     */
+    private static String[] readResponse(HttpStream in, String method) throws IOException {
+        HttpHead head = in.readHead(false);
+        assertNotNull(head, "response expected");
+        HttpHead.Framing framing = head.responseFraming(method);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        in.transfer(framing, head.contentLength(), body);
+        return new String[]{String.valueOf(head.status()), body.toString(StandardCharsets.ISO_8859_1), head.header("Connection")};
+    }
+
+    /**
+     * Answers with its name, the method and the path, plus the request body if there is one; /chunked is sent chunked.
+     */
+    private int startBackend(String name) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] requestBody;
+            try (InputStream body = exchange.getRequestBody()) {
+                requestBody = body.readAllBytes();
+            }
+            String text = name + " " + exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath()
+                + (requestBody.length > 0 ? " body=" + new String(requestBody, StandardCharsets.ISO_8859_1) : "");
+            byte[] response = text.getBytes(StandardCharsets.ISO_8859_1);
+            boolean chunked = exchange.getRequestURI().getPath().equals("/chunked");
+            boolean head = exchange.getRequestMethod().equals("HEAD");
+            exchange.sendResponseHeaders(200, head ? -1 : chunked ? 0 : response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                if (!head) out.write(response);
+            }
+        });
+        server.start();
+        backends.add(server);
+        return server.getAddress().getPort();
+    }
+
+    private int startLoadBalancer(int... backendPorts) throws Exception {
+        StringBuilder config = new StringBuilder("[");
+        for (int port : backendPorts) {
+            if (config.length() > 1) config.append(',');
+            config.append("{\"host\":\"127.0.0.1\",\"port\":").append(port).append('}');
+        }
+        int loadBalancerPort = findFreePort();
+        loadBalancer = new LoadBalancer(loadBalancerPort, createTempConfigFile(config.append(']').toString()).getAbsolutePath(),
+            new RoundRobinSelectionStrategy());
+        loadBalancer.setProxyMode(ProxyMode.HTTP);
+        loadBalancer.setHealthChecker(null);
+        Thread loadBalancerThread = new Thread(() -> { try { loadBalancer.start(); } catch (IOException ignored) {} });
+        loadBalancerThread.start();
+        Thread.sleep(150);
+        return loadBalancerPort;
+    }
+
+    private static Socket connect(int port) throws IOException {
+        Socket socket = new Socket("127.0.0.1", port);
+        socket.setSoTimeout(3_000);
+        return socket;
+    }
+
+    private static HttpHead parse(String head) throws IOException {
+        return HttpHead.parse(bytes(head), 0, head.length(), true);
+    }
+
+    private static HttpHead parseResponse(String head) throws IOException {
+        return HttpHead.parse(bytes(head), 0, head.length(), false);
+    }
+
+    private interface Parse {
+        Object run() throws IOException;
+    }
+
+    private static int status(Parse parse) {
+        HttpHead.ProtocolException rejected = assertThrows(HttpHead.ProtocolException.class, parse::run);
+        return rejected.status();
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private int findFreePort() throws IOException { try (ServerSocket probeSocket = new ServerSocket(0)) { return probeSocket.getLocalPort(); } }
+
+    private File createTempConfigFile(String jsonContent) throws IOException {
+        File tempFile = Files.createTempFile("lb-config", ".json").toFile();
+        try (FileWriter writer = new FileWriter(tempFile)) { writer.write(jsonContent); }
+        tempFile.deleteOnExit();
+        return tempFile;
+    }
+}
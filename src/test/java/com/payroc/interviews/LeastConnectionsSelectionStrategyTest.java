@@ -23,6 +23,19 @@ class LeastConnectionsSelectionStrategyTest {
         assertEquals(backendThree, strategy.select(List.of(backendOne, backendTwo, backendThree)));
     }
 
+    @Test
+    void shouldIgnoreUnhealthyBackendEvenWithFewestConnections() {
+        Server busy = new Server("127.0.0.1", 9201);
+        Server idleButDown = new Server("127.0.0.1", 9202);
+        busy.incrementActive();
+        idleButDown.markUnhealthy();
+
+        LeastConnectionsSelectionStrategy strategy = new LeastConnectionsSelectionStrategy();
+        assertEquals(busy, strategy.select(List.of(idleButDown, busy)));
+        busy.markUnhealthy();
+        assertNull(strategy.select(List.of(idleButDown, busy)));
+    }
+
     @Test
     void shouldReturnNullWhenNoBackendsConfigured() {
         LeastConnectionsSelectionStrategy strategy = new LeastConnectionsSelectionStrategy();
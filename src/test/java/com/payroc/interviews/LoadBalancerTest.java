@@ -33,6 +33,15 @@ class LoadBalancerTest {
         assertTrue(parsedServers.stream().anyMatch(server -> server.getPort() == secondBackendPort));
     }
 
+    @Test
+    void shouldReadOptionalWeightsFromJsonConfiguration() throws Exception {
+        File configFile = createTempConfigFile("[ {\"host\":\"127.0.0.1\",\"port\": 9101, \"weight\": 4}, {\"host\":\"127.0.0.1\",\"port\": 9102} ]");
+        loadBalancer = new LoadBalancer(findFreePort(), configFile.getAbsolutePath(), new WeightedRoundRobinSelectionStrategy());
+        List<Server> parsedServers = loadBalancer.getBackends();
+        assertEquals(4, parsedServers.get(0).getWeight());
+        assertEquals(Server.DEFAULT_WEIGHT, parsedServers.get(1).getWeight());
+    }
+
     @Test
     void shouldCloseConnectionImmediatelyWhenNoBackendsConfigured() throws Exception {
         File emptyConfigFile = createTempConfigFile("[]");
@@ -81,6 +90,225 @@ class LoadBalancerTest {
         secondEchoServer.stop();
     }
 
+    @Test
+    void shouldHoldManyConcurrentSessionsOnVirtualThreads() throws Exception {
+        EchoServer echoServer = new EchoServer(findFreePort());
+        echoServer.start();
+        File configFile = createTempConfigFile("[ {\"host\":\"127.0.0.1\",\"port\": " + echoServer.getPort() + "} ]");
+        int loadBalancerPort = findFreePort();
+        loadBalancer = new LoadBalancer(loadBalancerPort, configFile.getAbsolutePath(), new RoundRobinSelectionStrategy());
+        loadBalancer.setIoMode(IoMode.VIRTUAL);
+        Thread loadBalancerThread = new Thread(() -> { try { loadBalancer.start(); } catch (IOException ignored) {} });
+        loadBalancerThread.start();
+        Thread.sleep(150);
+
+        List<Socket> openClients = new java.util.ArrayList<>();
+        try {
+            for (int i = 0; i < 100; i++) openClients.add(new Socket("127.0.0.1", loadBalancerPort));
+            for (int i = 0; i < openClients.size(); i++) {
+                Socket clientSocket = openClients.get(i);
+                clientSocket.getOutputStream().write(("v-" + i + "\n").getBytes());
+                byte[] expected = ("v-" + i + "\n").getBytes();
+                byte[] received = clientSocket.getInputStream().readNBytes(expected.length);
+                assertEquals(new String(expected), new String(received));
+            }
+            assertEquals(100, loadBalancer.getBackends().get(0).getActiveConnections());
+        } finally {
+            for (Socket clientSocket : openClients) clientSocket.close();
+        }
+        loadBalancer.stop();
+        loadBalancerThread.join(500);
+        echoServer.stop();
+    }
+
+    @Test
+    void shouldProxyThroughPrewarmedBackendConnections() throws Exception {
+        EchoServer echoServer = new EchoServer(findFreePort());
+        echoServer.start();
+        File configFile = createTempConfigFile("[ {\"host\":\"127.0.0.1\",\"port\": " + echoServer.getPort() + "} ]");
+        int loadBalancerPort = findFreePort();
+        loadBalancer = new LoadBalancer(loadBalancerPort, configFile.getAbsolutePath(), new RoundRobinSelectionStrategy());
+        loadBalancer.enableBackendPooling(2, 4, 60_000);
+        Server backend = loadBalancer.getBackends().get(0);
+        Thread loadBalancerThread = new Thread(() -> { try { loadBalancer.start(); } catch (IOException ignored) {} });
+        loadBalancerThread.start();
+        Thread.sleep(150);
+        assertEquals(2, loadBalancer.getBackendPool(backend).getIdleCount());
+
+        for (int attempt = 0; attempt < 3; attempt++) {
+            try (Socket clientSocket = new Socket("127.0.0.1", loadBalancerPort)) {
+                clientSocket.getOutputStream().write(("pooled-" + attempt).getBytes());
+                clientSocket.shutdownOutput();
+                assertEquals("pooled-" + attempt, new String(clientSocket.getInputStream().readAllBytes()));
+            }
+        }
+        assertTrue(loadBalancer.getBackendPool(backend).getHits() >= 2, "pre-warmed connections should be used");
+        loadBalancer.stop();
+        loadBalancerThread.join(500);
+        echoServer.stop();
+    }
+
+    @Test
+    void shouldApplyConfigDiffAndKeepSurvivingBackends() throws Exception {
+        File configFile = createTempConfigFile("[ {\"host\":\"10.0.0.1\",\"port\": 80}, {\"host\":\"10.0.0.2\",\"port\": 80} ]");
+        loadBalancer = new LoadBalancer(findFreePort(), configFile.getAbsolutePath(), new RoundRobinSelectionStrategy());
+        Server survivor = loadBalancer.getBackends().get(1);
+        survivor.incrementActive();
+        long version = loadBalancer.getBackendSnapshot().getVersion();
+
+        Files.writeString(configFile.toPath(), "[ {\"host\":\"10.0.0.2\",\"port\": 80}, {\"host\":\"10.0.0.3\",\"port\": 80} ]");
+        assertTrue(loadBalancer.reloadConfig());
+        List<Server> backends = loadBalancer.getBackends();
+        assertEquals(List.of(new Server("10.0.0.2", 80), new Server("10.0.0.3", 80)), backends);
+        assertSame(survivor, backends.get(0), "a backend present before and after keeps its state");
+        assertEquals(version + 1, loadBalancer.getBackendSnapshot().getVersion(), "the whole diff is one publication");
+        assertEquals(1, loadBalancer.getConfigReloadCount());
+        assertTrue(loadBalancer.getLastConfigReloadMicros() >= 0);
+
+        Files.writeString(configFile.toPath(), "[ {\"host\":\"10.0.0.2\",\"port\": ");
+        assertFalse(loadBalancer.reloadConfig());
+        assertEquals(2, loadBalancer.getBackends().size(), "a broken file leaves the set untouched");
+        assertEquals(1, loadBalancer.getConfigReloadFailureCount());
+
+        Files.writeString(configFile.toPath(), "[ {\"host\":\"10.0.0.2\",\"port\": 80, \"weight\": 100000} ]");
+        assertFalse(loadBalancer.reloadConfig(), "an out-of-range weight is rejected at load");
+        assertEquals(2, loadBalancer.getBackends().size());
+        assertEquals(2, loadBalancer.getConfigReloadFailureCount());
+    }
+
+    @Test
+    void shouldKeepInFlightSessionsToBackendsRemovedByReload() throws Exception {
+        EchoServer firstEchoServer = new EchoServer(findFreePort());
+        EchoServer secondEchoServer = new EchoServer(findFreePort());
+        firstEchoServer.start();
+        secondEchoServer.start();
+        File configFile = createTempConfigFile("[ {\"host\":\"127.0.0.1\",\"port\": " + firstEchoServer.getPort() + "} ]");
+        int loadBalancerPort = findFreePort();
+        loadBalancer = new LoadBalancer(loadBalancerPort, configFile.getAbsolutePath(), new RoundRobinSelectionStrategy());
+        loadBalancer.setWatchConfig(true);
+        Thread loadBalancerThread = new Thread(() -> { try { loadBalancer.start(); } catch (IOException ignored) {} });
+        loadBalancerThread.start();
+        Thread.sleep(150);
+
+        try (Socket longLived = new Socket("127.0.0.1", loadBalancerPort)) {
+            longLived.getOutputStream().write("before\n".getBytes());
+            assertEquals("before\n", new String(longLived.getInputStream().readNBytes(7)));
+
+            Files.writeString(configFile.toPath(), "[ {\"host\":\"127.0.0.1\",\"port\": " + secondEchoServer.getPort() + "} ]");
+            long deadline = System.currentTimeMillis() + 5000;
+            while (loadBalancer.getConfigReloadCount() == 0 && System.currentTimeMillis() < deadline) Thread.sleep(20);
+            assertEquals(1, loadBalancer.getConfigReloadCount(), "file watcher should have reloaded the config");
+            assertEquals(secondEchoServer.getPort(), loadBalancer.getBackends().get(0).getPort());
+
+            longLived.getOutputStream().write("after!\n".getBytes());
+            assertEquals("after!\n", new String(longLived.getInputStream().readNBytes(7)), "removed backend keeps its session");
+        }
+        try (Socket fresh = new Socket("127.0.0.1", loadBalancerPort)) {
+            fresh.getOutputStream().write("new".getBytes());
+            fresh.shutdownOutput();
+            assertEquals("new", new String(fresh.getInputStream().readAllBytes()));
+        }
+        loadBalancer.stop();
+        loadBalancerThread.join(500);
+        firstEchoServer.stop();
+        secondEchoServer.stop();
+    }
+
+    @Test
+    void shouldLetLiveSessionsFinishDuringShutdownDrain() throws Exception {
+        EchoServer echoServer = new EchoServer(findFreePort());
+        echoServer.start();
+        File configFile = createTempConfigFile("[ {\"host\":\"127.0.0.1\",\"port\": " + echoServer.getPort() + "} ]");
+        int loadBalancerPort = findFreePort();
+        loadBalancer = new LoadBalancer(loadBalancerPort, configFile.getAbsolutePath(), new RoundRobinSelectionStrategy());
+        loadBalancer.setDrainTimeout(5_000);
+        Thread loadBalancerThread = new Thread(() -> { try { loadBalancer.start(); } catch (IOException ignored) {} });
+        loadBalancerThread.start();
+        Thread.sleep(150);
+
+        Socket inFlight = new Socket("127.0.0.1", loadBalancerPort);
+        inFlight.getOutputStream().write("one\n".getBytes());
+        assertEquals("one\n", new String(inFlight.getInputStream().readNBytes(4)));
+        assertEquals(1, loadBalancer.getLiveConnectionCount());
+
+        Thread stopper = new Thread(loadBalancer::stop);
+        stopper.start();
+        Thread.sleep(200);
+        assertTrue(stopper.isAlive(), "stop() waits for the live session");
+        assertThrows(IOException.class, () -> new Socket("127.0.0.1", loadBalancerPort).close(), "no new connections while draining");
+        inFlight.getOutputStream().write("two\n".getBytes());
+        assertEquals("two\n", new String(inFlight.getInputStream().readNBytes(4)), "the session keeps working while draining");
+        inFlight.close();
+        stopper.join(2_000);
+        assertFalse(stopper.isAlive(), "stop() returns once the last session closes");
+        assertEquals(0, loadBalancer.getLiveConnectionCount());
+        loadBalancerThread.join(500);
+        echoServer.stop();
+    }
+
+    @Test
+    void shouldForceCloseStragglersAtTheDrainDeadline() throws Exception {
+        EchoServer echoServer = new EchoServer(findFreePort());
+        echoServer.start();
+        File configFile = createTempConfigFile("[ {\"host\":\"127.0.0.1\",\"port\": " + echoServer.getPort() + "} ]");
+        int loadBalancerPort = findFreePort();
+        loadBalancer = new LoadBalancer(loadBalancerPort, configFile.getAbsolutePath(), new RoundRobinSelectionStrategy());
+        loadBalancer.setIoMode(IoMode.VIRTUAL);
+        loadBalancer.setDrainTimeout(300);
+        Thread loadBalancerThread = new Thread(() -> { try { loadBalancer.start(); } catch (IOException ignored) {} });
+        loadBalancerThread.start();
+        Thread.sleep(150);
+
+        try (Socket idle = new Socket("127.0.0.1", loadBalancerPort)) {
+            idle.getOutputStream().write('x');
+            assertEquals('x', idle.getInputStream().read());
+            long start = System.currentTimeMillis();
+            loadBalancer.stop();
+            assertTrue(System.currentTimeMillis() - start >= 200, "stragglers get most of the drain window first");
+            assertEquals(-1, idle.getInputStream().read(), "straggler is closed at the deadline");
+        }
+        assertEquals(0, loadBalancer.getLiveConnectionCount());
+        loadBalancerThread.join(500);
+        echoServer.stop();
+    }
+
+    @Test
+    void shouldStopPickingADrainingBackendButKeepItsSessions() throws Exception {
+        EchoServer firstEchoServer = new EchoServer(findFreePort());
+        EchoServer secondEchoServer = new EchoServer(findFreePort());
+        firstEchoServer.start();
+        secondEchoServer.start();
+        File configFile = createTempConfigFile("[ {\"host\":\"127.0.0.1\",\"port\": " + firstEchoServer.getPort() + "}, {\"host\":\"127.0.0.1\",\"port\": " + secondEchoServer.getPort() + "} ]");
+        int loadBalancerPort = findFreePort();
+        loadBalancer = new LoadBalancer(loadBalancerPort, configFile.getAbsolutePath(), new RoundRobinSelectionStrategy());
+        loadBalancer.setIoMode(IoMode.NIO);
+        loadBalancer.setEventLoopCount(1);
+        Thread loadBalancerThread = new Thread(() -> { try { loadBalancer.start(); } catch (IOException ignored) {} });
+        loadBalancerThread.start();
+        Thread.sleep(150);
+        Server first = loadBalancer.getBackends().get(0);
+
+        Socket onFirst = new Socket("127.0.0.1", loadBalancerPort); // round-robin: first pick is the first backend
+        onFirst.getOutputStream().write('a');
+        assertEquals('a', onFirst.getInputStream().read());
+        assertEquals(1, first.getActiveConnections());
+
+        Thread drainer = new Thread(() -> { try { loadBalancer.drainBackend(first, 5_000); } catch (InterruptedException ignored) {} });
+        drainer.start();
+        Thread.sleep(50);
+        assertTrue(first.isDraining());
+        for (int i = 0; i < 4; i++) assertNotEquals(first, loadBalancer.selectBackend());
+        onFirst.getOutputStream().write('b');
+        assertEquals('b', onFirst.getInputStream().read(), "draining backend keeps existing sessions");
+        onFirst.close();
+        drainer.join(2_000);
+        assertFalse(drainer.isAlive(), "drain completes once the backend's last session closes");
+        loadBalancer.stop();
+        loadBalancerThread.join(500);
+        firstEchoServer.stop();
+        secondEchoServer.stop();
+    }
+
     // Helper methods
     private int findFreePort() throws IOException { try (ServerSocket probeSocket = new ServerSocket(0)) { return probeSocket.getLocalPort(); } }
 
@@ -0,0 +1,163 @@
+package com.payroc.interviews;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MaglevSelectionStrategyTest {
+    private static final int CLIENTS = 100_000;
+
+    @Test
+    void shouldSendTheSameClientToTheSameBackend() throws Exception {
+        List<Server> servers = backends(10);
+        MaglevSelectionStrategy strategy = new MaglevSelectionStrategy();
+        InetAddress client = InetAddress.getByName("192.168.7.42");
+        Server first = strategy.select(servers, client);
+        for (int i = 0; i < 100; i++) assertSame(first, strategy.select(servers, client));
+        // A fresh strategy over an equal backend list maps the client identically.
+        assertEquals(first, new MaglevSelectionStrategy().select(backends(10), client));
+    }
+
+    @Test
+    void shouldKeepLoadSkewLow() throws Exception {
+        List<Server> servers = backends(10);
+        MaglevSelectionStrategy strategy = new MaglevSelectionStrategy();
+        Map<Server, Integer> load = new HashMap<>();
+        for (InetAddress client : clients()) load.merge(strategy.select(servers, client), 1, Integer::sum);
+        int max = load.values().stream().mapToInt(Integer::intValue).max().orElseThrow();
+        int min = load.values().stream().mapToInt(Integer::intValue).min().orElseThrow();
+        double mean = (double) CLIENTS / servers.size();
+        assertEquals(10, load.size());
+        assertTrue(max / mean < 1.1, "max/mean " + max / mean);
+        assertTrue(min / mean > 0.9, "min/mean " + min / mean);
+    }
+
+    @Test
+    void shouldRemapOnlyAFairShareWhenABackendIsAdded() throws Exception {
+        List<Server> before = backends(10);
+        List<Server> after = backends(11);
+        double remapped = remapFraction(before, after);
+        assertTrue(remapped < 0.15, "remapped " + remapped);
+    }
+
+    @Test
+    void shouldMoveMostlyTheRemovedBackendsClients() throws Exception {
+        List<Server> before = backends(10);
+        List<Server> after = new ArrayList<>(before);
+        Server removed = after.remove(3);
+        MaglevSelectionStrategy oldTable = new MaglevSelectionStrategy();
+        MaglevSelectionStrategy newTable = new MaglevSelectionStrategy();
+        int movedFromSurvivors = 0;
+        int survivorClients = 0;
+        for (InetAddress client : clients()) {
+            Server was = oldTable.select(before, client);
+            if (was.equals(removed)) continue;
+            survivorClients++;
+            if (!was.equals(newTable.select(after, client))) movedFromSurvivors++;
+        }
+        double collateral = (double) movedFromSurvivors / survivorClients;
+        assertTrue(collateral < 0.05, "collateral remap " + collateral);
+    }
+
+    @Test
+    void shouldOnlyMoveClientsOfAnUnhealthyBackend() throws Exception {
+        List<Server> servers = backends(5);
+        MaglevSelectionStrategy strategy = new MaglevSelectionStrategy();
+        Map<InetAddress, Server> baseline = new HashMap<>();
+        List<InetAddress> sample = clients().subList(0, 5_000);
+        for (InetAddress client : sample) baseline.put(client, strategy.select(servers, client));
+        Server down = servers.get(2);
+        down.markUnhealthy();
+        for (InetAddress client : sample) {
+            Server now = strategy.select(servers, client);
+            assertNotEquals(down, now);
+            if (!baseline.get(client).equals(down)) assertSame(baseline.get(client), now);
+        }
+        servers.forEach(Server::markUnhealthy);
+        assertNull(strategy.select(servers, sample.get(0)));
+    }
+
+    @Test
+    void shouldRebuildWhenLoadBalancerMembershipChanges() throws Exception {
+        MaglevSelectionStrategy strategy = new MaglevSelectionStrategy();
+        LoadBalancer loadBalancer = new LoadBalancer(0, null, strategy);
+        for (Server server : backends(4)) loadBalancer.addBackend(server);
+        InetAddress client = InetAddress.getByName("10.9.8.7");
+        Server owner = loadBalancer.selectBackend(client);
+        loadBalancer.removeBackend(owner);
+        Server replacement = loadBalancer.selectBackend(client);
+        assertNotNull(replacement);
+        assertNotEquals(owner, replacement);
+        assertEquals(new MaglevSelectionStrategy().select(loadBalancer.getBackends(), client), replacement);
+    }
+
+    @Test
+    void shouldRebuildWhenAReloadReplacesABackendWithAnEqualOne() throws Exception {
+        File configFile = Files.createTempFile("lb-config", ".json").toFile();
+        configFile.deleteOnExit();
+        Files.writeString(configFile.toPath(), "[ {\"host\":\"10.1.0.1\",\"port\": 8080}, {\"host\":\"10.1.0.2\",\"port\": 8080} ]");
+        LoadBalancer loadBalancer = new LoadBalancer(0, configFile.getAbsolutePath(), new MaglevSelectionStrategy());
+        Server stale = loadBalancer.getBackends().get(0);
+
+        Files.writeString(configFile.toPath(),
+            "[ {\"host\":\"10.1.0.1\",\"port\": 8080, \"weight\": 3}, {\"host\":\"10.1.0.2\",\"port\": 8080} ]");
+        assertTrue(loadBalancer.reloadConfig());
+        Server reloaded = loadBalancer.getBackends().get(0);
+        assertNotSame(stale, reloaded);
+        assertEquals(3, reloaded.getWeight());
+        int reloadedPicks = 0;
+        for (InetAddress client : clients().subList(0, 10_000)) {
+            Server picked = loadBalancer.selectBackend(client);
+            assertNotSame(stale, picked, "picked the backend the reload replaced");
+            if (picked == reloaded) reloadedPicks++;
+        }
+        assertEquals(0.75, reloadedPicks / 10_000.0, 0.03);
+    }
+
+    @Test
+    void shouldGiveHeavierBackendsMoreSlots() {
+        Server light = new Server("10.0.0.1", 80, 1);
+        Server heavy = new Server("10.0.0.2", 80, 3);
+        Server[] table = MaglevSelectionStrategy.buildTable(List.of(light, heavy), 65_537);
+        long heavySlots = Arrays.stream(table).filter(heavy::equals).count();
+        assertEquals(0.75, heavySlots / 65_537.0, 0.01);
+    }
+
+    @Test
+    void shouldRejectNonPrimeTableSize() {
+        assertThrows(IllegalArgumentException.class, () -> new MaglevSelectionStrategy(65_536));
+    }
+
+    private static double remapFraction(List<Server> before, List<Server> after) throws Exception {
+        MaglevSelectionStrategy oldTable = new MaglevSelectionStrategy();
+        MaglevSelectionStrategy newTable = new MaglevSelectionStrategy();
+        int moved = 0;
+        for (InetAddress client : clients()) {
+            if (!oldTable.select(before, client).equals(newTable.select(after, client))) moved++;
+        }
+        return (double) moved / CLIENTS;
+    }
+
+    private static List<InetAddress> clients() throws Exception {
+        List<InetAddress> clients = new ArrayList<>(CLIENTS);
+        for (int i = 0; i < CLIENTS; i++) {
+            clients.add(InetAddress.getByAddress(new byte[]{10, (byte) (i >> 16), (byte) (i >> 8), (byte) i}));
+        }
+        return clients;
+    }
+
+    private static List<Server> backends(int count) {
+        List<Server> servers = new ArrayList<>();
+        for (int i = 0; i < count; i++) servers.add(new Server("10.1.0." + (i + 1), 8080));
+        return servers;
+    }
+}
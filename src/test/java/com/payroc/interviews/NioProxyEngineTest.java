@@ -0,0 +1,126 @@
+package com.payroc.interviews;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NioProxyEngineTest {
+    private LoadBalancer loadBalancer;
+    private Thread loadBalancerThread;
+    private final List<LoadBalancerTest.EchoServer> echoServers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (loadBalancer != null) loadBalancer.stop();
+        if (loadBalancerThread != null) loadBalancerThread.join(500);
+        for (LoadBalancerTest.EchoServer echoServer : echoServers) echoServer.stop();
+    }
+
+    @Test
+    void shouldEchoDataAcrossBackendsInNioMode() throws Exception {
+        int loadBalancerPort = startNioLoadBalancer(2, 2);
+        for (int attempt = 0; attempt < 6; attempt++) {
+            byte[] message = ("hello-" + attempt).getBytes();
+            assertArrayEquals(message, roundTrip(loadBalancerPort, message));
+        }
+    }
+
+    @Test
+    void shouldProxyLargeConcurrentPayloadsAndReleaseActiveCounts() throws Exception {
+        int loadBalancerPort = startNioLoadBalancer(2, 2);
+        byte[] payload = new byte[512 * 1024];
+        for (int i = 0; i < payload.length; i++) payload[i] = (byte) (i * 31);
+
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<byte[]>> responses = new ArrayList<>();
+            for (int i = 0; i < 16; i++) responses.add(clients.submit(() -> roundTrip(loadBalancerPort, payload)));
+            for (Future<byte[]> response : responses) assertArrayEquals(payload, response.get(10, TimeUnit.SECONDS));
+        } finally {
+            clients.shutdownNow();
+        }
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (totalActive() > 0 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertEquals(0, totalActive());
+        BufferPool bufferPool = loadBalancer.getBufferPool();
+        assertEquals(0, bufferPool.getBytesInFlight());
+        assertTrue(bufferPool.getHits() > 0, "event loops should reuse buffers from their caches");
+        assertTrue(bufferPool.getMisses() < 32, "16 sessions x 2 directions must not each allocate");
+    }
+
+    @Test
+    void shouldMarkBackendUnhealthyWhenConnectFails() throws Exception {
+        int deadBackendPort = findFreePort();
+        File configFile = createTempConfigFile("[ {\"host\":\"127.0.0.1\",\"port\": " + deadBackendPort + "} ]");
+        int loadBalancerPort = startLoadBalancer(configFile, 1);
+        try (Socket clientSocket = new Socket("127.0.0.1", loadBalancerPort)) {
+            assertEquals(-1, clientSocket.getInputStream().read());
+        }
+        assertFalse(loadBalancer.getBackends().get(0).isHealthy());
+        assertEquals(0, loadBalancer.getBackends().get(0).getActiveConnections());
+    }
+
+    private int startNioLoadBalancer(int backendCount, int eventLoops) throws Exception {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < backendCount; i++) {
+            LoadBalancerTest.EchoServer echoServer = new LoadBalancerTest.EchoServer(findFreePort());
+            echoServer.start();
+            echoServers.add(echoServer);
+            if (i > 0) json.append(',');
+            json.append("{\"host\":\"127.0.0.1\",\"port\":").append(echoServer.getPort()).append('}');
+        }
+        return startLoadBalancer(createTempConfigFile(json.append(']').toString()), eventLoops);
+    }
+
+    private int startLoadBalancer(File configFile, int eventLoops) throws Exception {
+        int loadBalancerPort = findFreePort();
+        loadBalancer = new LoadBalancer(loadBalancerPort, configFile.getAbsolutePath(), new RoundRobinSelectionStrategy());
+        loadBalancer.setIoMode(IoMode.NIO);
+        loadBalancer.setEventLoopCount(eventLoops);
+        loadBalancer.setAcceptorCount(2);
+        loadBalancerThread = new Thread(() -> { try { loadBalancer.start(); } catch (IOException ignored) {} });
+        loadBalancerThread.start();
+        Thread.sleep(150);
+        return loadBalancerPort;
+    }
+
+    private byte[] roundTrip(int port, byte[] payload) throws IOException {
+        try (Socket clientSocket = new Socket("127.0.0.1", port)) {
+            Thread writer = new Thread(() -> {
+                try {
+                    OutputStream clientOut = clientSocket.getOutputStream();
+                    clientOut.write(payload);
+                    clientSocket.shutdownOutput();
+                } catch (IOException ignored) {}
+            });
+            writer.start();
+            return clientSocket.getInputStream().readAllBytes();
+        }
+    }
+
+    private int totalActive() {
+        return loadBalancer.getBackends().stream().mapToInt(Server::getActiveConnections).sum();
+    }
+
+    private int findFreePort() throws IOException { try (ServerSocket probeSocket = new ServerSocket(0)) { return probeSocket.getLocalPort(); } }
+
+    private File createTempConfigFile(String jsonContent) throws IOException {
+        File tempFile = Files.createTempFile("lb-config", ".json").toFile();
+        try (FileWriter writer = new FileWriter(tempFile)) { writer.write(jsonContent); }
+        tempFile.deleteOnExit();
+        return tempFile;
+    }
+}
@@ -0,0 +1,268 @@
+package com.payroc.interviews;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutlierDetectorTest {
+    private final StringWriter errors = new StringWriter();
+    private HashedWheelTimer timer;
+    private LoadBalancer loadBalancer;
+    private LoadBalancerTest.EchoServer echoServer;
+
+    @AfterEach
+    void tearDown() {
+        if (timer != null) timer.stop();
+        if (loadBalancer != null) loadBalancer.stop();
+        if (echoServer != null) echoServer.stop();
+    }
+
+    @Test
+    void shouldEjectAfterConsecutiveFailuresAndCloseOnHalfOpenSuccess() throws Exception {
+        OutlierDetector detector = new OutlierDetector(3, 50, 1_000, 1, 0, 100);
+        List<Server> servers = startDetector(detector, 2);
+        Server server = servers.get(0);
+        CircuitBreaker breaker = server.getCircuitBreaker();
+
+        breaker.onFailure();
+        breaker.onSuccess(); // a response resets the count
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(server.isInRotation());
+        assertFalse(server.isAvailable());
+        assertTrue(server.isHealthy(), "ejection does not touch health");
+
+        awaitState(breaker, CircuitBreaker.State.HALF_OPEN);
+        assertTrue(server.isAvailable());
+        assertTrue(server.tryReserveSlot(), "one trial session admitted");
+        assertFalse(server.tryReserveSlot(), "no second trial while the first is in flight");
+        assertFalse(server.isAvailable());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(server.isAvailable());
+        assertEquals(1, detector.getEjectionCount());
+        assertEquals(1, detector.getRecoveryCount());
+        assertTrue(errors.toString().contains("OutlierDetector: backend ejected (127.0.0.1:10000)"), errors.toString());
+        assertTrue(errors.toString().contains("OutlierDetector: backend recovered (127.0.0.1:10000)"), errors.toString());
+    }
+
+    @Test
+    void shouldReEjectWhenTheTrialFails() throws Exception {
+        OutlierDetector detector = new OutlierDetector(1, 50, 1_000, 1, 0, 100);
+        CircuitBreaker breaker = startDetector(detector, 1).get(0).getCircuitBreaker();
+
+        breaker.onFailure();
+        awaitState(breaker, CircuitBreaker.State.HALF_OPEN);
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2, detector.getEjectionCount());
+    }
+
+    @Test
+    void shouldReturnTheTrialPermitForAnInconclusiveSession() throws Exception {
+        OutlierDetector detector = new OutlierDetector(1, 50, 1_000, 1, 0, 100);
+        Server server = startDetector(detector, 1).get(0);
+
+        server.getCircuitBreaker().onFailure();
+        awaitState(server.getCircuitBreaker(), CircuitBreaker.State.HALF_OPEN);
+        assertTrue(server.tryReserveSlot());
+        assertFalse(server.isAvailable());
+        server.getCircuitBreaker().onInconclusive();
+        assertTrue(server.isAvailable());
+    }
+
+    @Test
+    void shouldDoubleTheEjectionIntervalUpToTheMaximum() {
+        OutlierDetector detector = new OutlierDetector(1, 100, 1_000, 1, 0, 100);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), detector.ejectionNanos(0));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(200), detector.ejectionNanos(1));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(800), detector.ejectionNanos(3));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1_000), detector.ejectionNanos(4));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1_000), detector.ejectionNanos(100));
+    }
+
+    @Test
+    void shouldNotEjectMoreThanTheMaximumPercentage() {
+        OutlierDetector detector = new OutlierDetector(1, 10_000, 10_000, 1, 0, 50);
+        List<Server> servers = startDetector(detector, 2);
+
+        servers.get(0).getCircuitBreaker().onFailure();
+        servers.get(1).getCircuitBreaker().onFailure();
+        assertTrue(servers.get(0).getCircuitBreaker().isEjected());
+        assertFalse(servers.get(1).getCircuitBreaker().isEjected());
+        assertTrue(servers.get(1).isAvailable());
+        assertEquals(1, detector.getEjectionCount());
+        assertEquals(1, detector.getEjectionsSkippedCount());
+    }
+
+    @Test
+    void shouldCloseAHalfOpenCircuitWhoseReEjectionIsRefused() throws Exception {
+        OutlierDetector detector = new OutlierDetector(1, 50, 1_000, 1, 0, 50);
+        List<Server> servers = startDetector(detector, 2);
+        Server server = servers.get(0);
+        CircuitBreaker breaker = server.getCircuitBreaker();
+
+        breaker.onFailure();
+        awaitState(breaker, CircuitBreaker.State.HALF_OPEN);
+        servers.get(1).getCircuitBreaker().onFailure();
+        assertTrue(servers.get(1).getCircuitBreaker().isEjected());
+        assertTrue(server.tryReserveSlot());
+        breaker.onFailure(); // the cap is reached, so the failed trial cannot eject again
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(server.isAvailable(), "kept in rotation instead of waiting for a permit that never returns");
+        assertEquals(1, detector.getEjectionsSkippedCount());
+    }
+
+    @Test
+    void shouldRampUpTheShareOfARecoveredBackend() throws Exception {
+        OutlierDetector detector = new OutlierDetector(1, 10_000, 10_000, 1, 300, 100);
+        Server server = startDetector(detector, 1).get(0);
+        CircuitBreaker breaker = server.getCircuitBreaker();
+        assertEquals(1.0, breaker.slowStartShare());
+
+        server.markUnhealthy();
+        server.markHealthy();
+        double share = breaker.slowStartShare();
+        assertTrue(share >= OutlierDetector.MIN_SLOW_START_SHARE && share < 1, "share " + share);
+        int passed = 0;
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(server.isAvailable(), "slow start never makes a backend unavailable");
+            if (server.passesSlowStart()) passed++;
+        }
+        assertTrue(passed < 900, "passed " + passed + " of 1000 draws");
+
+        Thread.sleep(350);
+        assertEquals(1.0, breaker.slowStartShare());
+        assertTrue(server.passesSlowStart());
+    }
+
+    @Test
+    void shouldNeverReturnNullFromRandomSelectionWhileBackendsSlowStart() {
+        OutlierDetector detector = new OutlierDetector(1, 10_000, 10_000, 1, 60_000, 100);
+        List<Server> servers = startDetector(detector, 4);
+        for (Server server : servers) {
+            server.markUnhealthy();
+            server.markHealthy();
+        }
+        RandomSelectionStrategy strategy = new RandomSelectionStrategy();
+        for (int i = 0; i < 100_000; i++) assertNotNull(strategy.select(servers));
+    }
+
+    @Test
+    void shouldGiveASlowStartingBackendAReducedShareOfRandomPicks() {
+        OutlierDetector detector = new OutlierDetector(1, 10_000, 10_000, 1, 60_000, 100);
+        List<Server> servers = startDetector(detector, 4);
+        Server cold = servers.get(0);
+        cold.markUnhealthy();
+        cold.markHealthy();
+        RandomSelectionStrategy strategy = new RandomSelectionStrategy();
+        int coldPicks = 0;
+        for (int i = 0; i < 10_000; i++) {
+            Server picked = strategy.select(servers);
+            assertNotNull(picked);
+            if (picked == cold) coldPicks++;
+        }
+        // About 0.1 / 3.1 of the picks instead of a quarter.
+        assertTrue(coldPicks > 0 && coldPicks < 800, "cold backend got " + coldPicks + " of 10000 picks");
+    }
+
+    @Test
+    void shouldKeepLeastConnectionsFromFloodingASlowStartingBackend() {
+        OutlierDetector detector = new OutlierDetector(1, 10_000, 10_000, 1, 60_000, 100);
+        List<Server> servers = startDetector(detector, 101);
+        Server cold = servers.get(0);
+        cold.markUnhealthy();
+        cold.markHealthy();
+        LeastConnectionsSelectionStrategy strategy = new LeastConnectionsSelectionStrategy();
+        int coldPicks = 0;
+        for (int i = 0; i < 1_000; i++) {
+            Server picked = strategy.select(servers);
+            picked.incrementActive();
+            if (picked == cold) coldPicks++;
+        }
+        // A fair share would be about 10 of the 1000 connections; at the start of the ramp it gets about a tenth.
+        assertTrue(coldPicks >= 1 && coldPicks <= 3, "cold backend got " + coldPicks + " of 1000 picks");
+    }
+
+    @Test
+    void shouldFallBackToHealthMarkingWithoutADetector() {
+        Server server = new Server("127.0.0.1", 1);
+        assertFalse(server.getCircuitBreaker().onFailure());
+        server.reportConnectFailure();
+        assertFalse(server.isHealthy());
+        assertEquals(CircuitBreaker.State.CLOSED, server.getCircuitBreaker().getState());
+    }
+
+    @Test
+    void shouldEjectAnUnreachableBackendWhileKeepingItHealthy() throws Exception {
+        int deadPort = findFreePort();
+        echoServer = new LoadBalancerTest.EchoServer(findFreePort());
+        echoServer.start();
+        File configFile = createTempConfigFile("[ {\"host\":\"127.0.0.1\",\"port\": " + deadPort + "},"
+            + " {\"host\":\"127.0.0.1\",\"port\": " + echoServer.getPort() + "} ]");
+        int loadBalancerPort = findFreePort();
+        loadBalancer = new LoadBalancer(loadBalancerPort, configFile.getAbsolutePath(), new RoundRobinSelectionStrategy());
+        loadBalancer.setIoMode(IoMode.NIO);
+        loadBalancer.setHealthChecker(null);
+        loadBalancer.setOutlierDetector(new OutlierDetector(1, 10_000, 10_000, 1, 0, 50));
+        loadBalancer.setConnectRetryPolicy(new ConnectRetryPolicy(1, 200, 0));
+        Thread loadBalancerThread = new Thread(() -> { try { loadBalancer.start(); } catch (IOException ignored) {} });
+        loadBalancerThread.start();
+        Thread.sleep(150);
+
+        for (int i = 0; i < 4; i++) {
+            try (Socket client = new Socket("127.0.0.1", loadBalancerPort)) {
+                client.setSoTimeout(2_000);
+                client.getOutputStream().write('a' + i);
+                assertEquals('a' + i, client.getInputStream().read());
+            }
+        }
+        Server dead = loadBalancer.getBackends().get(0);
+        assertEquals(CircuitBreaker.State.OPEN, dead.getCircuitBreaker().getState());
+        assertTrue(dead.isHealthy());
+        assertEquals(1, loadBalancer.getOutlierDetector().getEjectionCount());
+    }
+
+    private List<Server> startDetector(OutlierDetector detector, int count) {
+        timer = new HashedWheelTimer("test-timer");
+        Server[] servers = new Server[count];
+        for (int i = 0; i < count; i++) {
+            servers[i] = new Server("127.0.0.1", 10_000 + i);
+            servers[i].getCircuitBreaker().setDetector(detector);
+        }
+        List<Server> list = List.of(servers);
+        detector.start(timer, list, new ProxyLog(null, errors, 64, 0));
+        return list;
+    }
+
+    private static void awaitState(CircuitBreaker breaker, CircuitBreaker.State expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (breaker.getState() != expected && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertEquals(expected, breaker.getState());
+    }
+
+    private int findFreePort() throws IOException { try (ServerSocket probeSocket = new ServerSocket(0)) { return probeSocket.getLocalPort(); } }
+
+    private File createTempConfigFile(String jsonContent) throws IOException {
+        File tempFile = Files.createTempFile("lb-config", ".json").toFile();
+        try (FileWriter writer = new FileWriter(tempFile)) { writer.write(jsonContent); }
+        tempFile.deleteOnExit();
+        return tempFile;
+    }
+}
@@ -0,0 +1,172 @@
+package com.payroc.interviews;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PeakEwmaSelectionStrategyTest {
+    private LoadBalancer loadBalancer;
+    private Thread loadBalancerThread;
+    private final List<DelayedEchoServer> echoServers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (loadBalancer != null) loadBalancer.stop();
+        if (loadBalancerThread != null) loadBalancerThread.join(500);
+        for (DelayedEchoServer echoServer : echoServers) echoServer.stop();
+    }
+
+    @Test
+    void shouldReturnNullOnEmptyOrAllUnhealthy() {
+        PeakEwmaSelectionStrategy strategy = new PeakEwmaSelectionStrategy();
+        assertNull(strategy.select(List.of()));
+        List<Server> servers = backends(4);
+        servers.forEach(Server::markUnhealthy);
+        assertNull(strategy.select(servers));
+    }
+
+    @Test
+    void shouldNeverPickAnUnhealthyServer() {
+        PeakEwmaSelectionStrategy strategy = new PeakEwmaSelectionStrategy();
+        List<Server> servers = backends(4);
+        servers.get(0).recordFirstByteTime(100_000_000); // the only healthy one is also the slowest
+        servers.get(1).markUnhealthy();
+        servers.get(2).markUnhealthy();
+        servers.get(3).markUnhealthy();
+        for (int i = 0; i < 200; i++) {
+            assertEquals(servers.get(0), strategy.select(servers));
+        }
+    }
+
+    @Test
+    void shouldAvoidTheSlowestServer() {
+        PeakEwmaSelectionStrategy strategy = new PeakEwmaSelectionStrategy();
+        List<Server> servers = backends(4);
+        for (Server server : servers) server.recordFirstByteTime(1_000_000);
+        servers.get(2).recordFirstByteTime(80_000_000);
+        for (int i = 0; i < 1000; i++) {
+            assertNotEquals(servers.get(2), strategy.select(servers), "a slow server loses every pairwise comparison");
+        }
+    }
+
+    @Test
+    void shouldWeighLatencyByOutstandingConnections() {
+        Server fastButBusy = new Server("10.0.0.1", 8000);
+        Server slowerButIdle = new Server("10.0.0.2", 8000);
+        fastButBusy.recordFirstByteTime(1_000_000);
+        slowerButIdle.recordFirstByteTime(3_000_000);
+        for (int i = 0; i < 9; i++) fastButBusy.incrementActive();
+        assertTrue(PeakEwmaSelectionStrategy.cost(slowerButIdle) < PeakEwmaSelectionStrategy.cost(fastButBusy));
+    }
+
+    @Test
+    void shouldSteerTrafficAwayFromASlowBackendInBlockingMode() throws Exception {
+        assertSteersAwayFromSlowBackend(IoMode.BLOCKING);
+    }
+
+    @Test
+    void shouldSteerTrafficAwayFromASlowBackendInNioMode() throws Exception {
+        assertSteersAwayFromSlowBackend(IoMode.NIO);
+    }
+
+    private void assertSteersAwayFromSlowBackend(IoMode ioMode) throws Exception {
+        DelayedEchoServer fast = startEchoServer(0);
+        DelayedEchoServer slow = startEchoServer(40);
+        int loadBalancerPort = findFreePort();
+        loadBalancer = new LoadBalancer(loadBalancerPort, null, new PeakEwmaSelectionStrategy());
+        loadBalancer.setIoMode(ioMode);
+        loadBalancer.setEventLoopCount(1);
+        loadBalancer.setHealthChecker(null);
+        loadBalancer.addBackend(new Server("127.0.0.1", fast.getPort()));
+        loadBalancer.addBackend(new Server("127.0.0.1", slow.getPort()));
+        loadBalancerThread = new Thread(() -> { try { loadBalancer.start(); } catch (IOException ignored) {} });
+        loadBalancerThread.start();
+        Thread.sleep(150);
+
+        for (int i = 0; i < 40; i++) {
+            try (Socket clientSocket = new Socket("127.0.0.1", loadBalancerPort)) {
+                clientSocket.getOutputStream().write('x');
+                assertEquals('x', clientSocket.getInputStream().read());
+            }
+        }
+        Server fastBackend = loadBalancer.getBackends().get(0);
+        Server slowBackend = loadBalancer.getBackends().get(1);
+        assertTrue(slowBackend.getLatencyEstimateMicros() > fastBackend.getLatencyEstimateMicros(),
+            "slow " + slowBackend.getLatencyEstimateMicros() + "us vs fast " + fastBackend.getLatencyEstimateMicros() + "us");
+        assertTrue(fast.getAccepted() >= 30, "fast backend should take most connections, got " + fast.getAccepted() + " of 40");
+    }
+
+    private DelayedEchoServer startEchoServer(long delayMillis) throws IOException {
+        DelayedEchoServer echoServer = new DelayedEchoServer(delayMillis);
+        echoServers.add(echoServer);
+        return echoServer;
+    }
+
+    private static List<Server> backends(int count) {
+        List<Server> servers = new ArrayList<>();
+        for (int i = 0; i < count; i++) servers.add(new Server("10.0.0." + (i + 1), 8000));
+        return servers;
+    }
+
+    private static int findFreePort() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            serverSocket.setReuseAddress(true);
+            return serverSocket.getLocalPort();
+        }
+    }
+
+    /**
+     * Echo backend that waits before answering each read, to play a slow server.
+     */
+    private static class DelayedEchoServer {
+        private final ServerSocket serverSocket;
+        private final long delayMillis;
+        private volatile int accepted;
+
+        DelayedEchoServer(long delayMillis) throws IOException {
+            this.serverSocket = new ServerSocket(0);
+            this.delayMillis = delayMillis;
+            Thread.ofVirtual().start(this::acceptLoop);
+        }
+
+        int getPort() { return serverSocket.getLocalPort(); }
+        int getAccepted() { return accepted; }
+
+        private void acceptLoop() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    accepted++;
+                    Thread.ofVirtual().start(() -> handle(socket));
+                } catch (IOException acceptError) {
+                    return;
+                }
+            }
+        }
+
+        private void handle(Socket acceptedSocket) {
+            try (Socket socket = acceptedSocket; InputStream in = socket.getInputStream(); OutputStream out = socket.getOutputStream()) {
+                byte[] buffer = new byte[512];
+                int bytesRead;
+                while ((bytesRead = in.read(buffer)) != -1) {
+                    if (delayMillis > 0) Thread.sleep(delayMillis);
+                    out.write(buffer, 0, bytesRead);
+                }
+            } catch (IOException | InterruptedException ignored) {
+            }
+        }
+
+        void stop() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
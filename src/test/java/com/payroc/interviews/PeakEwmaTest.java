@@ -0,0 +1,65 @@
+package com.payroc.interviews;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PeakEwmaTest {
+
+    @Test
+    void shouldStartAtZero() {
+        assertEquals(0.0, new PeakEwma().getMicros());
+    }
+
+    @Test
+    void shouldJumpToAPeakImmediately() {
+        PeakEwma ewma = new PeakEwma();
+        ewma.record(1_000_000); // 1 ms
+        ewma.record(50_000_000); // 50 ms spike
+        assertEquals(50_000, ewma.getMicros(), 500);
+    }
+
+    @Test
+    void shouldBlendLowerSamplesByElapsedTime() throws Exception {
+        PeakEwma ewma = new PeakEwma();
+        ewma.setDecayWindow(100);
+        ewma.record(10_000_000);
+        ewma.record(1_000_000); // back-to-back: barely moves
+        assertTrue(ewma.getMicros() > 9_000, "a low sample right after a peak should hardly lower it: " + ewma.getMicros());
+        Thread.sleep(300);
+        ewma.record(1_000_000); // three windows later: mostly the new sample
+        assertEquals(1_000, ewma.getMicros(), 600);
+    }
+
+    @Test
+    void shouldDecayTowardsZeroWhenIdle() throws Exception {
+        PeakEwma ewma = new PeakEwma();
+        ewma.setDecayWindow(50);
+        ewma.record(20_000_000);
+        Thread.sleep(250);
+        assertTrue(ewma.getMicros() < 20_000 * 0.05, "an idle estimate should fade: " + ewma.getMicros());
+    }
+
+    @Test
+    void shouldAcceptConcurrentRecordsWithoutLosingThePeak() throws Exception {
+        PeakEwma ewma = new PeakEwma();
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long sample = (t + 1) * 1_000_000L;
+            writers.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 100_000; i++) ewma.record(sample);
+            }));
+        }
+        for (Thread writer : writers) writer.join();
+        double micros = ewma.getMicros();
+        assertTrue(micros >= 900 && micros <= 4_000, "estimate must stay within the sampled range (allowing read-side decay): " + micros);
+    }
+
+    @Test
+    void shouldRejectNonPositiveDecayWindow() {
+        assertThrows(IllegalArgumentException.class, () -> new PeakEwma().setDecayWindow(0));
+    }
+}
@@ -0,0 +1,113 @@
+package com.payroc.interviews;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PowerOfTwoChoicesSelectionStrategyTest {
+
+    @Test
+    void shouldReturnNullOnEmptyOrAllUnhealthy() {
+        PowerOfTwoChoicesSelectionStrategy strategy = new PowerOfTwoChoicesSelectionStrategy();
+        assertNull(strategy.select(List.of()));
+        List<Server> servers = backends(5);
+        servers.forEach(Server::markUnhealthy);
+        assertNull(strategy.select(servers));
+    }
+
+    @Test
+    void shouldNeverPickTheMostLoadedServer() {
+        PowerOfTwoChoicesSelectionStrategy strategy = new PowerOfTwoChoicesSelectionStrategy();
+        List<Server> servers = backends(4);
+        for (int i = 0; i < 50; i++) servers.get(0).incrementActive();
+        for (int i = 0; i < 1000; i++) {
+            assertNotEquals(servers.get(0), strategy.select(servers), "the most loaded server can never win a pairwise comparison");
+        }
+    }
+
+    @Test
+    void shouldNeverPickAnUnhealthyServer() {
+        PowerOfTwoChoicesSelectionStrategy strategy = new PowerOfTwoChoicesSelectionStrategy();
+        List<Server> servers = backends(4);
+        servers.get(1).markUnhealthy();
+        servers.get(2).markUnhealthy();
+        servers.get(3).markUnhealthy();
+        for (int i = 0; i < 200; i++) {
+            assertEquals(servers.get(0), strategy.select(servers));
+        }
+    }
+
+    @Test
+    void shouldKeepMaxLoadCloseToMeanUnlikeRandomPlacement() {
+        int backendCount = 100;
+        int connections = backendCount * 100;
+        List<Server> p2cServers = backends(backendCount);
+        List<Server> randomServers = backends(backendCount);
+        PowerOfTwoChoicesSelectionStrategy p2c = new PowerOfTwoChoicesSelectionStrategy();
+        RandomSelectionStrategy random = new RandomSelectionStrategy();
+        for (int i = 0; i < connections; i++) {
+            p2c.select(p2cServers).incrementActive();
+            random.select(randomServers).incrementActive();
+        }
+        int mean = connections / backendCount;
+        int p2cGap = maxActive(p2cServers) - mean;
+        int randomGap = maxActive(randomServers) - mean;
+        assertTrue(p2cGap <= 5, "p2c max load should stay within a few connections of the mean, gap=" + p2cGap);
+        assertTrue(randomGap > p2cGap, "random gap " + randomGap + " should exceed p2c gap " + p2cGap);
+    }
+
+    @Test
+    void shouldSpreadConcurrentPicksInsteadOfHerdingOnTheMinimum() {
+        List<Server> servers = backends(50);
+        for (int i = 1; i < servers.size(); i++) servers.get(i).incrementActive();
+        // A burst of accepts that all select before any of them connects (no increments in between).
+        Set<Server> leastConnPicks = new HashSet<>();
+        Set<Server> p2cPicks = new HashSet<>();
+        LeastConnectionsSelectionStrategy leastConn = new LeastConnectionsSelectionStrategy();
+        PowerOfTwoChoicesSelectionStrategy p2c = new PowerOfTwoChoicesSelectionStrategy();
+        for (int i = 0; i < 20; i++) {
+            leastConnPicks.add(leastConn.select(servers));
+            p2cPicks.add(p2c.select(servers));
+        }
+        assertEquals(1, leastConnPicks.size());
+        assertTrue(p2cPicks.size() > 5, "p2c picks should spread, got " + p2cPicks.size());
+    }
+
+    @Test
+    void shouldFavourLessLoadedServersOnLargePools() {
+        // Select cost against least-connections is measured by SelectionStrategyBenchmark (poolSize=1000).
+        PowerOfTwoChoicesSelectionStrategy p2c = new PowerOfTwoChoicesSelectionStrategy();
+        List<Server> servers = backends(1000);
+        long poolLoad = 0;
+        for (int i = 0; i < servers.size(); i++) {
+            for (int j = 0; j < i % 7; j++) servers.get(i).incrementActive();
+            poolLoad += i % 7;
+        }
+        long pickedLoad = 0;
+        int picks = 10_000;
+        for (int i = 0; i < picks; i++) {
+            Server picked = p2c.select(servers);
+            assertNotNull(picked);
+            pickedLoad += picked.getActiveConnections();
+        }
+        double poolMean = (double) poolLoad / servers.size();
+        double pickedMean = (double) pickedLoad / picks;
+        // The lesser of two uniform draws from 0..6 averages 2; a single draw averages 3.
+        assertTrue(pickedMean < poolMean - 0.5, "picked mean load " + pickedMean + " vs pool mean " + poolMean);
+    }
+
+    private static int maxActive(List<Server> servers) {
+        return servers.stream().mapToInt(Server::getActiveConnections).max().orElse(0);
+    }
+
+    private static List<Server> backends(int count) {
+        List<Server> servers = new ArrayList<>();
+        for (int i = 0; i < count; i++) servers.add(new Server("10.0." + (i / 250) + "." + (i % 250), 8000));
+        return servers;
+    }
+}
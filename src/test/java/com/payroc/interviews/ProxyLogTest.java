@@ -0,0 +1,188 @@
+package com.payroc.interviews;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProxyLogTest {
+    private ProxyLog log;
+    private LoadBalancer loadBalancer;
+    private LoadBalancerTest.EchoServer echoServer;
+
+    @AfterEach
+    void tearDown() {
+        if (loadBalancer != null) loadBalancer.stop();
+        if (echoServer != null) echoServer.stop();
+        if (log != null) log.stop();
+    }
+
+    @Test
+    void ringShouldDropAndCountRecordsWhenFull() {
+        LogRing ring = new LogRing(4);
+        for (int i = 0; i < 4; i++) {
+            LogRing.Entry entry = ring.claim();
+            entry.bytesToBackend = i;
+            ring.publish(entry);
+        }
+        assertNull(ring.claim());
+        assertEquals(1, ring.getDroppedCount());
+        for (int i = 0; i < 4; i++) {
+            LogRing.Entry entry = ring.peek();
+            assertEquals(i, entry.bytesToBackend);
+            ring.release(entry);
+        }
+        assertNull(ring.peek());
+        assertNotNull(ring.claim(), "released slots are reused");
+    }
+
+    @Test
+    void ringShouldDeliverEveryRecordFromConcurrentProducers() throws Exception {
+        LogRing ring = new LogRing(1 << 16);
+        int producers = 4;
+        int perProducer = 10_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long base = (long) p * perProducer;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    LogRing.Entry entry = ring.claim();
+                    entry.bytesToBackend = base + i;
+                    ring.publish(entry);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        Set<Long> seen = new HashSet<>();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (seen.size() < producers * perProducer && System.currentTimeMillis() < deadline) {
+            LogRing.Entry entry = ring.peek();
+            if (entry == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            assertTrue(seen.add(entry.bytesToBackend), "duplicate record " + entry.bytesToBackend);
+            ring.release(entry);
+        }
+        for (Thread thread : threads) thread.join();
+        assertEquals(producers * perProducer, seen.size());
+        assertEquals(0, ring.getDroppedCount());
+    }
+
+    @Test
+    void shouldWriteStructuredAccessLines() {
+        StringWriter access = new StringWriter();
+        log = new ProxyLog(access, new StringWriter(), 16, 0);
+        log.start();
+        log.access(new InetSocketAddress("127.0.0.1", 40000), new Server("10.0.0.1", 80), 12, 345, 2_500_000,
+            ProxyLog.CloseReason.BACKEND_CLOSED);
+        log.access(new InetSocketAddress("127.0.0.1", 40001), null, 0, 0, 0, ProxyLog.CloseReason.NO_BACKEND);
+        log.stop();
+        String[] lines = access.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].endsWith(" client=127.0.0.1:40000 backend=10.0.0.1:80 to_backend=12 from_backend=345"
+            + " duration_us=2500 reason=backend_closed"), lines[0]);
+        assertTrue(lines[1].endsWith(" client=127.0.0.1:40001 backend=- to_backend=0 from_backend=0 duration_us=0"
+            + " reason=no_backend"), lines[1]);
+        assertEquals(2, log.getAccessWrittenCount());
+    }
+
+    @Test
+    void shouldSuppressDuplicateErrorsWithinTheWindow() {
+        StringWriter errors = new StringWriter();
+        log = new ProxyLog(null, errors, 1024, 60_000);
+        log.start();
+        Server backend = new Server("10.0.0.1", 80);
+        IOException refused = new IOException("Connection refused");
+        for (int i = 0; i < 100; i++) log.error("NioProxyEngine", "backend connect error", backend, refused);
+        log.error("NioProxyEngine", "backend connect error", new Server("10.0.0.2", 80), refused);
+        log.stop();
+        String[] lines = errors.toString().split("\n");
+        assertEquals(3, lines.length, errors.toString());
+        assertTrue(lines[0].endsWith(" NioProxyEngine: backend connect error (10.0.0.1:80): Connection refused"), lines[0]);
+        assertTrue(lines[1].endsWith(" NioProxyEngine: backend connect error (10.0.0.2:80): Connection refused"), lines[1]);
+        assertTrue(lines[2].endsWith("(10.0.0.1:80): Connection refused [99 duplicate(s) suppressed]"), lines[2]);
+        assertEquals(99, log.getSuppressedCount());
+    }
+
+    @Test
+    void shouldWriteDirectlyWhenNotStarted() {
+        StringWriter errors = new StringWriter();
+        log = new ProxyLog(null, errors, 16, 1_000);
+        log.error("AcceptorGroup", "accept loop error", null, new IOException("Too many open files"));
+        assertTrue(errors.toString().endsWith(" AcceptorGroup: accept loop error: Too many open files\n"), errors.toString());
+    }
+
+    @Test
+    void shouldLogEverySessionInBlockingMode() throws Exception {
+        assertSessionLogged(IoMode.BLOCKING);
+    }
+
+    @Test
+    void shouldLogEverySessionInNioMode() throws Exception {
+        assertSessionLogged(IoMode.NIO);
+    }
+
+    private void assertSessionLogged(IoMode ioMode) throws Exception {
+        echoServer = new LoadBalancerTest.EchoServer(findFreePort());
+        echoServer.start();
+        File configFile = createTempConfigFile("[ {\"host\":\"127.0.0.1\",\"port\": " + echoServer.getPort() + "} ]");
+        int loadBalancerPort = findFreePort();
+        loadBalancer = new LoadBalancer(loadBalancerPort, configFile.getAbsolutePath(), new RoundRobinSelectionStrategy());
+        loadBalancer.setIoMode(ioMode);
+        loadBalancer.setHealthChecker(null);
+        StringWriter access = new StringWriter();
+        loadBalancer.setProxyLog(new ProxyLog(access, new StringWriter(), 64, ProxyLog.DEFAULT_SUPPRESS_WINDOW_MS));
+        Thread loadBalancerThread = new Thread(() -> { try { loadBalancer.start(); } catch (IOException ignored) {} });
+        loadBalancerThread.start();
+        Thread.sleep(150);
+
+        int clientPort;
+        try (Socket client = new Socket("127.0.0.1", loadBalancerPort)) {
+            clientPort = client.getLocalPort();
+            client.setSoTimeout(2_000);
+            client.getOutputStream().write("hello".getBytes());
+            assertEquals('h', client.getInputStream().read());
+            client.getInputStream().readNBytes(4);
+            client.shutdownOutput();
+            assertEquals(-1, client.getInputStream().read());
+        }
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (loadBalancer.getProxyLog().getAccessWrittenCount() == 0 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        String line = access.toString();
+        assertTrue(line.contains(" client=127.0.0.1:" + clientPort + " backend=127.0.0.1:" + echoServer.getPort()
+            + " to_backend=5 from_backend=5 "), line);
+        assertTrue(line.trim().endsWith(" reason=client_closed"), line);
+    }
+
+    private int findFreePort() throws IOException { try (ServerSocket probeSocket = new ServerSocket(0)) { return probeSocket.getLocalPort(); } }
+
+    private File createTempConfigFile(String jsonContent) throws IOException {
+        File tempFile = Files.createTempFile("lb-config", ".json").toFile();
+        try (FileWriter writer = new FileWriter(tempFile)) { writer.write(jsonContent); }
+        tempFile.deleteOnExit();
+        return tempFile;
+    }
+}
@@ -29,4 +29,18 @@ class RandomSelectionStrategyTest {
         }
         assertTrue(observedFirstPort && observedSecondPort, "Both backend ports should be observed over multiple random selections");
     }
+
+    @Test
+    void shouldOnlyReturnHealthyBackends() {
+        RandomSelectionStrategy randomStrategy = new RandomSelectionStrategy();
+        Server healthy = new Server("127.0.0.1", 9101);
+        Server down = new Server("127.0.0.1", 9102);
+        down.markUnhealthy();
+        List<Server> backendServers = List.of(down, healthy, down);
+        for (int attempt = 0; attempt < 100; attempt++) {
+            assertEquals(healthy, randomStrategy.select(backendServers));
+        }
+        healthy.markUnhealthy();
+        assertNull(randomStrategy.select(backendServers));
+    }
 }
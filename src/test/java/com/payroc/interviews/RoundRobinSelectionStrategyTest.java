@@ -30,6 +30,22 @@ class RoundRobinSelectionStrategyTest {
         assertEquals("127.0.0.1", fourth.getHost());
     }
 
+    @Test
+    void shouldSkipUnhealthyServers() {
+        RoundRobinSelectionStrategy roundRobinStrategy = new RoundRobinSelectionStrategy();
+        Server first = new Server("127.0.0.1", 8001);
+        Server second = new Server("127.0.0.1", 8002);
+        Server third = new Server("127.0.0.1", 8003);
+        second.markUnhealthy();
+        List<Server> serverList = List.of(first, second, third);
+        for (int i = 0; i < 9; i++) {
+            assertNotEquals(second, roundRobinStrategy.select(serverList));
+        }
+        first.markUnhealthy();
+        third.markUnhealthy();
+        assertNull(roundRobinStrategy.select(serverList));
+    }
+
     @Test
     void shouldReturnNullWhenServerListIsEmpty() {
         RoundRobinSelectionStrategy roundRobinStrategy = new RoundRobinSelectionStrategy();
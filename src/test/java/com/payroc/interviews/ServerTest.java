@@ -28,6 +28,33 @@ class ServerTest {
         assertEquals(0, backendServer.getActiveConnections());
     }
 
+    @Test
+    void shouldDefaultWeightToOneAndRejectNonPositiveWeights() {
+        assertEquals(1, new Server("127.0.0.1", 8082).getWeight());
+        assertEquals(5, new Server("127.0.0.1", 8082, 5).getWeight());
+        assertThrows(IllegalArgumentException.class, () -> new Server("127.0.0.1", 8082, 0));
+        assertEquals(Server.MAX_WEIGHT, new Server("127.0.0.1", 8082, Server.MAX_WEIGHT).getWeight());
+        assertThrows(IllegalArgumentException.class, () -> new Server("127.0.0.1", 8082, Server.MAX_WEIGHT + 1));
+    }
+
+    @Test
+    void shouldStopBeingAvailableAtItsSessionCap() {
+        Server capped = new Server("127.0.0.1", 8082, 1, 2);
+        assertTrue(capped.tryReserveSlot());
+        assertTrue(capped.tryReserveSlot());
+        assertFalse(capped.tryReserveSlot());
+        assertFalse(capped.isAvailable(), "full backends are skipped by strategies");
+        assertTrue(capped.isInRotation(), "but stay in rotation");
+        assertTrue(capped.releaseSlot());
+        assertTrue(capped.isAvailable());
+
+        Server uncapped = new Server("127.0.0.1", 8083);
+        for (int i = 0; i < 100; i++) assertTrue(uncapped.tryReserveSlot());
+        assertFalse(uncapped.releaseSlot());
+        assertEquals(0, uncapped.getReservedSlots());
+        assertThrows(IllegalArgumentException.class, () -> new Server("127.0.0.1", 8082, 1, -1));
+    }
+
     @Test
     void toStringShouldIncludeHostAndPort() {
         Server backendServer = new Server("127.0.0.1", 9090);
@@ -35,4 +62,9 @@ class ServerTest {
         assertTrue(description.contains("127.0.0.1"));
         assertTrue(description.contains("9090"));
     }
+
+    @Test
+    void toStringShouldTolerateAMissingHost() {
+        assertTrue(new Server(null, 9090).toString().startsWith("null:9090"));
+    }
 }
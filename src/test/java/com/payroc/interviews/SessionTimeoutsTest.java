@@ -0,0 +1,157 @@
+package com.payroc.interviews;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionTimeoutsTest {
+    private LoadBalancer loadBalancer;
+    private LoadBalancerTest.EchoServer echoServer;
+    private final List<Closeable> resources = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (loadBalancer != null) loadBalancer.stop();
+        if (echoServer != null) echoServer.stop();
+        for (Closeable resource : resources) resource.close();
+    }
+
+    @Test
+    void shouldCloseIdleSessionsInBlockingMode() throws Exception {
+        assertIdleSessionClosed(IoMode.BLOCKING);
+    }
+
+    @Test
+    void shouldCloseIdleSessionsInNioMode() throws Exception {
+        assertIdleSessionClosed(IoMode.NIO);
+    }
+
+    @Test
+    void shouldKeepSessionsThatStayActive() throws Exception {
+        int loadBalancerPort = startLoadBalancer(IoMode.NIO, 300, 0);
+        try (Socket client = new Socket("127.0.0.1", loadBalancerPort)) {
+            client.setSoTimeout(2_000);
+            for (int i = 0; i < 8; i++) {
+                client.getOutputStream().write('a' + i);
+                assertEquals('a' + i, client.getInputStream().read());
+                Thread.sleep(100);
+            }
+        }
+        assertEquals(0, loadBalancer.getSessionTimeouts().getIdleTimeoutCount());
+    }
+
+    @Test
+    void shouldCloseSessionsAtTheirMaximumLifetime() throws Exception {
+        int loadBalancerPort = startLoadBalancer(IoMode.VIRTUAL, 0, 300);
+        try (Socket client = new Socket("127.0.0.1", loadBalancerPort)) {
+            client.setSoTimeout(2_000);
+            long deadline = System.currentTimeMillis() + 2_000;
+            boolean closed = false;
+            while (!closed && System.currentTimeMillis() < deadline) {
+                try {
+                    client.getOutputStream().write('x');
+                    closed = client.getInputStream().read() == -1;
+                    Thread.sleep(50);
+                } catch (IOException reset) {
+                    closed = true;
+                }
+            }
+            assertTrue(closed, "busy session closed at its lifetime");
+        }
+        assertEquals(1, loadBalancer.getSessionTimeouts().getLifetimeTimeoutCount());
+    }
+
+    @Test
+    void shouldTimeOutAHangingConnectAndFailOverInBlockingMode() throws Exception {
+        assertConnectTimesOut(IoMode.BLOCKING);
+    }
+
+    @Test
+    void shouldTimeOutAHangingConnectAndFailOverInNioMode() throws Exception {
+        assertConnectTimesOut(IoMode.NIO);
+    }
+
+    private void assertIdleSessionClosed(IoMode ioMode) throws Exception {
+        int loadBalancerPort = startLoadBalancer(ioMode, 200, 0);
+        try (Socket client = new Socket("127.0.0.1", loadBalancerPort)) {
+            client.setSoTimeout(2_000);
+            client.getOutputStream().write('a');
+            assertEquals('a', client.getInputStream().read());
+            long start = System.nanoTime();
+            assertEquals(-1, client.getInputStream().read(), "LB closed the idle session");
+            assertTrue(System.nanoTime() - start >= 150_000_000L, "not before the idle timeout");
+        }
+        assertEquals(1, loadBalancer.getSessionTimeouts().getIdleTimeoutCount());
+    }
+
+    /**
+     * The first backend never completes the handshake (its accept queue is full), so the connect has to time out.
+     * Round-robin hands it to one of the first two clients; both must be served by the live backend.
+     */
+    private void assertConnectTimesOut(IoMode ioMode) throws Exception {
+        ServerSocket blackhole = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        resources.add(blackhole);
+        for (int i = 0; i < 2; i++) {
+            Socket filler = new Socket();
+            resources.add(filler);
+            filler.connect(blackhole.getLocalSocketAddress(), 1_000);
+        }
+        echoServer = new LoadBalancerTest.EchoServer(findFreePort());
+        echoServer.start();
+        File configFile = createTempConfigFile("[ {\"host\":\"127.0.0.1\",\"port\": " + blackhole.getLocalPort() + "},"
+            + " {\"host\":\"127.0.0.1\",\"port\": " + echoServer.getPort() + "} ]");
+        int loadBalancerPort = findFreePort();
+        loadBalancer = new LoadBalancer(loadBalancerPort, configFile.getAbsolutePath(), new RoundRobinSelectionStrategy());
+        loadBalancer.setIoMode(ioMode);
+        loadBalancer.setHealthChecker(null);
+        loadBalancer.setConnectRetryPolicy(new ConnectRetryPolicy(1, 200, 0));
+        startInBackground();
+
+        for (int i = 0; i < 2; i++) {
+            try (Socket client = new Socket("127.0.0.1", loadBalancerPort)) {
+                client.setSoTimeout(2_000);
+                client.getOutputStream().write('a' + i);
+                assertEquals('a' + i, client.getInputStream().read());
+            }
+        }
+        Server hanging = loadBalancer.getBackends().get(0);
+        assertEquals(1, hanging.getMetrics().getConnectFailures());
+        assertFalse(hanging.isHealthy());
+    }
+
+    private int startLoadBalancer(IoMode ioMode, long idleTimeoutMillis, long maxLifetimeMillis) throws Exception {
+        echoServer = new LoadBalancerTest.EchoServer(findFreePort());
+        echoServer.start();
+        File configFile = createTempConfigFile("[ {\"host\":\"127.0.0.1\",\"port\": " + echoServer.getPort() + "} ]");
+        int loadBalancerPort = findFreePort();
+        loadBalancer = new LoadBalancer(loadBalancerPort, configFile.getAbsolutePath(), new RoundRobinSelectionStrategy());
+        loadBalancer.setIoMode(ioMode);
+        loadBalancer.setSessionTimeouts(idleTimeoutMillis, maxLifetimeMillis);
+        startInBackground();
+        return loadBalancerPort;
+    }
+
+    private void startInBackground() throws InterruptedException {
+        Thread loadBalancerThread = new Thread(() -> { try { loadBalancer.start(); } catch (IOException ignored) {} });
+        loadBalancerThread.start();
+        Thread.sleep(150);
+    }
+
+    private int findFreePort() throws IOException { try (ServerSocket probeSocket = new ServerSocket(0)) { return probeSocket.getLocalPort(); } }
+
+    private File createTempConfigFile(String jsonContent) throws IOException {
+        File tempFile = Files.createTempFile("lb-config", ".json").toFile();
+        try (FileWriter writer = new FileWriter(tempFile)) { writer.write(jsonContent); }
+        tempFile.deleteOnExit();
+        return tempFile;
+    }
+}
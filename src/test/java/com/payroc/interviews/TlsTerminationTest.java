@@ -0,0 +1,300 @@
+package com.payroc.interviews;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TlsTerminationTest {
+    private static final String PASSWORD = "changeit";
+    private static Path keyStore;
+
+    private LoadBalancer loadBalancer;
+    private int loadBalancerPort;
+    private LoadBalancerTest.EchoServer echoServer;
+    private HttpServer httpServer;
+
+    @AfterEach
+    void tearDown() {
+        if (loadBalancer != null) loadBalancer.stop();
+        if (echoServer != null) echoServer.stop();
+        if (httpServer != null) httpServer.stop(0);
+    }
+
+    @Test
+    void shouldTerminateTlsAndResumeSessionsOnBlockingEngine() throws Exception {
+        TlsTerminator tls = new TlsTerminator(serverContext());
+        int lbPort = startLoadBalancer(IoMode.BLOCKING, tls, startEchoBackend());
+        SSLContext client = clientContext();
+
+        assertEquals("hello", echo(client, lbPort, "TLSv1.3", "hello"));
+        assertEquals("again", echo(client, lbPort, "TLSv1.3", "again"));
+
+        assertEquals(1, tls.getFullHandshakeCount());
+        assertEquals(1, tls.getResumedHandshakeCount());
+        assertEquals(0.5, tls.getResumptionRatio(), 1e-9);
+        String metrics = new AdminServer(loadBalancer, 0).renderPrometheus();
+        assertTrue(metrics.contains("lb_tls_handshakes_total{result=\"resumed\"} 1"), metrics);
+        assertTrue(metrics.contains("lb_tls_resumption_ratio 0.5"), metrics);
+    }
+
+    @Test
+    void shouldStreamLargePayloadsAndHalfCloseOnNioEngine() throws Exception {
+        TlsTerminator tls = new TlsTerminator(serverContext());
+        int lbPort = startLoadBalancer(IoMode.NIO, tls, startEchoBackend());
+        SSLContext client = clientContext();
+        byte[] payload = new byte[512 * 1024];
+        for (int i = 0; i < payload.length; i++) payload[i] = (byte) (i * 31);
+
+        try (SSLSocket socket = connect(client, lbPort, "TLSv1.3")) {
+            Thread writer = new Thread(() -> {
+                try {
+                    OutputStream out = socket.getOutputStream();
+                    out.write(payload);
+                    out.flush();
+                    socket.shutdownOutput();
+                } catch (IOException ignored) {
+                }
+            });
+            writer.start();
+            // The backend echoes everything, then sees EOF and closes, so the balancer sends close_notify.
+            byte[] echoed = socket.getInputStream().readAllBytes();
+            writer.join(3_000);
+            assertArrayEquals(payload, echoed);
+        }
+        assertEquals("short", echo(client, lbPort, "TLSv1.3", "short"));
+
+        assertEquals(1, tls.getFullHandshakeCount());
+        assertEquals(1, tls.getResumedHandshakeCount());
+        assertEquals(0, tls.getFailedHandshakeCount());
+    }
+
+    @Test
+    void shouldResumeTls12SessionsFromBoundedCache() throws Exception {
+        TlsTerminator tls = new TlsTerminator(serverContext(), 1, 60, TlsTerminator.DEFAULT_HANDSHAKE_TIMEOUT_MS);
+        int lbPort = startLoadBalancer(IoMode.NIO, tls, startEchoBackend());
+        // Without tickets, TLS 1.2 clients can only resume from the server's session cache.
+        String previous = System.getProperty("jdk.tls.client.enableSessionTicketExtension");
+        SSLContext first;
+        SSLContext second;
+        System.setProperty("jdk.tls.client.enableSessionTicketExtension", "false");
+        try {
+            first = clientContext();
+            second = clientContext();
+        } finally {
+            if (previous == null) System.clearProperty("jdk.tls.client.enableSessionTicketExtension");
+            else System.setProperty("jdk.tls.client.enableSessionTicketExtension", previous);
+        }
+
+        assertEquals("one", echo(first, lbPort, "TLSv1.2", "one"));
+        assertEquals("two", echo(second, lbPort, "TLSv1.2", "two"));
+        assertEquals("two", echo(second, lbPort, "TLSv1.2", "two"));
+        // The cache holds one session, so the first client's was evicted by the second's.
+        assertEquals("one", echo(first, lbPort, "TLSv1.2", "one"));
+
+        assertEquals(3, tls.getFullHandshakeCount());
+        assertEquals(1, tls.getResumedHandshakeCount());
+    }
+
+    @Test
+    void shouldCloseClientsThatFailOrStallTheHandshake() throws Exception {
+        for (IoMode ioMode : new IoMode[] {IoMode.BLOCKING, IoMode.NIO}) {
+            TlsTerminator tls = new TlsTerminator(serverContext(), 100, 60, 300);
+            int lbPort = startLoadBalancer(ioMode, tls, startEchoBackend());
+
+            try (Socket plaintext = new Socket("127.0.0.1", lbPort)) {
+                plaintext.setSoTimeout(3_000);
+                plaintext.getOutputStream().write("GET / HTTP/1.1\r\nHost: x\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                assertClosed(plaintext);
+            }
+            long start = System.nanoTime();
+            try (Socket silent = new Socket("127.0.0.1", lbPort)) {
+                silent.setSoTimeout(3_000);
+                assertClosed(silent);
+            }
+            assertTrue(System.nanoTime() - start < 2_000_000_000L, ioMode + " handshake timeout not applied");
+
+            // The client can see the close just before the failure is counted.
+            awaitCondition(() -> tls.getFailedHandshakeCount() == 2);
+            assertEquals(0, tls.getFullHandshakeCount(), ioMode.toString());
+            assertEquals(0, loadBalancer.getBackends().get(0).getMetrics().getConnections(), ioMode.toString());
+            tearDown();
+        }
+    }
+
+    @Test
+    void shouldServeHttpModeOverTls() throws Exception {
+        TlsTerminator tls = new TlsTerminator(serverContext());
+        httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        httpServer.createContext("/", exchange -> {
+            byte[] response = ("path=" + exchange.getRequestURI().getPath()).getBytes(StandardCharsets.US_ASCII);
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        httpServer.start();
+        loadBalancer = newLoadBalancer(IoMode.BLOCKING, tls, httpServer.getAddress().getPort());
+        loadBalancer.setProxyMode(ProxyMode.HTTP);
+        int lbPort = start(loadBalancer);
+
+        try (SSLSocket socket = connect(clientContext(), lbPort, "TLSv1.3")) {
+            HttpStream in = new HttpStream(socket.getInputStream(), 4096);
+            OutputStream out = socket.getOutputStream();
+            for (String path : new String[] {"/a", "/b"}) {
+                out.write(("GET " + path + " HTTP/1.1\r\nHost: lb\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                HttpHead response = in.readHead(false);
+                assertEquals(200, response.status());
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                in.transfer(response.responseFraming("GET"), response.contentLength(), body);
+                assertEquals("path=" + path, body.toString(StandardCharsets.US_ASCII));
+            }
+        }
+        assertEquals(1, tls.getFullHandshakeCount());
+    }
+
+    @Test
+    void shouldConfigureSessionCacheAndRejectInvalidSettings() throws Exception {
+        SSLContext context = serverContext();
+        TlsTerminator tls = new TlsTerminator(context, 2, 60, 0);
+        assertEquals(2, tls.getSessionCacheSize());
+        assertEquals(60, tls.getSessionTimeoutSeconds());
+        assertEquals(0.0, tls.getResumptionRatio());
+
+        assertThrows(IllegalArgumentException.class, () -> new TlsTerminator(null));
+        assertThrows(IllegalArgumentException.class, () -> new TlsTerminator(context, 0, 60, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TlsTerminator(context, 1, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TlsTerminator(context, 1, 60, -1));
+    }
+
+    private static String echo(SSLContext client, int port, String protocol, String message) throws IOException {
+        try (SSLSocket socket = connect(client, port, protocol)) {
+            socket.getOutputStream().write(message.getBytes(StandardCharsets.US_ASCII));
+            socket.getOutputStream().flush();
+            byte[] reply = socket.getInputStream().readNBytes(message.length());
+            return new String(reply, StandardCharsets.US_ASCII);
+        }
+    }
+
+    private static SSLSocket connect(SSLContext client, int port, String protocol) throws IOException {
+        SSLSocket socket = (SSLSocket) client.getSocketFactory().createSocket("localhost", port);
+        socket.setSoTimeout(5_000);
+        socket.setEnabledProtocols(new String[] {protocol});
+        socket.startHandshake();
+        return socket;
+    }
+
+    private static void assertClosed(Socket socket) throws IOException {
+        InputStream in = socket.getInputStream();
+        try {
+            // The balancer may answer with an alert before closing; anything but a timeout is fine.
+            while (in.read() != -1) {
+            }
+        } catch (SocketTimeoutException stillOpen) {
+            fail("connection was not closed");
+        } catch (IOException reset) {
+            // Closed with unread data.
+        }
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertTrue(condition.getAsBoolean(), "condition not met within 2s");
+    }
+
+    private int startEchoBackend() throws IOException {
+        echoServer = new LoadBalancerTest.EchoServer(findFreePort());
+        echoServer.start();
+        return echoServer.getPort();
+    }
+
+    private int startLoadBalancer(IoMode ioMode, TlsTerminator tls, int backendPort) throws Exception {
+        loadBalancer = newLoadBalancer(ioMode, tls, backendPort);
+        return start(loadBalancer);
+    }
+
+    private LoadBalancer newLoadBalancer(IoMode ioMode, TlsTerminator tls, int backendPort) throws IOException {
+        String config = "[{\"host\":\"127.0.0.1\",\"port\":" + backendPort + "}]";
+        loadBalancerPort = findFreePort();
+        LoadBalancer balancer = new LoadBalancer(loadBalancerPort, createTempConfigFile(config).getAbsolutePath(),
+            new RoundRobinSelectionStrategy());
+        balancer.setIoMode(ioMode);
+        balancer.setTlsTerminator(tls);
+        balancer.setHealthChecker(null);
+        return balancer;
+    }
+
+    private int start(LoadBalancer balancer) throws InterruptedException {
+        Thread loadBalancerThread = new Thread(() -> { try { balancer.start(); } catch (IOException ignored) {} });
+        loadBalancerThread.start();
+        Thread.sleep(150);
+        return loadBalancerPort;
+    }
+
+    private static SSLContext serverContext() throws Exception {
+        return TlsTerminator.loadContext(keyStore(), PASSWORD.toCharArray());
+    }
+
+    /**
+     * Trusts the test certificate, and nothing else.
+     */
+    private static SSLContext clientContext() throws Exception {
+        KeyStore trusted = KeyStore.getInstance(keyStore().toFile(), PASSWORD.toCharArray());
+        TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagers.init(trusted);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, trustManagers.getTrustManagers(), null);
+        return context;
+    }
+
+    /**
+     * A self-signed certificate for localhost, made once per run with the JDK's keytool.
+     */
+    private static synchronized Path keyStore() throws Exception {
+        if (keyStore == null) {
+            Path file = Files.createTempDirectory("lb-tls").resolve("server.p12");
+            String keytool = Path.of(System.getProperty("java.home"), "bin", "keytool").toString();
+            Process process = new ProcessBuilder(Arrays.asList(keytool, "-genkeypair", "-alias", "lb", "-keyalg", "EC",
+                "-groupname", "secp256r1", "-dname", "CN=localhost", "-ext", "SAN=dns:localhost", "-validity", "2",
+                "-storetype", "PKCS12", "-keystore", file.toString(), "-storepass", PASSWORD, "-keypass", PASSWORD))
+                .redirectErrorStream(true).start();
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            assertEquals(0, process.waitFor(), output);
+            file.toFile().deleteOnExit();
+            keyStore = file;
+        }
+        return keyStore;
+    }
+
+    private static int findFreePort() throws IOException { try (ServerSocket probeSocket = new ServerSocket(0)) { return probeSocket.getLocalPort(); } }
+
+    private static File createTempConfigFile(String jsonContent) throws IOException {
+        File tempFile = Files.createTempFile("lb-config", ".json").toFile();
+        try (FileWriter writer = new FileWriter(tempFile)) { writer.write(jsonContent); }
+        tempFile.deleteOnExit();
+        return tempFile;
+    }
+}
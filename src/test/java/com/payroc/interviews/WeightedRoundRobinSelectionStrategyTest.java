@@ -0,0 +1,113 @@
+package com.payroc.interviews;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeightedRoundRobinSelectionStrategyTest {
+
+    @Test
+    void shouldInterleaveLikeNginx() {
+        Server a = new Server("10.0.0.1", 80, 5);
+        Server b = new Server("10.0.0.2", 80, 1);
+        Server c = new Server("10.0.0.3", 80, 1);
+        List<Server> servers = List.of(a, b, c);
+        WeightedRoundRobinSelectionStrategy strategy = new WeightedRoundRobinSelectionStrategy();
+        List<Server> picks = new ArrayList<>();
+        for (int i = 0; i < 7; i++) picks.add(strategy.select(servers));
+        assertEquals(List.of(a, a, b, a, c, a, a), picks);
+    }
+
+    @Test
+    void shouldSplitInProportionToWeightsWithoutBursts() {
+        Server small = new Server("10.0.0.1", 80, 8);
+        Server large = new Server("10.0.0.2", 80, 32);
+        List<Server> servers = List.of(small, large);
+        WeightedRoundRobinSelectionStrategy strategy = new WeightedRoundRobinSelectionStrategy();
+        Map<Server, Integer> counts = new HashMap<>();
+        int longestRun = 0;
+        int run = 0;
+        Server previous = null;
+        for (int i = 0; i < 400; i++) {
+            Server picked = strategy.select(servers);
+            counts.merge(picked, 1, Integer::sum);
+            run = picked == previous ? run + 1 : 1;
+            longestRun = Math.max(longestRun, run);
+            previous = picked;
+        }
+        assertEquals(80, counts.get(small).intValue());
+        assertEquals(320, counts.get(large).intValue());
+        assertTrue(longestRun <= 4, "4:1 weights should never give the large backend more than 4 in a row, got " + longestRun);
+    }
+
+    @Test
+    void shouldSkipUnhealthyServers() {
+        Server a = new Server("10.0.0.1", 80, 3);
+        Server b = new Server("10.0.0.2", 80, 1);
+        List<Server> servers = List.of(a, b);
+        WeightedRoundRobinSelectionStrategy strategy = new WeightedRoundRobinSelectionStrategy();
+        a.markUnhealthy();
+        for (int i = 0; i < 20; i++) assertEquals(b, strategy.select(servers));
+        b.markUnhealthy();
+        assertNull(strategy.select(servers));
+        assertNull(strategy.select(List.of()));
+    }
+
+    @Test
+    void shouldRecomputeWhenBackendsChangeAtRuntime() throws Exception {
+        WeightedRoundRobinSelectionStrategy strategy = new WeightedRoundRobinSelectionStrategy();
+        LoadBalancer loadBalancer = new LoadBalancer(0, null, strategy);
+        Server a = new Server("10.0.0.1", 80, 2);
+        Server b = new Server("10.0.0.2", 80, 1);
+        loadBalancer.addBackend(a);
+        loadBalancer.addBackend(b);
+        assertEquals(Map.of(a, 20, b, 10), pickCounts(loadBalancer, 30));
+
+        Server c = new Server("10.0.0.3", 80, 3);
+        loadBalancer.addBackend(c);
+        assertEquals(Map.of(a, 20, b, 10, c, 30), pickCounts(loadBalancer, 60));
+
+        loadBalancer.removeBackend(a);
+        assertEquals(Map.of(b, 10, c, 30), pickCounts(loadBalancer, 40));
+    }
+
+    @Test
+    void shouldKeepExactSharesUnderConcurrentSelection() throws Exception {
+        Server a = new Server("10.0.0.1", 80, 3);
+        Server b = new Server("10.0.0.2", 80, 2);
+        Server c = new Server("10.0.0.3", 80, 1);
+        List<Server> servers = List.of(a, b, c);
+        WeightedRoundRobinSelectionStrategy strategy = new WeightedRoundRobinSelectionStrategy();
+        Map<Server, AtomicInteger> counts = new ConcurrentHashMap<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 6_000; i++) counts.computeIfAbsent(strategy.select(servers), s -> new AtomicInteger()).incrementAndGet();
+            }));
+        }
+        for (Thread thread : threads) thread.join();
+        assertEquals(12_000, counts.get(a).get());
+        assertEquals(8_000, counts.get(b).get());
+        assertEquals(4_000, counts.get(c).get());
+    }
+
+    @Test
+    void shouldReduceScheduleByCommonDivisor() {
+        Server a = new Server("10.0.0.1", 80, 64);
+        Server b = new Server("10.0.0.2", 80, 192);
+        assertEquals(4, WeightedRoundRobinSelectionStrategy.buildSchedule(List.of(a, b)).length);
+    }
+
+    private static Map<Server, Integer> pickCounts(LoadBalancer loadBalancer, int picks) {
+        Map<Server, Integer> counts = new HashMap<>();
+        for (int i = 0; i < picks; i++) counts.merge(loadBalancer.selectBackend(), 1, Integer::sum);
+        return counts;
+    }
+}